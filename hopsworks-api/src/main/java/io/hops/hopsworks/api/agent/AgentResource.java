@@ -17,14 +17,15 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import io.hops.hopsworks.common.dao.host.HeartbeatBuffer;
 import io.hops.hopsworks.common.dao.host.Host;
 import io.hops.hopsworks.common.dao.host.HostEJB;
-import io.hops.hopsworks.common.dao.role.Role;
-import io.hops.hopsworks.common.dao.role.RoleEJB;
+import io.hops.hopsworks.common.dao.host.HostHeartbeat;
 import io.hops.hopsworks.common.dao.host.Status;
 import io.hops.hopsworks.common.dao.project.Project;
 import io.hops.hopsworks.common.dao.project.ProjectFacade;
 import io.hops.hopsworks.common.dao.pythonDeps.BlockReport;
+import io.hops.hopsworks.common.dao.pythonDeps.BlockReportTracker;
 import io.hops.hopsworks.common.dao.pythonDeps.CondaCommands;
 import io.hops.hopsworks.common.dao.pythonDeps.PythonDep;
 import io.hops.hopsworks.common.dao.pythonDeps.PythonDepsFacade;
@@ -58,7 +59,9 @@ public class AgentResource {
   @EJB
   private HostEJB hostFacade;
   @EJB
-  private RoleEJB roleFacade;
+  private HeartbeatBuffer heartbeatBuffer;
+  @EJB
+  private BlockReportTracker blockReportTracker;
   @EJB
   private AlertEJB alertFacade;
   @EJB
@@ -149,17 +152,16 @@ public class AgentResource {
         logger.log(Level.WARNING, "Host with id {0} is not registered.", hostId);
         return Response.status(Response.Status.NOT_ACCEPTABLE).build();
       }
-      host.setLastHeartbeat((new Date()).getTime());
-      host.setLoad1(json.getJsonNumber("load1").doubleValue());
-      host.setLoad5(json.getJsonNumber("load5").doubleValue());
-      host.setLoad15(json.getJsonNumber("load15").doubleValue());
-      host.setDiskUsed(json.getJsonNumber("disk-used").longValue());
-      host.setMemoryUsed(json.getJsonNumber("memory-used").longValue());
-      host.setPrivateIp(json.getString("private-ip"));
-      host.setDiskCapacity(json.getJsonNumber("disk-capacity").longValue());
-      host.setMemoryCapacity(json.getJsonNumber("memory-capacity").longValue());
-      host.setCores(json.getInt("cores"));
-      hostFacade.storeHost(host, false);
+      HostHeartbeat heartbeat = new HostHeartbeat(hostId, (new Date()).getTime(),
+              json.getJsonNumber("load1").doubleValue(),
+              json.getJsonNumber("load5").doubleValue(),
+              json.getJsonNumber("load15").doubleValue(),
+              json.getJsonNumber("disk-used").longValue(),
+              json.getJsonNumber("disk-capacity").longValue(),
+              json.getJsonNumber("memory-used").longValue(),
+              json.getJsonNumber("memory-capacity").longValue(),
+              json.getString("private-ip"),
+              json.getInt("cores"));
 
       JsonArray roles = json.getJsonArray("services");
       for (int i = 0; i < roles.size(); i++) {
@@ -174,30 +176,23 @@ public class AgentResource {
         String roleName = s.getString("role");
         String service = s.getString("service");
 
-        Role role = roleFacade.find(hostId, cluster, service, roleName);
-        if (role == null) {
-          role = new Role();
-          role.setHostId(hostId);
-          role.setCluster(cluster);
-          role.setService(service);
-          role.setRole(roleName);
-        }
-
         String webPort = s.containsKey("web-port") ? s.getString("web-port")
                 : "0";
         String pid = s.containsKey("pid") ? s.getString("pid") : "-1";
+        int webPortNum;
+        int pidNum;
         try {
-          role.setWebPort(Integer.parseInt(webPort));
-          role.setPid(Integer.parseInt(pid));
+          webPortNum = Integer.parseInt(webPort);
+          pidNum = Integer.parseInt(pid);
         } catch (NumberFormatException ex) {
           logger.log(Level.WARNING,
-                  "Invalid webport or pid - not a number for: {0}", role);
+                  "Invalid webport or pid - not a number for: {0}/{1}/{2}",
+                  new Object[]{cluster, service, roleName});
           continue;
         }
+        Status status = Status.None;
         if (s.containsKey("status")) {
-          role.setStatus(Status.valueOf(s.getString("status")));
-        } else {
-          role.setStatus(Status.None);
+          status = Status.valueOf(s.getString("status"));
         }
         String startTime = null;
         if (s.containsKey("start-time")) {
@@ -207,20 +202,24 @@ public class AgentResource {
         if (s.containsKey("stop-time")) {
           stopTime = s.getString("stop-time");
         }
+        Long uptime = null;
         try {
           if (stopTime != null) {
-            role.setUptime(Long.parseLong(stopTime) - Long.parseLong(startTime));
+            uptime = Long.parseLong(stopTime) - Long.parseLong(startTime);
           } else if (startTime != null) {
-            role.setUptime(agentTime - Long.parseLong(startTime));
+            uptime = agentTime - Long.parseLong(startTime);
           }
         } catch (NumberFormatException ex) {
           logger.log(Level.WARNING,
-                  "Invalid startTime or stopTime - not a valid number for: {0}",
-                  role);
+                  "Invalid startTime or stopTime - not a valid number for: {0}/{1}/{2}",
+                  new Object[]{cluster, service, roleName});
           continue;
         }
-        roleFacade.store(role);
+        heartbeat.addRole(new HostHeartbeat.RoleHeartbeat(cluster, service,
+                roleName, webPortNum, pidNum, status, uptime));
       }
+      // Host and role updates are written in batches by the heartbeat buffer
+      heartbeatBuffer.offer(heartbeat);
 
       if (json.containsKey("conda-ops")) {
         JsonArray condaOps = json.getJsonArray("conda-ops");
@@ -283,13 +282,38 @@ public class AgentResource {
           }
         }
 
-        // get all the projects and send them down and all the dependencies
-        // for all the projects and send them down, too.
-        List<Project> allProjs = projFacade.findAll();
+        // Environments whose libraries have not changed since they last
+        // matched their project are skipped. All the projects are only
+        // reconciled periodically, so that changes to the projects are
+        // picked up and projects without an environment get one.
+        boolean fullReconcile = blockReportTracker.isFullReconcileDue(hostId);
+        Map<String, String> reportDigests = new HashMap<>();
+        for (BlockReport br : mapReports.values()) {
+          reportDigests.put(br.getProject(), br.getLibsDigest());
+        }
+        Map<String, String> inSync = new HashMap<>();
+        List<Project> projsToCheck;
+        if (fullReconcile) {
+          projsToCheck = projFacade.findAll();
+        } else {
+          projsToCheck = new ArrayList<>();
+          for (Map.Entry<String, String> digest : reportDigests.entrySet()) {
+            String projName = digest.getKey();
+            if (blockReportTracker.isInSync(hostId, projName, digest.getValue())) {
+              inSync.put(projName, digest.getValue());
+              mapReports.remove(projName);
+            } else {
+              Project project = projFacade.findByName(projName);
+              if (project != null) {
+                projsToCheck.add(project);
+              }
+            }
+          }
+        }
         // For each project, verify all its libs are in the blockreport list
         // Any extra blocks reported need to be removed. Any missing need to
         // be added
-        for (Project project : allProjs) {
+        for (Project project : projsToCheck) {
 
           Collection<CondaCommands> allCcs = project.
                   getCondaCommandsCollection();
@@ -320,7 +344,9 @@ public class AgentResource {
               differenceList.add(cc);
             }
 
-          } else { // This project exists as a conda env
+          } else if (mapReports.containsKey(project.getName())) {
+            // This project exists as a conda env
+            int differences = differenceList.size();
             BlockReport br = mapReports.get(project.getName());
             for (PythonDep lib : project.getPythonDepCollection()) {
               BlockReport.Lib blockLib = br.getLib(lib.getDependency());
@@ -351,6 +377,9 @@ public class AgentResource {
               cc.setId(-1);
               differenceList.add(cc);
             }
+            if (differenceList.size() == differences) {
+              inSync.put(project.getName(), reportDigests.get(project.getName()));
+            }
             mapReports.remove(project.getName());
           }
         }
@@ -363,6 +392,7 @@ public class AgentResource {
 
           if (br.getProject().compareToIgnoreCase(settings.getAnacondaEnv())
                   == 0) {
+            inSync.put(br.getProject(), reportDigests.get(br.getProject()));
             continue;
           }
           CondaCommands cc = new CondaCommands();
@@ -373,6 +403,7 @@ public class AgentResource {
           cc.setOp(PythonDepsFacade.CondaOp.REMOVE);
           differenceList.add(cc);
         }
+        blockReportTracker.update(hostId, inSync, fullReconcile);
       }
 
       Collection<CondaCommands> allCommands = host.
@@ -18,6 +18,7 @@ import javax.ws.rs.core.Response;
 import io.hops.hopsworks.common.dao.app.EmailJsonDTO;
 import io.hops.hopsworks.common.dao.app.TopicJsonDTO;
 import io.hops.hopsworks.common.dao.certificates.CertsFacade;
+import io.hops.hopsworks.common.dao.certificates.KeystoreAuthCache;
 import io.hops.hopsworks.common.dao.certificates.UserCerts;
 import io.hops.hopsworks.common.dao.project.Project;
 import io.hops.hopsworks.common.dao.project.ProjectFacade;
@@ -32,12 +33,16 @@ import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Enumeration;
 import javax.mail.Message;
 import javax.mail.MessagingException;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.SecurityContext;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import org.apache.commons.codec.digest.DigestUtils;
 
 @Path("/appservice")
 @Stateless
@@ -56,6 +61,8 @@ public class ApplicationService {
   @EJB
   private CertsFacade certificateBean;
   @EJB
+  private KeystoreAuthCache keystoreAuthCache;
+  @EJB
   private HdfsUsersController hdfsUserBean;
   @EJB
   private ProjectFacade projectFacade;
@@ -93,6 +100,8 @@ public class ApplicationService {
 
   //when do we need this api? It's used when the KafKa clients want to access
   // the schema for a give topic which a message is published to and consumerd from
+  //The response has an ETag, clients that send it back in If-None-Match get
+  //304 Not Modified if the schema did not change.
   @POST
   @Path("schema")
   @Produces(MediaType.APPLICATION_JSON)
@@ -113,13 +122,21 @@ public class ApplicationService {
     }
 
     SchemaDTO schemaDto = kafka.getSchemaForTopic(topicInfo.getTopicName());
+    EntityTag tag = new EntityTag(DigestUtils.sha1Hex(schemaDto.getContents().
+        getBytes(StandardCharsets.UTF_8)));
+    if (matches(req.getHeader(HttpHeaders.IF_NONE_MATCH), tag)) {
+      return noCacheResponse.getNoCacheResponseBuilder(
+          Response.Status.NOT_MODIFIED).tag(tag).build();
+    }
     return noCacheResponse.getNoCacheResponseBuilder(Response.Status.OK).
-        entity(schemaDto).build();
+        entity(schemaDto).tag(tag).build();
 
   }
 
   /**
-   * Returns the project user from the keystore and verifies it.
+   * Returns the project user from the keystore and verifies it. Keystores
+   * that were verified recently are recognized by their digest, without
+   * parsing them again.
    *
    * @param keyStore
    * @param keyStorePwd
@@ -128,6 +145,12 @@ public class ApplicationService {
    */
   private String checkAndGetProjectUser(byte[] keyStore, char[] keyStorePwd)
       throws AppException {
+    String digest = KeystoreAuthCache.getDigest(keyStore, keyStorePwd);
+    String cachedUser = keystoreAuthCache.get(digest);
+    if (cachedUser != null) {
+      return cachedUser;
+    }
+    long cacheVersion = keystoreAuthCache.getVersion();
     try {
       KeyStore ks = KeyStore.getInstance(KeyStore.getDefaultType());
       ByteArrayInputStream stream = new ByteArrayInputStream(keyStore);
@@ -144,13 +167,16 @@ public class ApplicationService {
         }
       }
 
-      UserCerts userCert = certificateBean.findUserCert(hdfsUserBean.
-          getProjectName(projectUser), hdfsUserBean.getUserName(projectUser));
+      String projectName = hdfsUserBean.getProjectName(projectUser);
+      String userName = hdfsUserBean.getUserName(projectUser);
+      UserCerts userCert = certificateBean.findUserCert(projectName, userName);
 
       if (!Arrays.equals(userCert.getUserKey(), keyStore)) {
         throw new AppException(Response.Status.UNAUTHORIZED.getStatusCode(),
             "Certificate error!");
       }
+      keystoreAuthCache.put(digest, projectName, userName, projectUser,
+          cacheVersion);
       return projectUser;
     } catch (IOException | CertificateException | KeyStoreException | NoSuchAlgorithmException ex) {
       throw new AppException(Response.Status.BAD_REQUEST.getStatusCode(),
@@ -158,6 +184,30 @@ public class ApplicationService {
     }
   }
 
+  /**
+   * @param ifNoneMatch the If-None-Match header of a request
+   * @param tag
+   * @return true if the header holds the tag
+   */
+  private boolean matches(String ifNoneMatch, EntityTag tag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String value : ifNoneMatch.split(",")) {
+      value = value.trim();
+      if (value.equals("*")) {
+        return true;
+      }
+      if (value.startsWith("W/")) {
+        value = value.substring(2);
+      }
+      if (value.equals("\"" + tag.getValue() + "\"")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private void assertAdmin(String projectUser) throws AppException {
     String user = hdfsUserBean.getUserName(projectUser);
     if (!userManager.findGroups(user).contains("HOPS_ADMIN")) {
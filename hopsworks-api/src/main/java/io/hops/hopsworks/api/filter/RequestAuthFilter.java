@@ -3,11 +3,14 @@ package io.hops.hopsworks.api.filter;
 import io.hops.hopsworks.api.util.JsonResponse;
 import io.hops.hopsworks.common.dao.project.Project;
 import io.hops.hopsworks.common.dao.project.ProjectFacade;
+import io.hops.hopsworks.common.dao.project.team.ProjectRoleCache;
 import io.hops.hopsworks.common.dao.project.team.ProjectTeamFacade;
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.ejb.EJB;
@@ -32,12 +35,22 @@ public class RequestAuthFilter implements ContainerRequestFilter {
   @EJB
   private ProjectFacade projectBean;
 
+  @EJB
+  private ProjectRoleCache roleCache;
+
   @Context
   private ResourceInfo resourceInfo;
 
   private final static Logger log = Logger.getLogger(RequestAuthFilter.class.
           getName());
 
+  /**
+   * The roles allowed by the AllowedRoles annotation of each resource method,
+   * built once per method.
+   */
+  private static final ConcurrentHashMap<Method, Set<String>> ALLOWED_ROLES = new ConcurrentHashMap<>();
+  private static final Set<String> NOT_ANNOTATED = Collections.emptySet();
+
   @Override
   public void filter(ContainerRequestContext requestContext) {
 
@@ -68,24 +81,25 @@ public class RequestAuthFilter implements ContainerRequestFilter {
         return;
       }
 
-      Project project = projectBean.find(projectId);
-      if (project == null) {
-        requestContext.abortWith(Response.
-                status(Response.Status.NOT_FOUND).build());
-        return;
+      if (!roleCache.isKnownProject(projectId)) {
+        long version = roleCache.getVersion();
+        Project project = projectBean.find(projectId);
+        if (project == null) {
+          requestContext.abortWith(Response.
+                  status(Response.Status.NOT_FOUND).build());
+          return;
+        }
+        roleCache.putProject(projectId, version);
       }
-      log.log(Level.FINEST, "Filtering project request path: {0}", project.
-              getName());
+      log.log(Level.FINEST, "Filtering project request path: {0}", projectId);
 
-      if (!method.isAnnotationPresent(AllowedRoles.class)) {
+      Set<String> rolesSet = getAllowedRoles(method);
+      if (rolesSet == null) {
         //Should throw exception if there is a method that is not annotated in this path.
         requestContext.abortWith(Response.
                 status(Response.Status.SERVICE_UNAVAILABLE).build());
         return;
       }
-      AllowedRoles rolesAnnotation = method.getAnnotation(AllowedRoles.class);
-      Set<String> rolesSet;
-      rolesSet = new HashSet<>(Arrays.asList(rolesAnnotation.roles()));
 
       //If the resource is allowed for all roles continue with the request. 
       if (rolesSet.contains(AllowedRoles.ALL)) {
@@ -103,7 +117,12 @@ public class RequestAuthFilter implements ContainerRequestFilter {
       String userEmail = requestContext.getSecurityContext().getUserPrincipal().
               getName();
 
-      userRole = projectTeamBean.findCurrentRole(project, userEmail);
+      userRole = roleCache.getRole(projectId, userEmail);
+      if (userRole == null) {
+        long version = roleCache.getVersion();
+        userRole = projectTeamBean.findCurrentRole(projectId, userEmail);
+        roleCache.putRole(projectId, userEmail, userRole, version);
+      }
 
       if (userRole == null || userRole.isEmpty()) {
         log.log(Level.INFO,
@@ -128,4 +147,19 @@ public class RequestAuthFilter implements ContainerRequestFilter {
       }
     }
   }
+
+  /**
+   * @return the roles allowed to call the method, or null if it is not
+   * annotated
+   */
+  private static Set<String> getAllowedRoles(Method method) {
+    Set<String> roles = ALLOWED_ROLES.get(method);
+    if (roles == null) {
+      AllowedRoles rolesAnnotation = method.getAnnotation(AllowedRoles.class);
+      roles = rolesAnnotation == null ? NOT_ANNOTATED : Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+              rolesAnnotation.roles())));
+      ALLOWED_ROLES.putIfAbsent(method, roles);
+    }
+    return roles == NOT_ANNOTATED ? null : roles;
+  }
 }
@@ -0,0 +1,339 @@
+package io.hops.hopsworks.api.jobs;
+
+import io.hops.hopsworks.common.util.Settings;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.DependsOn;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+import javax.ejb.Timeout;
+import javax.ejb.Timer;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+import org.influxdb.InfluxDB;
+import org.influxdb.InfluxDBFactory;
+import org.influxdb.dto.Query;
+import org.influxdb.dto.QueryResult;
+
+/**
+ * Holds the InfluxDB client shared by all metrics queries and caches query
+ * results and the executor overview of applications for a short time, so that
+ * dashboards refreshing every few seconds do not hit InfluxDB on every call.
+ * A replaced client is closed after a grace period, so the queries still
+ * running on it can finish.
+ */
+@Singleton
+@DependsOn("Settings")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class InfluxDBClientManager {
+
+  private static final Logger LOG = Logger.getLogger(InfluxDBClientManager.class.getName());
+
+  public static final String GRAPHITE_DB = "graphite";
+  /**
+   * How long query results and executor overviews are served from the cache.
+   */
+  private static final long CACHE_TTL_MS = 5 * 1000;
+  private static final int MAX_CACHE_ENTRIES = 1000;
+  /**
+   * How long a replaced client is kept open for the queries running on it.
+   */
+  private static final long RETIRED_CLIENT_GRACE_MS = 60 * 1000;
+
+  @EJB
+  private Settings settings;
+  @Resource
+  private TimerService timerService;
+
+  private volatile InfluxDB client;
+  private volatile String clientKey;
+  //Guarded by this
+  private final List<RetiredClient> retired = new ArrayList<>();
+
+  private final Map<String, CacheEntry<QueryResult>> queryCache = new LruMap<>();
+  private final Map<String, CacheEntry<HashMap<Integer, List<String>>>> executorCache = new LruMap<>();
+
+  @PreDestroy
+  public void preDestroy() {
+    List<InfluxDB> toClose = new ArrayList<>();
+    synchronized (this) {
+      if (client != null) {
+        toClose.add(client);
+        client = null;
+        clientKey = null;
+      }
+      for (RetiredClient r : retired) {
+        toClose.add(r.client);
+      }
+      retired.clear();
+    }
+    for (InfluxDB c : toClose) {
+      close(c);
+    }
+  }
+
+  /**
+   * Get the shared client. A new client is only built when the address or
+   * credentials of InfluxDB changed.
+   * <p/>
+   * @return
+   */
+  public InfluxDB getClient() {
+    String key = settings.getInfluxDBAddress() + "|" + settings.getInfluxDBUser() + "|" + settings.getInfluxDBPW();
+    InfluxDB current = client;
+    if (current != null && key.equals(clientKey)) {
+      return current;
+    }
+    synchronized (this) {
+      if (client != null && key.equals(clientKey)) {
+        return client;
+      }
+      retireClient();
+      client = InfluxDBFactory.connect(settings.getInfluxDBAddress(), settings.getInfluxDBUser(),
+          settings.getInfluxDBPW());
+      clientKey = key;
+      return client;
+    }
+  }
+
+  /**
+   * Run a query, serving the result from the cache if the same query was run
+   * within the last few seconds. Failed queries are not cached.
+   * <p/>
+   * @param query
+   * @param database
+   * @return
+   */
+  public QueryResult query(String query, String database) {
+    String key = database + "\n" + query;
+    QueryResult result = getCached(queryCache, key);
+    if (result != null) {
+      return result;
+    }
+    result = getClient().query(new Query(query, database), TimeUnit.MILLISECONDS);
+    if (result != null && !result.hasError()) {
+      putCached(queryCache, key, result);
+    }
+    return result;
+  }
+
+  /**
+   * Get the YARN container, host and host vcores of every executor of a Spark
+   * application. The containers are read with one query grouped by container
+   * and host, and the vcores with one query grouped by host, so the number of
+   * round trips does not grow with the number of executors.
+   * <p/>
+   * @param appId
+   * @return executor number to [container id, hostname, host vcores]
+   */
+  public HashMap<Integer, List<String>> getExecutorInfo(String appId) {
+    HashMap<Integer, List<String>> executorInfo = getCached(executorCache, appId);
+    if (executorInfo != null) {
+      return executorInfo;
+    }
+    executorInfo = new HashMap<>();
+    InfluxDB influxDB = getClient();
+
+    // Transform application_1493112123688_0001 to 1493112123688_0001
+    // application_ = 12 chars
+    String timestampAttempt = appId.substring(12);
+    QueryResult containerResult = influxDB.query(new Query("select last(MilliVcoreUsageAvgMilliVcores) "
+        + "from nodemanager where source =~ /^.*" + timestampAttempt + ".*$/ group by \"source\", \"hostname\"",
+        GRAPHITE_DB), TimeUnit.MILLISECONDS);
+    // Executors are numbered in the order of their container ids
+    Map<String, String> containerHosts = new TreeMap<>();
+    for (QueryResult.Series series : allSeries(containerResult)) {
+      String container = getTag(series, "source");
+      if (container != null && !containerHosts.containsKey(container)) {
+        containerHosts.put(container, getHostname(getTag(series, "hostname")));
+      }
+    }
+    if (containerHosts.isEmpty()) {
+      putCached(executorCache, appId, executorInfo);
+      return executorInfo;
+    }
+
+    List<String> hostnames = new ArrayList<>();
+    for (String hostname : containerHosts.values()) {
+      if (hostname != null && !hostnames.contains(hostname)) {
+        hostnames.add(hostname);
+      }
+    }
+    Map<String, String> hostVCores = new HashMap<>();
+    if (!hostnames.isEmpty()) {
+      StringBuilder hostRegex = new StringBuilder();
+      for (String hostname : hostnames) {
+        hostRegex.append(hostRegex.length() == 0 ? "" : "|").append(hostname.replace(".", "\\."));
+      }
+      QueryResult hostResult = influxDB.query(new Query("select last(AllocatedVCores), last(AvailableVCores) "
+          + "from nodemanager where hostname =~ /^.*(" + hostRegex + ").*$/ group by \"hostname\"", GRAPHITE_DB),
+          TimeUnit.MILLISECONDS);
+      for (QueryResult.Series series : allSeries(hostResult)) {
+        String hostname = getHostname(getTag(series, "hostname"));
+        List<List<Object>> values = series.getValues();
+        if (hostname == null || values == null || values.isEmpty()) {
+          continue;
+        }
+        List<Object> row = values.get(0);
+        if (row.size() > 2 && row.get(1) instanceof Number && row.get(2) instanceof Number) {
+          hostVCores.put(hostname, Objects.toString(((Number) row.get(1)).doubleValue()
+              + ((Number) row.get(2)).doubleValue()));
+        }
+      }
+    }
+
+    int executor = 0;
+    for (Map.Entry<String, String> containerHost : containerHosts.entrySet()) {
+      List<String> info = new ArrayList<>();
+      info.add(containerHost.getKey());
+      if (containerHost.getValue() != null) {
+        info.add(containerHost.getValue());
+        String vCores = hostVCores.get(containerHost.getValue());
+        if (vCores != null) {
+          info.add(vCores);
+        }
+      }
+      executorInfo.put(executor++, info);
+    }
+    putCached(executorCache, appId, executorInfo);
+    return executorInfo;
+  }
+
+  private List<QueryResult.Series> allSeries(QueryResult queryResult) {
+    if (queryResult == null || queryResult.getResults() == null || queryResult.getResults().isEmpty()
+        || queryResult.getResults().get(0).getSeries() == null) {
+      return new ArrayList<>();
+    }
+    return queryResult.getResults().get(0).getSeries();
+  }
+
+  private String getTag(QueryResult.Series series, String key) {
+    return series.getTags() == null ? null : series.getTags().get(key);
+  }
+
+  /**
+   * The hostname tag of the NodeManager metrics is stored as Hostname=host.
+   */
+  private String getHostname(String tag) {
+    if (tag == null || tag.isEmpty()) {
+      return null;
+    }
+    int separator = tag.indexOf('=');
+    return separator < 0 ? tag : tag.substring(separator + 1);
+  }
+
+  private <V> V getCached(Map<String, CacheEntry<V>> cache, String key) {
+    synchronized (cache) {
+      CacheEntry<V> entry = cache.get(key);
+      if (entry == null) {
+        return null;
+      }
+      if (System.currentTimeMillis() - entry.created > CACHE_TTL_MS) {
+        cache.remove(key);
+        return null;
+      }
+      return entry.value;
+    }
+  }
+
+  private <V> void putCached(Map<String, CacheEntry<V>> cache, String key, V value) {
+    synchronized (cache) {
+      cache.put(key, new CacheEntry<>(value));
+    }
+  }
+
+  /**
+   * Move the current client to the retired ones and schedule its close.
+   */
+  private void retireClient() {
+    if (client == null) {
+      return;
+    }
+    retired.add(new RetiredClient(client, System.currentTimeMillis() + RETIRED_CLIENT_GRACE_MS));
+    client = null;
+    clientKey = null;
+    try {
+      timerService.createSingleActionTimer(RETIRED_CLIENT_GRACE_MS, new TimerConfig(null, false));
+    } catch (RuntimeException ex) {
+      LOG.log(Level.WARNING, "Could not schedule the close of the replaced InfluxDB client", ex);
+    }
+  }
+
+  /**
+   * Close the retired clients whose grace period is over.
+   * <p/>
+   * @param timer
+   */
+  @Timeout
+  public void closeRetiredClients(Timer timer) {
+    long now = System.currentTimeMillis();
+    List<InfluxDB> toClose = new ArrayList<>();
+    synchronized (this) {
+      Iterator<RetiredClient> it = retired.iterator();
+      while (it.hasNext()) {
+        RetiredClient r = it.next();
+        if (r.closeAt <= now) {
+          toClose.add(r.client);
+          it.remove();
+        }
+      }
+    }
+    for (InfluxDB c : toClose) {
+      close(c);
+    }
+  }
+
+  private void close(InfluxDB c) {
+    try {
+      c.close();
+    } catch (Exception ex) {
+      LOG.log(Level.WARNING, "Could not close InfluxDB client", ex);
+    }
+  }
+
+  private static class CacheEntry<V> {
+
+    private final V value;
+    private final long created = System.currentTimeMillis();
+
+    CacheEntry(V value) {
+      this.value = value;
+    }
+  }
+
+  private static class RetiredClient {
+
+    private final InfluxDB client;
+    private final long closeAt;
+
+    RetiredClient(InfluxDB client, long closeAt) {
+      this.client = client;
+      this.closeAt = closeAt;
+    }
+  }
+
+  private static class LruMap<K, V> extends LinkedHashMap<K, V> {
+
+    LruMap() {
+      super(64, 0.75f, true);
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+      return size() > MAX_CACHE_ENTRIES;
+    }
+  }
+}
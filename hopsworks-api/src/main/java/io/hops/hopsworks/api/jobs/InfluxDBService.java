@@ -9,9 +9,6 @@ import io.hops.hopsworks.common.exception.AppException;
 import io.hops.hopsworks.common.util.IoUtils;
 import io.hops.hopsworks.common.util.Settings;
 import org.apache.hadoop.security.AccessControlException;
-import org.influxdb.InfluxDB;
-import org.influxdb.InfluxDBFactory;
-import org.influxdb.dto.Query;
 import org.influxdb.dto.QueryResult;
 
 import javax.ejb.EJB;
@@ -36,7 +33,6 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.SecurityContext;
 import java.io.IOException;
 import java.io.StringReader;
-import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -54,6 +50,8 @@ public class InfluxDBService {
   private NoCacheResponse noCacheResponse;
   @EJB
   private Settings settings;
+  @EJB
+  private InfluxDBClientManager influxDBClientManager;
 
   private String appId;
 
@@ -78,8 +76,6 @@ public class InfluxDBService {
     // TODO: FIX authentication, check if user has access to project
     // https://github.com/influxdata/influxdb-java/blob/master/src/main/java/org/influxdb/dto/QueryResult.java
 
-    InfluxDB influxdb = InfluxDBFactory.connect(settings.getInfluxDBAddress(),
-            settings.getInfluxDBUser(), settings.getInfluxDBPW());
     Response response = null;
 
     StringBuffer query = new StringBuffer();
@@ -89,8 +85,7 @@ public class InfluxDBService {
 
     LOGGER.log(Level.FINE, "Influxdb - Running query: " + query.toString());
 
-    Query q = new Query(query.toString(), database);
-    QueryResult reply = influxdb.query(q, TimeUnit.MILLISECONDS);
+    QueryResult reply = influxDBClientManager.query(query.toString(), database);
 
     if (reply.hasError()) {
       response = noCacheResponse.getNoCacheResponseBuilder(Response.Status.NOT_FOUND).
@@ -107,8 +102,6 @@ public class InfluxDBService {
               entity("").build();
     }
 
-    influxdb.close();
-
     return response;
   }
 
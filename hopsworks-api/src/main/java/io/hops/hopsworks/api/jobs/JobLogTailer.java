@@ -0,0 +1,495 @@
+package io.hops.hopsworks.api.jobs;
+
+import io.hops.hopsworks.api.filter.NoCacheResponse;
+import io.hops.hopsworks.common.dao.jobhistory.Execution;
+import io.hops.hopsworks.common.dao.jobhistory.ExecutionFacade;
+import io.hops.hopsworks.common.dao.jobhistory.YarnApplicationAttemptStateFacade;
+import io.hops.hopsworks.common.hdfs.DistributedFileSystemOps;
+import io.hops.hopsworks.common.hdfs.DistributedFsService;
+import io.hops.hopsworks.common.util.Settings;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.PreDestroy;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.Timer;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response;
+import org.apache.commons.httpclient.HttpState;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.methods.GetMethod;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringEscapeUtils;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
+import org.apache.hadoop.yarn.api.records.ApplicationReport;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.client.api.YarnClient;
+import org.apache.hadoop.yarn.exceptions.YarnException;
+import org.apache.hadoop.yarn.util.ConverterUtils;
+
+/**
+ * Reads windows of the stdout and stderr logs of executions, so that logs of
+ * any size can be paged through without loading them whole, and lets clients
+ * wait for a log to grow past the part they already have.
+ * <p/>
+ * Once an execution is over its logs are read from HDFS. While it runs they
+ * are read from the container of its application master, through the
+ * containerlogs page of the NodeManager, which takes a start and end offset.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class JobLogTailer {
+
+  private static final Logger LOG = Logger.getLogger(JobLogTailer.class.getName());
+
+  public static final int DEFAULT_WINDOW_BYTES = 64 * 1024;
+  public static final int MAX_WINDOW_BYTES = 1024 * 1024;
+  /**
+   * Longest a client can wait for a log to grow.
+   */
+  public static final int MAX_WAIT_SECONDS = 60;
+
+  private static final Pattern PRE_START = Pattern.compile("<pre[^>]*>");
+
+  @EJB
+  private ExecutionFacade exeFacade;
+  @EJB
+  private YarnApplicationAttemptStateFacade appAttemptStateFacade;
+  @EJB
+  private DistributedFsService dfs;
+  @EJB
+  private NoCacheResponse noCacheResponse;
+  @EJB
+  private JobUIProxy jobUIProxy;
+  @EJB
+  private Settings settings;
+
+  //Guarded by this
+  private YarnClient yarnClient;
+
+  //Guarded by itself
+  private final Map<Integer, List<Waiter>> waiters = new HashMap<>();
+
+  @PreDestroy
+  public void preDestroy() {
+    synchronized (this) {
+      if (yarnClient != null) {
+        yarnClient.stop();
+        yarnClient = null;
+      }
+    }
+  }
+
+  /**
+   * Read a window of the stdout ("log") or stderr ("err") of an execution.
+   * <p/>
+   * The returned object holds the text read, the byte <i>offset</i> it starts
+   * at, the <i>nextOffset</i> to read from, the current <i>size</i> of the log
+   * and whether the execution is <i>finished</i>. While the execution runs its
+   * tracking <i>url</i> is returned too, and the window is read from the
+   * container of its application master, which sets <i>live</i>. If the
+   * container logs cannot be reached, such as while the logs are being
+   * aggregated, the log is not <i>available</i> until it is copied to HDFS.
+   * <p/>
+   * @param exec
+   * @param type log or err
+   * @param offset byte offset to read from, negative to read the last
+   * <i>length</i> bytes
+   * @param length maximum number of bytes to read
+   * @return
+   * @throws IOException
+   */
+  public JsonObject read(Execution exec, String type, long offset, int length) throws IOException {
+    length = Math.max(0, Math.min(length, MAX_WINDOW_BYTES));
+    boolean finished = exec.getState().isFinalState();
+    JsonObjectBuilder builder = Json.createObjectBuilder()
+        .add("type", type)
+        .add("finished", finished);
+    if (!finished) {
+      builder.add("url", appAttemptStateFacade.findTrackingUrlByAppId(exec.getAppId()));
+      String logUrl = getContainerLogUrl(exec);
+      if (logUrl != null) {
+        JsonObject live = readLive(logUrl, type, offset, length, builder);
+        if (live != null) {
+          return live;
+        }
+      }
+    }
+    String path = getLogPath(exec, type);
+    DistributedFileSystemOps dfso = null;
+    try {
+      dfso = dfs.getDfsOps();
+      long size;
+      try {
+        size = path == null ? -1 : dfso.getFileStatus(new Path(path)).getLen();
+      } catch (FileNotFoundException ex) {
+        size = -1;
+      }
+      if (size < 0) {
+        long start = Math.max(offset, 0);
+        return builder.add("available", false).add("data", "").add("offset", start).add("nextOffset", start)
+            .add("size", 0).build();
+      }
+      long start = offset < 0 ? Math.max(0, size - length) : Math.min(offset, size);
+      byte[] buf = new byte[(int) Math.min(length, size - start)];
+      if (buf.length > 0) {
+        try (FSDataInputStream in = dfso.open(path)) {
+          in.readFully(start, buf);
+        }
+      }
+      // Windows start and end on whole characters
+      int from = start > 0 ? completeStart(buf) : 0;
+      int to = start + buf.length < size ? completeLength(buf, from, buf.length) : buf.length;
+      return builder.add("available", true)
+          .add("data", new String(buf, from, to - from, StandardCharsets.UTF_8))
+          .add("offset", start + from)
+          .add("nextOffset", start + to)
+          .add("size", size)
+          .build();
+    } finally {
+      if (dfso != null) {
+        dfso.close();
+      }
+    }
+  }
+
+  /**
+   * Read a window of the log of a running container from its NodeManager.
+   * <p/>
+   * @return the window, or null if the log could not be read
+   */
+  private JsonObject readLive(String logUrl, String type, long offset, int length, JsonObjectBuilder builder) {
+    String file = getContainerLogFile(type);
+    try {
+      long size = parseContainerLogLength(fetch(logUrl), file);
+      if (size < 0) {
+        return null;
+      }
+      long start = offset < 0 ? Math.max(0, size - length) : Math.min(offset, size);
+      long end = Math.min(size, start + length);
+      String data = "";
+      if (end > start) {
+        data = parseContainerLog(fetch(logUrl + "/" + file + "?start=" + start + "&end=" + end));
+        if (data == null) {
+          return null;
+        }
+      }
+      return builder.add("available", true)
+          .add("live", true)
+          .add("data", data)
+          .add("offset", start)
+          .add("nextOffset", start + data.getBytes(StandardCharsets.UTF_8).length)
+          .add("size", size)
+          .build();
+    } catch (IOException ex) {
+      LOG.log(Level.FINE, "Could not read the container log at " + logUrl, ex);
+      return null;
+    }
+  }
+
+  public Response buildResponse(JsonObject window) {
+    return noCacheResponse.getNoCacheResponseBuilder(Response.Status.OK).entity(window).build();
+  }
+
+  /**
+   * Wait until the log of an execution has data past <i>offset</i>, or the
+   * execution finished, and resume the response with the next window. Once
+   * the wait is over the response is resumed with an empty window.
+   * <p/>
+   * @param exec
+   * @param type log or err
+   * @param offset the offset the client already has the log up to
+   * @param length maximum number of bytes to return
+   * @param waitSeconds
+   * @param asyncResponse
+   */
+  public void tail(Execution exec, String type, long offset, int length, int waitSeconds,
+      AsyncResponse asyncResponse) {
+    final Waiter waiter = new Waiter(exec.getId(), type, offset, length, asyncResponse);
+    synchronized (waiters) {
+      List<Waiter> execWaiters = waiters.get(exec.getId());
+      if (execWaiters == null) {
+        execWaiters = new ArrayList<>();
+        waiters.put(exec.getId(), execWaiters);
+      }
+      execWaiters.add(waiter);
+    }
+    asyncResponse.setTimeoutHandler(response -> {
+      remove(waiter);
+      try {
+        response.resume(buildResponse(read(exeFacade.findById(waiter.execId), waiter.type, waiter.offset, 0)));
+      } catch (IOException | RuntimeException ex) {
+        response.resume(ex);
+      }
+    });
+    asyncResponse.setTimeout(Math.min(waitSeconds, MAX_WAIT_SECONDS), TimeUnit.SECONDS);
+  }
+
+  private void remove(Waiter waiter) {
+    synchronized (waiters) {
+      List<Waiter> execWaiters = waiters.get(waiter.execId);
+      if (execWaiters != null && execWaiters.remove(waiter) && execWaiters.isEmpty()) {
+        waiters.remove(waiter.execId);
+      }
+    }
+  }
+
+  @Schedule(persistent = false,
+      second = "*/2",
+      minute = "*",
+      hour = "*")
+  public void check(Timer timer) {
+    List<Integer> execIds;
+    synchronized (waiters) {
+      if (waiters.isEmpty()) {
+        return;
+      }
+      execIds = new ArrayList<>(waiters.keySet());
+    }
+    for (Integer execId : execIds) {
+      Execution exec = exeFacade.findById(execId);
+      if (exec == null) {
+        continue;
+      }
+      List<Waiter> snapshot;
+      synchronized (waiters) {
+        List<Waiter> execWaiters = waiters.get(execId);
+        if (execWaiters == null) {
+          continue;
+        }
+        snapshot = new ArrayList<>(execWaiters);
+      }
+      // One size lookup per log, shared by the clients tailing it
+      String logUrl = exec.getState().isFinalState() ? null : getContainerLogUrl(exec);
+      Map<String, Long> sizes = new HashMap<>();
+      for (Waiter waiter : snapshot) {
+        if (!sizes.containsKey(waiter.type)) {
+          sizes.put(waiter.type, getLogSize(exec, waiter.type, logUrl));
+        }
+      }
+      List<Waiter> ready = new ArrayList<>();
+      synchronized (waiters) {
+        List<Waiter> execWaiters = waiters.get(execId);
+        if (execWaiters == null) {
+          continue;
+        }
+        Iterator<Waiter> it = execWaiters.iterator();
+        while (it.hasNext()) {
+          Waiter waiter = it.next();
+          Long size = sizes.get(waiter.type);
+          if (size == null) {
+            // started waiting after the sizes were read
+            continue;
+          }
+          if (size > waiter.offset || exec.getState().isFinalState() || !waiter.response.isSuspended()) {
+            it.remove();
+            ready.add(waiter);
+          }
+        }
+        if (execWaiters.isEmpty()) {
+          waiters.remove(execId);
+        }
+      }
+      for (Waiter waiter : ready) {
+        try {
+          waiter.response.resume(buildResponse(read(exec, waiter.type, waiter.offset, waiter.length)));
+        } catch (IOException | RuntimeException ex) {
+          LOG.log(Level.WARNING, "Could not read the logs of execution " + execId, ex);
+          waiter.response.resume(ex);
+        }
+      }
+    }
+  }
+
+  /**
+   * @param logUrl the container log url of a running execution, or null to
+   * get the size of the log in HDFS
+   * @return the size of the log, or -1 if it is not available
+   */
+  private long getLogSize(Execution exec, String type, String logUrl) {
+    if (logUrl != null) {
+      try {
+        return parseContainerLogLength(fetch(logUrl), getContainerLogFile(type));
+      } catch (IOException ex) {
+        LOG.log(Level.FINE, "Could not read the container log at " + logUrl, ex);
+        return -1;
+      }
+    }
+    String path = getLogPath(exec, type);
+    if (path == null) {
+      return -1;
+    }
+    DistributedFileSystemOps dfso = null;
+    try {
+      dfso = dfs.getDfsOps();
+      return dfso.getFileStatus(new Path(path)).getLen();
+    } catch (IOException ex) {
+      return -1;
+    } finally {
+      if (dfso != null) {
+        dfso.close();
+      }
+    }
+  }
+
+  private String getLogPath(Execution exec, String type) {
+    String path = "log".equals(type) ? exec.getStdoutPath() : exec.getStderrPath();
+    return path == null || path.isEmpty() ? null : "hdfs://" + path;
+  }
+
+  private String getContainerLogFile(String type) {
+    return "log".equals(type) ? "stdout" : "stderr";
+  }
+
+  /**
+   * @return the url of the logs of the application master container of a
+   * running execution, or null if YARN does not know it
+   */
+  private String getContainerLogUrl(Execution exec) {
+    if (exec.getAppId() == null || exec.getAppId().isEmpty()) {
+      return null;
+    }
+    try {
+      YarnClient yarn = getYarnClient();
+      ApplicationReport report = yarn.getApplicationReport(ConverterUtils.toApplicationId(exec.getAppId()));
+      ApplicationAttemptId attemptId = report.getCurrentApplicationAttemptId();
+      if (attemptId == null) {
+        return null;
+      }
+      ContainerId amContainerId = yarn.getApplicationAttemptReport(attemptId).getAMContainerId();
+      if (amContainerId == null) {
+        return null;
+      }
+      String logUrl = yarn.getContainerReport(amContainerId).getLogUrl();
+      return logUrl == null || logUrl.isEmpty() ? null : logUrl;
+    } catch (IOException | YarnException | IllegalArgumentException ex) {
+      LOG.log(Level.FINE, "Could not find the container logs of " + exec.getAppId(), ex);
+      return null;
+    }
+  }
+
+  private synchronized YarnClient getYarnClient() {
+    if (yarnClient == null) {
+      yarnClient = YarnClient.createYarnClient();
+      yarnClient.init(settings.getConfiguration());
+      yarnClient.start();
+    }
+    return yarnClient;
+  }
+
+  private String fetch(String url) throws IOException {
+    GetMethod method = new GetMethod(url);
+    try {
+      int status = jobUIProxy.getClient().executeMethod(jobUIProxy.newHostConfiguration(), method, new HttpState());
+      if (status != HttpStatus.SC_OK) {
+        throw new IOException("NodeManager returned " + status + " for " + url);
+      }
+      try (InputStream in = method.getResponseBodyAsStream()) {
+        return in == null ? "" : IOUtils.toString(in, "UTF-8");
+      }
+    } finally {
+      method.releaseConnection();
+    }
+  }
+
+  /**
+   * Get the length of a log file from the containerlogs page of a container,
+   * which lists its files as "stdout : Total file length is 123 bytes."
+   * <p/>
+   * @param page
+   * @param file
+   * @return the length, or -1 if the file is not listed
+   */
+  static long parseContainerLogLength(String page, String file) {
+    Matcher m = Pattern.compile(">" + Pattern.quote(file) + " : Total file length is (\\d+) bytes").matcher(page);
+    return m.find() ? Long.parseLong(m.group(1)) : -1;
+  }
+
+  /**
+   * Get the text of a log file from its containerlogs page, where it is
+   * escaped in a pre element.
+   * <p/>
+   * @param page
+   * @return the text, or null if the page holds no log, such as when the
+   * offsets were out of range
+   */
+  static String parseContainerLog(String page) {
+    Matcher m = PRE_START.matcher(page);
+    if (!m.find()) {
+      return null;
+    }
+    int end = page.indexOf("</pre>", m.end());
+    if (end < 0) {
+      return null;
+    }
+    return StringEscapeUtils.unescapeHtml(page.substring(m.end(), end));
+  }
+
+  private static boolean isContinuationByte(byte b) {
+    return (b & 0xC0) == 0x80;
+  }
+
+  /**
+   * @return the offset of the first character of the window that is not cut
+   * at its start
+   */
+  static int completeStart(byte[] buf) {
+    int from = 0;
+    while (from < buf.length && isContinuationByte(buf[from])) {
+      from++;
+    }
+    return from;
+  }
+
+  /**
+   * @return the length of the window without a character cut at its end
+   */
+  static int completeLength(byte[] buf, int from, int to) {
+    for (int i = to - 1; i >= Math.max(from, to - 4); i--) {
+      int b = buf[i] & 0xFF;
+      if (isContinuationByte(buf[i])) {
+        continue;
+      }
+      int needed = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : b >= 0xC0 ? 2 : 1;
+      return i + needed <= to ? to : i;
+    }
+    return to;
+  }
+
+  private static class Waiter {
+
+    private final Integer execId;
+    private final String type;
+    private final long offset;
+    private final int length;
+    private final AsyncResponse response;
+
+    Waiter(Integer execId, String type, long offset, int length, AsyncResponse response) {
+      this.execId = execId;
+      this.type = type;
+      this.offset = offset;
+      this.length = length;
+      this.response = response;
+    }
+  }
+}
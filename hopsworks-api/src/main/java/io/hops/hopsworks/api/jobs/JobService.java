@@ -39,28 +39,26 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
-import java.net.InetAddress;
 import java.net.URLEncoder;
-import java.util.Map;
-import java.util.Objects;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import javax.annotation.Resource;
 import javax.ejb.EJB;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
+import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
 import javax.json.Json;
 import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Consumes;
@@ -70,25 +68,23 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.SecurityContext;
 import javax.ws.rs.core.StreamingOutput;
 import org.apache.commons.httpclient.Header;
-import org.apache.commons.httpclient.HostConfiguration;
-import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.HttpMethod;
-import org.apache.commons.httpclient.cookie.CookiePolicy;
+import org.apache.commons.httpclient.HttpState;
 import org.apache.commons.httpclient.methods.GetMethod;
-import org.apache.commons.httpclient.params.HttpClientParams;
 import org.apache.commons.io.IOUtils;
-import org.influxdb.InfluxDB;
-import org.influxdb.InfluxDBFactory;
-import org.influxdb.dto.Query;
-import org.influxdb.dto.QueryResult;
 
 /**
  *
@@ -107,6 +103,10 @@ public class JobService {
   private JobDescriptionFacade jobFacade;
   @EJB
   private ExecutionFacade exeFacade;
+  @EJB
+  private RunningJobsWatcher runningJobsWatcher;
+  @EJB
+  private JobLogTailer jobLogTailer;
   @Inject
   private ExecutionService executions;
   @Inject
@@ -129,9 +129,15 @@ public class JobService {
   private ActivityFacade activityFacade;
   @EJB
   private DistributedFsService dfs;
+  @Resource
+  private ManagedExecutorService executorService;
   @EJB
   private Settings settings;
   @EJB
+  private JobUIProxy jobUIProxy;
+  @EJB
+  private InfluxDBClientManager influxDBClientManager;
+  @EJB
   private YarnApplicationstateFacade yarnApplicationstateFacade;
   @EJB
   private HdfsUsersController hdfsUsersBean;
@@ -501,71 +507,8 @@ public class JobService {
           }
         }
 
-        InfluxDB influxDB = InfluxDBFactory.connect(settings.
-            getInfluxDBAddress(), settings.getInfluxDBUser(), settings.
-            getInfluxDBPW());
-
-        // Transform application_1493112123688_0001 to 1493112123688_0001
-        // application_ = 12 chars
-        String timestamp_attempt = appId.substring(12);
-
-        Query query = new Query("show tag values from nodemanager with key=\"source\" " + "where source =~ /^.*"
-            + timestamp_attempt + ".*$/", "graphite");
-        QueryResult queryResult = influxDB.query(query, TimeUnit.MILLISECONDS);
-
-        int nbExecutors = 0;
-        HashMap<Integer, List<String>> executorInfo = new HashMap<>();
-
-        if (queryResult != null && queryResult.getResults() != null
-            && queryResult.getResults().get(0) != null && queryResult.
-            getResults().get(0).getSeries() != null) {
-          List<List<Object>> values = queryResult.getResults().get(0).getSeries().get(0).getValues();
-          nbExecutors = values.size();
-          for (int i = 0; i < nbExecutors; i++) {
-            executorInfo.put(i, Stream.of(Objects.toString(values.get(i).get(1))).collect(Collectors.toList()));
-          }
-        }
-
-        /*
-         * At this point executor info contains the keys and a list with a single value, the YARN container id
-         */
-        String vCoreTemp = null;
-        HashMap<String, String> hostnameVCoreCache = new HashMap<>();
-
-        for (Map.Entry<Integer, List<String>> entry : executorInfo.entrySet()) {
-          query = new Query("select MilliVcoreUsageAvgMilliVcores, hostname from nodemanager where source = \'" + entry.
-              getValue().get(0) + "\' limit 1", "graphite");
-          queryResult = influxDB.query(query, TimeUnit.MILLISECONDS);
-
-          if (queryResult != null && queryResult.getResults() != null
-              && queryResult.getResults().get(0) != null && queryResult.
-              getResults().get(0).getSeries() != null) {
-            List<List<Object>> values = queryResult.getResults().get(0).getSeries().get(0).getValues();
-            String hostname = Objects.toString(values.get(0).get(2)).split("=")[1];
-            entry.getValue().add(hostname);
-
-            if (!hostnameVCoreCache.containsKey(hostname)) {
-              // Not in cache, get the vcores of the host machine
-              query = new Query("select AllocatedVCores+AvailableVCores from nodemanager " + "where hostname =~ /.*"
-                  + hostname + ".*/ limit 1", "graphite");
-              queryResult = influxDB.query(query, TimeUnit.MILLISECONDS);
-
-              if (queryResult != null && queryResult.getResults() != null
-                  && queryResult.getResults().get(0) != null && queryResult.
-                  getResults().get(0).getSeries() != null) {
-                values = queryResult.getResults().get(0).getSeries().get(0).getValues();
-                vCoreTemp = Objects.toString(values.get(0).get(1));
-                entry.getValue().add(vCoreTemp);
-                hostnameVCoreCache.put(hostname, vCoreTemp); // cache it
-              }
-            } else {
-              // It's a hit, skip the database query
-              entry.getValue().add(hostnameVCoreCache.get(hostname));
-            }
-          }
-        }
-
-        influxDB.close();
+        HashMap<Integer, List<String>> executorInfo = influxDBClientManager.getExecutorInfo(appId);
+        int nbExecutors = executorInfo.size();
 
         AppInfoDTO appInfo = new AppInfoDTO(appId, startTime,
             running, endTime, nbExecutors, executorInfo);
@@ -615,6 +558,8 @@ public class JobService {
     if (response != null) {
       return response;
     }
+    // released here if the request fails before the response is handed over
+    HttpMethod executed = null;
     try {
       String trackingUrl;
       if (param.matches("http([a-z,:,/,.,0-9,-])+:([0-9])+(.)+")) {
@@ -631,16 +576,8 @@ public class JobService {
       org.apache.commons.httpclient.URI uri
           = new org.apache.commons.httpclient.URI(trackingUrl, false);
 
-      HttpClientParams params = new HttpClientParams();
-      params.setCookiePolicy(CookiePolicy.BROWSER_COMPATIBILITY);
-      params.setBooleanParameter(HttpClientParams.ALLOW_CIRCULAR_REDIRECTS,
-          true);
-      HttpClient client = new HttpClient(params);
-      HostConfiguration config = new HostConfiguration();
-      InetAddress localAddress = InetAddress.getLocalHost();
-      config.setLocalAddress(localAddress);
-
       final HttpMethod method = new GetMethod(uri.getEscapedURI());
+      String acceptEncoding = null;
       Enumeration<String> names = req.getHeaderNames();
       while (names.hasMoreElements()) {
         String name = names.nextElement();
@@ -652,6 +589,9 @@ public class JobService {
           if (!name.toLowerCase().equals("accept-encoding") || trackingUrl.
               contains(".js")) {
             method.setRequestHeader(name, value);
+            if (name.toLowerCase().equals("accept-encoding")) {
+              acceptEncoding = value;
+            }
           }
         }
       }
@@ -661,61 +601,96 @@ public class JobService {
             + URLEncoder.encode(user, "ASCII"));
       }
 
-      client.executeMethod(config, method);
+      // static assets do not depend on the user, only on the encoding
+      String assetKey = null;
+      if (jobUIProxy.isCacheableAsset(trackingUrl)) {
+        assetKey = trackingUrl + "|" + (acceptEncoding == null ? "" : acceptEncoding);
+        JobUIProxy.CachedAsset asset = jobUIProxy.getAsset(assetKey);
+        if (asset != null) {
+          Response.ResponseBuilder responseBuilder = noCacheResponse.
+              getNoCacheResponseBuilder(Response.Status.OK);
+          for (Header header : asset.getHeaders()) {
+            responseBuilder.header(header.getName(), header.getValue());
+          }
+          return responseBuilder.entity(asset.getBody()).build();
+        }
+      }
+
+      // Every request gets its own state so cookies are not shared between users
+      executed = method;
+      jobUIProxy.getClient().executeMethod(jobUIProxy.newHostConfiguration(), method, new HttpState());
       Response.ResponseBuilder responseBuilder = noCacheResponse.
           getNoCacheResponseBuilder(Response.Status.OK);
-      for (Header header : method.getResponseHeaders()) {
-        responseBuilder.header(header.getName(), header.getValue());
-      }
-      if (method.getResponseHeader("Content-Type") == null || method.
-          getResponseHeader("Content-Type").getValue().contains("html")) {
+      Header contentType = method.getResponseHeader("Content-Type");
+      if (contentType == null || contentType.getValue().contains("html")) {
+        for (Header header : method.getResponseHeaders()) {
+          // the length changes when the links are rewritten
+          if (!header.getName().equalsIgnoreCase("Content-Length")) {
+            responseBuilder.header(header.getName(), header.getValue());
+          }
+        }
         final String source = "http://" + method.getURI().getHost() + ":"
             + method.getURI().getPort();
-        if (method.getResponseHeader("Content-Length") == null) {
-          responseBuilder.entity(new StreamingOutput() {
-            @Override
-            public void write(OutputStream out) throws IOException,
-                WebApplicationException {
-              Writer writer
-                  = new BufferedWriter(new OutputStreamWriter(out));
+        final String proxyPrefix = "/hopsworks-api/api/project/" + project.getId() + "/jobs/" + appId + "/prox/";
+        responseBuilder.entity(new StreamingOutput() {
+          @Override
+          public void write(OutputStream out) throws IOException,
+              WebApplicationException {
+            try {
               InputStream stream = method.getResponseBodyAsStream();
-              Reader in = new InputStreamReader(stream, "UTF-8");
-              char[] buffer = new char[4 * 1024];
-              String remaining = "";
-              int n;
-              while ((n = in.read(buffer)) != -1) {
-                StringBuilder strb = new StringBuilder();
-                strb.append(buffer, 0, n);
-                String s = remaining + strb.toString();
-                remaining = s.substring(s.lastIndexOf(">") + 1, s.length());
-                s = hopify(s.substring(0, s.lastIndexOf(">") + 1), param,
-                    appId,
-                    source);
-                writer.write(s);
+              Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+              ProxyHtmlRewriter rewriter = new ProxyHtmlRewriter(writer, proxyPrefix, source, param);
+              if (stream != null) {
+                Reader in = new InputStreamReader(stream, StandardCharsets.UTF_8);
+                char[] buffer = new char[8 * 1024];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                  rewriter.write(buffer, 0, n);
+                }
               }
-              writer.flush();
+              rewriter.finish();
+            } finally {
+              method.releaseConnection();
             }
-          });
-        } else {
-          String s = hopify(method.getResponseBodyAsString(), param, appId,
-              source);
-          responseBuilder.entity(s);
-          responseBuilder.header("Content-Length", s.length());
-        }
-
+          }
+        });
       } else {
+        for (Header header : method.getResponseHeaders()) {
+          responseBuilder.header(header.getName(), header.getValue());
+        }
+        Header contentLength = method.getResponseHeader("Content-Length");
+        if (assetKey != null && method.getStatusCode() == Response.Status.OK.getStatusCode()
+            && contentLength != null && isSmallAsset(contentLength.getValue())) {
+          byte[] body;
+          try {
+            body = method.getResponseBody();
+          } finally {
+            method.releaseConnection();
+          }
+          jobUIProxy.putAsset(assetKey, new JobUIProxy.CachedAsset(method.getResponseHeaders(), body));
+          return responseBuilder.entity(body).build();
+        }
         responseBuilder.entity(new StreamingOutput() {
           @Override
           public void write(OutputStream out) throws IOException,
               WebApplicationException {
-            InputStream stream = method.getResponseBodyAsStream();
-            org.apache.hadoop.io.IOUtils.copyBytes(stream, out, 4096, true);
-            out.flush();
+            try {
+              InputStream stream = method.getResponseBodyAsStream();
+              if (stream != null) {
+                org.apache.hadoop.io.IOUtils.copyBytes(stream, out, 4096, false);
+              }
+              out.flush();
+            } finally {
+              method.releaseConnection();
+            }
           }
         });
       }
       return responseBuilder.build();
     } catch (Exception e) {
+      if (executed != null) {
+        executed.releaseConnection();
+      }
       LOGGER.log(Level.SEVERE, "exception while geting job ui " + e.
           getLocalizedMessage(), e);
       return noCacheResponse.
@@ -724,49 +699,12 @@ public class JobService {
 
   }
 
-  private String hopify(String ui, String param, String appId, String source) {
-
-    //remove the link to the full cluster information in the yarn ui
-    ui = ui.replaceAll(
-        "<div id=\"user\">[\\s\\S]+Logged in as: dr.who[\\s\\S]+<div id=\"logo\">",
-        "<div id=\"logo\">");
-    ui = ui.replaceAll(
-        "<tfoot>[\\s\\S]+</tfoot>",
-        "");
-    ui = ui.replaceAll("<td id=\"navcell\">[\\s\\S]+<td class=\"content\">",
-        "<td class=\"content\">");
-    ui = ui.replaceAll("<td id=\"navcell\">[\\s\\S]+<td ", "<td ");
-    ui = ui.replaceAll(
-        "<li><a ui-sref=\"submit\"[\\s\\S]+new Job</a></li>", "");
-
-    ui = ui.replaceAll("(?<=(href|src)=.[^>]{0,200})\\?", "@hwqm");
-
-    ui = ui.replaceAll("(?<=(href|src)=\")/(?=[a-z])",
-        "/hopsworks-api/api/project/"
-        + project.getId() + "/jobs/" + appId + "/prox/"
-        + source + "/");
-    ui = ui.replaceAll("(?<=(href|src)=\')/(?=[a-z])",
-        "/hopsworks-api/api/project/"
-        + project.getId() + "/jobs/" + appId + "/prox/"
-        + source + "/");
-    ui = ui.replaceAll("(?<=(href|src)=\")//", "/hopsworks-api/api/project/"
-        + project.getId() + "/jobs/" + appId + "/prox/");
-    ui = ui.replaceAll("(?<=(href|src)=\')//", "/hopsworks-api/api/project/"
-        + project.getId() + "/jobs/" + appId + "/prox/");
-    ui = ui.replaceAll("(?<=(href|src)=\")(?=http)",
-        "/hopsworks-api/api/project/"
-        + project.getId() + "/jobs/" + appId + "/prox/");
-    ui = ui.replaceAll("(?<=(href|src)=\')(?=http)",
-        "/hopsworks-api/api/project/"
-        + project.getId() + "/jobs/" + appId + "/prox/");
-    ui = ui.replaceAll("(?<=(href|src)=\")(?=[a-z])",
-        "/hopsworks-api/api/project/"
-        + project.getId() + "/jobs/" + appId + "/prox/" + param);
-    ui = ui.replaceAll("(?<=(href|src)=\')(?=[a-z])",
-        "/hopsworks-api/api/project/"
-        + project.getId() + "/jobs/" + appId + "/prox/" + param);
-    return ui;
-
+  private boolean isSmallAsset(String contentLength) {
+    try {
+      return Long.parseLong(contentLength) <= JobUIProxy.MAX_CACHED_ASSET_BYTES;
+    } catch (NumberFormatException ex) {
+      return false;
+    }
   }
 
   private boolean hasAppAccessRight(String trackingUrl) {
@@ -826,82 +764,37 @@ public class JobService {
   }
 
   /**
-   * Get all the jobs in this project that have a running execution. The return
-   * value is a JSON object, where each job
-   * id is a key and the corresponding boolean indicates whether the job is
-   * running or not.
+   * Get the status of the latest execution of every job in this project. The
+   * return value is a JSON object, where each job id is a key and the
+   * corresponding object tells whether the job is running, its state and, for
+   * running jobs, the tracking url.
    * <p/>
+   * The response carries an ETag. If the If-None-Match header matches it, 304
+   * Not Modified is returned, or, when <i>wait</i> is set, the response is held
+   * for up to that many seconds until the status changes.
+   * <p/>
+   * @param wait seconds to wait for the status to change, at most
+   * RunningJobsWatcher.MAX_WAIT_SECONDS
+   * @param request
    * @param sc
    * @param req
-   * @return
+   * @param asyncResponse
    */
   @GET
   @Path("/running")
   @Produces(MediaType.APPLICATION_JSON)
   @AllowedRoles(roles = {AllowedRoles.DATA_OWNER, AllowedRoles.DATA_SCIENTIST})
-  public Response getConfigurationTemplate(@Context SecurityContext sc,
-      @Context HttpServletRequest req) {
-    List<JobDescription> running = jobFacade.getRunningJobs(project);
-    List<JobDescription> allJobs = jobFacade.findForProject(project);
-    JsonObjectBuilder builder = Json.createObjectBuilder();
-    for (JobDescription desc : allJobs) {
-      try {
-        List<Execution> jobExecutions = exeFacade.findForJob(desc);
-        if (jobExecutions != null && jobExecutions.isEmpty() == false) {
-          Execution execution = jobExecutions.get(0);
-          builder.add(desc.getId().toString(), Json.createObjectBuilder()
-              .add("running", false)
-              .add("state", execution.getState().toString())
-              .add("finalStatus", execution.getFinalStatus().toString())
-              .add("progress", execution.getProgress())
-              .add("duration", execution.getExecutionDuration())
-              .add("submissiontime", execution.getSubmissionTime().
-                  toString())
-          );
-        }
-      } catch (ArrayIndexOutOfBoundsException e) {
-        LOGGER.log(Level.WARNING, "No execution was found: {0}", e
-            .getMessage());
-      }
-    }
-    for (JobDescription desc : running) {
-      try {
-        Execution execution = exeFacade.findForJob(desc).get(0);
-        Execution updatedExecution = exeFacade.getExecution(execution.getJob().
-            getId());
-        if (updatedExecution != null) {
-          execution = updatedExecution;
-        }
-        long executiontime = System.currentTimeMillis() - execution.
-            getSubmissionTime().getTime();
-        //not given appId (not submited yet)
-        if (execution.getAppId() == null && executiontime > 60000l * 5) {
-          exeFacade.updateState(execution, JobState.INITIALIZATION_FAILED);
-          exeFacade.updateFinalStatus(execution, JobFinalStatus.FAILED);
-          continue;
-        }
-
-        String trackingUrl = appAttemptStateFacade.findTrackingUrlByAppId(
-            execution.getAppId());
-        builder.add(desc.getId().toString(),
-            Json.createObjectBuilder()
-                .add("running", true)
-                .add("state", execution.getState().toString())
-                .add("finalStatus", execution.getFinalStatus().
-                    toString())
-                .add("progress", execution.getProgress())
-                .add("duration", execution.getExecutionDuration())
-                .add("submissiontime", execution.getSubmissionTime().
-                    toString())
-                .add("url", trackingUrl)
-        );
-      } catch (ArrayIndexOutOfBoundsException e) {
-        LOGGER.log(Level.WARNING, "No execution was found: {0}", e
-            .getMessage());
-      }
+  public void getConfigurationTemplate(@QueryParam("wait") Integer wait, @Context Request request,
+      @Context SecurityContext sc, @Context HttpServletRequest req, @Suspended AsyncResponse asyncResponse) {
+    JsonObject status = runningJobsWatcher.getStatus(project);
+    EntityTag tag = RunningJobsWatcher.getEntityTag(status);
+    if (request.evaluatePreconditions(tag) == null) {
+      asyncResponse.resume(runningJobsWatcher.buildResponse(status, tag));
+    } else if (wait != null && wait > 0) {
+      runningJobsWatcher.watch(project, tag, wait, asyncResponse);
+    } else {
+      asyncResponse.resume(runningJobsWatcher.buildNotModified(tag));
     }
-    return noCacheResponse.getNoCacheResponseBuilder(Response.Status.OK).
-        entity(builder.build()).build();
   }
 
   /**
@@ -1021,6 +914,57 @@ public class JobService {
         arrayObjectBuilder.build()).build();
   }
 
+  /**
+   * Read a window of the stdout ("log") or stderr ("err") of an execution,
+   * for paging through logs of any size. See JobLogTailer.read for the
+   * returned object.
+   * <p/>
+   * With <i>wait</i> set, the request is held for up to that many seconds
+   * until the log has data past <i>offset</i>, which allows following a log as
+   * it grows.
+   * <p/>
+   * @param appId
+   * @param type log or err
+   * @param offset byte offset to read from, negative or unset to read the end
+   * of the log
+   * @param length maximum number of bytes to read
+   * @param wait seconds to wait for new data, at most
+   * JobLogTailer.MAX_WAIT_SECONDS
+   * @param asyncResponse
+   * @throws AppException
+   */
+  @GET
+  @Path("/getLog/{appId}/{type}/window")
+  @Produces(MediaType.APPLICATION_JSON)
+  @AllowedRoles(roles = {AllowedRoles.DATA_OWNER, AllowedRoles.DATA_SCIENTIST})
+  public void getLogWindow(@PathParam("appId") String appId, @PathParam("type") String type,
+      @QueryParam("offset") Long offset, @QueryParam("length") Integer length, @QueryParam("wait") Integer wait,
+      @Suspended AsyncResponse asyncResponse) throws AppException {
+    if (!"log".equals(type) && !"err".equals(type)) {
+      throw new AppException(Response.Status.BAD_REQUEST.getStatusCode(), "Unknown log type " + type);
+    }
+    Execution execution = exeFacade.findByAppId(appId);
+    if (execution == null || !execution.getJob().getProject().equals(this.project)) {
+      throw new AppException(Response.Status.BAD_REQUEST.getStatusCode(), "No excution for appId " + appId);
+    }
+    long from = offset == null ? -1 : offset;
+    int windowLength = length == null ? JobLogTailer.DEFAULT_WINDOW_BYTES : length;
+    JsonObject window;
+    try {
+      window = jobLogTailer.read(execution, type, from, windowLength);
+    } catch (IOException ex) {
+      LOGGER.log(Level.SEVERE, "Could not read the logs of " + appId, ex);
+      throw new AppException(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), "Could not read the log.");
+    }
+    boolean noNewData = window.getJsonNumber("nextOffset").longValue() >= window.getJsonNumber("size").longValue();
+    if (wait != null && wait > 0 && noNewData && !window.getBoolean("finished")) {
+      jobLogTailer.tail(execution, type, window.getJsonNumber("nextOffset").longValue(), windowLength, wait,
+          asyncResponse);
+    } else {
+      asyncResponse.resume(jobLogTailer.buildResponse(window));
+    }
+  }
+
   @GET
   @Path("/retryLogAggregation/{appId}/{type}")
   @Produces(MediaType.APPLICATION_JSON)
@@ -1077,7 +1021,7 @@ public class JobService {
           } else {
             String[] desiredLogTypes = {"out"};
             YarnLogUtil.copyAggregatedYarnLogs(udfso, aggregatedLogPath,
-                hdfsLogPath, desiredLogTypes);
+                hdfsLogPath, desiredLogTypes, executorService);
           }
         }
       } else if (type.equals("err")) {
@@ -1092,7 +1036,7 @@ public class JobService {
           } else {
             String[] desiredLogTypes = {"err", ".log"};
             YarnLogUtil.copyAggregatedYarnLogs(udfso, aggregatedLogPath,
-                hdfsErrPath, desiredLogTypes);
+                hdfsErrPath, desiredLogTypes, executorService);
           }
         }
       }
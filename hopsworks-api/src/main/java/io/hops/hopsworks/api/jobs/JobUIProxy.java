@@ -0,0 +1,189 @@
+package io.hops.hopsworks.api.jobs;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HostConfiguration;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.cookie.CookiePolicy;
+import org.apache.commons.httpclient.params.HttpClientParams;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+
+/**
+ * Shared state of the proxy that serves the YARN and Spark job UIs: a pooled
+ * keep-alive http client and a small LRU cache of static assets such as
+ * stylesheets, scripts and images.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class JobUIProxy {
+
+  private static final Logger LOG = Logger.getLogger(JobUIProxy.class.getName());
+
+  private static final int MAX_CONNECTIONS = 100;
+  private static final int MAX_CONNECTIONS_PER_HOST = 20;
+  private static final int CONNECT_TIMEOUT_MS = 10 * 1000;
+  private static final int SOCKET_TIMEOUT_MS = 60 * 1000;
+  /**
+   * How long a request waits for a pooled connection once all are in use.
+   */
+  private static final long POOL_TIMEOUT_MS = 10 * 1000;
+
+  /**
+   * Larger assets are always streamed from the UI.
+   */
+  public static final int MAX_CACHED_ASSET_BYTES = 1024 * 1024;
+  private static final long MAX_CACHE_BYTES = 32 * 1024 * 1024;
+  private static final long ASSET_TTL_MS = 60 * 60 * 1000;
+  /**
+   * Response headers that are specific to a connection or to a user, and are
+   * not kept with a cached asset.
+   */
+  private static final Set<String> UNCACHED_HEADERS = new HashSet<>(Arrays.asList(
+      "connection", "keep-alive", "proxy-authenticate", "proxy-authorization", "te", "trailer", "trailers",
+      "transfer-encoding", "upgrade", "set-cookie", "set-cookie2", "www-authenticate"));
+
+  private MultiThreadedHttpConnectionManager connectionManager;
+  private HttpClient client;
+  private InetAddress localAddress;
+
+  private final LinkedHashMap<String, CachedAsset> assets = new LinkedHashMap<>(64, 0.75f, true);
+  private long cachedBytes = 0;
+
+  @PostConstruct
+  public void init() {
+    HttpConnectionManagerParams connectionParams = new HttpConnectionManagerParams();
+    connectionParams.setMaxTotalConnections(MAX_CONNECTIONS);
+    connectionParams.setDefaultMaxConnectionsPerHost(MAX_CONNECTIONS_PER_HOST);
+    connectionParams.setConnectionTimeout(CONNECT_TIMEOUT_MS);
+    connectionParams.setSoTimeout(SOCKET_TIMEOUT_MS);
+    connectionManager = new MultiThreadedHttpConnectionManager();
+    connectionManager.setParams(connectionParams);
+
+    HttpClientParams params = new HttpClientParams();
+    params.setCookiePolicy(CookiePolicy.BROWSER_COMPATIBILITY);
+    params.setBooleanParameter(HttpClientParams.ALLOW_CIRCULAR_REDIRECTS, true);
+    params.setConnectionManagerTimeout(POOL_TIMEOUT_MS);
+    client = new HttpClient(params, connectionManager);
+    try {
+      localAddress = InetAddress.getLocalHost();
+    } catch (UnknownHostException ex) {
+      LOG.log(Level.WARNING, "Could not resolve the local address, the proxy will use the default one", ex);
+    }
+  }
+
+  @PreDestroy
+  public void destroy() {
+    if (connectionManager != null) {
+      connectionManager.shutdown();
+    }
+  }
+
+  /**
+   * The client is shared by all requests. Every request has to pass its own
+   * HttpState so that cookies are not shared between users, and has to release
+   * the connection of its method once the response has been read.
+   * <p/>
+   * @return
+   */
+  public HttpClient getClient() {
+    return client;
+  }
+
+  public HostConfiguration newHostConfiguration() {
+    HostConfiguration config = new HostConfiguration();
+    if (localAddress != null) {
+      config.setLocalAddress(localAddress);
+    }
+    return config;
+  }
+
+  /**
+   * @param url
+   * @return true if the url points to a static asset of the UI, which is the
+   * same for all applications.
+   */
+  public boolean isCacheableAsset(String url) {
+    return url.contains("/static/");
+  }
+
+  public CachedAsset getAsset(String key) {
+    synchronized (assets) {
+      CachedAsset asset = assets.get(key);
+      if (asset != null && asset.isExpired()) {
+        assets.remove(key);
+        cachedBytes -= asset.getBody().length;
+        return null;
+      }
+      return asset;
+    }
+  }
+
+  public void putAsset(String key, CachedAsset asset) {
+    if (asset.getBody().length > MAX_CACHED_ASSET_BYTES) {
+      return;
+    }
+    synchronized (assets) {
+      CachedAsset previous = assets.put(key, asset);
+      if (previous != null) {
+        cachedBytes -= previous.getBody().length;
+      }
+      cachedBytes += asset.getBody().length;
+      Iterator<Map.Entry<String, CachedAsset>> eldest = assets.entrySet().iterator();
+      while (cachedBytes > MAX_CACHE_BYTES && eldest.hasNext()) {
+        cachedBytes -= eldest.next().getValue().getBody().length;
+        eldest.remove();
+      }
+    }
+  }
+
+  /**
+   * A static asset as it was returned by the UI, without the headers that only
+   * applied to the request that fetched it.
+   */
+  public static class CachedAsset {
+
+    private final Header[] headers;
+    private final byte[] body;
+    private final long created = System.currentTimeMillis();
+
+    public CachedAsset(Header[] headers, byte[] body) {
+      List<Header> kept = new ArrayList<>(headers.length);
+      for (Header header : headers) {
+        if (!UNCACHED_HEADERS.contains(header.getName().toLowerCase())) {
+          kept.add(header);
+        }
+      }
+      this.headers = kept.toArray(new Header[kept.size()]);
+      this.body = body;
+    }
+
+    public Header[] getHeaders() {
+      return headers;
+    }
+
+    public byte[] getBody() {
+      return body;
+    }
+
+    boolean isExpired() {
+      return System.currentTimeMillis() - created > ASSET_TTL_MS;
+    }
+  }
+}
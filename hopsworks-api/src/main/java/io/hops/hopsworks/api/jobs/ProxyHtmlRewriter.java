@@ -0,0 +1,284 @@
+package io.hops.hopsworks.api.jobs;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Rewrites the links of a proxied YARN or Spark UI page so that they go
+ * through the Hopsworks proxy, and removes the parts of the YARN UI that lead
+ * to the whole cluster. The page is rewritten in a single pass while it is
+ * streamed. Only an incomplete link or a section that is being removed is held
+ * back until the rest of it arrives.
+ */
+class ProxyHtmlRewriter extends Writer {
+
+  private static final String QUESTION_MARK = "@hwqm";
+  private static final String[] LINK_ATTRIBUTES = {"href=", "src="};
+  private static final int MAX_LINK_LENGTH = 8 * 1024;
+  private static final int MAX_SECTION_LENGTH = 1024 * 1024;
+
+  private static final Section[] SECTIONS = {
+    new Section("<div id=\"user\">", "<div id=\"logo\">", true, "Logged in as: dr.who", null),
+    new Section("<tfoot>", "</tfoot>", false, null, null),
+    new Section("<td id=\"navcell\">", "<td class=\"content\">", true, null, "<td "),
+    new Section("<li><a ui-sref=\"submit\"", "new Job</a></li>", false, null, null)};
+
+  private static final int NO_MATCH = 0;
+  private static final int MATCH = 1;
+  private static final int PARTIAL = 2;
+
+  private final Writer out;
+  private final String proxyPrefix;
+  private final String source;
+  private final String param;
+
+  private final StringBuilder pending = new StringBuilder();
+  private int pos = 0;
+  private int runStart = 0;
+  private Section section;
+  private final StringBuilder sectionContent = new StringBuilder();
+  private boolean skipSectionAtStart = false;
+
+  /**
+   * @param out
+   * @param proxyPrefix the path of the proxy for this application, ending with
+   * a slash
+   * @param source scheme, host and port of the proxied UI
+   * @param param the proxied path of the page
+   */
+  ProxyHtmlRewriter(Writer out, String proxyPrefix, String source, String param) {
+    this.out = out;
+    this.proxyPrefix = proxyPrefix;
+    this.source = source;
+    this.param = param;
+  }
+
+  @Override
+  public void write(char[] cbuf, int off, int len) throws IOException {
+    pending.append(cbuf, off, len);
+    process(false);
+  }
+
+  /**
+   * Write out everything that is held back. Must be called once the whole page
+   * has been written.
+   * <p/>
+   * @throws IOException
+   */
+  public void finish() throws IOException {
+    process(true);
+    out.flush();
+  }
+
+  @Override
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    finish();
+    out.close();
+  }
+
+  private void process(boolean eof) throws IOException {
+    boolean progress = true;
+    while (progress && pos < pending.length()) {
+      progress = section != null ? skipSection(eof) : scan(eof);
+    }
+    emitRun();
+    pending.delete(0, pos);
+    pos = 0;
+    runStart = 0;
+  }
+
+  /**
+   * @return false if more input is needed to decide what to do at the current
+   * position
+   */
+  private boolean scan(boolean eof) throws IOException {
+    char c = pending.charAt(pos);
+    if (c == '<') {
+      if (skipSectionAtStart) {
+        skipSectionAtStart = false;
+        pos++;
+        return true;
+      }
+      boolean partial = false;
+      for (Section s : SECTIONS) {
+        int match = matchAt(s.start);
+        if (match == MATCH) {
+          emitRun();
+          section = s;
+          sectionContent.append(s.start);
+          pos += s.start.length();
+          runStart = pos;
+          return true;
+        }
+        partial |= match == PARTIAL;
+      }
+      if (partial && !eof) {
+        return false;
+      }
+    } else if (c == 'h' || c == 's') {
+      for (String attribute : LINK_ATTRIBUTES) {
+        int match = matchAt(attribute);
+        if (match == PARTIAL) {
+          if (!eof) {
+            return false;
+          }
+          break;
+        }
+        if (match == MATCH) {
+          return rewriteLink(attribute, eof);
+        }
+      }
+    }
+    pos++;
+    return true;
+  }
+
+  private boolean rewriteLink(String attribute, boolean eof) throws IOException {
+    int quotePos = pos + attribute.length();
+    if (quotePos >= pending.length()) {
+      if (!eof) {
+        return false;
+      }
+      pos++;
+      return true;
+    }
+    char quote = pending.charAt(quotePos);
+    int close = quote == '"' || quote == '\'' ? pending.indexOf(String.valueOf(quote), quotePos + 1) : -1;
+    if (close < 0) {
+      if (!eof && (quote == '"' || quote == '\'') && pending.length() - pos < MAX_LINK_LENGTH) {
+        return false;
+      }
+      pos++;
+      return true;
+    }
+    emitRun();
+    out.write(attribute);
+    out.write(quote);
+    out.write(rewrite(pending.substring(quotePos + 1, close)));
+    out.write(quote);
+    pos = close + 1;
+    runStart = pos;
+    return true;
+  }
+
+  private String rewrite(String link) {
+    link = link.replace("?", QUESTION_MARK);
+    if (link.length() > 1 && link.charAt(0) == '/' && isLowerCaseLetter(link.charAt(1))) {
+      return proxyPrefix + source + link;
+    }
+    if (link.startsWith("//")) {
+      return proxyPrefix + link.substring(2);
+    }
+    if (link.startsWith("http")) {
+      return proxyPrefix + link;
+    }
+    if (!link.isEmpty() && isLowerCaseLetter(link.charAt(0))) {
+      return proxyPrefix + param + link;
+    }
+    return link;
+  }
+
+  private boolean skipSection(boolean eof) throws IOException {
+    int end = pending.indexOf(section.end, pos);
+    if (end < 0) {
+      int upTo = eof ? pending.length() : Math.max(pos, pending.length() - section.end.length() + 1);
+      sectionContent.append(pending, pos, upTo);
+      pos = upTo;
+      runStart = upTo;
+      if (eof || sectionContent.length() > MAX_SECTION_LENGTH) {
+        int fallback = section.fallbackEnd == null ? -1 : sectionContent.lastIndexOf(section.fallbackEnd);
+        if (fallback >= section.start.length()) {
+          // pages without the end text lose everything up to the last fallback end
+          restoreSection(sectionContent.substring(fallback));
+        } else {
+          restoreSection(sectionContent.toString());
+        }
+        return true;
+      }
+      return false;
+    }
+    int afterEnd = end + section.end.length();
+    sectionContent.append(pending, pos, afterEnd);
+    pos = afterEnd;
+    runStart = afterEnd;
+    if (section.required != null && sectionContent.indexOf(section.required) < 0) {
+      restoreSection(sectionContent.toString());
+      return true;
+    }
+    if (section.keepEnd) {
+      out.write(section.end);
+    }
+    section = null;
+    sectionContent.setLength(0);
+    return true;
+  }
+
+  /**
+   * Put what is kept of a section that turned out not to be removable as a
+   * whole back in front of the remaining input, to be scanned like the rest of
+   * the page.
+   * <p/>
+   * @param content the section, or the part of it that is kept
+   */
+  private void restoreSection(String content) {
+    pending.replace(0, pos, content);
+    pos = 0;
+    runStart = 0;
+    section = null;
+    sectionContent.setLength(0);
+    skipSectionAtStart = true;
+  }
+
+  private int matchAt(String s) {
+    for (int i = 0; i < s.length(); i++) {
+      if (pos + i >= pending.length()) {
+        return PARTIAL;
+      }
+      if (pending.charAt(pos + i) != s.charAt(i)) {
+        return NO_MATCH;
+      }
+    }
+    return MATCH;
+  }
+
+  private void emitRun() throws IOException {
+    if (pos > runStart) {
+      out.write(pending.substring(runStart, pos));
+    }
+    runStart = pos;
+  }
+
+  private static boolean isLowerCaseLetter(char c) {
+    return c >= 'a' && c <= 'z';
+  }
+
+  private static class Section {
+
+    private final String start;
+    private final String end;
+    private final boolean keepEnd;
+    private final String required;
+    private final String fallbackEnd;
+
+    /**
+     * @param start the text the section starts with
+     * @param end the text the section ends with
+     * @param keepEnd true if the end text is written out
+     * @param required text the section has to contain to be removed, or null
+     * @param fallbackEnd if the end text is missing, the section ends at the
+     * last occurrence of this text instead, which is kept. May be null.
+     */
+    Section(String start, String end, boolean keepEnd, String required, String fallbackEnd) {
+      this.start = start;
+      this.end = end;
+      this.keepEnd = keepEnd;
+      this.required = required;
+      this.fallbackEnd = fallbackEnd;
+    }
+  }
+}
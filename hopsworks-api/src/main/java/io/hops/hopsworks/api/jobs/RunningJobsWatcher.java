@@ -0,0 +1,225 @@
+package io.hops.hopsworks.api.jobs;
+
+import io.hops.hopsworks.api.filter.NoCacheResponse;
+import io.hops.hopsworks.common.dao.jobhistory.Execution;
+import io.hops.hopsworks.common.dao.jobhistory.ExecutionFacade;
+import io.hops.hopsworks.common.dao.jobhistory.YarnApplicationAttemptStateFacade;
+import io.hops.hopsworks.common.dao.project.Project;
+import io.hops.hopsworks.common.jobs.jobhistory.JobFinalStatus;
+import io.hops.hopsworks.common.jobs.jobhistory.JobState;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.Timer;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Response;
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * Builds the status of the latest execution of every job in a project and
+ * lets clients wait for it to change. Waiting clients of a project share one
+ * status query every few seconds, instead of each of them polling.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class RunningJobsWatcher {
+
+  private static final Logger LOG = Logger.getLogger(RunningJobsWatcher.class.getName());
+
+  /**
+   * Longest a client can wait for the status to change.
+   */
+  public static final int MAX_WAIT_SECONDS = 60;
+  /**
+   * Executions that did not get an application id within this time failed to
+   * start.
+   */
+  private static final long MAX_SUBMISSION_MS = 5 * 60 * 1000;
+
+  @EJB
+  private ExecutionFacade exeFacade;
+  @EJB
+  private YarnApplicationAttemptStateFacade appAttemptStateFacade;
+  @EJB
+  private NoCacheResponse noCacheResponse;
+
+  //Guarded by itself
+  private final Map<Integer, ProjectWaiters> waiters = new HashMap<>();
+
+  /**
+   * Get the status of the latest execution of every job in a project, keyed
+   * by job id. The tracking url is only set for running executions.
+   * <p/>
+   * @param project
+   * @return
+   */
+  public JsonObject getStatus(Project project) {
+    List<Execution> latest = exeFacade.findLatestForProject(project);
+    EnumSet<JobState> runningStates = JobState.getRunningStates();
+    List<String> runningAppIds = new ArrayList<>();
+    for (Execution execution : latest) {
+      if (runningStates.contains(execution.getState()) && execution.getAppId() != null) {
+        runningAppIds.add(execution.getAppId());
+      }
+    }
+    Map<String, String> trackingUrls = appAttemptStateFacade.findTrackingUrlsByAppIds(runningAppIds);
+
+    JsonObjectBuilder builder = Json.createObjectBuilder();
+    for (Execution execution : latest) {
+      boolean running = runningStates.contains(execution.getState());
+      //not given appId (not submited yet)
+      if (running && execution.getAppId() == null
+          && System.currentTimeMillis() - execution.getSubmissionTime().getTime() > MAX_SUBMISSION_MS) {
+        execution = exeFacade.updateState(execution, JobState.INITIALIZATION_FAILED);
+        execution = exeFacade.updateFinalStatus(execution, JobFinalStatus.FAILED);
+        running = false;
+      }
+      JsonObjectBuilder job = Json.createObjectBuilder()
+          .add("running", running)
+          .add("state", execution.getState().toString())
+          .add("finalStatus", execution.getFinalStatus().toString())
+          .add("progress", execution.getProgress())
+          .add("duration", execution.getExecutionDuration())
+          .add("submissiontime", execution.getSubmissionTime().toString());
+      if (running) {
+        String trackingUrl = trackingUrls.get(execution.getAppId());
+        job.add("url", trackingUrl == null ? "" : trackingUrl);
+      }
+      builder.add(execution.getJob().getId().toString(), job);
+    }
+    return builder.build();
+  }
+
+  /**
+   * @param status
+   * @return the ETag of a status, which changes whenever the status does
+   */
+  public static EntityTag getEntityTag(JsonObject status) {
+    return new EntityTag(DigestUtils.sha1Hex(status.toString().getBytes(StandardCharsets.UTF_8)));
+  }
+
+  public Response buildResponse(JsonObject status, EntityTag tag) {
+    return noCacheResponse.getNoCacheResponseBuilder(Response.Status.OK).entity(status).tag(tag).build();
+  }
+
+  public Response buildNotModified(EntityTag tag) {
+    return noCacheResponse.getNoCacheResponseBuilder(Response.Status.NOT_MODIFIED).tag(tag).build();
+  }
+
+  /**
+   * Wait for the status of a project to differ from the one the client has.
+   * The response is resumed with the new status, or with 304 Not Modified
+   * once the wait is over.
+   * <p/>
+   * @param project
+   * @param tag the ETag of the status the client has
+   * @param waitSeconds
+   * @param asyncResponse
+   */
+  public void watch(Project project, final EntityTag tag, int waitSeconds, AsyncResponse asyncResponse) {
+    final Waiter waiter = new Waiter(tag, asyncResponse);
+    synchronized (waiters) {
+      ProjectWaiters projectWaiters = waiters.get(project.getId());
+      if (projectWaiters == null) {
+        projectWaiters = new ProjectWaiters(project);
+        waiters.put(project.getId(), projectWaiters);
+      }
+      projectWaiters.waiters.add(waiter);
+    }
+    asyncResponse.setTimeoutHandler(response -> {
+      remove(waiter);
+      response.resume(buildNotModified(tag));
+    });
+    asyncResponse.setTimeout(Math.min(waitSeconds, MAX_WAIT_SECONDS), TimeUnit.SECONDS);
+  }
+
+  private void remove(Waiter waiter) {
+    synchronized (waiters) {
+      Iterator<ProjectWaiters> it = waiters.values().iterator();
+      while (it.hasNext()) {
+        ProjectWaiters projectWaiters = it.next();
+        if (projectWaiters.waiters.remove(waiter) && projectWaiters.waiters.isEmpty()) {
+          it.remove();
+        }
+      }
+    }
+  }
+
+  @Schedule(persistent = false,
+      second = "*/2",
+      minute = "*",
+      hour = "*")
+  public void check(Timer timer) {
+    List<ProjectWaiters> toCheck;
+    synchronized (waiters) {
+      if (waiters.isEmpty()) {
+        return;
+      }
+      toCheck = new ArrayList<>(waiters.values());
+    }
+    for (ProjectWaiters projectWaiters : toCheck) {
+      JsonObject status;
+      try {
+        status = getStatus(projectWaiters.project);
+      } catch (RuntimeException ex) {
+        LOG.log(Level.WARNING, "Could not get the job status of project " + projectWaiters.project.getName(), ex);
+        continue;
+      }
+      EntityTag tag = getEntityTag(status);
+      List<Waiter> changed = new ArrayList<>();
+      synchronized (waiters) {
+        Iterator<Waiter> it = projectWaiters.waiters.iterator();
+        while (it.hasNext()) {
+          Waiter waiter = it.next();
+          if (!waiter.tag.equals(tag) || !waiter.response.isSuspended()) {
+            it.remove();
+            changed.add(waiter);
+          }
+        }
+        if (projectWaiters.waiters.isEmpty()) {
+          waiters.remove(projectWaiters.project.getId(), projectWaiters);
+        }
+      }
+      for (Waiter waiter : changed) {
+        waiter.response.resume(buildResponse(status, tag));
+      }
+    }
+  }
+
+  private static class ProjectWaiters {
+
+    private final Project project;
+    private final List<Waiter> waiters = new ArrayList<>();
+
+    ProjectWaiters(Project project) {
+      this.project = project;
+    }
+  }
+
+  private static class Waiter {
+
+    private final EntityTag tag;
+    private final AsyncResponse response;
+
+    Waiter(EntityTag tag, AsyncResponse response) {
+      this.tag = tag;
+      this.response = response;
+    }
+  }
+}
@@ -5,10 +5,16 @@ import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.ejb.EJB;
@@ -44,12 +50,15 @@ import io.hops.hopsworks.api.util.UploadService;
 import io.hops.hopsworks.common.constants.message.ResponseMessages;
 import io.hops.hopsworks.common.dao.dataset.DataSetDTO;
 import io.hops.hopsworks.common.dao.dataset.Dataset;
+import io.hops.hopsworks.common.dao.dataset.DatasetOverview;
 import io.hops.hopsworks.common.dao.dataset.DatasetFacade;
 import io.hops.hopsworks.common.dao.dataset.DatasetRequest;
 import io.hops.hopsworks.common.dao.dataset.DatasetRequestFacade;
 import io.hops.hopsworks.common.dao.hdfs.HdfsLeDescriptorsFacade;
 import io.hops.hopsworks.common.dao.hdfs.inode.Inode;
 import io.hops.hopsworks.common.dao.hdfs.inode.InodeFacade;
+import io.hops.hopsworks.common.dao.hdfs.inode.InodeSubtreeEntry;
+import io.hops.hopsworks.common.dao.hdfs.inode.InodeSubtreeIterator;
 import io.hops.hopsworks.common.dao.hdfs.inode.InodeView;
 import io.hops.hopsworks.common.dao.jobhistory.Execution;
 import io.hops.hopsworks.common.dao.jobs.description.JobDescription;
@@ -86,6 +95,11 @@ public class DataSetService {
 
   private final static Logger logger = Logger.getLogger(DataSetService.class.
           getName());
+  /**
+   * Largest page of a directory listing.
+   */
+  private static final int MAX_DIR_PAGE_SIZE = 10000;
+  private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
   @EJB
   private ProjectFacade projectFacade;
@@ -153,33 +167,14 @@ public class DataSetService {
           @Context SecurityContext sc,
           @Context HttpServletRequest req) throws AppException {
 
-    Inode parent;
     InodeView inodeView;
     Users user;
     List<InodeView> kids = new ArrayList<>();
     boolean notebookDirExists = false;
-    Collection<Dataset> dsInProject = this.project.getDatasetCollection();
-    for (Dataset ds : dsInProject) {
-      parent = inodes.findParent(ds.getInode());
+    for (DatasetOverview ds : datasetFacade.findOverviewByProject(this.project)) {
       //If it is a shared dataset, put owner project in path
-      String projPath = "";
-      if (ds.isShared()) {
-        projPath = Settings.getProjectPath(parent.getInodePK().getName());
-      } else {
-        projPath = Settings.getProjectPath(this.project.getName());
-      }
-      List<Dataset> inodeOccurrence = datasetFacade.
-              findByInodeId(ds.getInodeId());
-      int sharedWith = inodeOccurrence.size() - 1; // -1 for ds itself 
-      inodeView = new InodeView(parent, ds, projPath + File.separator + ds.
-              getInode()
-              .getInodePK().getName());
-      user = userfacade.findByUsername(inodeView.getOwner());
-      if (user != null) {
-        inodeView.setOwner(user.getFname() + " " + user.getLname());
-        inodeView.setEmail(user.getEmail());
-      }
-      inodeView.setSharedWith(sharedWith);
+      String projPath = Settings.getProjectPath(ds.getParentName());
+      inodeView = new InodeView(ds, this.project.getName(), projPath + File.separator + ds.getName());
       kids.add(inodeView);
       if (inodeView.getName().
               equals(Settings.DefaultDataset.ZEPPELIN.getName())) {
@@ -221,7 +216,17 @@ public class DataSetService {
   /**
    * Get the inodes in the given project-relative path.
    * <p/>
+   * Without <i>limit</i> all the children are returned. With it, one page of
+   * the children ordered by name is returned; if there are more, the cursor of
+   * the next page is set URL-encoded in the X-Next-Cursor header, since names
+   * may contain characters a header cannot, and is passed back decoded as
+   * <i>after</i>.
+   * <p/>
    * @param path
+   * @param limit maximum number of children to return
+   * @param after cursor of the page to return
+   * @param sort asc or desc, by name
+   * @param filter only return children whose name contains it, ignoring case
    * @param sc
    * @param req
    * @return
@@ -233,33 +238,83 @@ public class DataSetService {
   @AllowedRoles(roles = {AllowedRoles.DATA_SCIENTIST, AllowedRoles.DATA_OWNER})
   public Response getDirContent(
           @PathParam("path") String path,
+          @QueryParam("limit") Integer limit,
+          @QueryParam("after") String after,
+          @QueryParam("sort") String sort,
+          @QueryParam("filter") String filter,
           @Context SecurityContext sc,
           @Context HttpServletRequest req) throws AppException {
     String fullpath = getFullPath(path);
     List<Inode> cwdChildren;
+    String nextCursor = null;
     try {
-      cwdChildren = inodes.getChildren(fullpath);
+      if (limit == null) {
+        cwdChildren = inodes.getChildren(fullpath);
+      } else {
+        if (limit <= 0 || limit > MAX_DIR_PAGE_SIZE) {
+          throw new AppException(Response.Status.BAD_REQUEST.getStatusCode(),
+                  "limit must be between 1 and " + MAX_DIR_PAGE_SIZE);
+        }
+        Inode parent = inodes.getInodeAtPath(fullpath);
+        if (parent == null) {
+          throw new FileNotFoundException("Path not found : " + fullpath);
+        } else if (!parent.isDir()) {
+          throw new FileNotFoundException("Path is not a directory.");
+        }
+        cwdChildren = inodes.findChildrenPage(parent, after, "desc".equalsIgnoreCase(sort),
+                filter == null || filter.isEmpty() ? null : filter, limit + 1);
+        if (cwdChildren.size() > limit) {
+          cwdChildren = cwdChildren.subList(0, limit);
+          nextCursor = cwdChildren.get(limit - 1).getInodePK().getName();
+        }
+      }
     } catch (FileNotFoundException ex) {
       logger.log(Level.WARNING, ex.getMessage(), ex);
       throw new AppException(Response.Status.NOT_FOUND.getStatusCode(),
               ex.getMessage());
     }
     List<InodeView> kids = new ArrayList<>();
-    InodeView inodeView;
-    Users user;
     for (Inode i : cwdChildren) {
-      inodeView = new InodeView(i, fullpath + "/" + i.getInodePK().getName());
-      user = userfacade.findByUsername(inodeView.getOwner());
-      if (user != null) {
-        inodeView.setOwner(user.getFname() + " " + user.getLname());
-        inodeView.setEmail(user.getEmail());
-      }
-      kids.add(inodeView);
+      kids.add(new InodeView(i, fullpath + "/" + i.getInodePK().getName()));
     }
+    setOwnerNames(kids);
     GenericEntity<List<InodeView>> inodeViews
             = new GenericEntity<List<InodeView>>(kids) { };
-    return noCacheResponse.getNoCacheResponseBuilder(Response.Status.OK).entity(
-            inodeViews).build();
+    Response.ResponseBuilder response = noCacheResponse.getNoCacheResponseBuilder(Response.Status.OK).entity(
+            inodeViews);
+    if (nextCursor != null) {
+      try {
+        // spaces as %20, so that the cursor can be decoded with decodeURIComponent
+        response.header(NEXT_CURSOR_HEADER, URLEncoder.encode(nextCursor, "UTF-8").replace("+", "%20"));
+      } catch (UnsupportedEncodingException ex) {
+        throw new IllegalStateException(ex);
+      }
+    }
+    return response.build();
+  }
+
+  /**
+   * Replace the owner of the views, a username, with the name and email of the
+   * user, looking all of them up in one query.
+   */
+  private void setOwnerNames(List<InodeView> views) {
+    Set<String> usernames = new HashSet<>();
+    for (InodeView view : views) {
+      if (view.getOwner() != null && !view.getOwner().isEmpty()) {
+        usernames.add(view.getOwner());
+      }
+    }
+    Map<String, Users> users = new HashMap<>();
+    for (Users user : userfacade.findByUsernames(usernames)) {
+      users.put(user.getUsername(), user);
+    }
+    for (InodeView view : views) {
+      Users user = users.get(view.getOwner());
+      if (user != null) {
+        view.setOwner(user.getFname() + " " + user.getLname());
+        view.setEmail(user.getEmail());
+      }
+    }
   }
 
   @GET
@@ -825,6 +880,7 @@ public class DataSetService {
     }
     //remove the group associated with this dataset if the dataset is toplevel ds 
     if (filePath.endsWith(this.dataset.getInode().getInodePK().getName())) {
+      datasetFacade.invalidateOverview(this.dataset);
       try {
         hdfsUsersBean.deleteDatasetGroup(this.dataset);
       } catch (IOException ex) {
@@ -978,11 +1034,10 @@ public class DataSetService {
         udfso.setPermission(parentPath, permission);
         dfso.setOwner(parentPath, owner, group);
 
-        List<Inode> children = new ArrayList<>();
-        inodes.getAllChildren(destInode, children);
-        for (Inode child : children) {
+        Iterator<InodeSubtreeEntry> children = new InodeSubtreeIterator(inodes, destInode);
+        while (children.hasNext()) {
           org.apache.hadoop.fs.Path childPath = new org.apache.hadoop.fs.Path(
-                  inodes.getPath(child));
+                  children.next().getPath());
           udfso.setPermission(childPath, permission);
           //Set group as well
           dfso.setOwner(childPath, owner, group);
@@ -1086,11 +1141,10 @@ public class DataSetService {
       if (udfso.isDir(destDir)) {
         udfso.setPermission(destPath, permission);
         Inode destInode = inodes.getInodeAtPath(destDir);
-        List<Inode> children = new ArrayList<>();
-        inodes.getAllChildren(destInode, children);
-        for (Inode child : children) {
-          udfso.setPermission(new org.apache.hadoop.fs.Path(inodes.
-                  getPath(child)), permission);
+        Iterator<InodeSubtreeEntry> children = new InodeSubtreeIterator(inodes, destInode);
+        while (children.hasNext()) {
+          udfso.setPermission(new org.apache.hadoop.fs.Path(children.next().
+                  getPath()), permission);
         }
       } else {
         udfso.setPermission(destPath, new FsPermission(permission));
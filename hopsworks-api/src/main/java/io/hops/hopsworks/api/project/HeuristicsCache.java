@@ -0,0 +1,156 @@
+package io.hops.hopsworks.api.project;
+
+import io.hops.hopsworks.common.jobs.jobhistory.JobHeuristicDTO;
+import io.hops.hopsworks.common.util.Settings;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.ejb.AsyncResult;
+import javax.ejb.Asynchronous;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+
+/**
+ * Caches the Dr. Elephant analysis of finished applications, which does not
+ * change once it exists, and the heuristic proposals computed for a job
+ * configuration for a short time.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class HeuristicsCache {
+
+  private static final Logger LOG = Logger.getLogger(HeuristicsCache.class.getName());
+
+  private static final int CONNECT_TIMEOUT_MS = 5 * 1000;
+  private static final int READ_TIMEOUT_MS = 30 * 1000;
+  private static final int MAX_JOB_DETAILS = 2000;
+  private static final int MAX_PROPOSALS = 200;
+  /**
+   * How long the proposals for a job configuration are reused. New runs of
+   * similar jobs show up in the proposals after at most this long.
+   */
+  private static final long PROPOSALS_TTL_MS = 60 * 1000;
+
+  @EJB
+  private Settings settings;
+
+  private final Map<String, String> jobDetails = new LruMap<>(MAX_JOB_DETAILS);
+  private final Map<String, CachedProposals> proposals = new LruMap<>(MAX_PROPOSALS);
+
+  /**
+   * Get the Dr. Elephant analysis of an application in the background.
+   * <p/>
+   * @param appId
+   * @return the json returned by Dr. Elephant, or null if it has no analysis
+   * for the application
+   */
+  @Asynchronous
+  public Future<String> fetchJobDetails(String appId) {
+    return new AsyncResult<>(getJobDetails(appId));
+  }
+
+  /**
+   * @param appId
+   * @return the json returned by Dr. Elephant, or null if it has no analysis
+   * for the application
+   */
+  public String getJobDetails(String appId) {
+    synchronized (jobDetails) {
+      String cached = jobDetails.get(appId);
+      if (cached != null) {
+        return cached;
+      }
+    }
+    String json = requestJobDetails(appId);
+    if (json != null) {
+      synchronized (jobDetails) {
+        jobDetails.put(appId, json);
+      }
+    }
+    return json;
+  }
+
+  private String requestJobDetails(String appId) {
+    HttpURLConnection conn = null;
+    try {
+      URL url = new URL(settings.getDrElephantUrl() + "/rest/job?id=" + appId);
+      conn = (HttpURLConnection) url.openConnection();
+      conn.setConnectTimeout(CONNECT_TIMEOUT_MS);
+      conn.setReadTimeout(READ_TIMEOUT_MS);
+      conn.setRequestMethod("GET");
+      conn.setRequestProperty("Accept", "application/json");
+      if (conn.getResponseCode() != 200) {
+        return null;
+      }
+      StringBuilder outputBuilder = new StringBuilder();
+      try (BufferedReader br = new BufferedReader(new InputStreamReader(conn.getInputStream()))) {
+        String output;
+        while ((output = br.readLine()) != null) {
+          outputBuilder.append(output);
+        }
+      }
+      return outputBuilder.toString();
+    } catch (IOException e) {
+      LOG.log(Level.FINE, "Could not get the Dr. Elephant analysis of " + appId, e);
+      return null;
+    } finally {
+      if (conn != null) {
+        conn.disconnect();
+      }
+    }
+  }
+
+  public JobHeuristicDTO getProposals(String fingerprint) {
+    synchronized (proposals) {
+      CachedProposals cached = proposals.get(fingerprint);
+      if (cached == null) {
+        return null;
+      }
+      if (System.currentTimeMillis() - cached.created > PROPOSALS_TTL_MS) {
+        proposals.remove(fingerprint);
+        return null;
+      }
+      return cached.result;
+    }
+  }
+
+  public void putProposals(String fingerprint, JobHeuristicDTO result) {
+    synchronized (proposals) {
+      proposals.put(fingerprint, new CachedProposals(result));
+    }
+  }
+
+  private static class CachedProposals {
+
+    private final JobHeuristicDTO result;
+    private final long created = System.currentTimeMillis();
+
+    CachedProposals(JobHeuristicDTO result) {
+      this.result = result;
+    }
+  }
+
+  private static class LruMap<K, V> extends LinkedHashMap<K, V> {
+
+    private final int maxEntries;
+
+    LruMap(int maxEntries) {
+      super(64, 0.75f, true);
+      this.maxEntries = maxEntries;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+      return size() > maxEntries;
+    }
+  }
+}
@@ -7,9 +7,14 @@ import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.security.RolesAllowed;
 import javax.ejb.EJB;
@@ -32,6 +37,8 @@ import javax.ws.rs.core.SecurityContext;
 import org.json.JSONObject;
 import io.hops.hopsworks.common.dao.jobs.JobsHistory;
 import io.hops.hopsworks.common.dao.jobs.JobsHistoryFacade;
+import io.hops.hopsworks.common.dao.jobhistory.YarnAppHeuristicResult;
+import io.hops.hopsworks.common.dao.jobhistory.YarnAppHeuristicResultDetails;
 import io.hops.hopsworks.common.dao.jobhistory.YarnAppHeuristicResultDetailsFacade;
 import io.hops.hopsworks.common.dao.jobhistory.YarnAppHeuristicResultFacade;
 import io.hops.hopsworks.common.dao.jobhistory.YarnAppResult;
@@ -89,6 +96,14 @@ public class HistoryService {
   private static final String EXECUTOR_LOAD_BALANCE_CLASS
           = "com.linkedin.drelephant.spark.heuristics.ExecutorLoadHeuristic";
 
+  private static final List<String> HEURISTIC_CLASSES = Arrays.asList(
+          MEMORY_HEURISTIC_CLASS, STAGE_RUNTIME_HEURISTIC_CLASS,
+          JOB_RUNTIME_HEURISTIC_CLASS, EXECUTOR_LOAD_BALANCE_CLASS);
+  private static final List<String> HEURISTIC_DETAIL_NAMES = Arrays.asList(
+          TOTAL_DRIVE_MEMORY, TOTAL_EXECUTOR_MEMORY, TOTAL_STORAGE_MEMORY,
+          AVERAGE_STATE_FAILURE, PROBLEMATIC_STAGES, STAGE_COMPLETED, STAGE_FAILED,
+          AVERAGE_JOB_FAILURE, JOBS_COMPLETED, JOBS_FAILED_NUMBER);
+
   private List<JobHeuristicDetailsDTO> resultsForAnalysis = new ArrayList<>();
   private JobHeuristicDetailsComparator comparator
           = new JobHeuristicDetailsComparator();
@@ -113,6 +128,8 @@ public class HistoryService {
   private Settings settings;
   @EJB
   private HdfsUsersController hdfsUsersBean;
+  @EJB
+  private HeuristicsCache heuristicsCache;
 
   @GET
   @Path("all/{projectId}")
@@ -209,40 +226,70 @@ public class HistoryService {
           @Context SecurityContext sc,
           @Context HttpServletRequest req) throws AppException {
 
+    String fingerprint = getFingerprint(jobDetailDTO);
+    JobHeuristicDTO cached = heuristicsCache.getProposals(fingerprint);
+    if (cached != null) {
+      return noCacheResponse.getNoCacheResponseBuilder(Response.Status.OK).entity(
+              new GenericEntity<JobHeuristicDTO>(cached) {}).build();
+    }
+
     JobHeuristicDTO jobsHistoryResult = jobsHistoryFacade.
             searchHeuristicRusults(jobDetailDTO);
+    List<String> appIds = jobsHistoryResult.getSimilarAppIds();
 
-    Iterator<String> jobIt = jobsHistoryResult.getSimilarAppIds().iterator();
+    // Ask Dr. Elephant about all the applications at the same time
+    Map<String, Future<String>> drElephantResults = new HashMap<>();
+    for (String appId : appIds) {
+      drElephantResults.put(appId, heuristicsCache.fetchJobDetails(appId));
+    }
+
+    // Load the heuristics and their details of all the applications at once
+    Map<String, JobsHistory> jobsHistories = jobsHistoryFacade.findByAppIds(appIds);
+    Map<String, YarnAppHeuristicResult> heuristics = new HashMap<>();
+    Map<Integer, Map<String, String>> details = new HashMap<>();
+    if (!appIds.isEmpty()) {
+      List<YarnAppHeuristicResult> results = yarnAppHeuristicResultsFacade.
+              searchByIdsAndClasses(appIds, HEURISTIC_CLASSES);
+      for (YarnAppHeuristicResult result : results) {
+        heuristics.put(result.getYarnAppResultId() + "|" + result.getHeuristicClass(), result);
+        details.put(result.getId(), new HashMap<>());
+      }
+      for (YarnAppHeuristicResultDetails detail : yarnAppHeuristicResultDetailsFacade.
+              searchByIdsAndNames(new ArrayList<>(details.keySet()), HEURISTIC_DETAIL_NAMES)) {
+        details.get(detail.getYarnAppHeuristicResultDetailsPK().getYarnAppHeuristicResultId()).put(
+                detail.getYarnAppHeuristicResultDetailsPK().getName(), detail.getValue());
+      }
+    }
 
-    while (jobIt.hasNext()) {
-      String appId = jobIt.next();
-      JsonResponse json = getJobDetailsFromDrElephant(appId);
-      JobsHistory jobsHistory = jobsHistoryFacade.findByAppId(appId);
+    for (String appId : appIds) {
+      String drElephantJson = getDrElephantResult(drElephantResults.get(appId));
+      JobsHistory jobsHistory = jobsHistories.get(appId);
 
       // Check if Dr.Elephant can find the Heuristic details for this application.
-      // If the status is FAILED then continue to the next iteration.
-      if (json.getStatus() == "FAILED") {
+      // If it can not then continue to the next iteration.
+      if (drElephantJson == null) {
         continue;
       }
 
-      StringBuilder jsonString = (StringBuilder) json.getData();
-      JSONObject jsonObj = new JSONObject(jsonString.toString());
+      // Skip applications without a memory heuristic, the same as the ones
+      // Dr.Elephant has not analyzed yet.
+      YarnAppHeuristicResult memoryHeuristic = heuristics.get(appId + "|" + MEMORY_HEURISTIC_CLASS);
+      if (memoryHeuristic == null) {
+        continue;
+      }
+
+      JSONObject jsonObj = new JSONObject(drElephantJson);
 
       String totalSeverity = jsonObj.get("severity").toString();
 
-      int yarnAppHeuristicIdMemory = yarnAppHeuristicResultsFacade.
-              searchByIdAndClass(appId, MEMORY_HEURISTIC_CLASS);
-      int yarnAppHeuristicIdStage = yarnAppHeuristicResultsFacade.
-              searchByIdAndClass(appId, STAGE_RUNTIME_HEURISTIC_CLASS);
-      int yarnAppHeuristicIdJob = yarnAppHeuristicResultsFacade.
-              searchByIdAndClass(appId, JOB_RUNTIME_HEURISTIC_CLASS);
+      Map<String, String> memoryDetails = details.get(memoryHeuristic.getId());
+      Map<String, String> stageDetails = getDetails(heuristics, details, appId, STAGE_RUNTIME_HEURISTIC_CLASS);
+      Map<String, String> jobDetails = getDetails(heuristics, details, appId, JOB_RUNTIME_HEURISTIC_CLASS);
 
       JobHeuristicDetailsDTO jhD = new JobHeuristicDetailsDTO(appId,
               totalSeverity);
-      jhD.setTotalDriverMemory(yarnAppHeuristicResultDetailsFacade.
-              searchByIdAndName(yarnAppHeuristicIdMemory, TOTAL_DRIVE_MEMORY));
-      String totalExMemory = yarnAppHeuristicResultDetailsFacade.
-              searchByIdAndName(yarnAppHeuristicIdMemory, TOTAL_EXECUTOR_MEMORY);
+      jhD.setTotalDriverMemory(getDetail(memoryDetails, TOTAL_DRIVE_MEMORY));
+      String totalExMemory = getDetail(memoryDetails, TOTAL_EXECUTOR_MEMORY);
       String[] splitTotalExMemory = splitExecutorMemory(totalExMemory);
 
       jhD.setAmMemory(jobsHistory.getAmMemory());
@@ -253,35 +300,23 @@ public class HistoryService {
       jhD.setExecutorMemory(convertGBtoMB(splitTotalExMemory[1]));
       jhD.setNumberOfExecutors(Integer.parseInt(splitTotalExMemory[2]));
 
-      jhD.setMemorySeverity(yarnAppHeuristicResultsFacade.searchForSeverity(
-              appId, MEMORY_HEURISTIC_CLASS));
-      jhD.setStageRuntimeSeverity(yarnAppHeuristicResultsFacade.
-              searchForSeverity(appId, STAGE_RUNTIME_HEURISTIC_CLASS));
-      jhD.setJobRuntimeSeverity(yarnAppHeuristicResultsFacade.searchForSeverity(
-              appId, JOB_RUNTIME_HEURISTIC_CLASS));
-      jhD.setLoadBalanceSeverity(yarnAppHeuristicResultsFacade.
-              searchForSeverity(appId, EXECUTOR_LOAD_BALANCE_CLASS));
+      jhD.setMemorySeverity(getSeverity(heuristics, appId, MEMORY_HEURISTIC_CLASS));
+      jhD.setStageRuntimeSeverity(getSeverity(heuristics, appId, STAGE_RUNTIME_HEURISTIC_CLASS));
+      jhD.setJobRuntimeSeverity(getSeverity(heuristics, appId, JOB_RUNTIME_HEURISTIC_CLASS));
+      jhD.setLoadBalanceSeverity(getSeverity(heuristics, appId, EXECUTOR_LOAD_BALANCE_CLASS));
 
-      jhD.setMemoryForStorage(yarnAppHeuristicResultDetailsFacade.
-              searchByIdAndName(yarnAppHeuristicIdMemory, TOTAL_STORAGE_MEMORY));
+      jhD.setMemoryForStorage(getDetail(memoryDetails, TOTAL_STORAGE_MEMORY));
 
       // JOBS
-      jhD.setAverageJobFailure(yarnAppHeuristicResultDetailsFacade.
-              searchByIdAndName(yarnAppHeuristicIdJob, AVERAGE_JOB_FAILURE));
-      jhD.setCompletedJobsNumber(yarnAppHeuristicResultDetailsFacade.
-              searchByIdAndName(yarnAppHeuristicIdJob, JOBS_COMPLETED));
-      jhD.setFailedJobsNumber(yarnAppHeuristicResultDetailsFacade.
-              searchByIdAndName(yarnAppHeuristicIdJob, JOBS_FAILED_NUMBER));
+      jhD.setAverageJobFailure(getDetail(jobDetails, AVERAGE_JOB_FAILURE));
+      jhD.setCompletedJobsNumber(getDetail(jobDetails, JOBS_COMPLETED));
+      jhD.setFailedJobsNumber(getDetail(jobDetails, JOBS_FAILED_NUMBER));
 
       // STAGE
-      jhD.setAverageStageFailure(yarnAppHeuristicResultDetailsFacade.
-              searchByIdAndName(yarnAppHeuristicIdStage, AVERAGE_STATE_FAILURE));
-      jhD.setCompletedStages(yarnAppHeuristicResultDetailsFacade.
-              searchByIdAndName(yarnAppHeuristicIdStage, STAGE_COMPLETED));
-      jhD.setFailedStages(yarnAppHeuristicResultDetailsFacade.searchByIdAndName(
-              yarnAppHeuristicIdStage, STAGE_FAILED));
-      jhD.setProblematicStages(yarnAppHeuristicResultDetailsFacade.
-              searchByIdAndName(yarnAppHeuristicIdStage, PROBLEMATIC_STAGES));
+      jhD.setAverageStageFailure(getDetail(stageDetails, AVERAGE_STATE_FAILURE));
+      jhD.setCompletedStages(getDetail(stageDetails, STAGE_COMPLETED));
+      jhD.setFailedStages(getDetail(stageDetails, STAGE_FAILED));
+      jhD.setProblematicStages(getDetail(stageDetails, PROBLEMATIC_STAGES));
 
       jobsHistoryResult.addJobHeuristicDetails(jhD);
       resultsForAnalysis.add(jhD);
@@ -290,6 +325,7 @@ public class HistoryService {
 
     defaultAnalysis(jobsHistoryResult);
     premiumAnalysis(jobsHistoryResult);
+    heuristicsCache.putProposals(fingerprint, jobsHistoryResult);
 
     GenericEntity<JobHeuristicDTO> jobsHistory
             = new GenericEntity<JobHeuristicDTO>(jobsHistoryResult) {};
@@ -298,6 +334,49 @@ public class HistoryService {
             jobsHistory).build();
   }
 
+  /**
+   * The proposals only depend on the job configuration the user asked about.
+   */
+  private String getFingerprint(JobDetailDTO jobDetailDTO) {
+    return jobDetailDTO.getProjectId() + "\n" + jobDetailDTO.getJobType() + "\n" + jobDetailDTO.getJobName() + "\n"
+            + jobDetailDTO.getClassName() + "\n" + jobDetailDTO.getSelectedJar() + "\n"
+            + jobDetailDTO.getInputArgs() + "\n" + jobDetailDTO.isFilter();
+  }
+
+  private String getDrElephantResult(Future<String> result) {
+    try {
+      return result.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (ExecutionException e) {
+      return null;
+    }
+  }
+
+  private Map<String, String> getDetails(Map<String, YarnAppHeuristicResult> heuristics,
+          Map<Integer, Map<String, String>> details, String appId, String heuristicClass) {
+    YarnAppHeuristicResult heuristic = heuristics.get(appId + "|" + heuristicClass);
+    if (heuristic == null) {
+      return Collections.emptyMap();
+    }
+    return details.get(heuristic.getId());
+  }
+
+  private String getDetail(Map<String, String> details, String name) {
+    String value = details.get(name);
+    return value == null ? "UNDEFINED" : value;
+  }
+
+  private String getSeverity(Map<String, YarnAppHeuristicResult> heuristics, String appId,
+          String heuristicClass) {
+    YarnAppHeuristicResult heuristic = heuristics.get(appId + "|" + heuristicClass);
+    if (heuristic == null) {
+      return "UNDEFINED";
+    }
+    return YarnAppHeuristicResultFacade.getSeverityName(heuristic.getSeverity());
+  }
+
   /**
    * A rest call to Dr. Elephant which returns the details for a specific
    * application
@@ -2,6 +2,7 @@ package io.hops.hopsworks.api.util;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Date;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.ejb.EJB;
@@ -9,12 +10,14 @@ import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
 import javax.enterprise.context.RequestScoped;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
 import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.security.AccessControlException;
 import io.hops.hopsworks.api.filter.AllowedRoles;
@@ -27,6 +30,19 @@ import io.hops.hopsworks.common.hdfs.DistributedFsService;
 public class DownloadService {
 
   private static final Logger LOG = Logger.getLogger(DownloadService.class.getName());
+  private static final int BUFFER_SIZE = 256 * 1024;
+  private static final int PARTIAL_CONTENT = 206;
+  private static final int REQUESTED_RANGE_NOT_SATISFIABLE = 416;
+  private static final long[] WHOLE_FILE = new long[0];
+  /**
+   * Copy buffers are reused by the threads writing the responses.
+   */
+  private static final ThreadLocal<byte[]> BUFFER = new ThreadLocal<byte[]>() {
+    @Override
+    protected byte[] initialValue() {
+      return new byte[BUFFER_SIZE];
+    }
+  };
 
   @EJB
   private DistributedFsService dfs;
@@ -48,46 +64,144 @@ public class DownloadService {
   @GET
   @Produces(MediaType.APPLICATION_OCTET_STREAM)
   @AllowedRoles(roles = {AllowedRoles.DATA_OWNER})
-  public Response downloadFromHDFS() throws AppException, AccessControlException {
-    FSDataInputStream stream;
+  public Response downloadFromHDFS(@HeaderParam("Range") String range, @HeaderParam("If-Range") String ifRange)
+          throws AppException, AccessControlException {
+    FSDataInputStream stream = null;
     DistributedFileSystemOps udfso = null;
     try {
       if (username != null) {
         udfso = dfs.getDfsOps(username);
-        stream = udfso.open(new Path(this.path));
       } else {
         udfso = dfs.getDfsOps();
-        stream = udfso.open(new Path(this.path));
       }
-      Response.ResponseBuilder response = Response.ok(buildOutputStream(stream,
-              udfso));
+      Path location = new Path(this.path);
+      FileStatus status = udfso.getFileStatus(location);
+      long fileLength = status.getLen();
+      String etag = "\"" + fileLength + "-" + status.getModificationTime() + "\"";
+
+      long start = 0;
+      long length = fileLength;
+      Response.ResponseBuilder response;
+      //A Range is ignored if If-Range does not match the current version of the file
+      long[] byteRange = null;
+      if (range != null && (ifRange == null || ifRange.equals(etag))) {
+        byteRange = parseRange(range, fileLength);
+        if (byteRange == null) {
+          udfso.close();
+          return Response.status(REQUESTED_RANGE_NOT_SATISFIABLE)
+                  .header("Content-Range", "bytes */" + fileLength).build();
+        }
+      }
+      stream = udfso.open(location);
+      if (byteRange != null && byteRange != WHOLE_FILE) {
+        start = byteRange[0];
+        length = byteRange[1] - byteRange[0] + 1;
+        response = Response.status(PARTIAL_CONTENT).entity(buildOutputStream(stream, udfso, start, length));
+        response.header("Content-Range", "bytes " + byteRange[0] + "-" + byteRange[1] + "/" + fileLength);
+      } else {
+        response = Response.ok(buildOutputStream(stream, udfso, start, length));
+      }
       response.header("Content-disposition", "attachment;");
+      response.header("Content-Length", length);
+      response.header("Accept-Ranges", "bytes");
+      response.header("ETag", etag);
+      response.lastModified(new Date(status.getModificationTime()));
 
       return response.build();
     } catch (AccessControlException ex) {
+      closeQuietly(stream, udfso);
       throw new AccessControlException(
               "Permission denied: You can not download the file ");
     } catch (IOException ex) {
       LOG.log(Level.SEVERE, null, ex);
+      closeQuietly(stream, udfso);
       throw new AppException(Response.Status.BAD_REQUEST.getStatusCode(),
               "File does not exist: " + this.path);
     }
   }
 
+  /**
+   * Parse a single byte range of the form bytes=first-last, bytes=first- or
+   * bytes=-suffixLength. Requests for several ranges are served in full, so
+   * clients that want to download over several connections request one range
+   * per connection.
+   * <p/>
+   * @param range the value of the Range header
+   * @param fileLength
+   * @return the first and last byte of the range, {@link #WHOLE_FILE} if the
+   * header is not a single byte range, or null if the range is not satisfiable.
+   */
+  private long[] parseRange(String range, long fileLength) {
+    if (!range.startsWith("bytes=") || range.contains(",")) {
+      return WHOLE_FILE;
+    }
+    String spec = range.substring("bytes=".length()).trim();
+    int dash = spec.indexOf('-');
+    if (dash < 0) {
+      return WHOLE_FILE;
+    }
+    try {
+      long first;
+      long last;
+      if (dash == 0) {
+        long suffix = Long.parseLong(spec.substring(1));
+        if (suffix <= 0) {
+          return null;
+        }
+        first = Math.max(0, fileLength - suffix);
+        last = fileLength - 1;
+      } else {
+        first = Long.parseLong(spec.substring(0, dash));
+        last = dash == spec.length() - 1 ? fileLength - 1 : Math.min(Long.parseLong(spec.substring(dash + 1)),
+                fileLength - 1);
+      }
+      if (first >= fileLength || first > last) {
+        return null;
+      }
+      return new long[]{first, last};
+    } catch (NumberFormatException ex) {
+      return WHOLE_FILE;
+    }
+  }
+
+  private void closeQuietly(FSDataInputStream stream, DistributedFileSystemOps udfso) {
+    if (stream != null) {
+      try {
+        stream.close();
+      } catch (IOException ex) {
+        LOG.log(Level.WARNING, "Could not close stream of " + path, ex);
+      }
+    }
+    if (udfso != null) {
+      udfso.close();
+    }
+  }
+
   private StreamingOutput buildOutputStream(final FSDataInputStream stream,
-          final DistributedFileSystemOps dfso) {
+          final DistributedFileSystemOps dfso, final long start, final long length) {
     StreamingOutput output = new StreamingOutput() {
       @Override
       public void write(OutputStream out) throws IOException,
               WebApplicationException {
-        int length;
-        byte[] buffer = new byte[1024];
-        while ((length = stream.read(buffer)) != -1) {
-          out.write(buffer, 0, length);
+        try {
+          if (start > 0) {
+            stream.seek(start);
+          }
+          byte[] buffer = BUFFER.get();
+          long remaining = length;
+          while (remaining > 0) {
+            int read = stream.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read == -1) {
+              break;
+            }
+            out.write(buffer, 0, read);
+            remaining -= read;
+          }
+          out.flush();
+        } finally {
+          stream.close();
+          dfso.close();
         }
-        out.flush();
-        stream.close();
-        dfso.close();
       }
     };
 
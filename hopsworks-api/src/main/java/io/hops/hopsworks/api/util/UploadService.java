@@ -43,11 +43,13 @@ import io.hops.hopsworks.common.hdfs.DistributedFsService;
 import io.hops.hopsworks.common.hdfs.Utils;
 import io.hops.hopsworks.common.metadata.exception.ApplicationException;
 import io.hops.hopsworks.common.metadata.exception.DatabaseException;
+import io.hops.hopsworks.common.upload.HdfsChunkWriter;
 import io.hops.hopsworks.common.upload.HttpUtils;
 import io.hops.hopsworks.common.upload.ResumableInfo;
 import io.hops.hopsworks.common.upload.ResumableInfoStorage;
 import io.hops.hopsworks.common.upload.StagingManager;
 import io.hops.hopsworks.common.util.HopsUtils;
+import io.hops.hopsworks.common.util.Settings;
 
 @RequestScoped
 @TransactionAttribute(TransactionAttributeType.NEVER)
@@ -55,6 +57,15 @@ public class UploadService {
 
   private final static Logger logger = Logger.getLogger(UploadService.class.
           getName());
+  /**
+   * Maximum bytes of out of order chunks buffered per upload when writing
+   * straight to HDFS. Also the largest chunk accepted in that mode.
+   */
+  private static final long MAX_PENDING_CHUNK_BYTES = 64 * 1024 * 1024;
+  /**
+   * Maximum bytes of out of order chunks buffered for all uploads together.
+   */
+  private static final long MAX_TOTAL_PENDING_CHUNK_BYTES = 512 * 1024 * 1024;
 
   @EJB
   private NoCacheResponse noCacheResponse;
@@ -70,6 +81,8 @@ public class UploadService {
   private InodeBasicMetadataFacade basicMetaFacade;
   @EJB
   private DistributedFsService dfs;
+  @EJB
+  private Settings settings;
 
   private String path;
   private String username;
@@ -252,7 +265,19 @@ public class UploadService {
             flowIdentifier, flowRelativePath, flowTotalSize, this.path,
             this.templateId);
     String fileName = info.getResumableFilename();
-    int templateid = info.getResumableTemplateId();
+
+    long chunkSize = HttpUtils.toLong(flowCurrentChunkSize, -1);
+
+    if (settings.isUploadDirectToHdfs() && !this.isTemplate) {
+      //The chunk is buffered before it is written, its size must be known
+      if (chunkSize < 0) {
+        json.setErrorMsg("Missing or invalid chunk size");
+        return noCacheResponse.getNoCacheResponseBuilder(
+                Response.Status.BAD_REQUEST).entity(json).build();
+      }
+      return uploadChunkToHdfs(info, resumableChunkNumber, uploadedInputStream,
+              chunkSize);
+    }
 
     long content_length;
     //Seek to position
@@ -263,9 +288,9 @@ public class UploadService {
       raf.seek((resumableChunkNumber - 1) * (long) info.getResumableChunkSize());
       //Save to file
       long readed = 0;
-      content_length = HttpUtils.toLong(flowCurrentChunkSize, -1);
       byte[] bytes = new byte[1024 * 1024];//Default chunk size for ng-flow.js is set to chunkSize: 1024 * 1024
-      while (readed < content_length) {
+      //Without the chunk size read the whole part and count what was received
+      while (chunkSize < 0 || readed < chunkSize) {
         int r = is.read(bytes);
         if (r < 0) {
           break;
@@ -273,6 +298,7 @@ public class UploadService {
         raf.write(bytes, 0, r);
         readed += r;
       }
+      content_length = chunkSize < 0 ? readed : chunkSize;
     }
 
     boolean finished = false;
@@ -320,41 +346,13 @@ public class UploadService {
 
         this.path = Utils.ensurePathEndsInSlash(this.path);
 
-        if (this.username != null) {
-          dfsOps = dfs.getDfsOps(username);
-        } else { // to accommodate previous implimentations  
-          dfsOps = dfs.getDfsOps();
-        }
+        dfsOps = getDfsOps();
         dfsOps.copyToHDFSFromLocal(true, stagingManager.
                 getStagingPath()
                 + this.path + fileName, this.path
                 + fileName);
-        org.apache.hadoop.fs.Path location = new org.apache.hadoop.fs.Path(
-                this.path + fileName);
-        dfsOps.setPermission(location, dfsOps.getParentPermission(location));
         logger.log(Level.INFO, "Copied to HDFS");
-
-        if (templateid != 0 && templateid != -1) {
-          this.attachTemplateToInode(info, this.path + fileName);
-        }
-
-        //if it is about a template file persist it in the database as well
-        if (this.isTemplate) {
-          //TODO. More checks needed to ensure the valid template format
-          this.persistUploadedTemplate(fileContent);
-        } //this is a common file being uploaded so add basic metadata to it
-        //description and searchable
-        else {
-          //find the corresponding inode
-          Inode parent = this.inodes.getInodeAtPath(this.path);
-          int pathLen = Utils.pathLen(this.path);
-          int partitionId = HopsUtils.calculatePartitionId(parent.getId(),
-                  fileName, pathLen);
-          Inode file = this.inodes.findByInodePK(parent, fileName, partitionId);
-
-          InodeBasicMetadata basicMeta = new InodeBasicMetadata(file, "", true);
-          this.basicMetaFacade.addBasicMetadata(basicMeta);
-        }
+        finishUpload(dfsOps, info, fileName, fileContent);
         json.setSuccessMessage("Successfuly uploaded file to " + this.path);
         return noCacheResponse.getNoCacheResponseBuilder(Response.Status.OK).
                 entity(json).build();
@@ -378,6 +376,155 @@ public class UploadService {
             json).build();
   }
 
+  /**
+   * Write a chunk straight into the destination file in HDFS. Chunks arriving
+   * ahead of the next expected one are buffered in memory up to
+   * MAX_PENDING_CHUNK_BYTES, after which the client is asked to retry them.
+   * <p/>
+   * If writing to HDFS fails the upload starts over: the chunks received
+   * until then are rejected with 400, which flow.js does not retry, and the
+   * next chunks start a new file.
+   */
+  private Response uploadChunkToHdfs(ResumableInfo info, int chunkNumber,
+          InputStream uploadedInputStream, long contentLength) throws
+          AppException, IOException {
+    JsonResponse json = new JsonResponse();
+    if (contentLength > MAX_PENDING_CHUNK_BYTES) {
+      json.setErrorMsg("Chunk too large");
+      return noCacheResponse.getNoCacheResponseBuilder(
+              Response.Status.BAD_REQUEST).entity(json).build();
+    }
+    long ticket = info.startChunk();
+    this.path = Utils.ensurePathEndsInSlash(this.path);
+    String fileName = info.getResumableFilename();
+    //Read the chunk before taking the writer, a slow client must not hold up
+    //the other chunks
+    byte[] chunk;
+    try (InputStream is = uploadedInputStream) {
+      chunk = HdfsChunkWriter.readChunk(is, contentLength);
+    } catch (IOException e) {
+      logger.log(Level.INFO, "Failed to read chunk", e);
+      json.setErrorMsg("Could not read the chunk, retry later");
+      return noCacheResponse.getNoCacheResponseBuilder(
+              Response.Status.SERVICE_UNAVAILABLE).entity(json).build();
+    }
+    HdfsChunkWriter writer;
+    synchronized (info) {
+      if (info.isStale(ticket)) {
+        return uploadFailed(json);
+      }
+      writer = info.getHdfsWriter();
+      if (writer == null) {
+        writer = new HdfsChunkWriter(getDfsOps(), this.path + fileName,
+                MAX_PENDING_CHUNK_BYTES, MAX_TOTAL_PENDING_CHUNK_BYTES);
+        info.setHdfsWriter(writer);
+      }
+    }
+    try {
+      if (!writer.write(chunkNumber, chunk)) {
+        json.setErrorMsg("Too many chunks out of order, retry later");
+        return noCacheResponse.getNoCacheResponseBuilder(
+                Response.Status.SERVICE_UNAVAILABLE).entity(json).build();
+      }
+    } catch (AccessControlException ex) {
+      ResumableInfoStorage.getInstance().remove(info);
+      writer.abort();
+      throw new AccessControlException(
+              "Permission denied: You can not upload to this folder. ");
+    } catch (IOException e) {
+      logger.log(Level.INFO, "Failed to write to HDFS", e);
+      info.restart(writer);
+      return uploadFailed(json);
+    }
+
+    boolean finished;
+    synchronized (info) {
+      if (info.getHdfsWriter() != writer) {
+        //The upload failed and started over while this chunk was written
+        return uploadFailed(json);
+      }
+      finished = info.addChunkAndCheckIfFinished(
+              new ResumableInfo.ResumableChunkNumber(chunkNumber), contentLength);
+    }
+    if (!finished) {
+      json.setSuccessMessage("Upload");//This Chunk has been Uploaded.
+      return noCacheResponse.getNoCacheResponseBuilder(Response.Status.OK).
+              entity(json).build();
+    }
+    ResumableInfoStorage.getInstance().remove(info);
+    logger.log(Level.INFO, "All finished.");
+
+    DistributedFileSystemOps dfsOps = null;
+    try {
+      writer.close();
+      dfsOps = getDfsOps();
+      finishUpload(dfsOps, info, fileName, null);
+      json.setSuccessMessage("Successfuly uploaded file to " + this.path);
+      return noCacheResponse.getNoCacheResponseBuilder(Response.Status.OK).
+              entity(json).build();
+    } catch (AccessControlException ex) {
+      throw new AccessControlException(
+              "Permission denied: You can not upload to this folder. ");
+    } catch (IOException e) {
+      logger.log(Level.INFO, "Failed to write to HDFS", e);
+      json.setErrorMsg("Failed to write to HDFS");
+      return noCacheResponse.getNoCacheResponseBuilder(
+              Response.Status.BAD_REQUEST).entity(json).build();
+    } finally {
+      if (dfsOps != null) {
+        dfsOps.close();
+      }
+    }
+  }
+
+  private Response uploadFailed(JsonResponse json) {
+    json.setErrorMsg("Failed to write to HDFS, upload the file again");
+    return noCacheResponse.getNoCacheResponseBuilder(
+            Response.Status.BAD_REQUEST).entity(json).build();
+  }
+
+  private DistributedFileSystemOps getDfsOps() {
+    if (this.username != null) {
+      return dfs.getDfsOps(username);
+    } else { // to accommodate previous implimentations
+      return dfs.getDfsOps();
+    }
+  }
+
+  /**
+   * Set the permissions of a file that is completely written to HDFS and
+   * attach its template, or persist it if it is a template itself.
+   */
+  private void finishUpload(DistributedFileSystemOps dfsOps, ResumableInfo info,
+          String fileName, String fileContent) throws IOException, AppException {
+    org.apache.hadoop.fs.Path location = new org.apache.hadoop.fs.Path(
+            this.path + fileName);
+    dfsOps.setPermission(location, dfsOps.getParentPermission(location));
+
+    int templateid = info.getResumableTemplateId();
+    if (templateid != 0 && templateid != -1) {
+      this.attachTemplateToInode(info, this.path + fileName);
+    }
+
+    //if it is about a template file persist it in the database as well
+    if (this.isTemplate) {
+      //TODO. More checks needed to ensure the valid template format
+      this.persistUploadedTemplate(fileContent);
+    } //this is a common file being uploaded so add basic metadata to it
+    //description and searchable
+    else {
+      //find the corresponding inode
+      Inode parent = this.inodes.getInodeAtPath(this.path);
+      int pathLen = Utils.pathLen(this.path);
+      int partitionId = HopsUtils.calculatePartitionId(parent.getId(),
+              fileName, pathLen);
+      Inode file = this.inodes.findByInodePK(parent, fileName, partitionId);
+
+      InodeBasicMetadata basicMeta = new InodeBasicMetadata(file, "", true);
+      this.basicMetaFacade.addBasicMetadata(basicMeta);
+    }
+  }
+
   private void attachTemplateToInode(ResumableInfo info, String path) {
     //find the inode
     Inode inode = inodes.getInodeAtPath(path);
@@ -4,17 +4,28 @@ import com.google.common.collect.Lists;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.conf.Configuration;
@@ -46,17 +57,60 @@ public class HDFSNotebookRepo implements NotebookRepo {
 
   private final Logger logger = LoggerFactory.getLogger(HDFSNotebookRepo.class);
 
+  /**
+   * Number of notes parsed at the same time when listing notes that are not
+   * in the index yet, including the listing thread.
+   */
+  private static final int LIST_PARSE_THREADS = 8;
+  /**
+   * The repo is created by Zeppelin, so the executor of the container is
+   * looked up rather than injected.
+   */
+  private static final String EXECUTOR_JNDI_NAME = "java:comp/DefaultManagedExecutorService";
+
+  /**
+   * Info of the listed notes by note id, with the modification time of the
+   * note directory it was read at. Saving a note writes a temporary file and
+   * renames it over note.json, which updates the modification time of the
+   * directory, so an unchanged time means the note does not need to be parsed
+   * again.
+   */
+  private final Map<String, IndexedNoteInfo> noteIndex = new ConcurrentHashMap<>();
+  private final Gson noteReader = new GsonBuilder()
+          .registerTypeAdapter(Date.class, new NotebookImportDeserializer())
+          .create();
+  /**
+   * Notes are written compact, the reader does not need the whitespace.
+   */
+  private final Gson noteWriter = new GsonBuilder().create();
+  private final Map<String, NoteWriteState> writeStates = new ConcurrentHashMap<>();
+
   private URI filesystemRoot;
   private final ZeppelinConfiguration conf;
   private String hdfsUser;
   private final Configuration hdfsConf;
+  private final ExecutorService listExecutor;
 
   public HDFSNotebookRepo(ZeppelinConfiguration conf) throws IOException {
     this.conf = conf;
     this.hdfsConf = getHadoopConf();
+    this.listExecutor = lookupExecutor();
     setNotebookDirectory(this.conf.getNotebookDir());
   }
 
+  /**
+   * @return the managed executor of the container, or null if there is none,
+   * in which case notes are parsed by the listing thread alone.
+   */
+  private ExecutorService lookupExecutor() {
+    try {
+      return (ExecutorService) new InitialContext().lookup(EXECUTOR_JNDI_NAME);
+    } catch (NamingException e) {
+      logger.warn("No managed executor found, notes will be listed by one thread", e);
+      return null;
+    }
+  }
+
   private void setNotebookDirectory(String notebookDir) throws IOException {
     try {
       filesystemRoot = new URI(notebookDir);
@@ -167,18 +221,12 @@ public class HDFSNotebookRepo implements NotebookRepo {
       throw new IOException(noteJson.toString() + " not found");
     }
 
-    GsonBuilder gsonBuilder = new GsonBuilder();
-    gsonBuilder.setPrettyPrinting();
-    Gson gson = gsonBuilder.registerTypeAdapter(Date.class,
-            new NotebookImportDeserializer())
-            .create();
-
     InputStream ins = dfs.open(noteJson);
     String json = IOUtils.toString(ins, conf.getString(
             ZeppelinConfiguration.ConfVars.ZEPPELIN_ENCODING));
     ins.close();
 
-    Note note = gson.fromJson(json, Note.class);
+    Note note = noteReader.fromJson(json, Note.class);
 
     for (Paragraph p : note.getParagraphs()) {
       if (p.getStatus() == Job.Status.PENDING || p.getStatus()
@@ -196,18 +244,17 @@ public class HDFSNotebookRepo implements NotebookRepo {
     return new NoteInfo(note);
   }
 
-  private DistributedFileSystem getDistributedFs(Path path,
+  /**
+   * @param status the status of the path, or null if it does not exist
+   * @return a dfs for the owner of the path if it exists and is not owned by
+   * the subject, dfs otherwise.
+   */
+  private DistributedFileSystem getDistributedFs(FileStatus status,
           AuthenticationInfo subject, DistributedFileSystem dfs)
           throws IOException {
     DistributedFileSystem dfsOp = dfs;
-    String owner;
-    if (dfs.exists(path)) {
-      owner = dfs.getFileStatus(path).getOwner();
-    } else {
-      owner = subject.getUser();
-    }
-    if (subject != null && !owner.equals(subject.getUser())) {
-      dfsOp = getDfs(UserGroupInformation.createProxyUser(owner,
+    if (subject != null && status != null && !status.getOwner().equals(subject.getUser())) {
+      dfsOp = getDfs(UserGroupInformation.createProxyUser(status.getOwner(),
               UserGroupInformation.getLoginUser()));
     }
     return dfsOp;
@@ -229,37 +276,100 @@ public class HDFSNotebookRepo implements NotebookRepo {
   @Override
   public List<NoteInfo> list(AuthenticationInfo subject) throws IOException {
     DistributedFileSystem dfs = getUserDfs(subject);
-    Path rootDir = getRootDir(dfs);
-    FileStatus[] children = dfs.listStatus(rootDir);
-
-    List<NoteInfo> infos = new LinkedList<>();
-    for (FileStatus f : children) {
-      String fileName = f.getPath().getName();
-      if (fileName.startsWith(".")
-              || fileName.startsWith("#")
-              || fileName.startsWith("~")) {
-        // skip hidden, temporary files
-        continue;
-      }
+    try {
+      Path rootDir = getRootDir(dfs);
+      FileStatus[] children = dfs.listStatus(rootDir);
+
+      List<NoteInfo> infos = new LinkedList<>();
+      List<FileStatus> toParse = new ArrayList<>();
+      Set<String> listed = new HashSet<>();
+      for (FileStatus f : children) {
+        String fileName = f.getPath().getName();
+        if (fileName.startsWith(".")
+                || fileName.startsWith("#")
+                || fileName.startsWith("~")) {
+          // skip hidden, temporary files
+          continue;
+        }
+
+        if (!f.isDirectory()) {
+          // currently single note is saved like, [NOTE_ID]/note.json.
+          // so it must be a directory
+          continue;
+        }
+        listed.add(fileName);
 
-      if (!dfs.isDirectory(f.getPath())) {
-        // currently single note is saved like, [NOTE_ID]/note.json.
-        // so it must be a directory
-        continue;
+        IndexedNoteInfo indexed = noteIndex.get(fileName);
+        if (indexed != null && indexed.modificationTime == f.getModificationTime()) {
+          infos.add(indexed.info);
+        } else {
+          toParse.add(f);
+        }
       }
+      // notes removed outside of this repo
+      noteIndex.keySet().retainAll(listed);
 
-      NoteInfo info;
+      infos.addAll(parseNoteInfos(toParse, dfs));
+      return infos;
+    } finally {
+      dfs.close();
+    }
+  }
 
+  /**
+   * Read the info of the notes that are not in the index, or changed since
+   * they were indexed, in parallel and add them to the index. The listing
+   * thread parses notes too, together with up to LIST_PARSE_THREADS - 1 tasks
+   * of the managed executor.
+   */
+  private List<NoteInfo> parseNoteInfos(final List<FileStatus> noteDirs, final DistributedFileSystem dfs)
+          throws IOException {
+    List<NoteInfo> infos = new ArrayList<>();
+    if (noteDirs.isEmpty()) {
+      return infos;
+    }
+    final NoteInfo[] parsed = new NoteInfo[noteDirs.size()];
+    final AtomicInteger nextNote = new AtomicInteger();
+    Runnable parser = () -> {
+      int i;
+      while ((i = nextNote.getAndIncrement()) < noteDirs.size()) {
+        FileStatus f = noteDirs.get(i);
+        try {
+          NoteInfo info = getNoteInfo(f.getPath(), dfs);
+          if (info != null) {
+            noteIndex.put(f.getPath().getName(), new IndexedNoteInfo(f.getModificationTime(), info));
+          }
+          parsed[i] = info;
+        } catch (IOException | RuntimeException e) {
+          logger.error("Can't read note " + f.getPath().toString(), e);
+        }
+      }
+    };
+    List<Future<?>> workers = new ArrayList<>();
+    if (listExecutor != null) {
+      for (int i = 1; i < Math.min(LIST_PARSE_THREADS, noteDirs.size()); i++) {
+        workers.add(listExecutor.submit(parser));
+      }
+    }
+    parser.run();
+    for (Future<?> worker : workers) {
       try {
-        info = getNoteInfo(f.getPath(), dfs);
-        if (info != null) {
-          infos.add(info);
+        worker.get();
+      } catch (ExecutionException e) {
+        logger.error("Can't read notes", e.getCause());
+      } catch (InterruptedException e) {
+        for (Future<?> future : workers) {
+          future.cancel(true);
         }
-      } catch (Exception e) {
-        logger.error("Can't read note " + f.getPath().toString(), e);
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while reading notes", e);
+      }
+    }
+    for (NoteInfo info : parsed) {
+      if (info != null) {
+        infos.add(info);
       }
     }
-    dfs.close();
     return infos;
   }
 
@@ -273,44 +383,78 @@ public class HDFSNotebookRepo implements NotebookRepo {
   }
 
   @Override
-  public synchronized void save(Note note, AuthenticationInfo subject) throws
+  public void save(Note note, AuthenticationInfo subject) throws
           IOException {
-    GsonBuilder gsonBuilder = new GsonBuilder();
-    gsonBuilder.setPrettyPrinting();
-    Gson gson = gsonBuilder.create();
-    String json = gson.toJson(note);
-
-    DistributedFileSystem dfs = getUserDfs(subject);
-    Path rootDir = getRootDir(dfs);
-
-    Path noteDir = new Path(rootDir, note.getId());
-    //returns dfs for the owner of the dir if the dir exists.
-    //so we do not change the owner of the notebook.
-    DistributedFileSystem dfsOp = getDistributedFs(noteDir, subject, dfs);
-
-    FsPermission fsPermission;
-    if (!dfs.exists(noteDir)) {
-      fsPermission = new FsPermission(FsAction.ALL, FsAction.READ_EXECUTE,
-              FsAction.NONE, false);
-      dfsOp.mkdir(noteDir, fsPermission);
+    String json = noteWriter.toJson(note);
+    NoteWriteState state = writeStates.computeIfAbsent(note.getId(), id -> new NoteWriteState());
+    long generation;
+    synchronized (state) {
+      state.pendingJson = json;
+      state.pendingSubject = subject;
+      generation = ++state.requested;
     }
-    if (!dfs.isDirectory(noteDir)) {
-      throw new IOException(noteDir.toString() + " is not a directory");
+    // saves of a note are written one at a time. A save that waited while another
+    // one was written only writes if no later save was written since.
+    synchronized (state.writeLock) {
+      String toWrite;
+      AuthenticationInfo writeSubject;
+      synchronized (state) {
+        if (state.written >= generation) {
+          return;
+        }
+        toWrite = state.pendingJson;
+        writeSubject = state.pendingSubject;
+        generation = state.requested;
+      }
+      writeNote(note.getId(), toWrite, writeSubject);
+      synchronized (state) {
+        state.written = generation;
+        if (state.requested == generation) {
+          state.pendingJson = null;
+          state.pendingSubject = null;
+        }
+      }
     }
+  }
 
-    Path noteJson = new Path(noteDir, "note.json");
-    Path noteJsonTemp = new Path(noteDir, ".note.json");
-    // false means not appending. creates file if not exists
-    OutputStream out = dfsOp.create(noteJsonTemp);
-    out.write(json.getBytes(conf.getString(
-            ZeppelinConfiguration.ConfVars.ZEPPELIN_ENCODING)));
-    out.close();
-    dfsOp.rename(noteJsonTemp, noteJson, Options.Rename.OVERWRITE);
+  private void writeNote(String noteId, String json, AuthenticationInfo subject) throws IOException {
+    DistributedFileSystem dfs = getUserDfs(subject);
+    DistributedFileSystem dfsOp = dfs;
+    try {
+      Path noteDir = new Path(new Path(getPath("/")), noteId);
+      FileStatus noteDirStatus;
+      try {
+        noteDirStatus = dfs.getFileStatus(noteDir);
+      } catch (FileNotFoundException e) {
+        noteDirStatus = null;
+      }
+      //returns dfs for the owner of the dir if the dir exists.
+      //so we do not change the owner of the notebook.
+      dfsOp = getDistributedFs(noteDirStatus, subject, dfs);
+
+      if (noteDirStatus == null) {
+        FsPermission fsPermission = new FsPermission(FsAction.ALL, FsAction.READ_EXECUTE,
+                FsAction.NONE, false);
+        dfsOp.mkdir(noteDir, fsPermission);
+      } else if (!noteDirStatus.isDirectory()) {
+        throw new IOException(noteDir.toString() + " is not a directory");
+      }
 
-    if (!dfs.equals(dfsOp)) {
-      dfsOp.close();
+      Path noteJson = new Path(noteDir, "note.json");
+      Path noteJsonTemp = new Path(noteDir, ".note.json");
+      // false means not appending. creates file if not exists
+      try (OutputStream out = dfsOp.create(noteJsonTemp)) {
+        out.write(json.getBytes(conf.getString(
+                ZeppelinConfiguration.ConfVars.ZEPPELIN_ENCODING)));
+      }
+      dfsOp.rename(noteJsonTemp, noteJson, Options.Rename.OVERWRITE);
+      noteIndex.remove(noteId);
+    } finally {
+      if (!dfs.equals(dfsOp)) {
+        dfsOp.close();
+      }
+      dfs.close();
     }
-    dfs.close();
   }
 
   @Override
@@ -319,6 +463,8 @@ public class HDFSNotebookRepo implements NotebookRepo {
     DistributedFileSystem dfs = getUserDfs(subject);
     Path rootDir = getRootDir(dfs);
     Path noteDir = new Path(rootDir, noteId);
+    noteIndex.remove(noteId);
+    writeStates.remove(noteId);
 
     if (!dfs.exists(noteDir)) {
       // nothing to do
@@ -336,7 +482,7 @@ public class HDFSNotebookRepo implements NotebookRepo {
 
   @Override
   public void close() {
-    // no-op
+    noteIndex.clear();
   }
 
   @Override
@@ -407,9 +553,34 @@ public class HDFSNotebookRepo implements NotebookRepo {
             subject.getUser(), getNotebookDirPath(), newNotebookDirectotyPath);
     try {
       setNotebookDirectory(newNotebookDirectotyPath);
+      noteIndex.clear();
     } catch (IOException e) {
       logger.error("Cannot update notebook directory", e);
     }
   }
 
+  /**
+   * The saves of one note. The latest requested content is kept until it is
+   * written, so saves arriving while the note is being written are merged
+   * into one write.
+   */
+  private static class NoteWriteState {
+
+    private final Object writeLock = new Object();
+    private String pendingJson;
+    private AuthenticationInfo pendingSubject;
+    private long requested = 0;
+    private long written = 0;
+  }
+
+  private static class IndexedNoteInfo {
+
+    private final long modificationTime;
+    private final NoteInfo info;
+
+    IndexedNoteInfo(long modificationTime, NoteInfo info) {
+      this.modificationTime = modificationTime;
+      this.info = info;
+    }
+  }
 }
@@ -24,6 +24,7 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.ArrayList;
@@ -154,7 +155,12 @@ public class NotebookServer implements
             }
           }).setDateFormat("yyyy-MM-dd'T'HH:mm:ssZ")
           .registerTypeAdapterFactory(Input.TypeAdapterFactory).create();
-  private static final Map<String, List<Session>> noteSocketMap = new HashMap<>();
+  /**
+   * Sessions that have a note open. The lists are copy-on-write so broadcasts
+   * iterate them without a lock; changes are still made under the map monitor
+   * so that a session is bound to at most one note.
+   */
+  private static final Map<String, List<Session>> noteSocketMap = new ConcurrentHashMap<>();
   private static final Queue<Session> connectedSockets = new ConcurrentLinkedQueue<>();
   private static final Map<String, Queue<Session>> userConnectedSockets = new ConcurrentHashMap<>();
   /**
@@ -182,6 +188,8 @@ public class NotebookServer implements
   private ZeppelinConfigFactory zeppelin;
   @EJB
   private HdfsUsersController hdfsUsersController;
+  @EJB
+  private ParagraphOutputCoalescer outputCoalescer;
 
   public NotebookServer() {
   }
@@ -236,7 +244,7 @@ public class NotebookServer implements
           LOG.log(Level.INFO, "{0} message: invalid ticket {1} != {2}", new Object[]{
             messagereceived.op, messagereceived.ticket, ticket});
         } else if (!messagereceived.op.equals(OP.PING)) {
-          conn.getBasicRemote().sendText(serializeMessage(new Message(OP.SESSION_LOGOUT).put("info",
+          send(conn, serializeMessage(new Message(OP.SESSION_LOGOUT).put("info",
                   "Your ticket is invalid possibly due to server restart. "
                   + "Please login again.")));
         }
@@ -425,12 +433,14 @@ public class NotebookServer implements
     removeConnectionFromAllNote(conn);
     connectedSockets.remove(conn);
     removeUserConnection(this.hdfsUsername, conn);
+    SessionOutbound.remove(conn);
   }
 
   @OnError
   public void onError(Session conn, Throwable exc) {
     removeConnectionFromAllNote(conn);
     connectedSockets.remove(conn);
+    SessionOutbound.remove(conn);
   }
 
   private void removeUserConnection(String user, Session conn) {
@@ -465,7 +475,7 @@ public class NotebookServer implements
       removeConnectionFromAllNote(socket); // make sure a socket relates only a single note.
       List<Session> socketList = noteSocketMap.get(noteId);
       if (socketList == null) {
-        socketList = new LinkedList<>();
+        socketList = new CopyOnWriteArrayList<>();
         noteSocketMap.put(noteId, socketList);
       }
       if (!socketList.contains(socket)) {
@@ -484,16 +494,11 @@ public class NotebookServer implements
   }
 
   public void closeConnection() {
-    try {
-      if (this.session.isOpen()) {
-        this.session.getBasicRemote().sendText("Restarting zeppelin.");
-        this.session.close(new CloseReason(
-                CloseReason.CloseCodes.SERVICE_RESTART,
-                "Restarting zeppelin."));
-      }
-    } catch (IOException ex) {
-      LOG.log(Level.SEVERE, null, ex);
-    }
+    // queued behind the messages still being sent, the session is closed once
+    // the notice is out
+    SessionOutbound.close(this.session, "Restarting zeppelin.", new CloseReason(
+            CloseReason.CloseCodes.SERVICE_RESTART,
+            "Restarting zeppelin."));
   }
 
   private void removeNote(String noteId) {
@@ -540,44 +545,24 @@ public class NotebookServer implements
   }
 
   private void broadcast(String noteId, Message m) {
-    synchronized (noteSocketMap) {
-      broadcastToWatchers(noteId, StringUtils.EMPTY, m);
-      List<Session> socketLists = noteSocketMap.get(noteId);
-      if (socketLists == null || socketLists.isEmpty()) {
-        return;
-      }
-      LOG.log(Level.FINE, "SEND >> {0}", m.op);
-      for (Session conn : socketLists) {
-        try {
-          if (conn.isOpen()) {
-            conn.getBasicRemote().sendText(serializeMessage(m));
-          }
-        } catch (IOException ex) {
-          LOG.log(Level.SEVERE, "Unable to send message " + m, ex);
-        }
-      }
-    }
+    broadcastExcept(noteId, m, null);
   }
 
   private void broadcastExcept(String noteId, Message m, Session exclude) {
-    synchronized (noteSocketMap) {
-      broadcastToWatchers(noteId, StringUtils.EMPTY, m);
-      List<Session> socketLists = noteSocketMap.get(noteId);
-      if (socketLists == null || socketLists.isEmpty()) {
-        return;
+    broadcastToWatchers(noteId, StringUtils.EMPTY, m);
+    List<Session> socketLists = noteSocketMap.get(noteId);
+    if (socketLists == null || socketLists.isEmpty()) {
+      return;
+    }
+    LOG.log(Level.FINE, "SEND >> {0}", m.op);
+    // serialized once for all the sessions of the note
+    String serialized = serializeMessage(m);
+    for (Session conn : socketLists) {
+      if (conn.equals(exclude)) {
+        continue;
       }
-      LOG.log(Level.FINE, "SEND >> {0}", m.op);
-      for (Session conn : socketLists) {
-        if (exclude.equals(conn)) {
-          continue;
-        }
-        try {
-          if (conn.isOpen()) {
-            conn.getBasicRemote().sendText(serializeMessage(m));
-          }
-        } catch (IOException ex) {
-          LOG.log(Level.SEVERE, "Unable to send message " + m, ex);
-        }
+      if (conn.isOpen()) {
+        send(conn, serialized);
       }
     }
   }
@@ -594,11 +579,7 @@ public class NotebookServer implements
   }
 
   private void unicast(Message m, Session conn) {
-    try {
-      conn.getBasicRemote().sendText(serializeMessage(m));
-    } catch (IOException e) {
-      LOG.log(Level.SEVERE, "socket error", e);
-    }
+    send(conn, serializeMessage(m));
     broadcastToWatchers(StringUtils.EMPTY, StringUtils.EMPTY, m);
   }
 
@@ -611,7 +592,7 @@ public class NotebookServer implements
     response.put("lastResponseUnixTime", System.currentTimeMillis());
     response.put("jobs", noteJobs);
 
-    conn.getBasicRemote().sendText(serializeMessage(new Message(OP.LIST_NOTE_JOBS).put("noteJobs", response)));
+    send(conn, serializeMessage(new Message(OP.LIST_NOTE_JOBS).put("noteJobs", response)));
   }
 
   public void broadcastUpdateNoteJobInfo(long lastUpdateUnixTime) throws IOException {
@@ -654,7 +635,7 @@ public class NotebookServer implements
     String noteId = (String) fromMessage.data.get("noteId");
     List<InterpreterSettingsList> settingList = InterpreterBindingUtils.
             getInterpreterBindings(notebook(), noteId);
-    conn.getBasicRemote().sendText(serializeMessage(
+    send(conn, serializeMessage(
             new Message(OP.INTERPRETER_BINDINGS).put("interpreterBindings", settingList)));
   }
 
@@ -792,7 +773,7 @@ public class NotebookServer implements
             "Cannot {0}. Connection readers {1}. Allowed readers {2}",
             new Object[]{op, userAndRoles, allowed});
     Users user = userBean.findByEmail(this.sender);
-    conn.getBasicRemote().sendText(serializeMessage(new Message(OP.AUTH_INFO).
+    send(conn, serializeMessage(new Message(OP.AUTH_INFO).
             put("info", "Insufficient privileges to " + op + "note.\n\n"
                     + "Allowed users or roles: " + allowed
                     .toString() + "\n\n" + "But the user " + user.getLname()
@@ -882,10 +863,10 @@ public class NotebookServer implements
       if (note.isPersonalizedMode()) {
         note = note.getUserNote(user);
       }
-      conn.getBasicRemote().sendText(serializeMessage(new Message(OP.NOTE).put("note", note)));
+      send(conn, serializeMessage(new Message(OP.NOTE).put("note", note)));
       sendAllAngularObjects(note, user, conn);
     } else {
-      conn.getBasicRemote().sendText(serializeMessage(new Message(OP.NOTE).put("note", null)));
+      send(conn, serializeMessage(new Message(OP.NOTE).put("note", null)));
     }
   }
 
@@ -906,11 +887,11 @@ public class NotebookServer implements
       }
 
       addConnectionToNote(note.getId(), conn);
-      conn.getBasicRemote().sendText(serializeMessage(new Message(OP.NOTE).put("note", note)));
+      send(conn, serializeMessage(new Message(OP.NOTE).put("note", note)));
       sendAllAngularObjects(note, user, conn);
     } else {
       removeConnectionFromAllNote(conn);
-      conn.getBasicRemote().sendText(serializeMessage(new Message(OP.NOTE).put("note", null)));
+      send(conn, serializeMessage(new Message(OP.NOTE).put("note", null)));
     }
   }
 
@@ -1091,10 +1072,10 @@ public class NotebookServer implements
 
       note.persist(subject);
       addConnectionToNote(note.getId(), (Session) conn);
-      conn.getBasicRemote().sendText(serializeMessage(new Message(OP.NEW_NOTE).put("note", note)));
+      send(conn, serializeMessage(new Message(OP.NEW_NOTE).put("note", note)));
     } catch (FileSystemException e) {
       LOG.log(Level.SEVERE, "Exception from createNote", e);
-      conn.getBasicRemote().sendText(serializeMessage(new Message(OP.ERROR_INFO).put("info",
+      send(conn, serializeMessage(new Message(OP.ERROR_INFO).put("info",
               "Oops! There is something wrong with the notebook file system. "
               + "Please check the logs for more details.")));
       return;
@@ -1293,7 +1274,7 @@ public class NotebookServer implements
     Note newNote = notebook.cloneNote(noteId, name, new AuthenticationInfo(fromMessage.principal));
     AuthenticationInfo subject = new AuthenticationInfo(fromMessage.principal);
     addConnectionToNote(newNote.getId(), conn);
-    conn.getBasicRemote().sendText(serializeMessage(new Message(OP.NEW_NOTE).put("note", newNote)));
+    send(conn, serializeMessage(new Message(OP.NEW_NOTE).put("note", newNote)));
     broadcastNoteList(subject, userAndRoles);
   }
 
@@ -1394,14 +1375,14 @@ public class NotebookServer implements
     int cursor = (int) Double.parseDouble(fromMessage.get("cursor").toString());
     Message resp = new Message(OP.COMPLETION_LIST).put("id", paragraphId);
     if (paragraphId == null) {
-      conn.getBasicRemote().sendText(serializeMessage(resp));
+      send(conn, serializeMessage(resp));
       return;
     }
 
     final Note note = notebook.getNote(getOpenNoteId(conn));
     List<InterpreterCompletion> candidates = note.completion(paragraphId, buffer, cursor);
     resp.put("completions", candidates);
-    conn.getBasicRemote().sendText(serializeMessage(resp));
+    send(conn, serializeMessage(resp));
   }
 
   /**
@@ -1812,7 +1793,7 @@ public class NotebookServer implements
       return true;
     } catch (FileSystemException ex) {
       LOG.log(Level.SEVERE, "Exception from run", ex);
-      conn.getBasicRemote().sendText(serializeMessage(new Message(OP.ERROR_INFO).put("info",
+      send(conn, serializeMessage(new Message(OP.ERROR_INFO).put("info",
               "Oops! There is something wrong with the notebook file system. "
               + "Please check the logs for more details.")));
       // don't run the paragraph when there is error on persisting the note information
@@ -1876,7 +1857,7 @@ public class NotebookServer implements
           }
       });
 
-    conn.getBasicRemote().sendText(serializeMessage(
+    send(conn, serializeMessage(
             new Message(OP.CONFIGURATIONS_INFO).put("configurations", configurations)));
   }
 
@@ -1888,10 +1869,10 @@ public class NotebookServer implements
     Revision revision = notebook.checkpointNote(noteId, commitMessage, subject);
     if (!Revision.isEmpty(revision)) {
       List<Revision> revisions = notebook.listRevisionHistory(noteId, subject);
-      conn.getBasicRemote().sendText(serializeMessage(new Message(
+      send(conn, serializeMessage(new Message(
               OP.LIST_REVISION_HISTORY).put("revisionList", revisions)));
     } else {
-      conn.getBasicRemote().sendText(serializeMessage(
+      send(conn, serializeMessage(
               new Message(OP.ERROR_INFO).put("info",
                       "Couldn't checkpoint note revision: possibly storage "
                       + "doesn't support versioning. Please check the logs for"
@@ -1905,7 +1886,7 @@ public class NotebookServer implements
     AuthenticationInfo subject = new AuthenticationInfo(fromMessage.principal);
     List<Revision> revisions = notebook.listRevisionHistory(noteId, subject);
 
-    conn.getBasicRemote().sendText(serializeMessage(new Message(
+    send(conn, serializeMessage(new Message(
             OP.LIST_REVISION_HISTORY).put("revisionList", revisions)));
   }
 
@@ -1934,14 +1915,14 @@ public class NotebookServer implements
       notebook.loadNoteFromRepo(noteId, subject);
     }
 
-    conn.getBasicRemote().sendText(serializeMessage(new Message(OP.SET_NOTE_REVISION)
+    send(conn, serializeMessage(new Message(OP.SET_NOTE_REVISION)
             .put("status", setRevisionStatus)));
 
     if (setRevisionStatus) {
       Note reloadedNote = notebook.getNote(headNote.getId());
       broadcastNote(reloadedNote);
     } else {
-      conn.getBasicRemote().sendText(serializeMessage(new Message(OP.ERROR_INFO).put("info",
+      send(conn, serializeMessage(new Message(OP.ERROR_INFO).put("info",
               "Couldn't set note to the given revision. "
               + "Please check the logs for more details.")));
     }
@@ -1953,7 +1934,7 @@ public class NotebookServer implements
     String revisionId = (String) fromMessage.get("revisionId");
     AuthenticationInfo subject = new AuthenticationInfo(fromMessage.principal);
     Note revisionNote = notebook.getNoteByRevision(noteId, revisionId, subject);
-    conn.getBasicRemote().sendText(serializeMessage(
+    send(conn, serializeMessage(
             new Message(OP.NOTE_REVISION).put("noteId", noteId).put("revisionId", revisionId)
             .put("note", revisionNote)));
   }
@@ -1965,9 +1946,8 @@ public class NotebookServer implements
    */
   @Override
   public void onOutputAppend(String noteId, String paragraphId, int index, String output) {
-    Message msg = new Message(OP.PARAGRAPH_APPEND_OUTPUT).put("noteId", noteId)
-            .put("paragraphId", paragraphId).put("index", index).put("data", output);
-    broadcast(noteId, msg);
+    outputCoalescer.append(this::broadcast, OP.PARAGRAPH_APPEND_OUTPUT, noteId, paragraphId, index, null,
+            output);
   }
 
   /**
@@ -1978,6 +1958,7 @@ public class NotebookServer implements
   @Override
   public void onOutputUpdated(String noteId, String paragraphId, int index,
           InterpreterResult.Type type, String output) {
+    outputCoalescer.flush(noteId);
     Message msg = new Message(OP.PARAGRAPH_UPDATE_OUTPUT).put("noteId", noteId)
             .put("paragraphId", paragraphId).put("index", index).put("type", type).put("data", output);
     Note note = notebook().getNote(noteId);
@@ -1996,6 +1977,7 @@ public class NotebookServer implements
    */
   @Override
   public void onOutputClear(String noteId, String paragraphId) {
+    outputCoalescer.flush(noteId);
     Notebook notebook = notebook();
     final Note note = notebook.getNote(noteId);
     note.clearParagraphOutput(paragraphId);
@@ -2009,9 +1991,7 @@ public class NotebookServer implements
   @Override
   public void onOutputAppend(String noteId, String paragraphId, int index, String appId,
           String output) {
-    Message msg = new Message(OP.APP_APPEND_OUTPUT).put("noteId", noteId).put("paragraphId", paragraphId)
-            .put("index", index).put("appId", appId).put("data", output);
-    broadcast(noteId, msg);
+    outputCoalescer.append(this::broadcast, OP.APP_APPEND_OUTPUT, noteId, paragraphId, index, appId, output);
   }
 
   /**
@@ -2020,6 +2000,7 @@ public class NotebookServer implements
   @Override
   public void onOutputUpdated(String noteId, String paragraphId, int index, String appId,
           InterpreterResult.Type type, String output) {
+    outputCoalescer.flush(noteId);
     Message msg = new Message(OP.APP_UPDATE_OUTPUT).put("noteId", noteId).put("paragraphId", paragraphId)
             .put("index", index).put("type", type).put("appId", appId).put("data", output);
     broadcast(noteId, msg);
@@ -2256,6 +2237,8 @@ public class NotebookServer implements
       if (job instanceof Paragraph) {
         Paragraph p = (Paragraph) job;
         p.setStatusToUserParagraph(job.getStatus());
+        // the output still waiting to be sent has to arrive before the final paragraph
+        notebookServer.outputCoalescer.flush(note.getId());
         notebookServer.broadcastParagraph(note, p);
       }
       try {
@@ -2270,10 +2253,8 @@ public class NotebookServer implements
      */
     @Override
     public void onOutputAppend(Paragraph paragraph, int idx, String output) {
-      Message msg = new Message(OP.PARAGRAPH_APPEND_OUTPUT).put("noteId", paragraph.getNote().getId())
-              .put("paragraphId", paragraph.getId()).put("data", output);
-
-      notebookServer.broadcast(paragraph.getNote().getId(), msg);
+      notebookServer.outputCoalescer.append(notebookServer::broadcast, OP.PARAGRAPH_APPEND_OUTPUT,
+              paragraph.getNote().getId(), paragraph.getId(), null, null, output);
     }
 
     /**
@@ -2281,6 +2262,7 @@ public class NotebookServer implements
      */
     @Override
     public void onOutputUpdate(Paragraph paragraph, int idx, InterpreterResultMessage result) {
+      notebookServer.outputCoalescer.flush(paragraph.getNote().getId());
       String output = result.getData();
       Message msg = new Message(OP.PARAGRAPH_UPDATE_OUTPUT).put("noteId", paragraph.getNote().getId())
               .put("paragraphId", paragraph.getId()).put("data", output);
@@ -2314,7 +2296,7 @@ public class NotebookServer implements
       AngularObjectRegistry registry = intpSetting.getInterpreterGroup(user, note.getId()).getAngularObjectRegistry();
       List<AngularObject> objects = registry.getAllWithGlobal(note.getId());
       for (AngularObject object : objects) {
-        conn.getBasicRemote().sendText(serializeMessage(
+        send(conn, serializeMessage(
                 new Message(OP.ANGULAR_OBJECT_UPDATE).put("angularObject", object)
                 .put("interpreterGroupId",
                         intpSetting.getInterpreterGroup(user, note.getId()).getId())
@@ -2384,13 +2366,13 @@ public class NotebookServer implements
     Interpreter interpreter = notebook().getInterpreterFactory().getInterpreter(user, noteId, replName);
     resp.put("editor", notebook().getInterpreterSettingManager().
             getEditorSetting(interpreter, user, noteId, replName));
-    conn.getBasicRemote().sendText(serializeMessage(resp));
+    send(conn, serializeMessage(resp));
   }
 
   private void getInterpreterSettings(Session conn, AuthenticationInfo subject)
           throws IOException {
     List<InterpreterSetting> availableSettings = notebook().getInterpreterSettingManager().get();
-    conn.getBasicRemote().sendText(serializeMessage(
+    send(conn, serializeMessage(
             new Message(OP.INTERPRETER_SETTINGS).put("interpreterSettings", availableSettings)));
   }
 
@@ -2418,6 +2400,7 @@ public class NotebookServer implements
     removeConnectionFromAllNote(conn);
     connectedSockets.remove(conn);
     removeUserConnection(this.hdfsUsername, conn);
+    SessionOutbound.remove(conn);
   }
 
   private boolean isSessionAllowedToSwitchToWatcher(Session session) {
@@ -2434,40 +2417,34 @@ public class NotebookServer implements
   }
 
   private void broadcastToAllConnectionsExcept(Session exclude, String serialized) {
-    synchronized (connectedSockets) {
-      for (Session conn : connectedSockets) {
-        if (exclude != null && exclude.equals(conn)) {
-          continue;
-        }
-
-        try {
-          conn.getBasicRemote().sendText(serialized);
-        } catch (IOException e) {
-          LOG.log(Level.SEVERE, "Cannot broadcast message to watcher", e);
-        }
+    for (Session conn : connectedSockets) {
+      if (exclude != null && exclude.equals(conn)) {
+        continue;
       }
+      send(conn, serialized);
     }
   }
 
   private void broadcastToWatchers(String noteId, String subject,
           Message message) {
-    synchronized (watcherSockets) {
-      if (watcherSockets.isEmpty()) {
-        return;
-      }
-      for (Session watcher : watcherSockets) {
-        try {
-          watcher.getBasicRemote().sendText(
-                  WatcherMessage.builder(noteId).subject(subject).message(
-                  serializeMessage(message))
-                  .build().serialize());
-        } catch (IOException e) {
-          LOG.log(Level.SEVERE, "Cannot broadcast message to watcher", e);
-        }
-      }
+    if (watcherSockets.isEmpty()) {
+      return;
+    }
+    String serialized = WatcherMessage.builder(noteId).subject(subject).message(
+            serializeMessage(message)).build().serialize();
+    for (Session watcher : watcherSockets) {
+      send(watcher, serialized);
     }
   }
 
+  /**
+   * Queue a message for a session. All messages go through the outbound queue
+   * of the session, so they keep their order and never block the caller.
+   */
+  private static void send(Session conn, String serialized) {
+    SessionOutbound.send(conn, serialized);
+  }
+
   @Override
   public void onParaInfosReceived(String noteId, String paragraphId,
           String interpreterSettingId, Map<String, String> metaInfos) {
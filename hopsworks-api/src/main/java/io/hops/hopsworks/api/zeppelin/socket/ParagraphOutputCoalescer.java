@@ -0,0 +1,253 @@
+package io.hops.hopsworks.api.zeppelin.socket;
+
+import io.hops.hopsworks.api.zeppelin.socket.Message.OP;
+import io.hops.hopsworks.common.util.Settings;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+import javax.ejb.Timeout;
+import javax.ejb.Timer;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+
+/**
+ * Merges the output that interpreters append to a paragraph while it runs.
+ * The appends of a note are collected and sent as one message per paragraph
+ * output on the next tick of a single timer shared by all notes, instead of
+ * one websocket frame per printed line. The output waiting to be sent for a
+ * note is capped. Output beyond the cap is dropped until the next tick, since
+ * the browsers get the whole output with the paragraph once it finishes.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class ParagraphOutputCoalescer {
+
+  private static final Logger LOG = Logger.getLogger(ParagraphOutputCoalescer.class.getName());
+
+  static final String TRUNCATED = "\n[Output truncated, the rest is shown when the paragraph finishes]\n";
+
+  /**
+   * Sends the merged output of a note.
+   */
+  public interface Sink {
+
+    void send(String noteId, Message message);
+  }
+
+  @EJB
+  private Settings settings;
+  @Resource
+  private TimerService timerService;
+
+  private final ConcurrentHashMap<String, NoteOutput> notes = new ConcurrentHashMap<>();
+
+  //Guarded by this
+  private Timer tick;
+  private volatile long tickMs = 0;
+
+  /**
+   * Queue output appended to a paragraph.
+   * <p/>
+   * @param sink where the merged output is sent
+   * @param op PARAGRAPH_APPEND_OUTPUT or APP_APPEND_OUTPUT
+   * @param noteId
+   * @param paragraphId
+   * @param index the index of the paragraph output, or null if it is not sent
+   * @param appId the helium application, or null
+   * @param output
+   */
+  public void append(Sink sink, OP op, String noteId, String paragraphId, Integer index, String appId,
+      String output) {
+    long window = settings.getZeppelinOutputCoalesceMs();
+    if (window <= 0 || !startTick(window)) {
+      sink.send(noteId, new PendingOutput(sink, op, noteId, paragraphId, index, appId).toMessage(output));
+      return;
+    }
+    int maxPendingBytes = settings.getZeppelinOutputMaxPendingBytes();
+    while (true) {
+      NoteOutput note = notes.get(noteId);
+      if (note == null) {
+        NoteOutput created = new NoteOutput(noteId);
+        note = notes.putIfAbsent(noteId, created);
+        if (note == null) {
+          note = created;
+        }
+      }
+      synchronized (note) {
+        if (note.removed) {
+          // dropped by the tick concurrently, use a new one
+          continue;
+        }
+        note.append(sink, op, paragraphId, index, appId, output, maxPendingBytes);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Send the output waiting for a note right away. Called before a message
+   * that has to reach the browsers after the output, such as an output update
+   * or the final state of a paragraph.
+   * <p/>
+   * @param noteId
+   */
+  public void flush(String noteId) {
+    NoteOutput note = notes.get(noteId);
+    if (note != null) {
+      synchronized (note) {
+        note.flush();
+      }
+    }
+  }
+
+  /**
+   * Make sure the shared tick runs with the given period.
+   * <p/>
+   * @param window
+   * @return false if the tick could not be started
+   */
+  private boolean startTick(long window) {
+    if (tickMs == window) {
+      return true;
+    }
+    synchronized (this) {
+      if (tickMs == window) {
+        return true;
+      }
+      if (tick != null) {
+        try {
+          tick.cancel();
+        } catch (RuntimeException ex) {
+          LOG.log(Level.FINE, "Could not cancel the output tick", ex);
+        }
+        tick = null;
+        tickMs = 0;
+      }
+      try {
+        tick = timerService.createIntervalTimer(window, window, new TimerConfig(null, false));
+        tickMs = window;
+        return true;
+      } catch (RuntimeException ex) {
+        LOG.log(Level.WARNING, "Could not start the output tick, sending output right away", ex);
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Send the output of all notes. Notes that had nothing to send since the
+   * previous tick are dropped.
+   * <p/>
+   * @param timer
+   */
+  @Timeout
+  public void flushAll(Timer timer) {
+    for (NoteOutput note : notes.values()) {
+      synchronized (note) {
+        if (note.outputs.isEmpty()) {
+          note.removed = true;
+          notes.remove(note.noteId, note);
+        } else {
+          note.flush();
+        }
+      }
+    }
+  }
+
+  /**
+   * The output of one note that is waiting to be sent. Guarded by its own
+   * monitor, which also keeps the messages of a note in order.
+   */
+  static class NoteOutput {
+
+    private final String noteId;
+    private final Map<String, PendingOutput> outputs = new LinkedHashMap<>();
+    private int pendingBytes = 0;
+    private boolean removed = false;
+
+    NoteOutput(String noteId) {
+      this.noteId = noteId;
+    }
+
+    void append(Sink sink, OP op, String paragraphId, Integer index, String appId, String output,
+        int maxPendingBytes) {
+      String key = op + "|" + paragraphId + "|" + index + "|" + appId;
+      PendingOutput pending = outputs.get(key);
+      if (pending == null) {
+        pending = new PendingOutput(sink, op, noteId, paragraphId, index, appId);
+        outputs.put(key, pending);
+      }
+      int room = maxPendingBytes - pendingBytes;
+      if (output.length() > room) {
+        if (room > 0) {
+          pending.data.append(output, 0, room);
+          pendingBytes += room;
+        }
+        pending.truncated = true;
+        return;
+      }
+      pending.data.append(output);
+      pendingBytes += output.length();
+    }
+
+    void flush() {
+      if (outputs.isEmpty()) {
+        return;
+      }
+      List<PendingOutput> toSend = new ArrayList<>(outputs.values());
+      outputs.clear();
+      pendingBytes = 0;
+      for (PendingOutput pending : toSend) {
+        if (pending.truncated) {
+          pending.data.append(TRUNCATED);
+        }
+        try {
+          pending.sink.send(noteId, pending.toMessage(pending.data.toString()));
+        } catch (RuntimeException ex) {
+          LOG.log(Level.WARNING, "Could not send the output of paragraph " + pending.paragraphId, ex);
+        }
+      }
+    }
+  }
+
+  private static class PendingOutput {
+
+    private final Sink sink;
+    private final OP op;
+    private final String noteId;
+    private final String paragraphId;
+    private final Integer index;
+    private final String appId;
+    private final StringBuilder data = new StringBuilder();
+    private boolean truncated = false;
+
+    PendingOutput(Sink sink, OP op, String noteId, String paragraphId, Integer index, String appId) {
+      this.sink = sink;
+      this.op = op;
+      this.noteId = noteId;
+      this.paragraphId = paragraphId;
+      this.index = index;
+      this.appId = appId;
+    }
+
+    Message toMessage(String output) {
+      Message msg = new Message(op).put("noteId", noteId).put("paragraphId", paragraphId);
+      if (index != null) {
+        msg.put("index", index);
+      }
+      if (appId != null) {
+        msg.put("appId", appId);
+      }
+      return msg.put("data", output);
+    }
+  }
+}
@@ -0,0 +1,294 @@
+package io.hops.hopsworks.api.zeppelin.socket;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.websocket.CloseReason;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+
+/**
+ * Bounded queue of the messages waiting to be sent to one websocket session.
+ * Messages are sent one at a time with the async remote, so a slow browser
+ * only delays its own messages. A session whose queue overflows is considered
+ * a slow consumer and is closed; the browser reconnects and reloads the note.
+ * The queue depth and send latency over all sessions are kept in static
+ * counters.
+ */
+public class SessionOutbound implements SendHandler {
+
+  private static final Logger LOG = Logger.getLogger(SessionOutbound.class.getName());
+
+  private static final ConcurrentHashMap<Session, SessionOutbound> OUTBOUNDS = new ConcurrentHashMap<>();
+  /**
+   * Maximum number of messages queued for a session before it is evicted.
+   */
+  public static final int MAX_QUEUED_MESSAGES = 1000;
+
+  private static final AtomicLong QUEUED = new AtomicLong();
+  private static final AtomicLong MAX_QUEUE_DEPTH = new AtomicLong();
+  private static final AtomicLong SENT = new AtomicLong();
+  private static final AtomicLong SEND_NANOS = new AtomicLong();
+  private static final AtomicLong MAX_SEND_NANOS = new AtomicLong();
+  private static final AtomicLong EVICTIONS = new AtomicLong();
+
+  private final Session session;
+  private final Queue<String> queue = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger size = new AtomicInteger();
+  private final AtomicBoolean sending = new AtomicBoolean(false);
+  private volatile boolean evicted = false;
+  /**
+   * The thread that is handing a message to the container, so that a send
+   * that completes on that same thread does not start the next one from
+   * within the completion handler.
+   */
+  private volatile Thread sendingThread;
+  private volatile long sendStarted;
+  /**
+   * Set once the last message of the session is queued, the session is closed
+   * when the queue is drained.
+   */
+  private volatile CloseReason closeReason;
+  private final AtomicBoolean closed = new AtomicBoolean(false);
+
+  private SessionOutbound(Session session) {
+    this.session = session;
+  }
+
+  /**
+   * Queue a message for a session. Never blocks. Nothing is queued for a
+   * session that is already closed.
+   * <p/>
+   * @param session
+   * @param text
+   */
+  public static void send(Session session, String text) {
+    SessionOutbound outbound = of(session);
+    if (outbound != null) {
+      outbound.send(text);
+    }
+  }
+
+  /**
+   * Queue a last message for a session and close it once the messages queued
+   * before it, and the message itself, are sent. Messages queued afterwards
+   * are dropped.
+   * <p/>
+   * @param session
+   * @param text
+   * @param reason
+   */
+  public static void close(Session session, String text, CloseReason reason) {
+    SessionOutbound outbound = of(session);
+    if (outbound != null) {
+      outbound.close(text, reason);
+    }
+  }
+
+  /**
+   * @param session
+   * @return the queue of a session, created on first use, or null if the
+   * session is closed
+   */
+  private static SessionOutbound of(Session session) {
+    SessionOutbound outbound = OUTBOUNDS.get(session);
+    if (outbound == null) {
+      if (!session.isOpen()) {
+        return null;
+      }
+      SessionOutbound created = new SessionOutbound(session);
+      outbound = OUTBOUNDS.putIfAbsent(session, created);
+      if (outbound == null) {
+        outbound = created;
+        // the session may have closed, and been removed, while the queue was created
+        if (!session.isOpen()) {
+          OUTBOUNDS.remove(session, created);
+          return null;
+        }
+      }
+    }
+    return outbound;
+  }
+
+  /**
+   * Drop the queue of a closed session.
+   * <p/>
+   * @param session
+   */
+  public static void remove(Session session) {
+    SessionOutbound outbound = OUTBOUNDS.remove(session);
+    if (outbound != null) {
+      outbound.clear();
+    }
+  }
+
+  private void send(String text) {
+    if (closeReason != null) {
+      return;
+    }
+    enqueue(text);
+  }
+
+  private void close(String text, CloseReason reason) {
+    if (closeReason != null) {
+      return;
+    }
+    enqueue(text);
+    // set after the message is queued, so the queue is not seen as drained before it
+    closeReason = reason;
+    sendNext();
+  }
+
+  private void enqueue(String text) {
+    if (evicted || !session.isOpen()) {
+      return;
+    }
+    int depth = size.incrementAndGet();
+    if (depth > MAX_QUEUED_MESSAGES) {
+      size.decrementAndGet();
+      evict();
+      return;
+    }
+    updateMax(MAX_QUEUE_DEPTH, depth);
+    QUEUED.incrementAndGet();
+    queue.add(text);
+    sendNext();
+  }
+
+  private void sendNext() {
+    while (sending.compareAndSet(false, true)) {
+      String next = queue.poll();
+      if (next == null) {
+        sending.set(false);
+        // a message may have been queued after the poll but before the flag was cleared
+        if (queue.isEmpty()) {
+          if (closeReason != null) {
+            closeSession();
+          }
+          return;
+        }
+        continue;
+      }
+      sendingThread = Thread.currentThread();
+      sendStarted = System.nanoTime();
+      try {
+        session.getAsyncRemote().sendText(next, this);
+      } catch (RuntimeException ex) {
+        LOG.log(Level.WARNING, "Could not send message to websocket session " + session.getId(), ex);
+        onResult(new SendResult(ex));
+      } finally {
+        sendingThread = null;
+      }
+      // if the send is still in flight the flag is set and the loop ends here,
+      // otherwise the loop sends the next message
+    }
+  }
+
+  @Override
+  public void onResult(SendResult result) {
+    long nanos = System.nanoTime() - sendStarted;
+    SENT.incrementAndGet();
+    SEND_NANOS.addAndGet(nanos);
+    updateMax(MAX_SEND_NANOS, nanos);
+    QUEUED.decrementAndGet();
+    size.decrementAndGet();
+    if (!result.isOK()) {
+      LOG.log(Level.FINE, "Failed to send message to websocket session " + session.getId(), result.getException());
+    }
+    sending.set(false);
+    if (evicted || !session.isOpen()) {
+      clear();
+      return;
+    }
+    if (sendingThread != Thread.currentThread()) {
+      sendNext();
+    }
+  }
+
+  private void closeSession() {
+    if (!closed.compareAndSet(false, true)) {
+      return;
+    }
+    OUTBOUNDS.remove(session, this);
+    try {
+      session.close(closeReason);
+    } catch (IOException ex) {
+      LOG.log(Level.FINE, "Could not close websocket session " + session.getId(), ex);
+    }
+  }
+
+  private void evict() {
+    if (evicted) {
+      return;
+    }
+    evicted = true;
+    EVICTIONS.incrementAndGet();
+    LOG.log(Level.WARNING, "Closing slow websocket session {0}, more than {1} messages are waiting to be sent",
+        new Object[]{session.getId(), MAX_QUEUED_MESSAGES});
+    clear();
+    try {
+      session.close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "Slow consumer"));
+    } catch (IOException ex) {
+      LOG.log(Level.FINE, "Could not close slow websocket session " + session.getId(), ex);
+    }
+  }
+
+  private void clear() {
+    while (queue.poll() != null) {
+      QUEUED.decrementAndGet();
+      size.decrementAndGet();
+    }
+  }
+
+  private static void updateMax(AtomicLong max, long value) {
+    long current = max.get();
+    while (value > current && !max.compareAndSet(current, value)) {
+      current = max.get();
+    }
+  }
+
+  /**
+   * @return the number of messages currently waiting in all session queues
+   */
+  public static long getQueuedMessages() {
+    return QUEUED.get();
+  }
+
+  /**
+   * @return the deepest any session queue has been
+   */
+  public static long getMaxQueueDepth() {
+    return MAX_QUEUE_DEPTH.get();
+  }
+
+  public static long getSentMessages() {
+    return SENT.get();
+  }
+
+  /**
+   * @return the average time in microseconds between handing a message to the
+   * container and the send completing
+   */
+  public static long getAvgSendLatencyMicros() {
+    long sent = SENT.get();
+    return sent == 0 ? 0 : SEND_NANOS.get() / sent / 1000;
+  }
+
+  public static long getMaxSendLatencyMicros() {
+    return MAX_SEND_NANOS.get() / 1000;
+  }
+
+  /**
+   * @return the number of sessions closed because they could not keep up
+   */
+  public static long getEvictions() {
+    return EVICTIONS.get();
+  }
+}
@@ -0,0 +1,90 @@
+package io.hops.hopsworks.api.jobs;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class JobLogTailerTest {
+
+  private static final String TEXT = "log \u00e9 \u20ac \ud83d\ude00 end";
+
+  @Test
+  public void completeLengthCutsPartialCharacterAtEnd() {
+    byte[] buf = "a\u00e9".getBytes(StandardCharsets.UTF_8);
+    assertEquals(3, JobLogTailer.completeLength(buf, 0, 3));
+    assertEquals(1, JobLogTailer.completeLength(buf, 0, 2));
+    byte[] euro = "\u20ac".getBytes(StandardCharsets.UTF_8);
+    assertEquals(3, JobLogTailer.completeLength(euro, 0, 3));
+    assertEquals(0, JobLogTailer.completeLength(euro, 0, 2));
+    assertEquals(0, JobLogTailer.completeLength(euro, 0, 1));
+    byte[] emoji = "\ud83d\ude00".getBytes(StandardCharsets.UTF_8);
+    assertEquals(4, JobLogTailer.completeLength(emoji, 0, 4));
+    assertEquals(0, JobLogTailer.completeLength(emoji, 0, 3));
+    assertEquals(3, JobLogTailer.completeLength("abc".getBytes(StandardCharsets.UTF_8), 0, 3));
+  }
+
+  @Test
+  public void completeStartSkipsPartialCharacterAtStart() {
+    byte[] euro = "\u20aca".getBytes(StandardCharsets.UTF_8);
+    assertEquals(0, JobLogTailer.completeStart(euro));
+    assertEquals(2, JobLogTailer.completeStart(Arrays.copyOfRange(euro, 1, euro.length)));
+    assertEquals(1, JobLogTailer.completeStart(Arrays.copyOfRange(euro, 2, euro.length)));
+    assertEquals(0, JobLogTailer.completeStart(new byte[0]));
+  }
+
+  @Test
+  public void windowsReadTheWholeText() {
+    byte[] bytes = TEXT.getBytes(StandardCharsets.UTF_8);
+    for (int length = 4; length <= bytes.length; length++) {
+      StringBuilder read = new StringBuilder();
+      int start = 0;
+      while (start < bytes.length) {
+        byte[] buf = Arrays.copyOfRange(bytes, start, Math.min(bytes.length, start + length));
+        int from = start > 0 ? JobLogTailer.completeStart(buf) : 0;
+        assertEquals(0, from);
+        int to = start + buf.length < bytes.length ? JobLogTailer.completeLength(buf, from, buf.length) : buf.length;
+        read.append(new String(buf, from, to - from, StandardCharsets.UTF_8));
+        start += to;
+      }
+      assertEquals("window of " + length, TEXT, read.toString());
+    }
+  }
+
+  @Test
+  public void windowsFromAnyOffsetStartOnWholeCharacters() {
+    byte[] bytes = TEXT.getBytes(StandardCharsets.UTF_8);
+    for (int start = 1; start < bytes.length; start++) {
+      byte[] buf = Arrays.copyOfRange(bytes, start, bytes.length);
+      int from = JobLogTailer.completeStart(buf);
+      String data = new String(buf, from, buf.length - from, StandardCharsets.UTF_8);
+      assertTrue("offset " + start, TEXT.endsWith(data) && data.indexOf('\ufffd') < 0);
+    }
+  }
+
+  @Test
+  public void parsesContainerLogLength() {
+    String page = "<table><tr><td>"
+        + "<p><a href=\"/node/containerlogs/container_1_0001_01_000001/user/stderr/?start=-4096\">"
+        + "stderr : Total file length is 52 bytes.</a></p>"
+        + "<p><a href=\"/node/containerlogs/container_1_0001_01_000001/user/stdout/?start=-4096\">"
+        + "stdout : Total file length is 1234 bytes.</a></p>"
+        + "</td></tr></table>";
+    assertEquals(1234, JobLogTailer.parseContainerLogLength(page, "stdout"));
+    assertEquals(52, JobLogTailer.parseContainerLogLength(page, "stderr"));
+    assertEquals(-1, JobLogTailer.parseContainerLogLength(page, "syslog"));
+    assertEquals(-1, JobLogTailer.parseContainerLogLength(page, "err"));
+  }
+
+  @Test
+  public void parsesContainerLog() {
+    String page = "<html><body><p>Showing 20 bytes</p><pre class=\"log\">a &lt;b&gt; &amp; c\nd</pre>"
+        + "<pre>other</pre></body></html>";
+    assertEquals("a <b> & c\nd", JobLogTailer.parseContainerLog(page));
+    assertEquals("", JobLogTailer.parseContainerLog("<pre></pre>"));
+    assertNull(JobLogTailer.parseContainerLog("<html><body>Invalid start and end</body></html>"));
+    assertNull(JobLogTailer.parseContainerLog("<pre>cut"));
+  }
+}
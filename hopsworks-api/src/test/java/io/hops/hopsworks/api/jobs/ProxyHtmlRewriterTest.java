@@ -0,0 +1,88 @@
+package io.hops.hopsworks.api.jobs;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class ProxyHtmlRewriterTest {
+
+  private static final String PREFIX = "/hopsworks-api/api/project/1/jobs/application_1_0001/prox/";
+  private static final String SOURCE = "http://rm:8088";
+  private static final String PARAM = "http://rm:8088/cluster/app/";
+
+  private static String rewrite(String... parts) throws IOException {
+    StringWriter out = new StringWriter();
+    ProxyHtmlRewriter rewriter = new ProxyHtmlRewriter(out, PREFIX, SOURCE, PARAM);
+    for (String part : parts) {
+      rewriter.write(part);
+    }
+    rewriter.finish();
+    return out.toString();
+  }
+
+  @Test
+  public void rewritesLinks() throws IOException {
+    assertEquals("<a href=\"" + PREFIX + SOURCE + "/static/app.css\">",
+        rewrite("<a href=\"/static/app.css\">"));
+    assertEquals("<img src='" + PREFIX + "http://nm:8042/logs'>", rewrite("<img src='http://nm:8042/logs'>"));
+    assertEquals("<a href=\"" + PREFIX + "nm:8042/node\">", rewrite("<a href=\"//nm:8042/node\">"));
+    assertEquals("<a href=\"" + PREFIX + PARAM + "jobs@hwqmid=1\">", rewrite("<a href=\"jobs?id=1\">"));
+    assertEquals("<a href=\"#top\">", rewrite("<a href=\"#top\">"));
+  }
+
+  @Test
+  public void rewritesLinksSplitAcrossWrites() throws IOException {
+    assertEquals("<a href=\"" + PREFIX + SOURCE + "/static/app.css\">",
+        rewrite("<a hr", "ef=\"/sta", "tic/app.css", "\">"));
+    assertEquals("<a href=\"" + PREFIX + SOURCE + "/x\">", rewrite("<a href=", "\"/x\">"));
+  }
+
+  @Test
+  public void sameOutputForEverySplit() throws IOException {
+    String page = "<html><a href=\"/static/a.css\">a</a><div id=\"user\">Logged in as: dr.who</div>"
+        + "<div id=\"logo\"><img src=\"logo.png\"><table><tfoot><tr><td>x</td></tr></tfoot></table>"
+        + "<td id=\"navcell\">nav<a href=\"/cluster\">c</a></td><td class=\"content\">body</td></html>";
+    String whole = rewrite(page);
+    for (int i = 1; i < page.length(); i++) {
+      assertEquals("split at " + i, whole, rewrite(page.substring(0, i), page.substring(i)));
+    }
+    for (int i = 1; i < page.length() - 1; i++) {
+      assertEquals("split at " + i, whole,
+          rewrite(page.substring(0, i), page.substring(i, i + 1), page.substring(i + 1)));
+    }
+  }
+
+  @Test
+  public void removesSections() throws IOException {
+    assertEquals("<div id=\"logo\">rest",
+        rewrite("<div id=\"user\">Logged in as: dr.who</div><div id=\"logo\">rest"));
+    assertEquals("<table></table>", rewrite("<table><tfoot><tr><td>x</td></tr></tfoot></table>"));
+    assertEquals("<td class=\"content\">body", rewrite("<td id=\"navcell\">nav</td><td class=\"content\">body"));
+    assertEquals("<ul></ul>", rewrite("<ul><li><a ui-sref=\"submit\">Submit new Job</a></li></ul>"));
+  }
+
+  @Test
+  public void removesSectionsStartingAcrossWrites() throws IOException {
+    assertEquals("before after", rewrite("before <tfo", "ot><tr>x</tr></tf", "oot>after"));
+  }
+
+  @Test
+  public void restoresSectionWithoutRequiredText() throws IOException {
+    assertEquals("<div id=\"user\"><a href=\"" + PREFIX + SOURCE + "/x\">Other</a></div><div id=\"logo\">",
+        rewrite("<div id=\"user\"><a href=\"/x\">Other</a></div><div id=\"logo\">"));
+  }
+
+  @Test
+  public void restoresSectionWithoutEnd() throws IOException {
+    assertEquals("<tfoot><a href=\"" + PREFIX + SOURCE + "/x\">x</a>",
+        rewrite("<tfoot><a href=\"/x\">", "x</a>"));
+  }
+
+  @Test
+  public void sectionWithoutEndFallsBackToLastFallbackEnd() throws IOException {
+    assertEquals("<td id=\"other\"><a href=\"" + PREFIX + SOURCE + "/x\">x</a></td>",
+        rewrite("<td id=\"navcell\">nav<a href=\"/cluster\">c</a></td>", "<td id=\"other\"><a href=\"/x\">x</a></td>"));
+    assertEquals("<td id=\"navcell\">nav</td>", rewrite("<td id=\"navcell\">nav</td>"));
+  }
+}
@@ -0,0 +1,90 @@
+package io.hops.hopsworks.api.zeppelin.socket;
+
+import io.hops.hopsworks.api.zeppelin.socket.Message.OP;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+public class ParagraphOutputCoalescerTest {
+
+  private static final String NOTE = "note1";
+
+  private final List<Message> sent = new ArrayList<>();
+  private final ParagraphOutputCoalescer.Sink sink = new ParagraphOutputCoalescer.Sink() {
+    @Override
+    public void send(String noteId, Message message) {
+      assertEquals(NOTE, noteId);
+      sent.add(message);
+    }
+  };
+
+  @Test
+  public void mergesAppendsOfAParagraph() {
+    ParagraphOutputCoalescer.NoteOutput note = new ParagraphOutputCoalescer.NoteOutput(NOTE);
+    note.append(sink, OP.PARAGRAPH_APPEND_OUTPUT, "p1", 0, null, "a\n", 100);
+    note.append(sink, OP.PARAGRAPH_APPEND_OUTPUT, "p1", 0, null, "b\n", 100);
+    note.flush();
+    assertEquals(1, sent.size());
+    Message msg = sent.get(0);
+    assertEquals(OP.PARAGRAPH_APPEND_OUTPUT, msg.op);
+    assertEquals(NOTE, msg.get("noteId"));
+    assertEquals("p1", msg.get("paragraphId"));
+    assertEquals(0, msg.get("index"));
+    assertNull(msg.get("appId"));
+    assertEquals("a\nb\n", msg.get("data"));
+  }
+
+  @Test
+  public void keepsOutputsApartInOrder() {
+    ParagraphOutputCoalescer.NoteOutput note = new ParagraphOutputCoalescer.NoteOutput(NOTE);
+    note.append(sink, OP.PARAGRAPH_APPEND_OUTPUT, "p2", 0, null, "x", 100);
+    note.append(sink, OP.PARAGRAPH_APPEND_OUTPUT, "p1", 0, null, "y", 100);
+    note.append(sink, OP.PARAGRAPH_APPEND_OUTPUT, "p2", 1, null, "z", 100);
+    note.append(sink, OP.APP_APPEND_OUTPUT, "p2", 0, "app", "w", 100);
+    note.append(sink, OP.PARAGRAPH_APPEND_OUTPUT, "p2", 0, null, "x", 100);
+    note.flush();
+    assertEquals(4, sent.size());
+    assertEquals("xx", sent.get(0).get("data"));
+    assertEquals("y", sent.get(1).get("data"));
+    assertEquals(1, sent.get(2).get("index"));
+    assertEquals(OP.APP_APPEND_OUTPUT, sent.get(3).op);
+    assertEquals("app", sent.get(3).get("appId"));
+  }
+
+  @Test
+  public void flushSendsOnlyNewOutput() {
+    ParagraphOutputCoalescer.NoteOutput note = new ParagraphOutputCoalescer.NoteOutput(NOTE);
+    note.flush();
+    assertEquals(0, sent.size());
+    note.append(sink, OP.PARAGRAPH_APPEND_OUTPUT, "p1", 0, null, "a", 100);
+    note.flush();
+    note.flush();
+    assertEquals(1, sent.size());
+  }
+
+  @Test
+  public void capsPendingOutputOfANote() {
+    ParagraphOutputCoalescer.NoteOutput note = new ParagraphOutputCoalescer.NoteOutput(NOTE);
+    note.append(sink, OP.PARAGRAPH_APPEND_OUTPUT, "p1", 0, null, "12345678", 10);
+    note.append(sink, OP.PARAGRAPH_APPEND_OUTPUT, "p2", 0, null, "abcdef", 10);
+    note.append(sink, OP.PARAGRAPH_APPEND_OUTPUT, "p1", 0, null, "9", 10);
+    note.flush();
+    assertEquals(2, sent.size());
+    assertEquals("12345678" + ParagraphOutputCoalescer.TRUNCATED, sent.get(0).get("data"));
+    assertEquals("ab" + ParagraphOutputCoalescer.TRUNCATED, sent.get(1).get("data"));
+  }
+
+  @Test
+  public void capStartsOverAfterFlush() {
+    ParagraphOutputCoalescer.NoteOutput note = new ParagraphOutputCoalescer.NoteOutput(NOTE);
+    note.append(sink, OP.PARAGRAPH_APPEND_OUTPUT, "p1", 0, null, "1234567890", 10);
+    note.flush();
+    note.append(sink, OP.PARAGRAPH_APPEND_OUTPUT, "p1", 0, null, "abcdefghij", 10);
+    note.flush();
+    assertEquals(2, sent.size());
+    assertEquals("1234567890", sent.get(0).get("data"));
+    assertEquals("abcdefghij", sent.get(1).get("data"));
+  }
+}
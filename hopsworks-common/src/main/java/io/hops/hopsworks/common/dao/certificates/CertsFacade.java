@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityNotFoundException;
@@ -21,6 +22,9 @@ public class CertsFacade {
   @PersistenceContext(unitName = "kthfsPU")
   private EntityManager em;
 
+  @EJB
+  private KeystoreAuthCache keystoreAuthCache;
+
   protected EntityManager getEntityManager() {
     return em;
   }
@@ -86,6 +90,7 @@ public class CertsFacade {
 
   public void persist(UserCerts uc) {
     em.persist(uc);
+    invalidateKeystores(uc);
   }
 
   public List<ServiceCerts> findAllServiceCerts() {
@@ -130,7 +135,7 @@ public class CertsFacade {
     uc.setUserCert(tStoreBlob);
     em.persist(uc);
     em.flush();
-
+    invalidateKeystores(uc);
   }
 
   public void putServiceCerts(String service) {
@@ -163,10 +168,12 @@ public class CertsFacade {
 
   public void update(UserCerts uc) {
     em.merge(uc);
+    invalidateKeystores(uc);
   }
 
   public void remove(UserCerts uc) {
     em.remove(uc);
+    invalidateKeystores(uc);
   }
 
   public void removeUserProjectCerts(String projectname, String username) {
@@ -196,4 +203,16 @@ public class CertsFacade {
       }
     }
   }
+
+  /**
+   * Drop the keystores applications authenticated with for the user of the
+   * certificates, as they are no longer valid. The cache drops them again
+   * once the transaction is over, so none verified against the old
+   * certificates in the meantime is kept.
+   */
+  private void invalidateKeystores(UserCerts uc) {
+    if (uc.getUserCertsPK() != null) {
+      keystoreAuthCache.invalidate(uc.getUserCertsPK().getProjectname(), uc.getUserCertsPK().getUsername());
+    }
+  }
 }
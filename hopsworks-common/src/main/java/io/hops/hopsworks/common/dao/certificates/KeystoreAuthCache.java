@@ -0,0 +1,151 @@
+package io.hops.hopsworks.common.dao.certificates;
+
+import io.hops.hopsworks.common.util.TransactionHooks;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.transaction.TransactionSynchronizationRegistry;
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * Remembers the keystores that applications authenticated with, so that the
+ * executors of a job, which all send the same keystore, do not each have it
+ * parsed and compared against the database. Keystores are kept by the SHA-256
+ * digest of their bytes and password, never the password itself. CertsFacade
+ * drops the keystores of users whose certificates change or are removed, and
+ * entries also expire after a few minutes.
+ * <p/>
+ * Invalidations happen both right away and once the transaction of the
+ * caller is over, so that a keystore verified before the change commits is
+ * not kept.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.SUPPORTS)
+public class KeystoreAuthCache {
+
+  private static final long TTL_MS = 5 * 60 * 1000;
+  private static final int MAX_KEYSTORES = 10000;
+
+  //Guarded by itself
+  private final Map<String, CachedUser> users = new LinkedHashMap<String, CachedUser>(64, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, CachedUser> eldest) {
+      return size() > MAX_KEYSTORES;
+    }
+  };
+  private final AtomicLong invalidations = new AtomicLong();
+
+  @Resource
+  private TransactionSynchronizationRegistry txRegistry;
+
+  /**
+   * @param keyStore
+   * @param keyStorePwd
+   * @return the digest a keystore is cached by
+   */
+  public static String getDigest(byte[] keyStore, char[] keyStorePwd) {
+    return DigestUtils.sha256Hex(DigestUtils.sha256Hex(keyStore) + ":" + new String(keyStorePwd));
+  }
+
+  /**
+   * @return a version to pass to put(), taken before verifying a keystore
+   */
+  public long getVersion() {
+    return invalidations.get();
+  }
+
+  /**
+   * @param digest
+   * @return the project user the keystore was verified for, or null
+   */
+  public String get(String digest) {
+    synchronized (users) {
+      CachedUser user = users.get(digest);
+      if (user == null) {
+        return null;
+      }
+      if (System.currentTimeMillis() - user.created > TTL_MS) {
+        users.remove(digest);
+        return null;
+      }
+      return user.projectUser;
+    }
+  }
+
+  /**
+   * Cache a verified keystore, unless certificates changed since it was
+   * verified.
+   * <p/>
+   * @param digest
+   * @param projectName
+   * @param username
+   * @param projectUser
+   * @param version the version returned by getVersion() before verifying
+   */
+  public void put(String digest, String projectName, String username, String projectUser, long version) {
+    synchronized (users) {
+      if (invalidations.get() == version) {
+        users.put(digest, new CachedUser(projectName, username, projectUser));
+      }
+    }
+  }
+
+  /**
+   * Drop the keystores of a user in a project, now and after the current
+   * transaction.
+   * <p/>
+   * @param projectName
+   * @param username
+   */
+  public void invalidate(final String projectName, final String username) {
+    invalidateMatching(projectName, username);
+    TransactionHooks.afterCompletion(txRegistry, () -> invalidateMatching(projectName, username));
+  }
+
+  /**
+   * Drop the keystores of all users of a project, now and after the current
+   * transaction.
+   * <p/>
+   * @param projectName
+   */
+  public void invalidateProject(final String projectName) {
+    invalidateMatching(projectName, null);
+    TransactionHooks.afterCompletion(txRegistry, () -> invalidateMatching(projectName, null));
+  }
+
+  private void invalidateMatching(String projectName, String username) {
+    synchronized (users) {
+      invalidations.incrementAndGet();
+      Iterator<CachedUser> it = users.values().iterator();
+      while (it.hasNext()) {
+        CachedUser user = it.next();
+        if ((projectName == null || projectName.equals(user.projectName))
+            && (username == null || username.equals(user.username))) {
+          it.remove();
+        }
+      }
+    }
+  }
+
+  private static class CachedUser {
+
+    private final String projectName;
+    private final String username;
+    private final String projectUser;
+    private final long created = System.currentTimeMillis();
+
+    CachedUser(String projectName, String username, String projectUser) {
+      this.projectName = projectName;
+      this.username = username;
+      this.projectUser = projectUser;
+    }
+  }
+}
@@ -53,6 +53,17 @@ import io.hops.hopsworks.common.dao.hdfs.inode.Inode;
   @NamedQuery(name = "Dataset.findByNameAndProjectId",
           query
           = "SELECT d FROM Dataset d WHERE d.name = :name AND d.project = :projectId"),
+  @NamedQuery(name = "Dataset.findOverviewByProject",
+          query
+          = "SELECT NEW io.hops.hopsworks.common.dao.dataset.DatasetOverview(d.id, i.id, i.inodePK.name, i.dir, "
+          + "i.size, t.id, i.underConstruction, i.modificationTime, i.accessTime, i.permission, u.name, p.id, "
+          + "p.inodePK.name, d.description, d.status, d.publicDs, d.searchable) FROM Dataset d JOIN d.inode i "
+          + "LEFT JOIN i.hdfsUser u LEFT JOIN i.templates t, Inode p "
+          + "WHERE d.project = :projectId AND p.id = i.inodePK.parentId"),
+  @NamedQuery(name = "Dataset.countInstancesByProject",
+          query
+          = "SELECT d.InodeId, COUNT(d.id) FROM Dataset d WHERE d.InodeId IN "
+          + "(SELECT d2.InodeId FROM Dataset d2 WHERE d2.project = :projectId) GROUP BY d.InodeId"),
   @NamedQuery(name = "Dataset.findSharedWithProject",
           query
           = "SELECT d FROM Dataset d WHERE d.project = :projectId AND "
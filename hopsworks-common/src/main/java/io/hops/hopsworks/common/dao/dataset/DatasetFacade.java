@@ -1,7 +1,13 @@
 package io.hops.hopsworks.common.dao.dataset;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
@@ -12,6 +18,8 @@ import io.hops.hopsworks.common.dao.project.Project;
 import io.hops.hopsworks.common.dao.hdfs.inode.Inode;
 import io.hops.hopsworks.common.dao.hdfs.inode.InodeFacade;
 import io.hops.hopsworks.common.dao.AbstractFacade;
+import io.hops.hopsworks.common.dao.user.UserFacade;
+import io.hops.hopsworks.common.dao.user.Users;
 
 @Stateless
 public class DatasetFacade extends AbstractFacade<Dataset> {
@@ -21,6 +29,10 @@ public class DatasetFacade extends AbstractFacade<Dataset> {
 
   @EJB
   private InodeFacade inodes;
+  @EJB
+  private UserFacade userFacade;
+  @EJB
+  private DatasetOverviewCache overviewCache;
   
   @Override
   protected EntityManager getEntityManager() {
@@ -161,8 +173,60 @@ public class DatasetFacade extends AbstractFacade<Dataset> {
     return query.getResultList();
   }
     
+  /**
+   * Get the overview of the datasets of a project, with their share counts
+   * and owners, in a constant number of queries. Served from the cache while
+   * the datasets of the project do not change.
+   * <p/>
+   * @param project
+   * @return
+   */
+  public List<DatasetOverview> findOverviewByProject(Project project) {
+    List<DatasetOverview> cached = overviewCache.get(project.getId());
+    if (cached != null) {
+      return cached;
+    }
+    long version = overviewCache.getVersion();
+    TypedQuery<DatasetOverview> query = em.createNamedQuery("Dataset.findOverviewByProject",
+        DatasetOverview.class).setParameter("projectId", project);
+    // an inode with several templates comes back once per template
+    Map<Integer, DatasetOverview> overviews = new LinkedHashMap<>();
+    for (DatasetOverview overview : query.getResultList()) {
+      if (!overviews.containsKey(overview.getId())) {
+        overviews.put(overview.getId(), overview);
+      }
+    }
+    if (!overviews.isEmpty()) {
+      Map<Integer, Long> instances = new HashMap<>();
+      for (Object[] row : em.createNamedQuery("Dataset.countInstancesByProject", Object[].class)
+          .setParameter("projectId", project).getResultList()) {
+        instances.put(((Number) row[0]).intValue(), ((Number) row[1]).longValue());
+      }
+      Set<String> usernames = new HashSet<>();
+      for (DatasetOverview overview : overviews.values()) {
+        Long count = instances.get(overview.getInodeId());
+        overview.setSharedWith(count == null ? 0 : count.intValue() - 1); // -1 for ds itself
+        usernames.add(overview.getHdfsUsername());
+      }
+      Map<String, Users> users = new HashMap<>();
+      for (Users user : userFacade.findByUsernames(usernames)) {
+        users.put(user.getUsername(), user);
+      }
+      for (DatasetOverview overview : overviews.values()) {
+        Users user = users.get(overview.getHdfsUsername());
+        if (user != null) {
+          overview.setOwner(user.getFname() + " " + user.getLname(), user.getEmail());
+        }
+      }
+    }
+    List<DatasetOverview> result = Collections.unmodifiableList(new ArrayList<>(overviews.values()));
+    overviewCache.put(project.getId(), result, version);
+    return result;
+  }
+
   public void persistDataset(Dataset dataset) {
     em.persist(dataset);
+    invalidateOverview(dataset);
   }
 
   public void flushEm() {
@@ -172,12 +236,39 @@ public class DatasetFacade extends AbstractFacade<Dataset> {
   public void merge(Dataset dataset) {
     em.merge(dataset);
     em.flush();
+    invalidateOverview(dataset);
+  }
+
+  @Override
+  public void edit(Dataset dataset) {
+    super.edit(dataset);
+    invalidateOverview(dataset);
+  }
+
+  @Override
+  public void remove(Dataset dataset) {
+    super.remove(dataset);
+    invalidateOverview(dataset);
   }
 
   public void removeDataset(Dataset dataset) {
     Dataset ds = em.find(Dataset.class, dataset.getId());
     if (ds != null) {
       em.remove(ds);
+      invalidateOverview(ds);
+    }
+  }
+
+  /**
+   * Drop the cached overview of the projects the dataset is in. Called for
+   * changes that do not go through this facade, such as deleting the dataset
+   * from HDFS, which removes its rows with the inode.
+   * <p/>
+   * @param dataset
+   */
+  public void invalidateOverview(Dataset dataset) {
+    if (dataset != null && dataset.getProject() != null && dataset.getInode() != null) {
+      overviewCache.invalidate(dataset.getProject().getId(), dataset.getInode().getId());
     }
   }
 }
@@ -0,0 +1,167 @@
+package io.hops.hopsworks.common.dao.dataset;
+
+import java.math.BigInteger;
+
+/**
+ * Projection of a dataset of a project with everything the top level dataset
+ * listing shows: its inode, the name of the project directory it lives in,
+ * the number of projects it is shared with and its owner.
+ */
+public class DatasetOverview {
+
+  private final int id;
+  private final int inodeId;
+  private final String name;
+  private final boolean dir;
+  private final long size;
+  private final int template;
+  private final boolean underConstruction;
+  private final long modificationTime;
+  private final long accessTime;
+  private final short permission;
+  private final String hdfsUsername;
+  private final int parentId;
+  private final String parentName;
+  private final String description;
+  private final boolean status;
+  private final boolean publicDs;
+  private final boolean searchable;
+  private int sharedWith;
+  private String ownerName;
+  private String ownerEmail;
+
+  public DatasetOverview(Integer id, int inodeId, String name, boolean dir, long size, Integer template,
+      boolean underConstruction, BigInteger modificationTime, BigInteger accessTime, short permission,
+      String hdfsUser, int parentId, String parentName, String description, boolean status, boolean publicDs,
+      boolean searchable) {
+    this.id = id;
+    this.inodeId = inodeId;
+    this.name = name;
+    this.dir = dir;
+    this.size = size;
+    this.template = template == null ? -1 : template;
+    this.underConstruction = underConstruction;
+    this.modificationTime = modificationTime == null ? 0 : modificationTime.longValue();
+    this.accessTime = accessTime == null ? 0 : accessTime.longValue();
+    this.permission = permission;
+    this.hdfsUsername = getUsername(hdfsUser);
+    this.parentId = parentId;
+    this.parentName = parentName;
+    this.description = description;
+    this.status = status;
+    this.publicDs = publicDs;
+    this.searchable = searchable;
+  }
+
+  /**
+   * Same as HdfsUsers.getUsername, strips the project from the hdfs user.
+   */
+  private static String getUsername(String hdfsUser) {
+    if (hdfsUser == null) {
+      return "";
+    }
+    int index = hdfsUser.indexOf("__");
+    return index == -1 ? hdfsUser : hdfsUser.substring(index + 2);
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  public int getInodeId() {
+    return inodeId;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public boolean isDir() {
+    return dir;
+  }
+
+  public long getSize() {
+    return size;
+  }
+
+  public int getTemplate() {
+    return template;
+  }
+
+  public boolean isUnderConstruction() {
+    return underConstruction;
+  }
+
+  public long getModificationTime() {
+    return modificationTime;
+  }
+
+  public long getAccessTime() {
+    return accessTime;
+  }
+
+  public short getPermission() {
+    return permission;
+  }
+
+  /**
+   * @return the username of the owner of the dataset, without the project
+   */
+  public String getHdfsUsername() {
+    return hdfsUsername;
+  }
+
+  public int getParentId() {
+    return parentId;
+  }
+
+  /**
+   * @return the name of the project directory the dataset is in
+   */
+  public String getParentName() {
+    return parentName;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  public boolean getStatus() {
+    return status;
+  }
+
+  public boolean isPublicDs() {
+    return publicDs;
+  }
+
+  public boolean isSearchable() {
+    return searchable;
+  }
+
+  /**
+   * @return the number of other projects the dataset is in
+   */
+  public int getSharedWith() {
+    return sharedWith;
+  }
+
+  void setSharedWith(int sharedWith) {
+    this.sharedWith = sharedWith;
+  }
+
+  /**
+   * @return the full name of the owner, or null if the owner is not a user
+   */
+  public String getOwnerName() {
+    return ownerName;
+  }
+
+  public String getOwnerEmail() {
+    return ownerEmail;
+  }
+
+  void setOwner(String ownerName, String ownerEmail) {
+    this.ownerName = ownerName;
+    this.ownerEmail = ownerEmail;
+  }
+}
@@ -0,0 +1,136 @@
+package io.hops.hopsworks.common.dao.dataset;
+
+import io.hops.hopsworks.common.util.TransactionHooks;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Keeps the dataset overview of projects for a short time, so that loading a
+ * project page does not query its datasets every time. The overview of a
+ * project is dropped when one of its datasets is created, shared, changed or
+ * removed, which DatasetFacade takes care of, and when a dataset is deleted
+ * from HDFS, which DatasetController takes care of. Changes made to the
+ * inodes directly, such as a dataset growing, show up once the overview
+ * expires.
+ * <p/>
+ * Invalidations happen both right away and once the transaction of the
+ * caller is over, so that an overview read before the change commits is not
+ * kept.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.SUPPORTS)
+public class DatasetOverviewCache {
+
+  /**
+   * How long the overview of a project is kept.
+   */
+  private static final long TTL_MS = 30 * 1000;
+  private static final int MAX_PROJECTS = 1000;
+
+  //Guarded by itself
+  private final Map<Integer, CachedOverview> overviews = new LinkedHashMap<Integer, CachedOverview>(64, 0.75f,
+      true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Integer, CachedOverview> eldest) {
+      return size() > MAX_PROJECTS;
+    }
+  };
+  private final AtomicLong invalidations = new AtomicLong();
+
+  @Resource
+  private TransactionSynchronizationRegistry txRegistry;
+
+  /**
+   * @return a version to pass to put(), taken before loading an overview
+   */
+  public long getVersion() {
+    return invalidations.get();
+  }
+
+  /**
+   * @param projectId
+   * @return the cached overview of the project, or null
+   */
+  public List<DatasetOverview> get(Integer projectId) {
+    synchronized (overviews) {
+      CachedOverview cached = overviews.get(projectId);
+      if (cached == null) {
+        return null;
+      }
+      if (System.currentTimeMillis() - cached.created > TTL_MS) {
+        overviews.remove(projectId);
+        return null;
+      }
+      return cached.datasets;
+    }
+  }
+
+  /**
+   * Cache the overview of a project, unless datasets changed since it was
+   * loaded.
+   * <p/>
+   * @param projectId
+   * @param datasets
+   * @param version the version returned by getVersion() before loading
+   */
+  public void put(Integer projectId, List<DatasetOverview> datasets, long version) {
+    synchronized (overviews) {
+      if (invalidations.get() == version) {
+        overviews.put(projectId, new CachedOverview(datasets));
+      }
+    }
+  }
+
+  /**
+   * Drop the overview of the project of a dataset and of every other project
+   * the same dataset is in, as their share counts change too, now and after
+   * the current transaction.
+   * <p/>
+   * @param projectId
+   * @param inodeId
+   */
+  public void invalidate(final Integer projectId, final int inodeId) {
+    dropOverviews(projectId, inodeId);
+    TransactionHooks.afterCompletion(txRegistry, () -> dropOverviews(projectId, inodeId));
+  }
+
+  private void dropOverviews(Integer projectId, int inodeId) {
+    synchronized (overviews) {
+      invalidations.incrementAndGet();
+      overviews.remove(projectId);
+      Iterator<CachedOverview> it = overviews.values().iterator();
+      while (it.hasNext()) {
+        if (it.next().inodeIds.contains(inodeId)) {
+          it.remove();
+        }
+      }
+    }
+  }
+
+  private static class CachedOverview {
+
+    private final List<DatasetOverview> datasets;
+    private final Set<Integer> inodeIds = new HashSet<>();
+    private final long created = System.currentTimeMillis();
+
+    CachedOverview(List<DatasetOverview> datasets) {
+      this.datasets = datasets;
+      for (DatasetOverview dataset : datasets) {
+        inodeIds.add(dataset.getInodeId());
+      }
+    }
+  }
+}
@@ -34,9 +34,23 @@ import io.hops.hopsworks.common.dao.metadata.Template;
   @NamedQuery(name = "Inode.findById",
           query
           = "SELECT i FROM Inode i WHERE i.id = :id"),
+  @NamedQuery(name = "Inode.findByIds",
+          query
+          = "SELECT i FROM Inode i WHERE i.id IN :ids"),
   @NamedQuery(name = "Inode.findByParentId",
           query
           = "SELECT i FROM Inode i WHERE i.inodePK.parentId = :parentId"),
+  @NamedQuery(name = "Inode.findByParentIds",
+          query
+          = "SELECT i FROM Inode i WHERE i.inodePK.parentId IN :parentIds"),
+  @NamedQuery(name = "Inode.findSubtreeEntriesByParentIds",
+          query
+          = "SELECT NEW io.hops.hopsworks.common.dao.hdfs.inode.InodeSubtreeEntry(i.id, i.inodePK.parentId, "
+          + "i.inodePK.name, i.dir, i.size, u.name) FROM Inode i LEFT JOIN i.hdfsUser u "
+          + "WHERE i.inodePK.parentId IN :parentIds"),
+  @NamedQuery(name = "Inode.findSizesByParentIds",
+          query
+          = "SELECT i.id, i.dir, i.size FROM Inode i WHERE i.inodePK.parentId IN :parentIds"),
   @NamedQuery(name = "Inode.findByHdfsUser",
           query
           = "SELECT i FROM Inode i WHERE i.hdfsUser = :hdfsUser"),
@@ -4,9 +4,12 @@ import io.hops.common.Pair;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
@@ -24,9 +27,15 @@ public class InodeFacade extends AbstractFacade<Inode> {
 
   private final static Logger logger = Logger.getLogger(InodeFacade.class.
           getName());
+  /**
+   * Maximum number of parent ids in a single subtree traversal query.
+   */
+  static final int PARENT_BATCH_SIZE = 500;
 
   @PersistenceContext(unitName = "kthfsPU")
   private EntityManager em;
+  @EJB
+  private InodePathCache pathCache;
 
   @Override
   protected EntityManager getEntityManager() {
@@ -74,25 +83,51 @@ public class InodeFacade extends AbstractFacade<Inode> {
   }
 
   /**
-   * Get all the children of <i>parent</i>. Alias of findByParent().
+   * Get all the descendants of <i>parent</i>. The subtree is traversed breadth
+   * first, querying the children of up to {@link #PARENT_BATCH_SIZE}
+   * directories at a time.
    * <p/>
    * @param parent
    * @param children
-   * @return
    */
   public void getAllChildren(Inode parent, List<Inode> children) {
-    List<Inode> curr = findByParent(parent);
-    children.addAll(curr);
-
-    for (Inode inode : curr) {
-      if (inode.isDir()) {
-        getAllChildren(inode, children);
+    List<Integer> frontier = new ArrayList<>();
+    frontier.add(parent.getId());
+    while (!frontier.isEmpty()) {
+      List<Integer> next = new ArrayList<>();
+      for (List<Integer> batch : partition(frontier)) {
+        TypedQuery<Inode> query = em.createNamedQuery("Inode.findByParentIds", Inode.class);
+        query.setParameter("parentIds", batch);
+        for (Inode inode : query.getResultList()) {
+          children.add(inode);
+          if (inode.isDir()) {
+            next.add(inode.getId());
+          }
+        }
       }
+      frontier = next;
     }
   }
 
   /**
-   * Return the size of an inode
+   * Find the direct children of a batch of directories without loading Inode
+   * entities. Used by {@link InodeSubtreeIterator}, which calls it once per
+   * batch so that every batch is a separate call.
+   * <p/>
+   * @param parentIds at most {@link #PARENT_BATCH_SIZE} directory ids
+   * @return the children, without their path
+   */
+  @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+  public List<InodeSubtreeEntry> findSubtreeBatch(List<Integer> parentIds) {
+    TypedQuery<InodeSubtreeEntry> query = em.createNamedQuery("Inode.findSubtreeEntriesByParentIds",
+            InodeSubtreeEntry.class);
+    query.setParameter("parentIds", parentIds);
+    return query.getResultList();
+  }
+
+  /**
+   * Return the size of an inode. Directories are sized with batched,
+   * projection-only queries over their subtree.
    *
    * @param inode
    * @return
@@ -103,17 +138,34 @@ public class InodeFacade extends AbstractFacade<Inode> {
       return inode.getSize();
     }
     long size = 0;
-    List<Inode> children = getChildren(inode);
-    for (Inode i : children) {
-      if (!i.isDir()) {
-        size += i.getSize();
-      } else {
-        size += getSize(i);
+    List<Integer> frontier = new ArrayList<>();
+    frontier.add(inode.getId());
+    while (!frontier.isEmpty()) {
+      List<Integer> next = new ArrayList<>();
+      for (List<Integer> batch : partition(frontier)) {
+        TypedQuery<Object[]> query = em.createNamedQuery("Inode.findSizesByParentIds", Object[].class);
+        query.setParameter("parentIds", batch);
+        for (Object[] row : query.getResultList()) {
+          if ((Boolean) row[1]) {
+            next.add((Integer) row[0]);
+          } else {
+            size += (Long) row[2];
+          }
+        }
       }
+      frontier = next;
     }
     return size;
   }
 
+  private List<List<Integer>> partition(List<Integer> ids) {
+    List<List<Integer>> batches = new ArrayList<>();
+    for (int i = 0; i < ids.size(); i += PARENT_BATCH_SIZE) {
+      batches.add(ids.subList(i, Math.min(i + PARENT_BATCH_SIZE, ids.size())));
+    }
+    return batches;
+  }
+
   /**
    * Get a list of the names of the child files (so no directories) of the given
    * path.
@@ -173,6 +225,9 @@ public class InodeFacade extends AbstractFacade<Inode> {
   }
 
   /**
+   * Resolve the inode at the given path. The cached prefixes of the path are
+   * checked with one query and the deepest valid one is used as the starting
+   * point, so only the uncached path components need to be looked up.
    *
    * @param path
    * @return null if no such Inode found
@@ -191,18 +246,32 @@ public class InodeFacade extends AbstractFacade<Inode> {
       return null;
     }
 
-    //Get the right root node
-    Inode curr = getRootNode(p[0]);
-    if (curr == null) {
-      logger.log(Level.WARNING, "Could not resolve root inode at path: {0}",
-              path);
-      return null;
+    String[] prefixes = new String[p.length];
+    StringBuilder prefix = new StringBuilder();
+    for (int i = 0; i < p.length; i++) {
+      prefix.append("/").append(p[i]);
+      prefixes[i] = prefix.toString();
+    }
+
+    List<Inode> cached = getCachedPrefixes(p, prefixes);
+    Inode curr;
+    if (cached.isEmpty()) {
+      //Get the right root node
+      curr = getRootNode(p[0]);
+      if (curr == null) {
+        logger.log(Level.WARNING, "Could not resolve root inode at path: {0}",
+                path);
+        return null;
+      }
+      pathCache.put(prefixes[0], curr.getId());
+    } else {
+      curr = cached.get(cached.size() - 1);
     }
     //Move down the path
-    for (int i = 1; i < p.length; i++) {
+    for (int i = Math.max(cached.size(), 1); i < p.length; i++) {
       int partitionId = HopsUtils.
               calculatePartitionId(curr.getId(), p[i], i + 1);
-      Inode next = findByInodePK(curr, p[i], partitionId);
+      Inode next = findByInodePK(curr.getId(), p[i], partitionId);
       if (next == null) {
         logger.log(Level.WARNING,
                 "Could not resolve inode at path: {0} and path-component " + i,
@@ -210,11 +279,72 @@ public class InodeFacade extends AbstractFacade<Inode> {
         return null;
       } else {
         curr = next;
+        pathCache.put(prefixes[i], curr.getId());
       }
     }
     return curr;
   }
 
+  /**
+   * Load the inodes of the cached prefixes of a path with one query and check
+   * that each of them is still the child with the right name of the one
+   * before, as paths can be changed by clients that do not invalidate the
+   * cache. The first prefix that is not valid any more is dropped from the
+   * cache, with everything below it.
+   *
+   * @param p the path components
+   * @param prefixes the paths of the first 1..n components
+   * @return the inodes of the leading prefixes that are cached and valid
+   */
+  private List<Inode> getCachedPrefixes(String[] p, String[] prefixes) {
+    List<Integer> ids = new ArrayList<>();
+    for (String prefix : prefixes) {
+      Integer id = pathCache.getInodeId(prefix);
+      if (id == null) {
+        break;
+      }
+      ids.add(id);
+    }
+    List<Inode> valid = new ArrayList<>();
+    if (ids.isEmpty()) {
+      return valid;
+    }
+    Map<Integer, Inode> inodes = new HashMap<>();
+    for (Inode inode : em.createNamedQuery("Inode.findByIds", Inode.class).
+            setParameter("ids", ids).getResultList()) {
+      inodes.put(inode.getId(), inode);
+    }
+    int parentId = HopsUtils.ROOT_INODE_ID;
+    for (int i = 0; i < ids.size(); i++) {
+      Inode inode = inodes.get(ids.get(i));
+      if (inode == null || inode.getInodePK().getParentId() != parentId
+              || !inode.getInodePK().getName().equals(p[i])) {
+        pathCache.invalidate(prefixes[i]);
+        break;
+      }
+      valid.add(inode);
+      parentId = inode.getId();
+    }
+    return valid;
+  }
+
+  /**
+   * @param path a cached path
+   * @param inodeId
+   * @return true if the cached path still leads to the inode
+   */
+  private boolean isCachedPathValid(String path, int inodeId) {
+    String[] p = path.substring(1).split("/");
+    String[] prefixes = new String[p.length];
+    StringBuilder prefix = new StringBuilder();
+    for (int i = 0; i < p.length; i++) {
+      prefix.append("/").append(p[i]);
+      prefixes[i] = prefix.toString();
+    }
+    List<Inode> cached = getCachedPrefixes(p, prefixes);
+    return cached.size() == p.length && cached.get(p.length - 1).getId() == inodeId;
+  }
+
   @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
   private Inode getRootNode(String name) {
     int partitionId = HopsUtils.calculatePartitionId(HopsUtils.ROOT_INODE_ID, name, HopsUtils.ROOT_DIR_DEPTH + 1);
@@ -278,10 +408,13 @@ public class InodeFacade extends AbstractFacade<Inode> {
    */
   @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
   public Inode findByInodePK(Inode parent, String name, int partitionId) {
+    return findByInodePK(parent.getId(), name, partitionId);
+  }
 
+  private Inode findByInodePK(int parentId, String name, int partitionId) {
     TypedQuery<Inode> q = em.createNamedQuery("Inode.findByPrimaryKey",
             Inode.class);
-    q.setParameter("inodePk", new InodePK(parent.getId(), name, partitionId));
+    q.setParameter("inodePk", new InodePK(parentId, name, partitionId));
     try {
       return q.getSingleResult();
     } catch (NoResultException e) {
@@ -371,21 +504,39 @@ public class InodeFacade extends AbstractFacade<Inode> {
   }
 
   /**
-   * Get the path to the given Inode.
+   * Get the path to the given Inode. The walk up the tree stops at the first
+   * ancestor whose path is cached and still valid.
    * <p/>
    * @param i
    * @return
    */
   public String getPath(Inode i) {
-    List<String> pathComponents = new ArrayList<>();
+    if (i.getId() == HopsUtils.ROOT_INODE_ID) {
+      return "";
+    }
+    String cached = pathCache.getPath(i.getId());
+    if (cached != null && isCachedPathValid(cached, i.getId())) {
+      return cached;
+    }
+    List<Inode> pathComponents = new ArrayList<>();
+    String base = "";
     Inode parent = i;
-    while (parent.getId() != 1) {
-      pathComponents.add(parent.getInodePK().getName());
+    while (parent.getId() != HopsUtils.ROOT_INODE_ID) {
+      pathComponents.add(parent);
       parent = findParent(parent);
+      if (parent.getId() != HopsUtils.ROOT_INODE_ID) {
+        String parentPath = pathCache.getPath(parent.getId());
+        if (parentPath != null && isCachedPathValid(parentPath, parent.getId())) {
+          base = parentPath;
+          break;
+        }
+      }
     }
-    StringBuilder path = new StringBuilder();
+    StringBuilder path = new StringBuilder(base);
     for (int j = pathComponents.size() - 1; j >= 0; j--) {
-      path.append("/").append(pathComponents.get(j));
+      Inode component = pathComponents.get(j);
+      path.append("/").append(component.getInodePK().getName());
+      pathCache.put(path.toString(), component.getId());
     }
     return path.toString();
   }
@@ -409,6 +560,41 @@ public class InodeFacade extends AbstractFacade<Inode> {
     return getChildren(parent);
   }
 
+  /**
+   * Get a page of the children of a directory, ordered by name. A page is
+   * addressed by the name of the last child of the previous page, so paging
+   * does not skip or repeat children when the directory changes in between.
+   * <p/>
+   * @param parent
+   * @param after name of the last child of the previous page, null for the
+   * first page
+   * @param descending
+   * @param filter only return children whose name contains it, ignoring case,
+   * null for all
+   * @param limit maximum number of children to return
+   * @return
+   */
+  public List<Inode> findChildrenPage(Inode parent, String after, boolean descending, String filter, int limit) {
+    StringBuilder jpql = new StringBuilder("SELECT i FROM Inode i WHERE i.inodePK.parentId = :parentId");
+    if (after != null) {
+      jpql.append(descending ? " AND i.inodePK.name < :after" : " AND i.inodePK.name > :after");
+    }
+    if (filter != null) {
+      jpql.append(" AND LOWER(i.inodePK.name) LIKE :filter ESCAPE '\\'");
+    }
+    jpql.append(" ORDER BY i.inodePK.name ").append(descending ? "DESC" : "ASC");
+    TypedQuery<Inode> query = em.createQuery(jpql.toString(), Inode.class);
+    query.setParameter("parentId", parent.getId());
+    if (after != null) {
+      query.setParameter("after", after);
+    }
+    if (filter != null) {
+      String escaped = filter.toLowerCase().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+      query.setParameter("filter", "%" + escaped + "%");
+    }
+    return query.setMaxResults(limit).getResultList();
+  }
+
   /**
    * Get the project and dataset base directory of which the given Inode is a
    * descendant.
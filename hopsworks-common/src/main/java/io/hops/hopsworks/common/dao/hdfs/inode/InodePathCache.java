@@ -0,0 +1,191 @@
+package io.hops.hopsworks.common.dao.hdfs.inode;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+
+/**
+ * Bounded LRU cache of resolved paths to inode ids and of inode ids to paths.
+ * Only ids are cached, so callers still load fresh Inode entities and check
+ * that the cached ancestors of a path still have the right parent and name,
+ * as clients that do not go through DistributedFileSystemOps change paths
+ * without invalidating them. Entries also expire after {@link #ENTRY_TTL_MS}.
+ * <p/>
+ * The cached paths are also kept sorted, so that a path and everything below
+ * it can be invalidated without scanning the whole cache. Every path in
+ * idToPath is also in pathToId with the same id.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class InodePathCache {
+
+  public static final int MAX_ENTRIES = 50000;
+  public static final long ENTRY_TTL_MS = 5 * 60 * 1000;
+
+  //All guarded by this
+  private final NavigableSet<String> sortedPaths = new TreeSet<>();
+  private final Map<String, Entry<Integer>> pathToId = new LruMap<String, Entry<Integer>>() {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Entry<Integer>> eldest) {
+      if (size() <= MAX_ENTRIES) {
+        return false;
+      }
+      sortedPaths.remove(eldest.getKey());
+      removeId(eldest.getValue().value, eldest.getKey());
+      return true;
+    }
+  };
+  private final Map<Integer, Entry<String>> idToPath = new LruMap<>();
+
+  /**
+   * Get the id of the inode at the given normalized path.
+   * <p/>
+   * @param path absolute path without scheme and trailing slash
+   * @return the cached inode id or null
+   */
+  public synchronized Integer getInodeId(String path) {
+    Entry<Integer> e = pathToId.get(path);
+    if (e == null) {
+      return null;
+    }
+    if (e.isExpired()) {
+      removePath(path);
+      return null;
+    }
+    return e.value;
+  }
+
+  /**
+   * Get the path of the inode with the given id.
+   * <p/>
+   * @param inodeId
+   * @return the cached path or null
+   */
+  public synchronized String getPath(int inodeId) {
+    Entry<String> e = idToPath.get(inodeId);
+    if (e == null) {
+      return null;
+    }
+    if (e.isExpired()) {
+      idToPath.remove(inodeId);
+      return null;
+    }
+    return e.value;
+  }
+
+  public synchronized void put(String path, int inodeId) {
+    Entry<Integer> old = pathToId.put(path, new Entry<>(inodeId));
+    if (old != null && old.value != inodeId) {
+      removeId(old.value, path);
+    }
+    sortedPaths.add(path);
+    idToPath.put(inodeId, new Entry<>(path));
+  }
+
+  /**
+   * Remove the given path and all its descendants from the cache. Called when
+   * a path is moved, renamed or deleted.
+   * <p/>
+   * @param path
+   */
+  public void invalidate(String path) {
+    if (path == null) {
+      return;
+    }
+    path = normalize(path);
+    String prefix = path.endsWith("/") ? path : path + "/";
+    synchronized (this) {
+      if (!path.equals(prefix)) {
+        removePath(path);
+      }
+      Iterator<String> below = sortedPaths.subSet(prefix, true, prefix + Character.MAX_VALUE, false).iterator();
+      while (below.hasNext()) {
+        String key = below.next();
+        below.remove();
+        Entry<Integer> e = pathToId.remove(key);
+        if (e != null) {
+          removeId(e.value, key);
+        }
+      }
+    }
+  }
+
+  public synchronized void clear() {
+    pathToId.clear();
+    idToPath.clear();
+    sortedPaths.clear();
+  }
+
+  private void removePath(String path) {
+    sortedPaths.remove(path);
+    Entry<Integer> e = pathToId.remove(path);
+    if (e != null) {
+      removeId(e.value, path);
+    }
+  }
+
+  /**
+   * Remove the path of an inode if it is the given one.
+   */
+  private void removeId(int inodeId, String path) {
+    Entry<String> e = idToPath.get(inodeId);
+    if (e != null && e.value.equals(path)) {
+      idToPath.remove(inodeId);
+    }
+  }
+
+  /**
+   * Strip the scheme and authority of an hdfs uri and any trailing slash.
+   * <p/>
+   * @param path
+   * @return
+   */
+  public static String normalize(String path) {
+    if (path.startsWith("hdfs://")) {
+      int start = path.indexOf('/', "hdfs://".length());
+      path = start < 0 ? "/" : path.substring(start);
+    }
+    if (!path.startsWith("/")) {
+      path = "/" + path;
+    }
+    while (path.length() > 1 && path.endsWith("/")) {
+      path = path.substring(0, path.length() - 1);
+    }
+    return path;
+  }
+
+  public synchronized int getSize() {
+    return pathToId.size();
+  }
+
+  private static class Entry<V> {
+
+    private final V value;
+    private final long created = System.currentTimeMillis();
+
+    Entry(V value) {
+      this.value = value;
+    }
+
+    boolean isExpired() {
+      return System.currentTimeMillis() - created > ENTRY_TTL_MS;
+    }
+  }
+
+  private static class LruMap<K, V> extends LinkedHashMap<K, V> {
+
+    LruMap() {
+      super(1024, 0.75f, true);
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+      return size() > MAX_ENTRIES;
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package io.hops.hopsworks.common.dao.hdfs.inode;
+
+/**
+ * Projection of the inode columns needed to walk a subtree, so that large
+ * subtrees can be traversed without loading managed Inode entities.
+ */
+public class InodeSubtreeEntry {
+
+  private final int id;
+  private final int parentId;
+  private final String name;
+  private final boolean dir;
+  private final long size;
+  private final String hdfsUsername;
+  private String path;
+
+  public InodeSubtreeEntry(int id, int parentId, String name, boolean dir, long size, String hdfsUsername) {
+    this.id = id;
+    this.parentId = parentId;
+    this.name = name;
+    this.dir = dir;
+    this.size = size;
+    this.hdfsUsername = hdfsUsername;
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  public int getParentId() {
+    return parentId;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public boolean isDir() {
+    return dir;
+  }
+
+  public long getSize() {
+    return size;
+  }
+
+  /**
+   * @return the name of the owning hdfs user, or null if the inode has none
+   */
+  public String getHdfsUsername() {
+    return hdfsUsername;
+  }
+
+  /**
+   * @return the absolute path of the inode
+   */
+  public String getPath() {
+    return path;
+  }
+
+  void setPath(String path) {
+    this.path = path;
+  }
+}
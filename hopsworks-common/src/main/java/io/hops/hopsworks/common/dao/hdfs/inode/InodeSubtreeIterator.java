@@ -0,0 +1,78 @@
+package io.hops.hopsworks.common.dao.hdfs.inode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Breadth first iterator over all the descendants of a directory, without
+ * loading Inode entities. The children of one batch of directories are fetched
+ * at a time with {@link InodeFacade#findSubtreeBatch(java.util.List)}, so each
+ * batch is its own call to the facade made by the caller. Only the directory
+ * ids of the level being traversed and one batch of entries are kept in
+ * memory, and the path of every entry is built from the path of the root.
+ */
+public class InodeSubtreeIterator implements Iterator<InodeSubtreeEntry> {
+
+  private final InodeFacade inodes;
+  private final Map<Integer, String> dirPaths = new HashMap<>();
+  private List<Integer> frontier = new ArrayList<>();
+  private List<Integer> next = new ArrayList<>();
+  private Iterator<InodeSubtreeEntry> current = Collections.<InodeSubtreeEntry>emptyList().iterator();
+
+  /**
+   * @param inodes the injected facade
+   * @param parent the directory whose descendants are iterated
+   */
+  public InodeSubtreeIterator(InodeFacade inodes, Inode parent) {
+    this.inodes = inodes;
+    frontier.add(parent.getId());
+    dirPaths.put(parent.getId(), inodes.getPath(parent));
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (!current.hasNext()) {
+      if (frontier.isEmpty()) {
+        if (next.isEmpty()) {
+          return false;
+        }
+        frontier = next;
+        next = new ArrayList<>();
+      }
+      int batchSize = Math.min(InodeFacade.PARENT_BATCH_SIZE, frontier.size());
+      List<Integer> batch = new ArrayList<>(frontier.subList(0, batchSize));
+      frontier = new ArrayList<>(frontier.subList(batchSize, frontier.size()));
+      List<InodeSubtreeEntry> entries = inodes.findSubtreeBatch(batch);
+      for (InodeSubtreeEntry entry : entries) {
+        entry.setPath(dirPaths.get(entry.getParentId()) + "/" + entry.getName());
+        if (entry.isDir()) {
+          next.add(entry.getId());
+          dirPaths.put(entry.getId(), entry.getPath());
+        }
+      }
+      for (Integer id : batch) {
+        dirPaths.remove(id);
+      }
+      current = entries.iterator();
+    }
+    return true;
+  }
+
+  @Override
+  public InodeSubtreeEntry next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return current.next();
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+}
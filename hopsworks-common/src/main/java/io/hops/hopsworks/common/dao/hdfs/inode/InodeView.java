@@ -5,6 +5,7 @@ import java.util.Objects;
 import javax.xml.bind.annotation.XmlRootElement;
 import org.apache.hadoop.fs.permission.FsPermission;
 import io.hops.hopsworks.common.dao.dataset.Dataset;
+import io.hops.hopsworks.common.dao.dataset.DatasetOverview;
 import io.hops.hopsworks.common.util.Settings;
 
 /**
@@ -106,6 +107,45 @@ public final class InodeView {
     this.searchable=ds.isSearchable();
   }
 
+  /**
+   * Constructor for top level datasets, from their overview.
+   * <p/>
+   * @param ds
+   * @param projectName the project the dataset is listed in
+   * @param path
+   */
+  public InodeView(DatasetOverview ds, String projectName, String path) {
+    this.name = ds.getName();
+    this.parentId = ds.getParentId();
+    this.dir = ds.isDir();
+    this.id = ds.getInodeId();
+    this.size = ds.getSize();
+    this.template = ds.getTemplate();
+    this.underConstruction = ds.isUnderConstruction();
+    this.parent = false;
+    this.path = path;
+    this.modification = new Date(ds.getModificationTime());
+    this.accessTime = new Date(ds.getAccessTime());
+    this.shared = !ds.getParentName().equals(projectName);
+    if (this.shared) {
+      this.name = ds.getParentName() + Settings.SHARED_FILE_SEPARATOR
+              + this.name;
+    }
+    this.owningProjectName = ds.getParentName();
+    this.description = ds.getDescription();
+    this.status = ds.getStatus();
+    if (ds.getOwnerName() != null) {
+      this.owner = ds.getOwnerName();
+      this.email = ds.getOwnerEmail();
+    } else {
+      this.owner = ds.getHdfsUsername();
+    }
+    this.permission = FsPermission.createImmutable(ds.getPermission()).toString();
+    this.publicDs = ds.isPublicDs();
+    this.searchable = ds.isSearchable();
+    this.sharedWith = ds.getSharedWith();
+  }
+
   private InodeView(String name, boolean dir, boolean parent, String path) {
     this.name = name;
     this.dir = dir;
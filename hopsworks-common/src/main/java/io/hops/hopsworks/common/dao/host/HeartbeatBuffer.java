@@ -0,0 +1,89 @@
+package io.hops.hopsworks.common.dao.host;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.Timer;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+
+/**
+ * Buffers the heartbeats of the kagents and writes them to the database in
+ * batches. Only the latest heartbeat of every host is kept, so a host that
+ * beats several times between two flushes costs a single host update. Roles
+ * are only written when their status, pid or web port changed, or when their
+ * uptime has not been refreshed for {@link #ROLE_UPTIME_REFRESH_MS}. Every
+ * host is written in its own transaction by {@link HeartbeatWriter}.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class HeartbeatBuffer {
+
+  private static final Logger LOG = Logger.getLogger(HeartbeatBuffer.class.getName());
+
+  /**
+   * How often the uptime of a role that did not otherwise change is written.
+   */
+  public static final long ROLE_UPTIME_REFRESH_MS = 60 * 1000;
+
+  @EJB
+  private HeartbeatWriter writer;
+
+  private final ConcurrentHashMap<String, HostHeartbeat> pending = new ConcurrentHashMap<>();
+  //Only accessed from within the timer, updated once a write has committed
+  private final Map<String, Long> roleWrittenAt = new HashMap<>();
+
+  /**
+   * Queue a heartbeat to be written with the next flush. Replaces any heartbeat
+   * of the same host that has not been flushed yet.
+   * <p/>
+   * @param heartbeat
+   */
+  public void offer(HostHeartbeat heartbeat) {
+    pending.put(heartbeat.getHostId(), heartbeat);
+  }
+
+  /**
+   * @return the number of hosts with a heartbeat waiting to be written
+   */
+  public int getPendingHosts() {
+    return pending.size();
+  }
+
+  @Schedule(persistent = false,
+      second = "*/5",
+      minute = "*",
+      hour = "*")
+  @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+  synchronized public void flush(Timer timer) {
+    if (pending.isEmpty()) {
+      return;
+    }
+    List<HostHeartbeat> batch = new ArrayList<>(pending.size());
+    for (String hostId : new ArrayList<>(pending.keySet())) {
+      HostHeartbeat heartbeat = pending.remove(hostId);
+      if (heartbeat != null) {
+        batch.add(heartbeat);
+      }
+    }
+    long now = System.currentTimeMillis();
+    for (HostHeartbeat heartbeat : batch) {
+      try {
+        for (String role : writer.store(heartbeat, roleWrittenAt, now)) {
+          roleWrittenAt.put(role, now);
+        }
+      } catch (RuntimeException ex) {
+        LOG.log(Level.WARNING, "Could not store the heartbeat of host " + heartbeat.getHostId(), ex);
+      }
+    }
+  }
+}
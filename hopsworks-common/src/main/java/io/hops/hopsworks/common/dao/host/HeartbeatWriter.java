@@ -0,0 +1,107 @@
+package io.hops.hopsworks.common.dao.host;
+
+import io.hops.hopsworks.common.dao.role.Role;
+import io.hops.hopsworks.common.dao.role.RoleEJB;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.ejb.EJB;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+
+/**
+ * Writes the heartbeat of one host in its own transaction for
+ * {@link HeartbeatBuffer}, so that a host whose heartbeat cannot be stored
+ * does not roll back the heartbeats of the other hosts.
+ */
+@Stateless
+public class HeartbeatWriter {
+
+  @EJB
+  private HostEJB hostFacade;
+  @EJB
+  private RoleEJB roleFacade;
+
+  /**
+   * Store the heartbeat of a host and the roles that changed.
+   * <p/>
+   * @param heartbeat
+   * @param roleWrittenAt when the roles were last written, by host and role.
+   * Not modified.
+   * @param now
+   * @return the keys of the roles that were written, to record in
+   * roleWrittenAt once the transaction has committed
+   */
+  @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+  public List<String> store(HostHeartbeat heartbeat, Map<String, Long> roleWrittenAt, long now) {
+    Host host = hostFacade.findByHostId(heartbeat.getHostId());
+    if (host == null) {
+      return new ArrayList<>();
+    }
+    // host is managed, the changes are written when the transaction commits
+    host.setLastHeartbeat(heartbeat.getReceivedAt());
+    host.setLoad1(heartbeat.getLoad1());
+    host.setLoad5(heartbeat.getLoad5());
+    host.setLoad15(heartbeat.getLoad15());
+    host.setDiskUsed(heartbeat.getDiskUsed());
+    host.setMemoryUsed(heartbeat.getMemoryUsed());
+    host.setPrivateIp(heartbeat.getPrivateIp());
+    host.setDiskCapacity(heartbeat.getDiskCapacity());
+    host.setMemoryCapacity(heartbeat.getMemoryCapacity());
+    host.setCores(heartbeat.getCores());
+    return storeRoles(heartbeat, roleWrittenAt, now);
+  }
+
+  private List<String> storeRoles(HostHeartbeat heartbeat, Map<String, Long> roleWrittenAt, long now) {
+    List<String> written = new ArrayList<>();
+    if (heartbeat.getRoles().isEmpty()) {
+      return written;
+    }
+    Map<String, Role> existing = new HashMap<>();
+    for (Role role : roleFacade.findHostRoles(heartbeat.getHostId())) {
+      existing.put(key(role.getCluster(), role.getService(), role.getRole()), role);
+    }
+    for (HostHeartbeat.RoleHeartbeat hb : heartbeat.getRoles()) {
+      String key = key(hb.getCluster(), hb.getService(), hb.getRole());
+      String writtenKey = heartbeat.getHostId() + "/" + key;
+      Role role = existing.get(key);
+      if (role == null) {
+        role = new Role();
+        role.setHostId(heartbeat.getHostId());
+        role.setCluster(hb.getCluster());
+        role.setService(hb.getService());
+        role.setRole(hb.getRole());
+        apply(role, hb);
+        roleFacade.persist(role);
+        existing.put(key, role);
+        written.add(writtenKey);
+        continue;
+      }
+      Long writtenAt = roleWrittenAt.get(writtenKey);
+      boolean changed = role.getStatus() != hb.getStatus() || role.getPid() != hb.getPid()
+          || role.getWebPort() == null || role.getWebPort() != hb.getWebPort();
+      boolean uptimeStale = hb.getUptime() != null && role.getUptime() != hb.getUptime()
+          && (writtenAt == null || now - writtenAt >= HeartbeatBuffer.ROLE_UPTIME_REFRESH_MS);
+      if (changed || uptimeStale) {
+        apply(role, hb);
+        written.add(writtenKey);
+      }
+    }
+    return written;
+  }
+
+  private void apply(Role role, HostHeartbeat.RoleHeartbeat hb) {
+    role.setWebPort(hb.getWebPort());
+    role.setPid(hb.getPid());
+    role.setStatus(hb.getStatus());
+    if (hb.getUptime() != null) {
+      role.setUptime(hb.getUptime());
+    }
+  }
+
+  private static String key(String cluster, String service, String role) {
+    return cluster + "/" + service + "/" + role;
+  }
+}
@@ -0,0 +1,152 @@
+package io.hops.hopsworks.common.dao.host;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The host metrics and service states reported by a kagent in one heartbeat.
+ */
+public class HostHeartbeat {
+
+  private final String hostId;
+  private final long receivedAt;
+  private final double load1;
+  private final double load5;
+  private final double load15;
+  private final long diskUsed;
+  private final long diskCapacity;
+  private final long memoryUsed;
+  private final long memoryCapacity;
+  private final String privateIp;
+  private final int cores;
+  private final List<RoleHeartbeat> roles = new ArrayList<>();
+
+  public HostHeartbeat(String hostId, long receivedAt, double load1, double load5, double load15, long diskUsed,
+      long diskCapacity, long memoryUsed, long memoryCapacity, String privateIp, int cores) {
+    this.hostId = hostId;
+    this.receivedAt = receivedAt;
+    this.load1 = load1;
+    this.load5 = load5;
+    this.load15 = load15;
+    this.diskUsed = diskUsed;
+    this.diskCapacity = diskCapacity;
+    this.memoryUsed = memoryUsed;
+    this.memoryCapacity = memoryCapacity;
+    this.privateIp = privateIp;
+    this.cores = cores;
+  }
+
+  public String getHostId() {
+    return hostId;
+  }
+
+  public long getReceivedAt() {
+    return receivedAt;
+  }
+
+  public double getLoad1() {
+    return load1;
+  }
+
+  public double getLoad5() {
+    return load5;
+  }
+
+  public double getLoad15() {
+    return load15;
+  }
+
+  public long getDiskUsed() {
+    return diskUsed;
+  }
+
+  public long getDiskCapacity() {
+    return diskCapacity;
+  }
+
+  public long getMemoryUsed() {
+    return memoryUsed;
+  }
+
+  public long getMemoryCapacity() {
+    return memoryCapacity;
+  }
+
+  public String getPrivateIp() {
+    return privateIp;
+  }
+
+  public int getCores() {
+    return cores;
+  }
+
+  public List<RoleHeartbeat> getRoles() {
+    return roles;
+  }
+
+  public void addRole(RoleHeartbeat role) {
+    roles.add(role);
+  }
+
+  /**
+   * The state of one service running on the host.
+   */
+  public static class RoleHeartbeat {
+
+    private final String cluster;
+    private final String service;
+    private final String role;
+    private final int webPort;
+    private final int pid;
+    private final Status status;
+    private final Long uptime;
+
+    /**
+     * @param cluster
+     * @param service
+     * @param role
+     * @param webPort
+     * @param pid
+     * @param status
+     * @param uptime null if the agent did not report a start time
+     */
+    public RoleHeartbeat(String cluster, String service, String role, int webPort, int pid, Status status,
+        Long uptime) {
+      this.cluster = cluster;
+      this.service = service;
+      this.role = role;
+      this.webPort = webPort;
+      this.pid = pid;
+      this.status = status;
+      this.uptime = uptime;
+    }
+
+    public String getCluster() {
+      return cluster;
+    }
+
+    public String getService() {
+      return service;
+    }
+
+    public String getRole() {
+      return role;
+    }
+
+    public int getWebPort() {
+      return webPort;
+    }
+
+    public int getPid() {
+      return pid;
+    }
+
+    public Status getStatus() {
+      return status;
+    }
+
+    public Long getUptime() {
+      return uptime;
+    }
+  }
+}
@@ -75,6 +75,10 @@ import java.util.List;
           query
           = "SELECT e FROM Execution e WHERE e.job.id = :jobid AND e.job.project "
           + "= :project ORDER BY e.submissionTime DESC"),
+  @NamedQuery(name = "Execution.findLatestForProject",
+          query
+          = "SELECT e FROM Execution e WHERE e.job.project = :project AND e.id = "
+          + "(SELECT MAX(e2.id) FROM Execution e2 WHERE e2.job = e.job)"),
   @NamedQuery(name = "Execution.findJobsForExecutionInState",
           query
           = "SELECT DISTINCT e.job FROM Execution e WHERE e.job.project = :project "
@@ -74,6 +74,19 @@ public class ExecutionFacade extends AbstractFacade<Execution> {
     return q.getResultList();
   }
 
+  /**
+   * Get the latest execution of every job of a project, in one query instead
+   * of loading the execution history of each job.
+   * <p/>
+   * @param project
+   * @return
+   */
+  public List<Execution> findLatestForProject(Project project) {
+    TypedQuery<Execution> q = em.createNamedQuery("Execution.findLatestForProject", Execution.class);
+    q.setParameter("project", project);
+    return q.getResultList();
+  }
+
   /**
    * Get an execution for application id.
    * <p/>
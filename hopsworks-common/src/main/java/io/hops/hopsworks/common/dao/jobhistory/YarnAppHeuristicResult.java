@@ -43,6 +43,10 @@ import org.codehaus.jackson.annotate.JsonIgnore;
           query
           = "SELECT y FROM YarnAppHeuristicResult y WHERE y.yarnAppResultId "
           + "= :yarnAppResultId AND y.heuristicClass = :heuristicClass"),
+  @NamedQuery(name = "YarnAppHeuristicResult.findByIdsAndHeuristicClasses",
+          query
+          = "SELECT y FROM YarnAppHeuristicResult y WHERE y.yarnAppResultId "
+          + "IN :yarnAppResultIds AND y.heuristicClass IN :heuristicClasses"),
   @NamedQuery(name = "YarnAppHeuristicResult.findByScore",
           query
           = "SELECT y FROM YarnAppHeuristicResult y WHERE y.score = :score")})
@@ -30,6 +30,10 @@ import javax.xml.bind.annotation.XmlRootElement;
           query = "SELECT y FROM YarnAppHeuristicResultDetails y "
           + "WHERE y.yarnAppHeuristicResultDetailsPK.yarnAppHeuristicResultId "
           + "= :yarnAppHeuristicResultId AND y.yarnAppHeuristicResultDetailsPK.name = :name"),
+  @NamedQuery(name = "YarnAppHeuristicResultDetails.findByIdsAndNames",
+          query = "SELECT y FROM YarnAppHeuristicResultDetails y "
+          + "WHERE y.yarnAppHeuristicResultDetailsPK.yarnAppHeuristicResultId "
+          + "IN :yarnAppHeuristicResultIds AND y.yarnAppHeuristicResultDetailsPK.name IN :names"),
   @NamedQuery(name = "YarnAppHeuristicResultDetails.findByName",
           query = "SELECT y FROM YarnAppHeuristicResultDetails y "
           + "WHERE y.yarnAppHeuristicResultDetailsPK.name = :name")})
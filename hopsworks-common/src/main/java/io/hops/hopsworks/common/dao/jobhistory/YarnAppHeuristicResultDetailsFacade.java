@@ -1,5 +1,8 @@
 package io.hops.hopsworks.common.dao.jobhistory;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.logging.Logger;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
@@ -43,4 +46,25 @@ public class YarnAppHeuristicResultDetailsFacade extends AbstractFacade<YarnAppH
       return "UNDEFINED";
     }
   }
+
+  /**
+   * Get the details with the given names of several heuristic results in one
+   * query.
+   * <p/>
+   * @param yarnAppHeuristicResultIds
+   * @param names
+   * @return
+   */
+  public List<YarnAppHeuristicResultDetails> searchByIdsAndNames(Collection<Integer> yarnAppHeuristicResultIds,
+          Collection<String> names) {
+    if (yarnAppHeuristicResultIds.isEmpty() || names.isEmpty()) {
+      return new ArrayList<>();
+    }
+    TypedQuery<YarnAppHeuristicResultDetails> q = em.createNamedQuery(
+            "YarnAppHeuristicResultDetails.findByIdsAndNames",
+            YarnAppHeuristicResultDetails.class);
+    q.setParameter("yarnAppHeuristicResultIds", yarnAppHeuristicResultIds);
+    q.setParameter("names", names);
+    return q.getResultList();
+  }
 }
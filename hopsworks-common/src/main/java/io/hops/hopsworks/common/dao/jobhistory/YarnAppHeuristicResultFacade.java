@@ -1,5 +1,8 @@
 package io.hops.hopsworks.common.dao.jobhistory;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.logging.Logger;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
@@ -50,25 +53,48 @@ public class YarnAppHeuristicResultFacade extends AbstractFacade<YarnAppHeuristi
       q.setParameter("heuristicClass", heuristicClass);
 
       YarnAppHeuristicResult result = q.getSingleResult();
-
-      short severity = result.getSeverity();
-      switch (severity) {
-        case 0:
-          return "NONE";
-        case 1:
-          return "LOW";
-        case 2:
-          return "MODERATE";
-        case 3:
-          return "SEVERE";
-        case 4:
-          return "CRITICAL";
-        default:
-          return "NONE";
-      }
+      return getSeverityName(result.getSeverity());
     } catch (NoResultException e) {
       return "UNDEFINED";
     }
   }
 
+  /**
+   * Get the results of the given heuristics for several applications in one
+   * query.
+   * <p/>
+   * @param yarnAppResultIds
+   * @param heuristicClasses
+   * @return
+   */
+  public List<YarnAppHeuristicResult> searchByIdsAndClasses(Collection<String> yarnAppResultIds,
+          Collection<String> heuristicClasses) {
+    if (yarnAppResultIds.isEmpty() || heuristicClasses.isEmpty()) {
+      return new ArrayList<>();
+    }
+    TypedQuery<YarnAppHeuristicResult> q = em.createNamedQuery(
+            "YarnAppHeuristicResult.findByIdsAndHeuristicClasses",
+            YarnAppHeuristicResult.class);
+    q.setParameter("yarnAppResultIds", yarnAppResultIds);
+    q.setParameter("heuristicClasses", heuristicClasses);
+    return q.getResultList();
+  }
+
+  public static String getSeverityName(short severity) {
+    switch (severity) {
+      case 0:
+        return "NONE";
+      case 1:
+        return "LOW";
+      case 2:
+        return "MODERATE";
+      case 3:
+        return "SEVERE";
+      case 4:
+        return "CRITICAL";
+      default:
+        return "NONE";
+    }
+  }
+
 }
@@ -17,7 +17,12 @@
  */
 package io.hops.hopsworks.common.dao.jobhistory;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -49,29 +54,62 @@ public class YarnApplicationAttemptStateFacade extends AbstractFacade<YarnApplic
                     "applicationid", applicationid);
     List<YarnApplicationattemptstate> appAttempts = query.getResultList();
     if (appAttempts != null) {
-      Integer highestAttemptId = 0;
-      String trackingUrl = "";
-      for (YarnApplicationattemptstate a : appAttempts) {
-        try {
-          String attemptId = a.getYarnApplicationattemptstatePK().
-                  getApplicationattemptid();
-          // attemptIds look like 'application12133_1000032423423_0001'
-          // Only the last chars after '_' contain the actual attempt ID.
-          attemptId = attemptId.substring(attemptId.lastIndexOf("_") + 1,
-                  attemptId.length());
-          Integer attempt = Integer.parseInt(attemptId);
-          if (attempt > highestAttemptId) {
-            highestAttemptId = attempt;
-            trackingUrl = a.getApplicationattempttrakingurl();
-          }
+      String trackingUrl = getTrackingUrls(appAttempts).get(applicationid);
+      return trackingUrl == null ? "" : trackingUrl;
+    }
+    return "";
+  }
 
-        } catch (NumberFormatException e) {
-          return "";
+  /**
+   * Get the tracking url of the latest attempt of several applications in one
+   * query.
+   * <p/>
+   * @param applicationids
+   * @return application id to tracking url, applications without attempts
+   * are left out
+   */
+  public Map<String, String> findTrackingUrlsByAppIds(Collection<String> applicationids) {
+    if (applicationids == null || applicationids.isEmpty()) {
+      return new HashMap<>();
+    }
+    TypedQuery<YarnApplicationattemptstate> query = em.createNamedQuery(
+            "YarnApplicationattemptstate.findByApplicationids",
+            YarnApplicationattemptstate.class).setParameter(
+                    "applicationids", applicationids);
+    return getTrackingUrls(query.getResultList());
+  }
+
+  private Map<String, String> getTrackingUrls(List<YarnApplicationattemptstate> appAttempts) {
+    Map<String, Integer> highestAttemptIds = new HashMap<>();
+    Map<String, String> trackingUrls = new HashMap<>();
+    Set<String> invalid = new HashSet<>();
+    for (YarnApplicationattemptstate a : appAttempts) {
+      String applicationid = a.getYarnApplicationattemptstatePK().getApplicationid();
+      try {
+        String attemptId = a.getYarnApplicationattemptstatePK().
+                getApplicationattemptid();
+        // attemptIds look like 'application12133_1000032423423_0001'
+        // Only the last chars after '_' contain the actual attempt ID.
+        attemptId = attemptId.substring(attemptId.lastIndexOf("_") + 1,
+                attemptId.length());
+        Integer attempt = Integer.parseInt(attemptId);
+        Integer highestAttemptId = highestAttemptIds.get(applicationid);
+        if (highestAttemptId == null) {
+          highestAttemptId = 0;
+          trackingUrls.put(applicationid, "");
+        }
+        if (attempt > highestAttemptId) {
+          highestAttemptIds.put(applicationid, attempt);
+          trackingUrls.put(applicationid, a.getApplicationattempttrakingurl());
         }
+      } catch (NumberFormatException e) {
+        invalid.add(applicationid);
       }
-      return trackingUrl;
     }
-    return "";
+    for (String applicationid : invalid) {
+      trackingUrls.put(applicationid, "");
+    }
+    return trackingUrls;
   }
 
 }
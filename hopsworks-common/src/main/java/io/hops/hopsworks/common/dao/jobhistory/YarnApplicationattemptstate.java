@@ -24,6 +24,9 @@ import javax.xml.bind.annotation.XmlRootElement;
   @NamedQuery(name = "YarnApplicationattemptstate.findByApplicationid",
           query = "SELECT y FROM YarnApplicationattemptstate y "
           + "WHERE y.yarnApplicationattemptstatePK.applicationid = :applicationid"),
+  @NamedQuery(name = "YarnApplicationattemptstate.findByApplicationids",
+          query = "SELECT y FROM YarnApplicationattemptstate y "
+          + "WHERE y.yarnApplicationattemptstatePK.applicationid IN :applicationids"),
   @NamedQuery(name = "YarnApplicationattemptstate.findByApplicationattemptid",
           query = "SELECT y FROM YarnApplicationattemptstate y "
           + "WHERE y.yarnApplicationattemptstatePK.applicationattemptid = :applicationattemptid"),
@@ -30,6 +30,9 @@ import io.hops.hopsworks.common.jobs.spark.SparkJobConfiguration;
   @NamedQuery(name = "JobsHistory.findByAppId",
           query
           = "SELECT j FROM JobsHistory j WHERE j.appId = :appId AND j.appId IS NOT NULL"),
+  @NamedQuery(name = "JobsHistory.findByAppIds",
+          query
+          = "SELECT j FROM JobsHistory j WHERE j.appId IN :appIds"),
   @NamedQuery(name = "JobsHistory.findByProjectId",
           query
           = "SELECT j FROM JobsHistory j WHERE j.projectId = :projectId AND j.projectId IS NOT NULL"),
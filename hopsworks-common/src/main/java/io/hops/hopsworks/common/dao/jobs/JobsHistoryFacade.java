@@ -1,8 +1,13 @@
 package io.hops.hopsworks.common.dao.jobs;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -68,6 +73,29 @@ public class JobsHistoryFacade extends AbstractFacade<JobsHistory> {
     return null;
   }
 
+  /**
+   * @param appIds
+   * @return the history of the applications that have exactly one history
+   * entry, by application id
+   */
+  public Map<String, JobsHistory> findByAppIds(Collection<String> appIds) {
+    Map<String, JobsHistory> histories = new HashMap<>();
+    if (appIds.isEmpty()) {
+      return histories;
+    }
+    TypedQuery<JobsHistory> q = em.createNamedQuery("JobsHistory.findByAppIds",
+            JobsHistory.class);
+    q.setParameter("appIds", appIds);
+    Set<String> duplicates = new HashSet<>();
+    for (JobsHistory jh : q.getResultList()) {
+      if (histories.put(jh.getAppId(), jh) != null) {
+        duplicates.add(jh.getAppId());
+      }
+    }
+    histories.keySet().removeAll(duplicates);
+    return histories;
+  }
+
   public List<JobsHistory> findByProjectId(int projectId) {
     TypedQuery<JobsHistory> q = em.createNamedQuery(
             "JobsHistory.findByProjectId",
@@ -72,6 +72,9 @@ public class KafkaFacade {
   @EJB
   private ProjectFacade projectsFacade;
 
+  @EJB
+  private KafkaSchemaCache schemaCache;
+
   public static final String COLON_SEPARATOR = ":";
   public static final String SLASH_SEPARATOR = "//";
   public static final String SECURITY_PROTOCOL = "SSL";
@@ -282,6 +285,7 @@ public class KafkaFacade {
 
     em.persist(pt);
     em.flush();
+    schemaCache.invalidateTopic(topicName);
 
     //add default topic acl for the existing project members
     // addAclsToTopic(topicName, projectId, project.getName(), "*", "allow", "*", "*", "Data owner");
@@ -300,6 +304,7 @@ public class KafkaFacade {
 
     //remove from database
     em.remove(pt);
+    schemaCache.invalidateTopic(topicName);
     /*
      * What is the possibility of the program failing below? The topic is
      * removed from
@@ -355,6 +360,7 @@ public class KafkaFacade {
       for (ProjectTopics topic : topics) {
         //remove from database
         em.remove(topic);
+        schemaCache.invalidateTopic(topic.getProjectTopicsPK().getTopicName());
 
         //remove from zookeeper
         ZkUtils zkUtils = new ZkUtils(zkClient, zkConnection, false);
@@ -755,14 +761,28 @@ public class KafkaFacade {
     em.flush();
   }
 
+  /**
+   * Get the schema of a topic. Schemas are served from KafkaSchemaCache, as
+   * all clients of a topic ask for its schema when they start.
+   *
+   * @param topicName
+   * @return
+   * @throws AppException
+   */
   public SchemaDTO getSchemaForTopic(String topicName)
       throws AppException {
 
+    String contents = schemaCache.get(topicName);
+    if (contents != null) {
+      return new SchemaDTO(contents);
+    }
+    long cacheVersion = schemaCache.getVersion();
+
     List<ProjectTopics> topics = em.createNamedQuery(
         "ProjectTopics.findByTopicName", ProjectTopics.class)
         .setParameter("topicName", topicName).getResultList();
 
-    if (topics == null) {
+    if (topics == null || topics.isEmpty()) {
       throw new AppException(Response.Status.NOT_FOUND.getStatusCode(),
           "topic not found in database");
     }
@@ -779,6 +799,9 @@ public class KafkaFacade {
           "topic has not schema");
     }
 
+    schemaCache.put(topicName, schema.getSchemaTopicsPK().getName(),
+        schema.getSchemaTopicsPK().getVersion(), schema.getContents(),
+        cacheVersion);
     SchemaDTO schemaDto = new SchemaDTO(schema.getContents());
 
     return schemaDto;
@@ -850,6 +873,7 @@ public class KafkaFacade {
       try {
         em.remove(schema);
         em.flush();
+        schemaCache.invalidateSchema(schemaName, version);
       } catch (Exception ex) {
         throw new AppException(Response.Status.FORBIDDEN.getStatusCode(),
             ex.getMessage());
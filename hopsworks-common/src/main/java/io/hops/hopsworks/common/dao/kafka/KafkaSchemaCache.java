@@ -0,0 +1,120 @@
+package io.hops.hopsworks.common.dao.kafka;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+
+/**
+ * Keeps the schema of Kafka topics, which every producer and consumer of a
+ * topic asks for when it starts. A schema version never changes once added,
+ * so only the schema a topic uses can go stale. KafkaFacade drops topics when
+ * they are created or removed, and entries also expire after a short time.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class KafkaSchemaCache {
+
+  private static final long TTL_MS = 60 * 1000;
+  private static final int MAX_TOPICS = 1000;
+
+  //Guarded by itself
+  private final Map<String, CachedSchema> schemas = new LinkedHashMap<String, CachedSchema>(64, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, CachedSchema> eldest) {
+      return size() > MAX_TOPICS;
+    }
+  };
+  private final AtomicLong invalidations = new AtomicLong();
+
+  /**
+   * @return a version to pass to put(), taken before reading a schema
+   */
+  public long getVersion() {
+    return invalidations.get();
+  }
+
+  /**
+   * @param topicName
+   * @return the contents of the schema of the topic, or null
+   */
+  public String get(String topicName) {
+    synchronized (schemas) {
+      CachedSchema schema = schemas.get(topicName);
+      if (schema == null) {
+        return null;
+      }
+      if (System.currentTimeMillis() - schema.created > TTL_MS) {
+        schemas.remove(topicName);
+        return null;
+      }
+      return schema.contents;
+    }
+  }
+
+  /**
+   * Cache the schema of a topic, unless topics or schemas changed since it
+   * was read.
+   * <p/>
+   * @param topicName
+   * @param schemaName
+   * @param schemaVersion
+   * @param contents
+   * @param version the version returned by getVersion() before reading
+   */
+  public void put(String topicName, String schemaName, int schemaVersion, String contents, long version) {
+    synchronized (schemas) {
+      if (invalidations.get() == version) {
+        schemas.put(topicName, new CachedSchema(schemaName, schemaVersion, contents));
+      }
+    }
+  }
+
+  /**
+   * Drop the schema of a topic.
+   * <p/>
+   * @param topicName
+   */
+  public void invalidateTopic(String topicName) {
+    synchronized (schemas) {
+      invalidations.incrementAndGet();
+      schemas.remove(topicName);
+    }
+  }
+
+  /**
+   * Drop the topics that use a version of a schema.
+   * <p/>
+   * @param schemaName
+   * @param schemaVersion
+   */
+  public void invalidateSchema(String schemaName, int schemaVersion) {
+    synchronized (schemas) {
+      invalidations.incrementAndGet();
+      Iterator<CachedSchema> it = schemas.values().iterator();
+      while (it.hasNext()) {
+        CachedSchema schema = it.next();
+        if (schema.version == schemaVersion && schema.name.equals(schemaName)) {
+          it.remove();
+        }
+      }
+    }
+  }
+
+  private static class CachedSchema {
+
+    private final String name;
+    private final int version;
+    private final String contents;
+    private final long created = System.currentTimeMillis();
+
+    CachedSchema(String name, int version, String contents) {
+      this.name = name;
+      this.version = version;
+      this.contents = contents;
+    }
+  }
+}
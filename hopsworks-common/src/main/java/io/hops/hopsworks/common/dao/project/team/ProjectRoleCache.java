@@ -0,0 +1,186 @@
+package io.hops.hopsworks.common.dao.project.team;
+
+import io.hops.hopsworks.common.util.TransactionHooks;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Caches which projects exist and the role users have in them, so that the
+ * authorization of project requests does not hit the database on every call.
+ * ProjectTeamFacade drops the cached roles when team members are added,
+ * removed or change role, and ProjectController drops removed projects.
+ * Entries also expire after a short time, for changes made elsewhere.
+ * <p/>
+ * Invalidations happen both right away and once the transaction of the
+ * caller is over, so that a role read before the change commits is not kept.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.SUPPORTS)
+public class ProjectRoleCache {
+
+  private static final long TTL_MS = 60 * 1000;
+  private static final int MAX_PROJECTS = 1000;
+  /**
+   * Cached for users that are not members of the project.
+   */
+  private static final String NO_ROLE = "";
+
+  //Guarded by itself
+  private final Map<Integer, CachedProject> projects = new LinkedHashMap<Integer, CachedProject>(64, 0.75f,
+      true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Integer, CachedProject> eldest) {
+      return size() > MAX_PROJECTS;
+    }
+  };
+  private final AtomicLong invalidations = new AtomicLong();
+
+  @Resource
+  private TransactionSynchronizationRegistry txRegistry;
+
+  /**
+   * @return a version to pass to the put methods, taken before reading from
+   * the database
+   */
+  public long getVersion() {
+    return invalidations.get();
+  }
+
+  /**
+   * @param projectId
+   * @return true if the project is known to exist
+   */
+  public boolean isKnownProject(Integer projectId) {
+    synchronized (projects) {
+      return getProject(projectId) != null;
+    }
+  }
+
+  public void putProject(Integer projectId, long version) {
+    synchronized (projects) {
+      if (invalidations.get() == version && getProject(projectId) == null) {
+        projects.put(projectId, new CachedProject());
+      }
+    }
+  }
+
+  /**
+   * @param projectId
+   * @param email
+   * @return the cached role of the user in the project, the empty string if
+   * the user is known not to be a member, or null if nothing is cached
+   */
+  public String getRole(Integer projectId, String email) {
+    synchronized (projects) {
+      CachedProject project = getProject(projectId);
+      if (project == null) {
+        return null;
+      }
+      CachedRole role = project.roles.get(email);
+      if (role == null) {
+        return null;
+      }
+      if (System.currentTimeMillis() - role.created > TTL_MS) {
+        project.roles.remove(email);
+        return null;
+      }
+      return role.role;
+    }
+  }
+
+  /**
+   * @param projectId
+   * @param email
+   * @param role the role of the user, null if the user is not a member
+   * @param version the version returned by getVersion() before reading the
+   * role
+   */
+  public void putRole(Integer projectId, String email, String role, long version) {
+    synchronized (projects) {
+      if (invalidations.get() != version) {
+        return;
+      }
+      CachedProject project = getProject(projectId);
+      if (project == null) {
+        project = new CachedProject();
+        projects.put(projectId, project);
+      }
+      project.roles.put(email, new CachedRole(role == null ? NO_ROLE : role));
+    }
+  }
+
+  /**
+   * Drop the cached role of a user in a project, now and after the current
+   * transaction.
+   * <p/>
+   * @param projectId
+   * @param email
+   */
+  public void invalidate(final Integer projectId, final String email) {
+    dropRole(projectId, email);
+    TransactionHooks.afterCompletion(txRegistry, () -> dropRole(projectId, email));
+  }
+
+  /**
+   * Drop everything cached for a project, now and after the current
+   * transaction.
+   * <p/>
+   * @param projectId
+   */
+  public void invalidateProject(final Integer projectId) {
+    dropProject(projectId);
+    TransactionHooks.afterCompletion(txRegistry, () -> dropProject(projectId));
+  }
+
+  private void dropRole(Integer projectId, String email) {
+    synchronized (projects) {
+      invalidations.incrementAndGet();
+      CachedProject project = projects.get(projectId);
+      if (project != null) {
+        project.roles.remove(email);
+      }
+    }
+  }
+
+  private void dropProject(Integer projectId) {
+    synchronized (projects) {
+      invalidations.incrementAndGet();
+      projects.remove(projectId);
+    }
+  }
+
+  private CachedProject getProject(Integer projectId) {
+    CachedProject project = projects.get(projectId);
+    if (project != null && System.currentTimeMillis() - project.created > TTL_MS) {
+      projects.remove(projectId);
+      return null;
+    }
+    return project;
+  }
+
+  private static class CachedProject {
+
+    private final Map<String, CachedRole> roles = new HashMap<>();
+    private final long created = System.currentTimeMillis();
+  }
+
+  private static class CachedRole {
+
+    private final String role;
+    private final long created = System.currentTimeMillis();
+
+    CachedRole(String role) {
+      this.role = role;
+    }
+  }
+}
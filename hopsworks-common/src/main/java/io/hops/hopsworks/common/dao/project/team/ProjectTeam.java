@@ -26,6 +26,10 @@ import io.hops.hopsworks.common.dao.user.Users;
   @NamedQuery(name = "ProjectTeam.findRoleForUserInProject",
           query
           = "SELECT s FROM ProjectTeam s WHERE s.project = :project AND s.user = :user"),
+  @NamedQuery(name = "ProjectTeam.findRoleByProjectIdAndEmail",
+          query
+          = "SELECT s.teamRole FROM ProjectTeam s WHERE s.projectTeamPK.projectId = :projectId "
+          + "AND s.projectTeamPK.teamMember = :email"),
   @NamedQuery(name = "ProjectTeam.findAll",
           query = "SELECT s FROM ProjectTeam s"),
   @NamedQuery(name = "ProjectTeam.findByProject",
@@ -4,6 +4,7 @@ import io.hops.hopsworks.common.dao.project.Project;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
@@ -17,6 +18,8 @@ public class ProjectTeamFacade {
 
   @PersistenceContext(unitName = "kthfsPU")
   private EntityManager em;
+  @EJB
+  private ProjectRoleCache roleCache;
 
   protected EntityManager getEntityManager() {
     return em;
@@ -203,8 +206,26 @@ public class ProjectTeamFacade {
     return findCurrentRole(project, u);
   }
 
+  /**
+   * Get the current role of a user in a project with a single query.
+   * <p/>
+   * @param projectId
+   * @param email
+   * @return The current role of the user in the project, or null if the user is
+   * not in it.
+   */
+  public String findCurrentRole(Integer projectId, String email) {
+    TypedQuery<String> q = em.createNamedQuery(
+            "ProjectTeam.findRoleByProjectIdAndEmail", String.class);
+    q.setParameter("projectId", projectId);
+    q.setParameter("email", email);
+    List<String> roles = q.getResultList();
+    return roles.isEmpty() ? null : roles.get(0);
+  }
+
   public void persistProjectTeam(ProjectTeam team) {
     em.persist(team);
+    invalidateRole(team);
   }
 
   /*
@@ -214,6 +235,7 @@ public class ProjectTeamFacade {
   public void update(ProjectTeam team) {
     if (team != null) {
       em.merge(team);
+      invalidateRole(team);
     }
   }
 
@@ -228,6 +250,7 @@ public class ProjectTeamFacade {
     ProjectTeam team = findByPrimaryKey(project, user);
     if (team != null) {
       em.remove(team);
+      invalidateRole(team);
     }
   }
 
@@ -259,6 +282,7 @@ public class ProjectTeamFacade {
       team.setTeamRole(teamRole);
       team.setTimestamp(new Date());
       em.merge(team);
+      invalidateRole(team);
     }
   }
 
@@ -290,9 +314,16 @@ public class ProjectTeamFacade {
       meberber.setTimestamp(new Date());
       em.merge(meberber);
     }
+    roleCache.invalidateProject(project.getId());
     return teamMembers;
   }
 
+  private void invalidateRole(ProjectTeam team) {
+    if (team.getProjectTeamPK() != null) {
+      roleCache.invalidate(team.getProjectTeamPK().getProjectId(), team.getProjectTeamPK().getTeamMember());
+    }
+  }
+
   /**
    * Find the ProjectTeam entry for Project <i>project</i> and Users
    * <i>user</i>.
@@ -1,8 +1,11 @@
 package io.hops.hopsworks.common.dao.pythonDeps;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
+import org.apache.commons.codec.digest.DigestUtils;
 
 public class BlockReport {
 
@@ -74,6 +77,19 @@ public class BlockReport {
     this.libs.put(lib, new Lib(lib, channelUrl, version));
   }
 
+  /**
+   * @return a SHA-1 digest of the reported libraries, taken over the libraries
+   * sorted by name so that it does not depend on the order they were reported.
+   */
+  public String getLibsDigest() {
+    StringBuilder sb = new StringBuilder();
+    for (Lib lib : new TreeMap<>(libs).values()) {
+      sb.append(lib.getLib()).append('|').append(lib.getChannelUrl()).append('|').append(lib.getVersion())
+          .append('\n');
+    }
+    return DigestUtils.sha1Hex(sb.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
   public void setProject(String project) {
     this.project = project;
   }
@@ -0,0 +1,77 @@
+package io.hops.hopsworks.common.dao.pythonDeps;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+
+/**
+ * Remembers, for every host, which conda environments were found to match
+ * their project in the last block report. Environments whose reported
+ * libraries have not changed since then do not need to be compared with the
+ * database again. All projects of a host are reconciled at least every
+ * {@link #FULL_RECONCILE_INTERVAL_MS}, which also catches changes made to the
+ * projects themselves.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class BlockReportTracker {
+
+  public static final long FULL_RECONCILE_INTERVAL_MS = 10 * 60 * 1000;
+
+  private final ConcurrentHashMap<String, HostState> hosts = new ConcurrentHashMap<>();
+
+  /**
+   * @param hostId
+   * @return true if all the projects have to be compared with the block report
+   * of the host.
+   */
+  public boolean isFullReconcileDue(String hostId) {
+    HostState state = hosts.get(hostId);
+    return state == null || System.currentTimeMillis() - state.lastFullReconcile >= FULL_RECONCILE_INTERVAL_MS;
+  }
+
+  /**
+   * @param hostId
+   * @param project
+   * @param libsDigest the digest of the libraries reported for the project
+   * @return true if the environment matched the project the last time the
+   * same libraries were reported.
+   */
+  public boolean isInSync(String hostId, String project, String libsDigest) {
+    HostState state = hosts.get(hostId);
+    if (state == null) {
+      return false;
+    }
+    String digest = state.inSync.get(project);
+    return digest != null && digest.equals(libsDigest);
+  }
+
+  /**
+   * Record the outcome of reconciling a block report.
+   * <p/>
+   * @param hostId
+   * @param inSync the library digests of the environments that matched their
+   * project
+   * @param full true if all projects were reconciled
+   */
+  public void update(String hostId, Map<String, String> inSync, boolean full) {
+    HostState previous = hosts.get(hostId);
+    long lastFull = full || previous == null ? System.currentTimeMillis() : previous.lastFullReconcile;
+    hosts.put(hostId, new HostState(lastFull, inSync));
+  }
+
+  private static class HostState {
+
+    private final long lastFullReconcile;
+    private final Map<String, String> inSync;
+
+    HostState(long lastFullReconcile, Map<String, String> inSync) {
+      this.lastFullReconcile = lastFullReconcile;
+      this.inSync = Collections.unmodifiableMap(new HashMap<>(inSync));
+    }
+  }
+}
@@ -1,6 +1,8 @@
 package io.hops.hopsworks.common.dao.user;
 
 import io.hops.hopsworks.common.constants.auth.AuthenticationConstants;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
@@ -55,6 +57,20 @@ public class UserFacade extends AbstractFacade<Users> {
     }
   }
 
+  /**
+   * Find several users by username in one query.
+   * <p/>
+   * @param usernames
+   * @return the users found, in no particular order
+   */
+  public List<Users> findByUsernames(Collection<String> usernames) {
+    if (usernames == null || usernames.isEmpty()) {
+      return new ArrayList<>();
+    }
+    return em.createNamedQuery("Users.findByUsernames", Users.class).
+            setParameter("usernames", usernames).getResultList();
+  }
+
   public List<Users> filterUsersBasedOnProject(String name) {
 
     Query query = em.createNativeQuery(
@@ -41,6 +41,8 @@ import org.codehaus.jackson.annotate.JsonIgnore;
           query = "SELECT u FROM Users u WHERE u.uid = :uid"),
   @NamedQuery(name = "Users.findByUsername",
           query = "SELECT u FROM Users u WHERE u.username = :username"),
+  @NamedQuery(name = "Users.findByUsernames",
+          query = "SELECT u FROM Users u WHERE u.username IN :usernames"),
   @NamedQuery(name = "Users.findByPassword",
           query = "SELECT u FROM Users u WHERE u.password = :password"),
   @NamedQuery(name = "Users.findByEmail",
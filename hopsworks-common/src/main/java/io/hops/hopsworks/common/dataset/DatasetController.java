@@ -305,6 +305,7 @@ public class DatasetController {
     success = udfso.rm(location, true);
     if (success) {
       operationsLogFacade.persist(log);
+      datasetFacade.invalidateOverview(dataset);
     }
     return success;
   }
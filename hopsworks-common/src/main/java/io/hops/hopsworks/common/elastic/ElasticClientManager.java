@@ -0,0 +1,329 @@
+package io.hops.hopsworks.common.elastic;
+
+import io.hops.hopsworks.common.constants.message.ResponseMessages;
+import io.hops.hopsworks.common.exception.AppException;
+import io.hops.hopsworks.common.util.Ip;
+import io.hops.hopsworks.common.util.Settings;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.DependsOn;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+import javax.ejb.Timeout;
+import javax.ejb.Timer;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+import javax.ws.rs.core.Response;
+import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsResponse;
+import org.elasticsearch.action.admin.indices.exists.types.TypesExistsRequest;
+import org.elasticsearch.action.admin.indices.exists.types.TypesExistsResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.client.transport.TransportClient;
+import org.elasticsearch.common.transport.InetSocketTransportAddress;
+
+/**
+ * Holds the long-lived transport client shared by all Elasticsearch queries.
+ * The client is rebuilt when it has lost all its nodes or the configured
+ * endpoint changes. A replaced client is closed after a grace period, so
+ * the queries still running on it can finish. Index and type existence checks
+ * are cached and the latency of every query type is recorded.
+ */
+@Singleton
+@DependsOn("Settings")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class ElasticClientManager {
+
+  private static final Logger LOG = Logger.getLogger(ElasticClientManager.class.getName());
+
+  /**
+   * How long a positive index/type existence check is trusted.
+   */
+  private static final long EXISTS_CACHE_TTL_MS = 60 * 1000;
+  /**
+   * How long a replaced client is kept open for the queries running on it.
+   */
+  private static final long RETIRED_CLIENT_GRACE_MS = 60 * 1000;
+  /**
+   * Number of most recent samples the latency percentiles are computed over.
+   */
+  private static final int LATENCY_WINDOW_SIZE = 1024;
+
+  @EJB
+  private Settings settings;
+  @Resource
+  private TimerService timerService;
+
+  private volatile TransportClient client;
+  private volatile String clientEndpoint;
+  private final ConcurrentMap<String, Long> existsCache = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+  //Guarded by this
+  private final List<RetiredClient> retired = new ArrayList<>();
+
+  @PreDestroy
+  public void preDestroy() {
+    List<TransportClient> toClose = new ArrayList<>();
+    synchronized (this) {
+      if (client != null) {
+        toClose.add(client);
+        client = null;
+        clientEndpoint = null;
+      }
+      for (RetiredClient r : retired) {
+        toClose.add(r.client);
+      }
+      retired.clear();
+    }
+    for (TransportClient c : toClose) {
+      close(c);
+    }
+  }
+
+  /**
+   * Get the shared client. A new client is only built when there is none, when
+   * it is not connected to any node or when the Elasticsearch endpoint changed.
+   * <p/>
+   * @return
+   * @throws AppException if the Elasticsearch endpoint cannot be resolved
+   */
+  public Client getClient() throws AppException {
+    TransportClient current = client;
+    String endpoint = getElasticIpAsString() + ":" + settings.getElasticPort();
+    if (current != null && !current.connectedNodes().isEmpty() && endpoint.equals(clientEndpoint)) {
+      return current;
+    }
+    synchronized (this) {
+      if (client != null && !client.connectedNodes().isEmpty() && endpoint.equals(clientEndpoint)) {
+        return client;
+      }
+      retireClient();
+      final org.elasticsearch.common.settings.Settings clientSettings
+          = org.elasticsearch.common.settings.Settings.settingsBuilder()
+              .put("client.transport.sniff", true) //being able to retrieve other nodes
+              .put("cluster.name", "hops").build();
+
+      client = TransportClient.builder().settings(clientSettings).build()
+          .addTransportAddress(new InetSocketTransportAddress(
+              new InetSocketAddress(getElasticIpAsString(), settings.getElasticPort())));
+      clientEndpoint = endpoint;
+      existsCache.clear();
+      LOG.log(Level.INFO, "Created Elasticsearch client for {0}", endpoint);
+      return client;
+    }
+  }
+
+  /**
+   * Checks if a given index exists in elastic. Positive answers are cached.
+   * <p/>
+   * @param indexName
+   * @return
+   * @throws AppException
+   */
+  public boolean indexExists(String indexName) throws AppException {
+    if (isCached(indexName)) {
+      return true;
+    }
+    IndicesExistsResponse response = getClient().admin().indices().prepareExists(indexName).execute().actionGet();
+    if (response.isExists()) {
+      existsCache.put(indexName, System.currentTimeMillis() + EXISTS_CACHE_TTL_MS);
+    }
+    return response.isExists();
+  }
+
+  /**
+   * Checks if a given data type exists. It is a given that the index exists.
+   * Positive answers are cached.
+   * <p/>
+   * @param indexName
+   * @param typeName
+   * @return
+   * @throws AppException
+   */
+  public boolean typeExists(String indexName, String typeName) throws AppException {
+    String key = indexName + "/" + typeName;
+    if (isCached(key)) {
+      return true;
+    }
+    TypesExistsResponse response = getClient().admin().indices().typesExists(
+        new TypesExistsRequest(new String[]{indexName}, typeName)).actionGet();
+    if (response.isExists()) {
+      existsCache.put(key, System.currentTimeMillis() + EXISTS_CACHE_TTL_MS);
+    }
+    return response.isExists();
+  }
+
+  private boolean isCached(String key) {
+    Long expires = existsCache.get(key);
+    if (expires == null) {
+      return false;
+    }
+    if (expires < System.currentTimeMillis()) {
+      existsCache.remove(key);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Record the latency of a query.
+   * <p/>
+   * @param queryType e.g. global, project or dataset
+   * @param millis
+   */
+  public void recordLatency(String queryType, long millis) {
+    LatencyWindow window = latencies.get(queryType);
+    if (window == null) {
+      LatencyWindow newWindow = new LatencyWindow();
+      window = latencies.putIfAbsent(queryType, newWindow);
+      if (window == null) {
+        window = newWindow;
+      }
+    }
+    window.add(millis);
+  }
+
+  /**
+   * Get the 50th, 95th and 99th latency percentiles in milliseconds of each
+   * query type over its most recent queries.
+   * <p/>
+   * @return query type to percentile name to latency
+   */
+  public Map<String, Map<String, Long>> getLatencyPercentiles() {
+    Map<String, Map<String, Long>> percentiles = new HashMap<>();
+    for (Map.Entry<String, LatencyWindow> entry : latencies.entrySet()) {
+      percentiles.put(entry.getKey(), entry.getValue().getPercentiles());
+    }
+    return percentiles;
+  }
+
+  /**
+   * Move the current client to the retired ones and schedule its close.
+   */
+  private void retireClient() {
+    if (client == null) {
+      return;
+    }
+    retired.add(new RetiredClient(client, System.currentTimeMillis() + RETIRED_CLIENT_GRACE_MS));
+    client = null;
+    clientEndpoint = null;
+    try {
+      timerService.createSingleActionTimer(RETIRED_CLIENT_GRACE_MS, new TimerConfig(null, false));
+    } catch (RuntimeException ex) {
+      LOG.log(Level.WARNING, "Could not schedule the close of the replaced Elasticsearch client", ex);
+    }
+  }
+
+  /**
+   * Close the retired clients whose grace period is over.
+   * <p/>
+   * @param timer
+   */
+  @Timeout
+  public void closeRetiredClients(Timer timer) {
+    long now = System.currentTimeMillis();
+    List<TransportClient> toClose = new ArrayList<>();
+    synchronized (this) {
+      Iterator<RetiredClient> it = retired.iterator();
+      while (it.hasNext()) {
+        RetiredClient r = it.next();
+        if (r.closeAt <= now) {
+          toClose.add(r.client);
+          it.remove();
+        }
+      }
+    }
+    for (TransportClient c : toClose) {
+      close(c);
+    }
+  }
+
+  private void close(TransportClient c) {
+    try {
+      c.close();
+    } catch (Exception ex) {
+      LOG.log(Level.WARNING, "Could not close Elasticsearch client", ex);
+    }
+  }
+
+  private String getElasticIpAsString() throws AppException {
+    String addr = settings.getElasticIp();
+
+    // Validate the ip address pulled from the variables
+    if (Ip.validIp(addr) == false) {
+      try {
+        InetAddress.getByName(addr);
+      } catch (UnknownHostException ex) {
+        LOG.log(Level.SEVERE, ResponseMessages.ELASTIC_SERVER_NOT_AVAILABLE);
+        throw new AppException(Response.Status.INTERNAL_SERVER_ERROR.
+            getStatusCode(), ResponseMessages.ELASTIC_SERVER_NOT_AVAILABLE);
+
+      }
+    }
+
+    return addr;
+  }
+
+  /**
+   * Ring buffer of the most recent latency samples of one query type.
+   */
+  private static class LatencyWindow {
+
+    private final long[] samples = new long[LATENCY_WINDOW_SIZE];
+    private long count = 0;
+
+    synchronized void add(long millis) {
+      samples[(int) (count % samples.length)] = millis;
+      count++;
+    }
+
+    Map<String, Long> getPercentiles() {
+      long[] sorted;
+      long total;
+      synchronized (this) {
+        total = count;
+        sorted = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+      }
+      Arrays.sort(sorted);
+      Map<String, Long> percentiles = new HashMap<>();
+      percentiles.put("count", total);
+      percentiles.put("p50", percentile(sorted, 0.50));
+      percentiles.put("p95", percentile(sorted, 0.95));
+      percentiles.put("p99", percentile(sorted, 0.99));
+      return percentiles;
+    }
+
+    private long percentile(long[] sorted, double p) {
+      if (sorted.length == 0) {
+        return 0;
+      }
+      int index = (int) Math.ceil(p * sorted.length) - 1;
+      return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+  }
+
+  private static class RetiredClient {
+
+    private final TransportClient client;
+    private final long closeAt;
+
+    RetiredClient(TransportClient client, long closeAt) {
+      this.client = client;
+      this.closeAt = closeAt;
+    }
+  }
+}
@@ -6,12 +6,8 @@ import io.hops.hopsworks.common.dao.dataset.DatasetFacade;
 import io.hops.hopsworks.common.dao.project.Project;
 import io.hops.hopsworks.common.dao.project.ProjectFacade;
 import io.hops.hopsworks.common.exception.AppException;
-import io.hops.hopsworks.common.util.Ip;
 import io.hops.hopsworks.common.util.Settings;
 import java.io.IOException;
-import java.net.InetAddress;
-import java.net.InetSocketAddress;
-import java.net.UnknownHostException;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -24,21 +20,14 @@ import javax.ejb.Stateless;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.core.Response;
-import org.elasticsearch.action.ActionFuture;
+import org.elasticsearch.ElasticsearchTimeoutException;
 import org.elasticsearch.action.ListenableActionFuture;
-import org.elasticsearch.action.admin.indices.cache.clear.ClearIndicesCacheRequest;
-import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsRequestBuilder;
-import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsResponse;
-import org.elasticsearch.action.admin.indices.exists.types.TypesExistsRequest;
-import org.elasticsearch.action.admin.indices.exists.types.TypesExistsResponse;
-import org.elasticsearch.action.admin.indices.open.OpenIndexRequest;
+import org.elasticsearch.action.search.MultiSearchRequestBuilder;
+import org.elasticsearch.action.search.MultiSearchResponse;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
-import org.elasticsearch.client.AdminClient;
 import org.elasticsearch.client.Client;
-import org.elasticsearch.client.IndicesAdminClient;
-import org.elasticsearch.client.transport.TransportClient;
-import org.elasticsearch.common.transport.InetSocketTransportAddress;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.query.QueryBuilder;
 import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
 import static org.elasticsearch.index.query.QueryBuilders.fuzzyQuery;
@@ -66,15 +55,30 @@ public class ElasticController {
   private ProjectFacade projectFacade;
   @EJB
   private DatasetFacade datasetFacade;
+  @EJB
+  private ElasticClientManager clientManager;
 
   private static final Logger LOG = Logger.getLogger(ElasticController.class.getName());
 
+  public static final String GLOBAL_SEARCH = "global";
+  public static final String PROJECT_SEARCH = "project";
+  public static final String DATASET_SEARCH = "dataset";
+
+  /**
+   * Per search shard timeout after which the hits found so far are returned.
+   */
+  private static final long SHARED_SEARCH_SHARD_TIMEOUT_MS = 2000;
+  /**
+   * Deadline for the multi-search over all the shared datasets of a project.
+   */
+  private static final long SHARED_SEARCH_DEADLINE_MS = 5000;
+
   public List<ElasticHit> globalSearch(String searchTerm) throws AppException {
-    //some necessary client settings
-    Client client = getClient();
+    long start = System.currentTimeMillis();
+    Client client = clientManager.getClient();
 
     //check if the index are up and running
-    if (!this.indexExists(client, Settings.META_INDEX)) {
+    if (!clientManager.indexExists(Settings.META_INDEX)) {
       LOG.log(Level.INFO, ResponseMessages.ELASTIC_INDEX_NOT_FOUND);
       throw new AppException(Response.Status.INTERNAL_SERVER_ERROR.
           getStatusCode(), ResponseMessages.ELASTIC_INDEX_NOT_FOUND);
@@ -110,25 +114,25 @@ public class ElasticController {
         }
       }
 
-      this.clientShutdown(client);
+      clientManager.recordLatency(GLOBAL_SEARCH, System.currentTimeMillis() - start);
       return elasticHits;
     } else {
       LOG.log(Level.WARNING, "Elasticsearch error code: {0}",
           response.status().getStatus());
       //something went wrong so throw an exception
-      this.clientShutdown(client);
       throw new AppException(Response.Status.INTERNAL_SERVER_ERROR.
           getStatusCode(), ResponseMessages.ELASTIC_SERVER_NOT_FOUND);
     }
   }
 
   public List<ElasticHit> projectSearch(Integer projectId, String searchTerm) throws AppException {
-    Client client = getClient();
+    long start = System.currentTimeMillis();
+    Client client = clientManager.getClient();
     //check if the index are up and running
-    if (!this.indexExists(client, Settings.META_INDEX)) {
+    if (!clientManager.indexExists(Settings.META_INDEX)) {
       throw new AppException(Response.Status.INTERNAL_SERVER_ERROR.
           getStatusCode(), ResponseMessages.ELASTIC_INDEX_NOT_FOUND);
-    } else if (!this.typeExists(client, Settings.META_INDEX,
+    } else if (!clientManager.typeExists(Settings.META_INDEX,
         Settings.META_INODE_TYPE)) {
       throw new AppException(Response.Status.INTERNAL_SERVER_ERROR.
           getStatusCode(), ResponseMessages.ELASTIC_TYPE_NOT_FOUND);
@@ -157,23 +161,23 @@ public class ElasticController {
       }
 
       projectSearchInSharedDatasets(client, projectId, searchTerm, elasticHits);
-      this.clientShutdown(client);
+      clientManager.recordLatency(PROJECT_SEARCH, System.currentTimeMillis() - start);
       return elasticHits;
     }
 
-    this.clientShutdown(client);
     throw new AppException(Response.Status.INTERNAL_SERVER_ERROR.
         getStatusCode(), ResponseMessages.ELASTIC_SERVER_NOT_FOUND);
   }
 
   public List<ElasticHit> datasetSearch(Integer projectId, String datasetName, String searchTerm) throws AppException {
-    Client client = getClient();
+    long start = System.currentTimeMillis();
+    Client client = clientManager.getClient();
     //check if the indices are up and running
-    if (!this.indexExists(client, Settings.META_INDEX)) {
+    if (!clientManager.indexExists(Settings.META_INDEX)) {
 
       throw new AppException(Response.Status.INTERNAL_SERVER_ERROR.
           getStatusCode(), ResponseMessages.ELASTIC_INDEX_NOT_FOUND);
-    } else if (!this.typeExists(client, Settings.META_INDEX,
+    } else if (!clientManager.typeExists(Settings.META_INDEX,
         Settings.META_INODE_TYPE)) {
 
       throw new AppException(Response.Status.INTERNAL_SERVER_ERROR.
@@ -216,10 +220,9 @@ public class ElasticController {
         }
       }
 
-      this.clientShutdown(client);
+      clientManager.recordLatency(DATASET_SEARCH, System.currentTimeMillis() - start);
       return elasticHits;
     }
-    this.clientShutdown(client);
     throw new AppException(Response.Status.INTERNAL_SERVER_ERROR.
         getStatusCode(), ResponseMessages.ELASTIC_SERVER_NOT_FOUND);
   }
@@ -242,22 +245,18 @@ public class ElasticController {
 
   }
 
-  private Client getClient() throws AppException {
-    final org.elasticsearch.common.settings.Settings settings
-        = org.elasticsearch.common.settings.Settings.settingsBuilder()
-            .put("client.transport.sniff", true) //being able to retrieve other nodes 
-            .put("cluster.name", "hops").build();
-
-    return TransportClient.builder().settings(settings).build()
-        .addTransportAddress(new InetSocketTransportAddress(
-            new InetSocketAddress(getElasticIpAsString(),
-                this.settings.getElasticPort())));
-  }
-
+  /**
+   * Search the datasets shared with the project. The searches of all shared
+   * datasets are sent as one multi-search request. Every search has a shard
+   * timeout, so slow shards yield partial hits, and the whole request has a
+   * deadline after which the shared datasets are left out of the results.
+   */
   private void projectSearchInSharedDatasets(Client client, Integer projectId,
       String searchTerm, List<ElasticHit> elasticHits) {
     Project project = projectFacade.find(projectId);
     Collection<Dataset> datasets = project.getDatasetCollection();
+    MultiSearchRequestBuilder msrb = client.prepareMultiSearch();
+    int searches = 0;
     for (Dataset ds : datasets) {
       if (ds.isShared()) {
         List<Dataset> dss = datasetFacade.findByInode(ds.getInode());
@@ -266,41 +265,59 @@ public class ElasticController {
             int datasetId = ds.getInodeId();
             String ownerProjectId = String.valueOf(sh.getProject().getId());
 
-            executeProjectSearchQuery(client, searchSpecificDataset(datasetId,
-                searchTerm), Settings.META_DATASET_TYPE, ownerProjectId,
-                elasticHits);
-
-            executeProjectSearchQuery(client, datasetSearchQuery(datasetId,
-                searchTerm), Settings.META_INODE_TYPE, ownerProjectId,
-                elasticHits);
+            msrb.add(sharedDatasetSearchRequest(client, searchSpecificDataset(
+                datasetId, searchTerm), Settings.META_DATASET_TYPE,
+                ownerProjectId));
 
+            msrb.add(sharedDatasetSearchRequest(client, datasetSearchQuery(
+                datasetId, searchTerm), Settings.META_INODE_TYPE,
+                ownerProjectId));
+            searches += 2;
           }
         }
       }
     }
+    if (searches == 0) {
+      return;
+    }
+
+    MultiSearchResponse response;
+    try {
+      response = msrb.execute().actionGet(SHARED_SEARCH_DEADLINE_MS);
+    } catch (ElasticsearchTimeoutException ex) {
+      LOG.log(Level.WARNING, "Search in the {0} shared datasets of project {1} did not finish within {2} ms",
+          new Object[]{searches / 2, projectId, SHARED_SEARCH_DEADLINE_MS});
+      return;
+    }
+    for (MultiSearchResponse.Item item : response.getResponses()) {
+      if (item.isFailure()) {
+        LOG.log(Level.WARNING, "Search in shared dataset failed: {0}", item.getFailureMessage());
+        continue;
+      }
+      SearchResponse searchResponse = item.getResponse();
+      if (searchResponse.isTimedOut()) {
+        LOG.log(Level.INFO, "Search in shared dataset timed out, returning partial results");
+      }
+      if (searchResponse.status().getStatus() == 200) {
+        for (SearchHit hit : searchResponse.getHits().getHits()) {
+          elasticHits.add(new ElasticHit(hit));
+        }
+      }
+    }
   }
 
-  private void executeProjectSearchQuery(Client client, QueryBuilder query, String type,
-      String routing, List<ElasticHit> elasticHits) {
+  private SearchRequestBuilder sharedDatasetSearchRequest(Client client, QueryBuilder query, String type,
+      String routing) {
     SearchRequestBuilder srb = client.prepareSearch(Settings.META_INDEX);
     srb = srb.setTypes(type);
     srb = srb.setQuery(query);
     srb = srb.addHighlightedField("name");
     srb = srb.setRouting(routing);
+    srb = srb.setTimeout(TimeValue.timeValueMillis(SHARED_SEARCH_SHARD_TIMEOUT_MS));
 
-    LOG.log(Level.INFO, "Project Elastic query in Shared Dataset [{0}] is: {1} {2}", new String[]{
+    LOG.log(Level.FINE, "Project Elastic query in Shared Dataset [{0}] is: {1} {2}", new String[]{
       type, routing, srb.toString()});
-    ListenableActionFuture<SearchResponse> futureResponse = srb.execute();
-    SearchResponse response = futureResponse.actionGet();
-
-    if (response.status().getStatus() == 200) {
-      if (response.getHits().getHits().length > 0) {
-        SearchHit[] hits = response.getHits().getHits();
-        for (SearchHit hit : hits) {
-          elasticHits.add(new ElasticHit(hit));
-        }
-      }
-    }
+    return srb;
   }
 
   private QueryBuilder searchSpecificDataset(int datasetId, String searchTerm) {
@@ -469,87 +486,6 @@ public class ElasticController {
     return nestedQuery;
   }
 
-  /**
-   * Checks if a given index exists in elastic
-   * <p/>
-   * @param client
-   * @param indexName
-   * @return
-   */
-  private boolean indexExists(Client client, String indexName) {
-    AdminClient admin = client.admin();
-    IndicesAdminClient indices = admin.indices();
-
-    IndicesExistsRequestBuilder indicesExistsRequestBuilder = indices.
-        prepareExists(indexName);
-
-    IndicesExistsResponse response = indicesExistsRequestBuilder
-        .execute()
-        .actionGet();
-
-    return response.isExists();
-  }
-
-  /**
-   * Checks if a given data type exists. It is a given that the index exists
-   * <p/>
-   * @param client
-   * @param typeName
-   * @return
-   */
-  private boolean typeExists(Client client, String indexName, String typeName) {
-    AdminClient admin = client.admin();
-    IndicesAdminClient indices = admin.indices();
-
-    ActionFuture<TypesExistsResponse> action = indices.typesExists(
-        new TypesExistsRequest(
-            new String[]{indexName}, typeName));
-
-    TypesExistsResponse response = action.actionGet();
-
-    return response.isExists();
-  }
-
-  /**
-   * Shuts down the client and clears the cache
-   * <p/>
-   * @param client
-   */
-  private void clientShutdown(Client client) {
-
-    client.admin().indices().clearCache(new ClearIndicesCacheRequest(
-        Settings.META_INDEX));
-
-    client.close();
-  }
-
-  /**
-   * Boots up a previously closed index
-   */
-  private void bootIndices(Client client) {
-
-    client.admin().indices().open(new OpenIndexRequest(
-        Settings.META_INDEX));
-  }
-
-  private String getElasticIpAsString() throws AppException {
-    String addr = settings.getElasticIp();
-
-    // Validate the ip address pulled from the variables
-    if (Ip.validIp(addr) == false) {
-      try {
-        InetAddress.getByName(addr);
-      } catch (UnknownHostException ex) {
-        LOG.log(Level.SEVERE, ResponseMessages.ELASTIC_SERVER_NOT_AVAILABLE);
-        throw new AppException(Response.Status.INTERNAL_SERVER_ERROR.
-            getStatusCode(), ResponseMessages.ELASTIC_SERVER_NOT_AVAILABLE);
-
-      }
-    }
-
-    return addr;
-  }
-
   /**
    *
    * @param params
@@ -21,6 +21,7 @@ import org.apache.hadoop.fs.permission.FsPermission;
 import org.apache.hadoop.hdfs.DistributedFileSystem;
 import org.apache.hadoop.hdfs.protocol.HdfsConstants;
 import org.apache.hadoop.security.UserGroupInformation;
+import io.hops.hopsworks.common.dao.hdfs.inode.InodePathCache;
 import io.hops.hopsworks.common.util.Settings;
 
 public class DistributedFileSystemOps {
@@ -31,6 +32,7 @@ public class DistributedFileSystemOps {
   private static final long MB = 1024l * 1024l;
 
   private final DistributedFileSystem dfs;
+  private final InodePathCache pathCache;
   private Configuration conf;
   private String hadoopConfDir;
 
@@ -39,10 +41,13 @@ public class DistributedFileSystemOps {
    * <p>
    * @param ugi
    * @param conf
+   * @param pathCache the inode path cache to invalidate when paths are moved
+   * or deleted
    */
-  public DistributedFileSystemOps(UserGroupInformation ugi, Configuration conf) {
+  public DistributedFileSystemOps(UserGroupInformation ugi, Configuration conf, InodePathCache pathCache) {
     this.dfs = getDfs(ugi, conf);
     this.conf = conf;
+    this.pathCache = pathCache;
   }
 
   private DistributedFileSystem getDfs(UserGroupInformation ugi,
@@ -180,11 +185,24 @@ public class DistributedFileSystemOps {
       toString(),
       dfs.toString()});
     if (dfs.exists(location)) {
-      return dfs.delete(location, recursive);
+      //Invalidate again once done, a lookup during the delete may have cached
+      //the path again
+      invalidate(location);
+      try {
+        return dfs.delete(location, recursive);
+      } finally {
+        invalidate(location);
+      }
     }
     return true;
   }
 
+  private void invalidate(Path location) {
+    if (pathCache != null) {
+      pathCache.invalidate(location.toUri().getPath());
+    }
+  }
+
   /**
    * Copy a file from one file system to the other.
    * <p/>
@@ -246,7 +264,14 @@ public class DistributedFileSystemOps {
    * @throws IOException
    */
   public void moveWithinHdfs(Path source, Path destination) throws IOException {
-    dfs.rename(source, destination);
+    invalidate(source);
+    invalidate(destination);
+    try {
+      dfs.rename(source, destination);
+    } finally {
+      invalidate(source);
+      invalidate(destination);
+    }
   }
 
   /**
@@ -331,7 +356,10 @@ public class DistributedFileSystemOps {
     if (!exists(dirs)) {
       dfs.mkdirs(dirsPath);
     }
-    return dfs.create(dstPath);
+    FSDataOutputStream out = dfs.create(dstPath);
+    //The file replaces any previous one, which may be cached
+    invalidate(dstPath);
+    return out;
   }
 
   /**
@@ -22,6 +22,7 @@ import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.security.UserGroupInformation;
 import io.hops.hopsworks.common.dao.hdfs.inode.Inode;
 import io.hops.hopsworks.common.dao.hdfs.inode.InodeFacade;
+import io.hops.hopsworks.common.dao.hdfs.inode.InodePathCache;
 import io.hops.hopsworks.common.dao.hdfsUser.HdfsUsersFacade;
 import io.hops.hopsworks.common.dao.hdfsUser.HdfsGroups;
 import io.hops.hopsworks.common.util.Settings;
@@ -38,6 +39,8 @@ public class DistributedFsService {
   @EJB
   private InodeFacade inodes;
   @EJB
+  private InodePathCache pathCache;
+  @EJB
   private UserGroupInformationService ugiService;
   @EJB
   private HdfsUsersFacade hdfsUsersFacade;
@@ -104,7 +107,7 @@ public class DistributedFsService {
    */
   public DistributedFileSystemOps getDfsOps() {
     return new DistributedFileSystemOps(UserGroupInformation.createRemoteUser(
-            settings.getHdfsSuperUser()), conf);
+            settings.getHdfsSuperUser()), conf, pathCache);
   }
 
   /**
@@ -125,7 +128,7 @@ public class DistributedFsService {
       logger.log(Level.SEVERE, null, ex);
       return null;
     }
-    return new DistributedFileSystemOps(ugi, conf);
+    return new DistributedFileSystemOps(ugi, conf, pathCache);
   }
 
   public DistributedFileSystemOps getDfsOpsForTesting(String username) {
@@ -151,7 +154,7 @@ public class DistributedFsService {
       logger.log(Level.SEVERE, null, ex);
       return null;
     }
-    return new DistributedFileSystemOps(ugi, conf);
+    return new DistributedFileSystemOps(ugi, conf, pathCache);
   }
 
   /**
@@ -67,7 +67,7 @@ public class AdamJob extends SparkJob {
     if (!proceed) {
       return;
     }
-    jobsMonitor.addToMonitor(execution.getAppId(), execution, monitor);
+    jobsMonitor.addToMonitor(execution.getAppId(), execution);
    
   }
 
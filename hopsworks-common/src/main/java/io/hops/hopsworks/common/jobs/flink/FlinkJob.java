@@ -162,10 +162,6 @@ public class FlinkJob extends YarnJob {
   @Override
   protected void cleanup() {
     LOG.log(Level.INFO, "Job finished performing cleanup...");
-    if (monitor != null) {
-      monitor.close();
-      monitor = null;
-    }
     //Remove local files required for the job (Kafka certs etc.)
     //Search for other jobs using Kafka in the same project. If any active
     //ones are found
@@ -129,10 +129,6 @@ public class SparkJob extends YarnJob {
   @Override
   protected void cleanup() {
     LOG.log(Level.INFO, "Job finished performing cleanup...");
-    if (monitor != null) {
-      monitor.close();
-      monitor = null;
-    }
   }
 
   @Override
@@ -92,10 +92,6 @@ public class TensorFlowJob extends YarnJob {
   @Override
   protected void cleanup() {
     LOG.log(Level.INFO, "Job finished performing cleanup...");
-    if (monitor != null) {
-      monitor.close();
-      monitor = null;
-    }
   }
 
   @Override
@@ -16,16 +16,19 @@ import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.Resource;
 import javax.ejb.Asynchronous;
 import javax.ejb.DependsOn;
 import javax.ejb.EJB;
 import javax.ejb.Stateless;
+import javax.enterprise.concurrent.ManagedExecutorService;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.yarn.api.records.YarnApplicationState;
 
 @Stateless
 @DependsOn("Settings")
@@ -41,13 +44,21 @@ public class YarnExecutionFinalizer {
   private Settings settings;
   @EJB
   private DistributedFsService dfs;
+  @Resource
+  private ManagedExecutorService executorService;
 
+  /**
+   * Copy the aggregated logs of a finished execution and clean up after it.
+   * Called once the logs are aggregated, or waiting for them timed out.
+   * <p/>
+   * @param exec
+   * @param finalState
+   * @param aggregation the outcome of waiting for the logs
+   */
   @Asynchronous
-  public void copyLogsAndFinalize(Execution exec, YarnApplicationState appState) {
-    exec = updateState(JobState.AGGREGATING_LOGS, exec);
-    copyLogs(exec);
-    finalize(exec, JobState.getJobState(appState));
-
+  public void copyLogsAndFinalize(Execution exec, JobState finalState, YarnLogUtil.Result aggregation) {
+    copyLogs(exec, aggregation);
+    finalize(exec, finalState);
   }
 
   /**
@@ -59,7 +70,7 @@ public class YarnExecutionFinalizer {
     return executionFacade.updateState(execution, newState);
   }
 
-  private void copyLogs(Execution exec) {
+  private void copyLogs(Execution exec, YarnLogUtil.Result aggregation) {
     DistributedFileSystemOps udfso = dfs.getDfsOps(exec.getHdfsUser());
 
     String defaultOutputPath;
@@ -84,15 +95,20 @@ public class YarnExecutionFinalizer {
     String stdErrFinalDestination = Utils.getHdfsRootPath(exec.getJob().getProject().getName()) + defaultOutputPath;
 
     String stdOutPath = settings.getAggregatedLogPath(exec.getHdfsUser(), exec.getAppId());
+    // stdout and stderr are extracted in the same pass over the aggregated logs
+    Map<String, String[]> destinations = new LinkedHashMap<>();
     if (stdOutFinalDestination != null && !stdOutFinalDestination.isEmpty()) {
       stdOutFinalDestination = stdOutFinalDestination + exec.getAppId() + File.separator + "stdout.log";
       String[] desiredLogTypes = {"out"};
-      YarnLogUtil.copyAggregatedYarnLogs(udfso, stdOutPath, stdOutFinalDestination, desiredLogTypes);
+      destinations.put(stdOutFinalDestination, desiredLogTypes);
     }
     if (stdErrFinalDestination != null && !stdErrFinalDestination.isEmpty()) {
       stdErrFinalDestination = stdErrFinalDestination + exec.getAppId() + File.separator + "stderr.log";
       String[] desiredLogTypes = {"err", ".log"};
-      YarnLogUtil.copyAggregatedYarnLogs(udfso, stdOutPath, stdErrFinalDestination, desiredLogTypes);
+      destinations.put(stdErrFinalDestination, desiredLogTypes);
+    }
+    if (!destinations.isEmpty()) {
+      YarnLogUtil.copyAggregatedYarnLogs(udfso, stdOutPath, destinations, aggregation, executorService);
     }
     updateExecutionSTDPaths(stdOutFinalDestination, stdErrFinalDestination, exec);
   }
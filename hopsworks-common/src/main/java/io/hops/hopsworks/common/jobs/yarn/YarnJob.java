@@ -36,8 +36,6 @@ public abstract class YarnJob extends HopsJob {
   private static final Logger LOG = Logger.getLogger(YarnJob.class.getName());
 
   protected YarnRunner runner;
-
-  protected YarnMonitor monitor = null;
   private final Configuration conf = new Configuration();
 
   private String stdOutFinalDestination, stdErrFinalDestination;
@@ -105,10 +103,10 @@ public abstract class YarnJob extends HopsJob {
     }
     try {
       updateState(JobState.STARTING_APP_MASTER);
-      monitor = runner.startAppMaster(jobDescription.getProject(),
+      ApplicationId appId = runner.startAppMaster(jobDescription.getProject(),
           dfso, user.getUsername());
       execution = services.getExecutionFacade().updateFilesToRemove(execution, runner.getFilesToRemove());
-      execution = services.getExecutionFacade().updateAppId(execution, monitor.getApplicationId().toString());
+      execution = services.getExecutionFacade().updateAppId(execution, appId.toString());
       return true;
     } catch (AccessControlException ex) {
       LOG.log(Level.SEVERE, "Permission denied:- {0}", ex.getMessage());
@@ -201,7 +199,7 @@ public abstract class YarnJob extends HopsJob {
     if (!proceed) {
       return;
     }
-    jobsMonitor.addToMonitor(execution.getAppId(), execution, monitor);
+    jobsMonitor.addToMonitor(execution.getAppId(), execution);
     
   }
 
@@ -7,54 +7,74 @@ import io.hops.hopsworks.common.jobs.jobhistory.JobState;
 import io.hops.hopsworks.common.util.Settings;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.PreDestroy;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
 import javax.ejb.DependsOn;
 import javax.ejb.EJB;
 import javax.ejb.Schedule;
 import javax.ejb.Singleton;
 import javax.ejb.Timer;
 import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.ApplicationReport;
 import org.apache.hadoop.yarn.api.records.FinalApplicationStatus;
 import org.apache.hadoop.yarn.api.records.YarnApplicationState;
 import org.apache.hadoop.yarn.client.api.YarnClient;
 import org.apache.hadoop.yarn.exceptions.YarnException;
 import org.apache.hadoop.yarn.util.ConverterUtils;
 
+/**
+ * Polls the ResourceManager for the status of all running executions. A single
+ * YarnClient is shared by all monitored applications and the reports of all
+ * non-finished applications are fetched with one bulk call per tick.
+ */
 @Singleton
 @DependsOn("Settings")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
 public class YarnJobsMonitor {
 
   private static final Logger LOG = Logger.getLogger(YarnJobsMonitor.class.getName());
 
+  private static final EnumSet<YarnApplicationState> NOT_FINISHED_STATES = EnumSet.of(
+      YarnApplicationState.NEW, YarnApplicationState.NEW_SAVING, YarnApplicationState.SUBMITTED,
+      YarnApplicationState.ACCEPTED, YarnApplicationState.RUNNING);
+
   @EJB
   private Settings settings;
   @EJB
   private ExecutionFacade executionFacade;
   @EJB
   private YarnExecutionFinalizer execFinalizer;
+  @EJB
+  private YarnLogAggregationMonitor logAggregationMonitor;
 
   private int maxStatusPollRetry;
+  private YarnClient yarnClient;
+
+  private final Map<String, Execution> executions = new ConcurrentHashMap<>();
+  //Only accessed from within the timer
+  private final Map<String, Integer> failures = new HashMap<>();
+  private boolean init = true;
 
-  Map<String, Execution> executions = new HashMap<>();
-  Map<String, YarnMonitor> monitors = new HashMap<>();
-  Map<String, Integer> failures = new HashMap<>();
-  boolean init = true;
+  private volatile long lastTickMillis = 0;
+  private volatile long maxTickMillis = 0;
+  private volatile long tickCount = 0;
 
   /**
-   * Add an execution and its monitor to the applications that need to be monitored.
+   * Add an execution to the applications that need to be monitored.
    * <p/>
    * @param appId the id of the application to monitor
    * @param exec the execution corresponding to the monitored application
-   * @param monitor the monitor for this application
    */
-  public void addToMonitor(String appId, Execution exec, YarnMonitor monitor) {
-    monitor = monitor.start();
+  public void addToMonitor(String appId, Execution exec) {
     executions.put(appId, exec);
-    monitors.put(appId, monitor);
   }
 
   @Schedule(persistent = false,
@@ -62,56 +82,84 @@ public class YarnJobsMonitor {
       minute = "*",
       hour = "*")
   synchronized public void monitor(Timer timer) {
+    long start = System.currentTimeMillis();
     if (init) {
       List<Execution> execs = executionFacade.findAllNotFinished();
-      for (Execution exec : execs) {
-        executions.put(exec.getAppId(), exec);
+      if (execs != null) {
+        for (Execution exec : execs) {
+          // executions waiting for their logs are resumed by the log aggregation monitor
+          if (exec.getState() != JobState.AGGREGATING_LOGS) {
+            executions.put(exec.getAppId(), exec);
+          }
+        }
       }
       maxStatusPollRetry = settings.getMaxStatusPollRetry();
+      yarnClient = YarnClient.createYarnClient();
+      yarnClient.init(settings.getConfiguration());
+      yarnClient.start();
       init = false;
     }
-    List<String> toRemove = new ArrayList<>();
-    List<Execution> toUpdate = new ArrayList<>();
-    for (String appID : executions.keySet()) {
-      YarnMonitor monitor = monitors.get(appID);
-      if (monitor == null) {
-        YarnClient newClient = YarnClient.createYarnClient();
-        newClient.init(settings.getConfiguration());
-        ApplicationId appId = ConverterUtils.toApplicationId(appID);
-        monitor = new YarnMonitor(appId, newClient);
-        monitor = monitor.start();
-        monitors.put(appID, monitor);
+    if (!executions.isEmpty()) {
+      Map<String, ApplicationReport> reports = getRunningApplicationReports();
+      List<String> toRemove = new ArrayList<>();
+      for (Map.Entry<String, Execution> entry : executions.entrySet()) {
+        Execution exec = internalMonitor(entry.getValue(), reports.get(entry.getKey()));
+        if (exec != null) {
+          entry.setValue(exec);
+        } else {
+          toRemove.add(entry.getKey());
+        }
       }
-      Execution exec = internalMonitor(executions.get(appID), monitor);
-      if (exec != null) {
-        toUpdate.add(exec);
-      } else {
-        toRemove.add(appID);
-        monitor.close();
+      for (String appID : toRemove) {
+        executions.remove(appID);
+        failures.remove(appID);
       }
     }
-    for (Execution exec : toUpdate) {
-      executions.put(exec.getAppId(), exec);
+    recordTick(System.currentTimeMillis() - start);
+  }
+
+  @PreDestroy
+  public void preDestroy() {
+    if (yarnClient != null) {
+      yarnClient.stop();
+      yarnClient = null;
     }
-    for (String appID : toRemove) {
-      executions.remove(appID);
-      failures.remove(appID);
-      monitors.remove(appID);
+  }
+
+  /**
+   * Fetch the reports of all the non-finished applications known to the ResourceManager in one call. Applications
+   * missing from the result have either finished or could not be listed and are queried individually.
+   * <p/>
+   * @return the reports keyed by application id
+   */
+  private Map<String, ApplicationReport> getRunningApplicationReports() {
+    Map<String, ApplicationReport> reports = new HashMap<>();
+    try {
+      for (ApplicationReport report : yarnClient.getApplications(NOT_FINISHED_STATES)) {
+        reports.put(report.getApplicationId().toString(), report);
+      }
+    } catch (IOException | YarnException ex) {
+      LOG.log(Level.WARNING, "Failed to list the running applications, falling back to per application reports.",
+          ex);
     }
+    return reports;
   }
 
-  private Execution internalMonitor(Execution exec, YarnMonitor monitor) {
+  private Execution internalMonitor(Execution exec, ApplicationReport report) {
     try {
-      YarnApplicationState appState = monitor.getApplicationState();
-      FinalApplicationStatus finalAppStatus = monitor.getFinalApplicationStatus();
-      float progress = monitor.getProgress();
+      if (report == null) {
+        report = yarnClient.getApplicationReport(ConverterUtils.toApplicationId(exec.getAppId()));
+      }
+      YarnApplicationState appState = report.getYarnApplicationState();
+      FinalApplicationStatus finalAppStatus = report.getFinalApplicationStatus();
+      float progress = report.getProgress();
       exec = updateProgress(progress, exec);
       exec = updateState(JobState.getJobState(appState), exec);
       exec = updateFinalStatus(JobFinalStatus.getJobFinalStatus(finalAppStatus), exec);
 
       if (appState == YarnApplicationState.FAILED || appState == YarnApplicationState.FINISHED || appState
           == YarnApplicationState.KILLED) {
-        execFinalizer.copyLogsAndFinalize(exec, appState);
+        logAggregationMonitor.add(exec, JobState.getJobState(appState));
         return null;
       }
     } catch (IOException | YarnException ex) {
@@ -122,13 +170,14 @@ public class YarnJobsMonitor {
         failure++;
       }
       failures.put(exec.getAppId(), failure);
-      LOG.log(Level.WARNING, "Failed to get application state for execution " + exec + ". Tried " + failures
+      LOG.log(Level.WARNING, "Failed to get application state for execution " + exec + ". Tried " + failure
           + " time(s).", ex);
     }
     if (failures.get(exec.getAppId()) != null && failures.get(exec.getAppId()) > maxStatusPollRetry) {
       try {
         LOG.log(Level.SEVERE, "Killing application, {0}, because unable to poll for status.", exec);
-        monitor.cancelJob(monitor.getApplicationId().toString());
+        ApplicationId applicationId = ConverterUtils.toApplicationId(exec.getAppId());
+        yarnClient.killApplication(applicationId);
         exec = updateState(JobState.KILLED, exec);
         exec = updateFinalStatus(JobFinalStatus.KILLED, exec);
         exec = updateProgress(0, exec);
@@ -145,15 +194,64 @@ public class YarnJobsMonitor {
   }
 
   private Execution updateProgress(float progress, Execution execution) {
+    if (Float.compare(execution.getProgress(), progress) == 0) {
+      return execution;
+    }
     return executionFacade.updateProgress(execution, progress);
   }
 
   private Execution updateState(JobState newState, Execution execution) {
+    if (execution.getState() == newState) {
+      return execution;
+    }
     return executionFacade.updateState(execution, newState);
   }
 
   private Execution updateFinalStatus(JobFinalStatus finalStatus, Execution execution) {
+    if (execution.getFinalStatus() == finalStatus) {
+      return execution;
+    }
     return executionFacade.updateFinalStatus(execution, finalStatus);
   }
 
+  private void recordTick(long duration) {
+    lastTickMillis = duration;
+    if (duration > maxTickMillis) {
+      maxTickMillis = duration;
+    }
+    tickCount++;
+    if (duration > 1000) {
+      LOG.log(Level.WARNING, "Polling the status of {0} applications took {1} ms.", new Object[]{executions.size(),
+        duration});
+    }
+  }
+
+  /**
+   * @return the duration in milliseconds of the last monitor tick
+   */
+  public long getLastTickMillis() {
+    return lastTickMillis;
+  }
+
+  /**
+   * @return the duration in milliseconds of the slowest monitor tick since startup
+   */
+  public long getMaxTickMillis() {
+    return maxTickMillis;
+  }
+
+  /**
+   * @return the number of monitor ticks since startup
+   */
+  public long getTickCount() {
+    return tickCount;
+  }
+
+  /**
+   * @return the number of applications currently being monitored
+   */
+  public int getMonitoredApplications() {
+    return executions.size();
+  }
+
 }
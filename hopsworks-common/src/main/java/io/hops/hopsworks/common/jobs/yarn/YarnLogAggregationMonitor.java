@@ -0,0 +1,225 @@
+package io.hops.hopsworks.common.jobs.yarn;
+
+import io.hops.hopsworks.common.dao.jobhistory.Execution;
+import io.hops.hopsworks.common.dao.jobhistory.ExecutionFacade;
+import io.hops.hopsworks.common.hdfs.DistributedFileSystemOps;
+import io.hops.hopsworks.common.hdfs.DistributedFsService;
+import io.hops.hopsworks.common.jobs.jobhistory.JobFinalStatus;
+import io.hops.hopsworks.common.jobs.jobhistory.JobState;
+import io.hops.hopsworks.common.util.Settings;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.DependsOn;
+import javax.ejb.EJB;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.Timer;
+import org.apache.hadoop.yarn.api.records.ApplicationReport;
+import org.apache.hadoop.yarn.client.api.YarnClient;
+import org.apache.hadoop.yarn.exceptions.YarnException;
+import org.apache.hadoop.yarn.util.ConverterUtils;
+
+/**
+ * Waits for YARN to aggregate the logs of finished executions, then hands
+ * them to the finalizer to copy the logs and clean up. Instead of one thread
+ * sleeping per execution, all the pending executions are checked from a
+ * single timer, each with its own exponential backoff.
+ * <p/>
+ * Pending executions are the ones in the AGGREGATING_LOGS state, so they are
+ * picked up again after a restart. Their final state is then derived from
+ * the state of the application in YARN, as when the application finished.
+ */
+@Singleton
+@DependsOn("Settings")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class YarnLogAggregationMonitor {
+
+  private static final Logger LOG = Logger.getLogger(YarnLogAggregationMonitor.class.getName());
+
+  private static final long MIN_CHECK_INTERVAL_MS = 2 * 1000;
+  private static final long MAX_CHECK_INTERVAL_MS = 5 * 60 * 1000;
+
+  @EJB
+  private Settings settings;
+  @EJB
+  private ExecutionFacade executionFacade;
+  @EJB
+  private YarnExecutionFinalizer execFinalizer;
+  @EJB
+  private DistributedFsService dfs;
+
+  private final Map<Integer, PendingExecution> pending = new ConcurrentHashMap<>();
+  //Only accessed from within the timer
+  private boolean init = true;
+
+  /**
+   * Start waiting for the logs of a finished execution to be aggregated.
+   * <p/>
+   * @param exec
+   * @param finalState the state the execution is left in once its logs are
+   * copied
+   */
+  public void add(Execution exec, JobState finalState) {
+    exec = executionFacade.updateState(exec, JobState.AGGREGATING_LOGS);
+    pending.put(exec.getId(), new PendingExecution(exec, finalState));
+  }
+
+  @Schedule(persistent = false,
+      second = "*/2",
+      minute = "*",
+      hour = "*")
+  synchronized public void check(Timer timer) {
+    if (init) {
+      recoverPending();
+      init = false;
+    }
+    if (pending.isEmpty()) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    Map<String, List<PendingExecution>> dueByUser = new HashMap<>();
+    for (PendingExecution p : pending.values()) {
+      if (p.nextCheck <= now) {
+        List<PendingExecution> due = dueByUser.get(p.exec.getHdfsUser());
+        if (due == null) {
+          due = new ArrayList<>();
+          dueByUser.put(p.exec.getHdfsUser(), due);
+        }
+        due.add(p);
+      }
+    }
+    for (Map.Entry<String, List<PendingExecution>> entry : dueByUser.entrySet()) {
+      DistributedFileSystemOps udfso = null;
+      try {
+        udfso = dfs.getDfsOps(entry.getKey());
+        if (udfso == null) {
+          continue;
+        }
+        for (PendingExecution p : entry.getValue()) {
+          checkExecution(p, udfso, now);
+        }
+      } catch (RuntimeException ex) {
+        LOG.log(Level.WARNING, "Could not check the aggregated logs of user " + entry.getKey(), ex);
+      } finally {
+        if (udfso != null) {
+          udfso.close();
+        }
+      }
+    }
+  }
+
+  /**
+   * Logs are complete once all the aggregated files are readable and their
+   * size did not change since the previous check.
+   */
+  private void checkExecution(PendingExecution p, DistributedFileSystemOps udfso, long now) {
+    String logPath = settings.getAggregatedLogPath(p.exec.getHdfsUser(), p.exec.getAppId());
+    if (p.maxWaitMs < 0) {
+      p.maxWaitMs = YarnLogUtil.getMaxWaitSeconds(udfso) * 1000;
+    }
+    if (now - p.added >= p.maxWaitMs) {
+      startFinalization(p, YarnLogUtil.Result.TIMEOUT);
+      return;
+    }
+    try {
+      long size = YarnLogUtil.getAggregatedLogSize(logPath, udfso);
+      if (size > 0 && size == p.lastSize && YarnLogUtil.isAggregationComplete(logPath, udfso)) {
+        startFinalization(p, YarnLogUtil.Result.SUCCESS);
+        return;
+      }
+      p.lastSize = size;
+    } catch (IOException ex) {
+      LOG.log(Level.FINE, "Could not check the aggregated logs of " + p.exec.getAppId(), ex);
+    }
+    p.interval = Math.min(p.interval * 2, MAX_CHECK_INTERVAL_MS);
+    p.nextCheck = now + p.interval;
+  }
+
+  private void startFinalization(PendingExecution p, YarnLogUtil.Result result) {
+    pending.remove(p.exec.getId());
+    execFinalizer.copyLogsAndFinalize(p.exec, p.finalState, result);
+  }
+
+  private void recoverPending() {
+    List<Execution> execs = executionFacade.findAllNotFinished();
+    if (execs == null) {
+      return;
+    }
+    YarnClient yarnClient = null;
+    try {
+      for (Execution exec : execs) {
+        if (exec.getState() == JobState.AGGREGATING_LOGS && !pending.containsKey(exec.getId())) {
+          LOG.log(Level.INFO, "Resuming the wait for the aggregated logs of {0}", exec.getAppId());
+          if (yarnClient == null) {
+            yarnClient = YarnClient.createYarnClient();
+            yarnClient.init(settings.getConfiguration());
+            yarnClient.start();
+          }
+          pending.put(exec.getId(), new PendingExecution(exec, getFinalState(yarnClient, exec)));
+        }
+      }
+    } finally {
+      if (yarnClient != null) {
+        yarnClient.stop();
+      }
+    }
+  }
+
+  /**
+   * Derive the final state of a recovered execution from the state of its
+   * application, as YarnJobsMonitor does when the application finishes. Falls
+   * back to the stored final status if the ResourceManager no longer knows the
+   * application.
+   */
+  private JobState getFinalState(YarnClient yarnClient, Execution exec) {
+    try {
+      ApplicationReport report = yarnClient.getApplicationReport(ConverterUtils.toApplicationId(exec.getAppId()));
+      JobState state = JobState.getJobState(report.getYarnApplicationState());
+      if (state.isFinalState()) {
+        return state;
+      }
+    } catch (IOException | YarnException | IllegalArgumentException ex) {
+      LOG.log(Level.WARNING, "Could not get the state of application " + exec.getAppId()
+          + ", using its final status", ex);
+    }
+    return getFinalState(exec.getFinalStatus());
+  }
+
+  private JobState getFinalState(JobFinalStatus finalStatus) {
+    if (finalStatus == null) {
+      return JobState.FINISHED;
+    }
+    switch (finalStatus) {
+      case FAILED:
+        return JobState.FAILED;
+      case KILLED:
+        return JobState.KILLED;
+      default:
+        return JobState.FINISHED;
+    }
+  }
+
+  private static class PendingExecution {
+
+    private final Execution exec;
+    private final JobState finalState;
+    private final long added = System.currentTimeMillis();
+    private long maxWaitMs = -1;
+    private long lastSize = -1;
+    private long interval = MIN_CHECK_INTERVAL_MS;
+    private long nextCheck = System.currentTimeMillis() + MIN_CHECK_INTERVAL_MS;
+
+    PendingExecution(Execution exec, JobState finalState) {
+      this.exec = exec;
+      this.finalState = finalState;
+    }
+  }
+}
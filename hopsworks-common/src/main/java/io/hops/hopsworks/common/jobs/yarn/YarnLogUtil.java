@@ -1,12 +1,25 @@
 package io.hops.hopsworks.common.jobs.yarn;
 
 import io.hops.hopsworks.common.hdfs.DistributedFileSystemOps;
+import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.apache.hadoop.fs.FileStatus;
@@ -20,7 +33,17 @@ public class YarnLogUtil {
   private static final Logger LOGGER = Logger.getLogger(YarnLogUtil.class.
           getName());
 
-  private enum Result {
+  /**
+   * Number of aggregated log files, one per NodeManager, extracted at the
+   * same time.
+   */
+  private static final int MAX_PARALLEL_LOG_FILES = 4;
+  private static final long EXTRACT_TIMEOUT_MINUTES = 10;
+
+  /**
+   * Outcome of waiting for the aggregation of the logs of an application.
+   */
+  public enum Result {
     FAILED,
     SUCCESS,
     TIMEOUT
@@ -58,157 +81,311 @@ public class YarnLogUtil {
    * @param src aggregated yarn log path
    * @param dst destination path to copy to
    * @param desiredLogTypes stderr or stdout or stdlog
+   * @param executor managed executor to read several aggregated log files in
+   * parallel with, or null to read them one by one
    */
   public static void copyAggregatedYarnLogs(DistributedFileSystemOps dfs,
           String src, String dst,
-          String[] desiredLogTypes) {
-    long wait = dfs.getConf().getLong(
-            YarnConfiguration.LOG_AGGREGATION_RETAIN_SECONDS, 86400);
-    wait = (wait > 0 ? wait : 86400);
-    PrintStream writer = null;
+          String[] desiredLogTypes, ExecutorService executor) {
+    Map<String, String[]> destinations = new LinkedHashMap<>();
+    destinations.put(dst, desiredLogTypes);
+    copyAggregatedYarnLogs(dfs, src, destinations, executor);
+  }
+
+  /**
+   * Given aggregated yarn log path copies the desired log types to several
+   * destinations. Every aggregated log file is read once, whatever the number
+   * of destinations, and the files of different NodeManagers are read in
+   * parallel. In a destination the logs are grouped by container, in the
+   * order of the aggregated log files.
+   *
+   * @param dfs
+   * @param src aggregated yarn log path
+   * @param destinations destination path to the log types copied to it
+   * @param executor managed executor to read several aggregated log files in
+   * parallel with, or null to read them one by one
+   */
+  public static void copyAggregatedYarnLogs(DistributedFileSystemOps dfs,
+          String src, Map<String, String[]> destinations, ExecutorService executor) {
+    Result result;
+    try {
+      result = waitForAggregatedLogFileCreation(src, dfs);
+    } catch (IOException ex) {
+      LOGGER.log(Level.SEVERE, null, ex);
+      result = Result.FAILED;
+    }
+    copyAggregatedYarnLogs(dfs, src, destinations, result, executor);
+  }
+
+  /**
+   * Copies the desired log types of an aggregated yarn log to several
+   * destinations without waiting for the aggregation. If the aggregation did
+   * not succeed the destinations only get a message saying why.
+   *
+   * @param dfs
+   * @param src aggregated yarn log path
+   * @param destinations destination path to the log types copied to it
+   * @param result the outcome of the log aggregation
+   * @param executor managed executor to read several aggregated log files in
+   * parallel with, or null to read them one by one
+   */
+  public static void copyAggregatedYarnLogs(DistributedFileSystemOps dfs,
+          String src, Map<String, String[]> destinations, Result result, ExecutorService executor) {
+    long wait = getMaxWaitSeconds(dfs);
+    List<PrintStream> writers = new ArrayList<>();
+    String[][] desiredLogTypes = destinations.values().toArray(new String[destinations.size()][]);
     String[] srcs;
     try {
-      Result result = waitForAggregatedLogFileCreation(src, dfs);
       srcs = getAggregatedLogFilePaths(src, dfs);
-      if (!logFilesReady(srcs, dfs)) {
-        LOGGER.log(Level.SEVERE, "Error getting logs");
+      for (String dst : destinations.keySet()) {
+        writers.add(new PrintStream(dfs.create(dst)));
       }
-      writer = new PrintStream(dfs.create(dst));
       switch (result) {
         case FAILED:
-          writer.print("Failed to get the aggregated logs.");
+          for (PrintStream writer : writers) {
+            writer.print("Failed to get the aggregated logs.");
+          }
           break;
         case TIMEOUT:
-          writer.print("Failed to get the aggregated logs after waitting for "
-                  + wait + " seconds.");
+          for (PrintStream writer : writers) {
+            writer.print("Failed to get the aggregated logs after waitting for "
+                    + wait + " seconds.");
+          }
           break;
         case SUCCESS:
-          for (String desiredLogType : desiredLogTypes) {
-            writeLogs(dfs, srcs, writer, desiredLogType);
-          }
+          writeLogs(dfs, srcs, writers.toArray(new PrintStream[writers.size()]), desiredLogTypes, executor);
           break;
       }
     } catch (Exception ex) {
-      if (writer != null) {
+      for (PrintStream writer : writers) {
         writer.print(YarnLogUtil.class.getName()
                 + ": Failed to get aggregated logs.\n" + ex.getMessage());
       }
       LOGGER.log(Level.SEVERE, null, ex);
     } finally {
-      if (writer != null) {
+      for (PrintStream writer : writers) {
         writer.flush();
         writer.close();
       }
     }
   }
 
-  private static void writeLogs(DistributedFileSystemOps dfs, String[] srcs,
-          PrintStream writer, String desiredLogType) {
-    ArrayList<AggregatedLogFormat.LogKey> containerNames = new ArrayList<>();
-    LogReader reader = null;
-    DataInputStream valueStream;
-    AggregatedLogFormat.LogKey key = new AggregatedLogFormat.LogKey();
-    AggregatedLogFormat.ContainerLogsReader logReader = null;
-    Path location;
-    try {
+  /**
+   * @param dfs
+   * @return how long to wait for the aggregation of the logs of an
+   * application, in seconds
+   */
+  public static long getMaxWaitSeconds(DistributedFileSystemOps dfs) {
+    //If retain seconds not set deffault to 24hours.
+    long wait = dfs.getConf().getLong(
+            YarnConfiguration.LOG_AGGREGATION_RETAIN_SECONDS, 86400);
+    return wait > 0 ? wait : 86400;
+  }
+
+  /**
+   * Total length of the aggregated log files of an application, read with a
+   * single listing.
+   *
+   * @param path aggregated yarn log path
+   * @param dfs
+   * @return 0 if there are no aggregated logs yet
+   * @throws IOException
+   */
+  public static long getAggregatedLogSize(String path, DistributedFileSystemOps dfs) throws IOException {
+    Path location = new Path(path);
+    if (!dfs.exists(path)) {
+      return 0l;
+    }
+    long size = 0l;
+    FileStatus[] fileStatus = dfs.listStatus(location);
+    if (fileStatus != null) {
+      for (FileStatus status : fileStatus) {
+        if (!status.isDirectory()) {
+          size += status.getLen();
+        }
+      }
+    }
+    return size;
+  }
+
+  /**
+   * @param path aggregated yarn log path
+   * @param dfs
+   * @return true if all the aggregated log files of an application are
+   * complete
+   * @throws IOException
+   */
+  public static boolean isAggregationComplete(String path, DistributedFileSystemOps dfs) throws IOException {
+    return logFilesReady(getAggregatedLogFilePaths(path, dfs), dfs);
+  }
+
+  /**
+   * Extract the logs of all the aggregated log files. Without an executor, or
+   * with a single file, the files are written straight to the destinations.
+   * Otherwise up to MAX_PARALLEL_LOG_FILES tasks of the executor extract them
+   * to local temporary files, which are then appended to the destinations in
+   * the order of the aggregated log files.
+   */
+  private static void writeLogs(final DistributedFileSystemOps dfs, final String[] srcs,
+          PrintStream[] writers, final String[][] desiredLogTypes, ExecutorService executor)
+          throws IOException, InterruptedException {
+    if (srcs.length == 1 || executor == null) {
       for (String src : srcs) {
-        location = new Path(src);
-        LOGGER.log(Level.INFO, "Copying log from {0}", src);
+        extractLogs(dfs, src, writers, desiredLogTypes);
+      }
+      return;
+    }
+    //Guarded by extracted, once closed the tasks still extracting delete their
+    //own files
+    final File[][] extracted = new File[srcs.length][];
+    final boolean[] closed = new boolean[1];
+    final AtomicInteger nextSrc = new AtomicInteger();
+    Callable<Void> extractor = () -> {
+      int i;
+      while ((i = nextSrc.getAndIncrement()) < srcs.length) {
         try {
-          reader = new LogReader(dfs.getConf(), dfs,
-                  new Path(src));
-          valueStream = reader.next(key);
-          while (valueStream != null) {
-            containerNames.add(key);
-            valueStream = reader.next(key);
+          File[] files = extractLogsToTempFiles(dfs, srcs[i], desiredLogTypes);
+          synchronized (extracted) {
+            if (closed[0]) {
+              deleteTempFiles(files);
+              return null;
+            }
+            extracted[i] = files;
           }
-          reader.close();
-          reader = new LogReader(dfs.getConf(), dfs,
-                  new Path(src));
-        } catch (FileNotFoundException e) {
-          LOGGER.log(Level.SEVERE,
-                  "Logs not available. Aggregation may have failed.");
-          return;
-        } catch (IOException e) {
-          LOGGER.log(Level.SEVERE, "Error getting logs");
-          return;
+        } catch (IOException | RuntimeException e) {
+          // the other tasks stop after their current file
+          nextSrc.set(srcs.length);
+          throw e;
         }
-
+      }
+      return null;
+    };
+    List<Future<Void>> workers = new ArrayList<>();
+    try {
+      for (int i = 0; i < Math.min(MAX_PARALLEL_LOG_FILES, srcs.length); i++) {
+        workers.add(executor.submit(extractor));
+      }
+      for (Future<Void> worker : workers) {
         try {
-          for (AggregatedLogFormat.LogKey containerKey : containerNames) {
-            valueStream = reader.next(key);
-            while (valueStream != null && !key.equals(containerKey)) {
-              valueStream = reader.next(key);
-            }
-            if (valueStream != null) {
-              logReader = new ContainerLogsReader(valueStream);
-            }
-            if (logReader != null) {
-              readContainerLogs(logReader, writer, desiredLogType, containerKey,
-                      location.getName());
-            }
+          worker.get(EXTRACT_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+        } catch (ExecutionException e) {
+          throw new IOException("Could not extract the aggregated logs", e.getCause());
+        } catch (TimeoutException e) {
+          throw new IOException("Extracting aggregated logs did not finish in " + EXTRACT_TIMEOUT_MINUTES
+                  + " minutes", e);
+        }
+      }
+      for (File[] files : extracted) {
+        for (int i = 0; i < writers.length; i++) {
+          Files.copy(files[i].toPath(), writers[i]);
+        }
+      }
+    } finally {
+      nextSrc.set(srcs.length);
+      for (Future<Void> worker : workers) {
+        worker.cancel(true);
+      }
+      synchronized (extracted) {
+        closed[0] = true;
+        for (File[] files : extracted) {
+          if (files != null) {
+            deleteTempFiles(files);
           }
-
-        } catch (IOException e) {
-          LOGGER.log(Level.SEVERE, "Error getting logs");
         }
-        containerNames.clear();
-        key = new AggregatedLogFormat.LogKey();
-        logReader = null;
       }
+    }
+  }
+
+  private static File[] extractLogsToTempFiles(DistributedFileSystemOps dfs, String src,
+          String[][] desiredLogTypes) throws IOException {
+    File[] files = new File[desiredLogTypes.length];
+    PrintStream[] writers = new PrintStream[desiredLogTypes.length];
+    boolean done = false;
+    try {
+      for (int i = 0; i < files.length; i++) {
+        files[i] = File.createTempFile("yarnlog", ".log");
+        writers[i] = new PrintStream(new BufferedOutputStream(new FileOutputStream(files[i])));
+      }
+      extractLogs(dfs, src, writers, desiredLogTypes);
+      done = true;
     } finally {
-      if (reader != null) {
-        reader.close();
+      for (PrintStream writer : writers) {
+        if (writer != null) {
+          writer.close();
+        }
+      }
+      if (!done) {
+        deleteTempFiles(files);
       }
     }
+    return files;
   }
 
-  private static boolean logsReady(DistributedFileSystemOps dfs, String src) {
-    ArrayList<AggregatedLogFormat.LogKey> containerNames = new ArrayList<>();
-    LogReader reader = null;
-    DataInputStream valueStream;
-    AggregatedLogFormat.LogKey key = new AggregatedLogFormat.LogKey();
-    AggregatedLogFormat.ContainerLogsReader logReader = null;
+  private static void deleteTempFiles(File[] files) {
+    for (File file : files) {
+      if (file != null && file.exists() && !file.delete()) {
+        LOGGER.log(Level.WARNING, "Could not delete temporary log file {0}", file);
+      }
+    }
+  }
+
+  /**
+   * Read an aggregated log file once and write each container log to the
+   * destinations that want its type.
+   */
+  private static void extractLogs(DistributedFileSystemOps dfs, String src,
+          PrintStream[] writers, String[][] desiredLogTypes) {
+    Path location = new Path(src);
+    LOGGER.log(Level.INFO, "Copying log from {0}", src);
+    LogReader reader;
     try {
-      try {
-        reader = new LogReader(dfs.getConf(), dfs,
-                new Path(src));
+      reader = new LogReader(dfs.getConf(), dfs, location);
+    } catch (FileNotFoundException e) {
+      LOGGER.log(Level.SEVERE,
+              "Logs not available. Aggregation may have failed.");
+      return;
+    } catch (IOException e) {
+      LOGGER.log(Level.SEVERE, "Error getting logs");
+      return;
+    }
+    try {
+      AggregatedLogFormat.LogKey key = new AggregatedLogFormat.LogKey();
+      DataInputStream valueStream = reader.next(key);
+      while (valueStream != null) {
+        readContainerLogs(new ContainerLogsReader(valueStream), writers,
+                desiredLogTypes, key, location.getName());
         valueStream = reader.next(key);
-        while (valueStream != null) {
-          containerNames.add(key);
-          valueStream = reader.next(key);
-        }
-        reader.close();
-        reader = new LogReader(dfs.getConf(), dfs,
-                new Path(src));
-      } catch (FileNotFoundException e) {
-        return false;
-      } catch (IOException e) {
-        return false;
       }
+    } catch (IOException e) {
+      LOGGER.log(Level.SEVERE, "Error getting logs");
+    } finally {
+      reader.close();
+    }
+  }
 
-      try {
-        for (AggregatedLogFormat.LogKey containerKey : containerNames) {
-          valueStream = reader.next(key);
-          while (valueStream != null && !key.equals(containerKey)) {
-            valueStream = reader.next(key);
-          }
-          if (valueStream != null) {
-            logReader = new ContainerLogsReader(valueStream);
-          }
-          if (logReader != null) {
-            if (!testLogs(logReader, "out")) {
-              return false;
-            }
-          }
+  private static boolean logsReady(DistributedFileSystemOps dfs, String src) {
+    LogReader reader;
+    try {
+      reader = new LogReader(dfs.getConf(), dfs,
+              new Path(src));
+    } catch (FileNotFoundException e) {
+      return false;
+    } catch (IOException e) {
+      return false;
+    }
+    try {
+      AggregatedLogFormat.LogKey key = new AggregatedLogFormat.LogKey();
+      DataInputStream valueStream = reader.next(key);
+      while (valueStream != null) {
+        if (!testLogs(new ContainerLogsReader(valueStream), "out")) {
+          return false;
         }
-      } catch (IOException e) {
-        LOGGER.log(Level.SEVERE, "Error testing logs");
+        valueStream = reader.next(key);
       }
+    } catch (IOException e) {
+      LOGGER.log(Level.SEVERE, "Error testing logs");
     } finally {
-      if (reader != null) {
-        reader.close();
-      }
+      reader.close();
     }
     return true;
   }
@@ -229,49 +406,74 @@ public class YarnLogUtil {
   }
 
   //Mostly taken from org.apache.hadoop.yarn.webapp.log.AggregatedLogsBlock
-  private static boolean readContainerLogs(
-          AggregatedLogFormat.ContainerLogsReader logReader, PrintStream writer,
-          String desiredLogType, AggregatedLogFormat.LogKey containerKey,
+  private static void readContainerLogs(
+          AggregatedLogFormat.ContainerLogsReader logReader, PrintStream[] writers,
+          String[][] desiredLogTypes, AggregatedLogFormat.LogKey containerKey,
           String nodename) throws
           IOException {
     int bufferSize = 65536;
     char[] cbuf = new char[bufferSize];
-    boolean foundLog = false;
+    boolean[] foundLog = new boolean[writers.length];
+    List<PrintStream> targets = new ArrayList<>(writers.length);
     String logType = logReader.nextLog();
     while (logType != null) {
-      if (desiredLogType == null || desiredLogType.isEmpty()
-              || logType.contains(desiredLogType)) {
-        long logLength = logReader.getCurrentLogLength();
-        if (!foundLog) {
-          writer.append("Container: " + containerKey.toString() + " on "
-                  + nodename + "\n"
-                  + "==============================================="
-                  + "=============================================== \n");
-        }
-        if (logLength == 0) {
-          writer.append("Log Type: " + logType + "\n");
-          writer.append("Log Length: " + 0 + "\n");
-          logType = logReader.nextLog();
-          continue;
+      targets.clear();
+      for (int i = 0; i < writers.length; i++) {
+        if (isDesiredLogType(logType, desiredLogTypes[i])) {
+          targets.add(writers[i]);
+          if (!foundLog[i]) {
+            writers[i].append("Container: " + containerKey.toString() + " on "
+                    + nodename + "\n"
+                    + "==============================================="
+                    + "=============================================== \n");
+            foundLog[i] = true;
+          }
         }
+      }
+      if (targets.isEmpty()) {
+        logType = logReader.nextLog();
+        continue;
+      }
+      long logLength = logReader.getCurrentLogLength();
+      for (PrintStream writer : targets) {
         writer.append("Log Type: " + logType + "\n");
         writer.append("Log Length: " + Long.toString(logLength) + "\n");
-        writer.append("Log Contents: \n");
+        if (logLength != 0) {
+          writer.append("Log Contents: \n");
+        }
+      }
+      if (logLength != 0) {
         int len = 0;
         int currentToRead = logLength > bufferSize ? bufferSize
                 : (int) logLength;
         while (logLength > 0 && (len = logReader.read(cbuf, 0, currentToRead))
                 > 0) {
-          writer.append(new String(cbuf, 0, len));
+          String chunk = new String(cbuf, 0, len);
+          for (PrintStream writer : targets) {
+            writer.append(chunk);
+          }
           logLength = logLength - len;
           currentToRead = logLength > bufferSize ? bufferSize : (int) logLength;
         }
-        writer.append("\n");
-        foundLog = true;
+        for (PrintStream writer : targets) {
+          writer.append("\n");
+        }
       }
       logType = logReader.nextLog();
     }
-    return foundLog;
+  }
+
+  private static boolean isDesiredLogType(String logType, String[] desiredLogTypes) {
+    if (desiredLogTypes == null || desiredLogTypes.length == 0) {
+      return true;
+    }
+    for (String desiredLogType : desiredLogTypes) {
+      if (desiredLogType == null || desiredLogType.isEmpty()
+              || logType.contains(desiredLogType)) {
+        return true;
+      }
+    }
+    return false;
   }
 
   private static Result waitForAggregatedLogFileCreation(String path,
@@ -279,10 +481,7 @@ public class YarnLogUtil {
           IOException {
 
     boolean created = false;
-    //If retain seconds not set deffault to 24hours.
-    long maxWait = dfs.getConf().getLong(
-            YarnConfiguration.LOG_AGGREGATION_RETAIN_SECONDS, 86400);
-    maxWait = (maxWait > 0 ? maxWait : 86400);
+    long maxWait = getMaxWaitSeconds(dfs);
     long startTime = System.currentTimeMillis();
     long endTime = System.currentTimeMillis();
     long retries = 0l;
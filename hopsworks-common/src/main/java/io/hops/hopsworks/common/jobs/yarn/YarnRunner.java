@@ -179,15 +179,14 @@ public class YarnRunner {
    * files.
    * @throws java.net.URISyntaxException
    */
-  public YarnMonitor startAppMaster(
+  public ApplicationId startAppMaster(
       Project project, DistributedFileSystemOps dfso,
       String username)
       throws
       YarnException, IOException,
       URISyntaxException {
     logger.info("Starting application master.");
-    YarnClient newClient = YarnClient.createYarnClient();
-    YarnMonitor monitor = null;
+    ApplicationId submittedId = null;
     if (jobType == JobType.SPARK || jobType == JobType.PYSPARK || jobType == JobType.ADAM || 
         jobType == JobType.TFSPARK) {
       //Get application id
@@ -245,9 +244,7 @@ public class YarnRunner {
       logger.log(Level.INFO,
           "Submitting application {0} to applications manager.", appId);
       yarnClient.submitApplication(appContext);
-      // Create a new client for monitoring
-      newClient.init(conf);
-      monitor = new YarnMonitor(appId, newClient);
+      submittedId = appId;
 
     } else if (jobType == JobType.FLINK) {
       // Objects needed for materializing user certificates
@@ -257,8 +254,7 @@ public class YarnRunner {
       appId = client.getApplicationId();
 
       fillInAppid(appId.toString());
-      newClient.init(conf);
-      monitor = new YarnMonitor(appId, newClient);
+      submittedId = appId;
       String[] args = {};
       if (amArgs != null) {
         if (!javaOptions.isEmpty()) {
@@ -331,8 +327,7 @@ public class YarnRunner {
 //        logstashInfo = logstashInfo.replaceAll(APPID_REGEX, appId.toString());
 //        tfClient.addEnvironmentVariable(Settings.LOGSTASH_JOB_INFO, logstashInfo);
         fillInAppid(appId.toString());
-        newClient.init(conf);
-        monitor = new YarnMonitor(appId, newClient);
+        submittedId = appId;
       } finally {
         yarnClient.close();
         yarnClient = null;
@@ -340,7 +335,7 @@ public class YarnRunner {
       }
     }
 
-    return monitor;
+    return submittedId;
   }
 
   //---------------------------------------------------------------------------
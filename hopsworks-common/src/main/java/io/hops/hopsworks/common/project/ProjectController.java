@@ -14,11 +14,14 @@ import java.util.logging.Logger;
 import javax.ws.rs.core.Response;
 
 import io.hops.hopsworks.common.dao.certificates.CertsFacade;
+import io.hops.hopsworks.common.dao.certificates.KeystoreAuthCache;
 import io.hops.hopsworks.common.dao.dataset.Dataset;
 import io.hops.hopsworks.common.dao.dataset.DatasetFacade;
 import io.hops.hopsworks.common.dao.hdfs.HdfsInodeAttributes;
 import io.hops.hopsworks.common.dao.hdfs.inode.Inode;
 import io.hops.hopsworks.common.dao.hdfs.inode.InodeFacade;
+import io.hops.hopsworks.common.dao.hdfs.inode.InodeSubtreeEntry;
+import io.hops.hopsworks.common.dao.hdfs.inode.InodeSubtreeIterator;
 import io.hops.hopsworks.common.dao.hdfs.inode.InodeView;
 import io.hops.hopsworks.common.dao.hdfsUser.HdfsGroups;
 import io.hops.hopsworks.common.dao.hdfsUser.HdfsUsers;
@@ -42,6 +45,7 @@ import io.hops.hopsworks.common.dao.project.payment.ProjectPaymentsHistoryFacade
 import io.hops.hopsworks.common.dao.project.payment.ProjectPaymentsHistoryPK;
 import io.hops.hopsworks.common.dao.project.service.ProjectServiceEnum;
 import io.hops.hopsworks.common.dao.project.service.ProjectServiceFacade;
+import io.hops.hopsworks.common.dao.project.team.ProjectRoleCache;
 import io.hops.hopsworks.common.dao.project.team.ProjectRoleTypes;
 import io.hops.hopsworks.common.dao.project.team.ProjectTeam;
 import io.hops.hopsworks.common.dao.project.team.ProjectTeamFacade;
@@ -72,6 +76,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import javax.ejb.EJB;
 import javax.ejb.EJBException;
@@ -102,6 +107,8 @@ public class ProjectController {
   @EJB
   private ProjectTeamFacade projectTeamFacade;
   @EJB
+  private ProjectRoleCache projectRoleCache;
+  @EJB
   private ProjectPaymentsHistoryFacade projectPaymentsHistoryFacade;
   @EJB
   private YarnProjectsQuotaFacade yarnProjectsQuotaFacade;
@@ -124,6 +131,8 @@ public class ProjectController {
   @EJB
   private CertsFacade userCertsFacade;
   @EJB
+  private KeystoreAuthCache keystoreAuthCache;
+  @EJB
   private DistributedFsService dfs;
   @EJB
   private InodeFacade inodeFacade;
@@ -881,6 +890,8 @@ public class ProjectController {
         List<HdfsUsers> usersToClean = getUsersToClean(project);
         List<HdfsGroups> groupsToClean = getGroupsToClean(project);
         removeProjectInt(project, usersToClean, groupsToClean);
+        projectRoleCache.invalidateProject(project.getId());
+        keystoreAuthCache.invalidateProject(project.getName());
         return;
       } catch (Exception ex) {
         if (nbTry < 3) {
@@ -1029,11 +1040,11 @@ public class ProjectController {
     for (Dataset dataSet : sharedDataSets) {
       String owner = dataSet.getInode().getHdfsUser().getName();
       String group = dataSet.getInode().getHdfsGroup().getName();
-      List<Inode> children = new ArrayList<>();
-      inodeFacade.getAllChildren(dataSet.getInode(), children);
-      for (Inode child : children) {
-        if (child.getHdfsUser().getName().startsWith(project.getName() + "__")) {
-          Path childPath = new Path(inodeFacade.getPath(child));
+      Iterator<InodeSubtreeEntry> children = new InodeSubtreeIterator(inodeFacade, dataSet.getInode());
+      while (children.hasNext()) {
+        InodeSubtreeEntry child = children.next();
+        if (child.getHdfsUsername() != null && child.getHdfsUsername().startsWith(project.getName() + "__")) {
+          Path childPath = new Path(child.getPath());
           dfso.setOwner(childPath, owner, group);
         }
       }
@@ -1590,11 +1601,11 @@ public class ProjectController {
             String datasetGroup = hdfsUsersBean.getHdfsGroupName(project, Settings.HOPS_TOUR_DATASET);
             String userHdfsName = hdfsUsersBean.getHdfsUserName(project, user);
             Inode parent = inodes.getInodeAtPath(tensorflowDataDst);
-            List<Inode> children = new ArrayList<>();
-            inodes.getAllChildren(parent, children);
-            for (Inode child : children) {
-              if (child.getHdfsUser() != null && child.getHdfsUser().getName().equals(settings.getYarnSuperUser())) {
-                Path path = new Path(inodes.getPath(child));
+            Iterator<InodeSubtreeEntry> children = new InodeSubtreeIterator(inodes, parent);
+            while (children.hasNext()) {
+              InodeSubtreeEntry child = children.next();
+              if (child.getHdfsUsername() != null && child.getHdfsUsername().equals(settings.getYarnSuperUser())) {
+                Path path = new Path(child.getPath());
                 udfso.setPermission(path, udfso.getParentPermission(path));
                 udfso.setOwner(path, userHdfsName, datasetGroup);
               }
@@ -0,0 +1,198 @@
+package io.hops.hopsworks.common.upload;
+
+import io.hops.hopsworks.common.hdfs.DistributedFileSystemOps;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * Appends the chunks of a resumable upload straight into an HDFS output
+ * stream. HDFS files can only be written sequentially, so chunks that arrive
+ * ahead of the next expected chunk are held in a bounded in-memory buffer
+ * until the gap is filled. The buffers of all uploads also share one limit.
+ * <p/>
+ * Chunks are read from the request with readChunk() before they are passed
+ * to write(), so a slow client does not hold up the other chunks of the
+ * upload.
+ */
+public class HdfsChunkWriter {
+
+  private static final Logger LOG = Logger.getLogger(HdfsChunkWriter.class.getName());
+  /**
+   * Bytes of out of order chunks buffered by all writers.
+   */
+  private static final AtomicLong BUFFERED_BYTES = new AtomicLong();
+
+  private final DistributedFileSystemOps dfso;
+  private final String destination;
+  private final long maxPendingBytes;
+  private final long maxTotalPendingBytes;
+  private FSDataOutputStream out;
+  private int nextChunk = 1;
+  private long pendingBytes = 0;
+  private final TreeMap<Integer, byte[]> pending = new TreeMap<>();
+  private boolean closed = false;
+
+  /**
+   * @param dfso file system operations of the uploading user. Closed together
+   * with the writer.
+   * @param destination the HDFS path of the uploaded file
+   * @param maxPendingBytes the maximum number of bytes of out of order chunks
+   * held in memory for this upload
+   * @param maxTotalPendingBytes the maximum number of bytes of out of order
+   * chunks held in memory for all uploads
+   */
+  public HdfsChunkWriter(DistributedFileSystemOps dfso, String destination, long maxPendingBytes,
+      long maxTotalPendingBytes) {
+    this.dfso = dfso;
+    this.destination = destination;
+    this.maxPendingBytes = maxPendingBytes;
+    this.maxTotalPendingBytes = maxTotalPendingBytes;
+  }
+
+  /**
+   * Read a whole chunk from a request.
+   * <p/>
+   * @param in the content of the chunk
+   * @param length the length of the chunk, at most Integer.MAX_VALUE
+   * @return
+   * @throws IOException if the content is shorter than <i>length</i>
+   */
+  public static byte[] readChunk(InputStream in, long length) throws IOException {
+    if (length < 0 || length > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Invalid chunk length " + length);
+    }
+    byte[] chunk = new byte[(int) length];
+    int read = 0;
+    while (read < chunk.length) {
+      int r = in.read(chunk, read, chunk.length - read);
+      if (r < 0) {
+        throw new IOException("Chunk ended after " + read + " of " + length + " bytes");
+      }
+      read += r;
+    }
+    return chunk;
+  }
+
+  /**
+   * Write a chunk. Chunks that were already written or buffered are ignored.
+   * <p/>
+   * @param chunkNumber the 1-based number of the chunk
+   * @param chunk the content of the chunk
+   * @return false if the chunk arrived out of order and the buffer is full. The
+   * client has to send the chunk again.
+   * @throws IOException
+   */
+  public synchronized boolean write(int chunkNumber, byte[] chunk) throws IOException {
+    if (closed) {
+      throw new IOException("Upload to " + destination + " was already closed");
+    }
+    if (chunkNumber < nextChunk || pending.containsKey(chunkNumber)) {
+      return true;
+    }
+    if (chunkNumber == nextChunk) {
+      getOutputStream().write(chunk);
+      nextChunk++;
+      drainPending();
+      return true;
+    }
+    if (pendingBytes + chunk.length > maxPendingBytes || !reserve(chunk.length)) {
+      return false;
+    }
+    pending.put(chunkNumber, chunk);
+    pendingBytes += chunk.length;
+    return true;
+  }
+
+  /**
+   * Take bytes from the buffer limit shared by all writers.
+   */
+  private boolean reserve(long bytes) {
+    long current;
+    do {
+      current = BUFFERED_BYTES.get();
+      if (current + bytes > maxTotalPendingBytes) {
+        return false;
+      }
+    } while (!BUFFERED_BYTES.compareAndSet(current, current + bytes));
+    return true;
+  }
+
+  private void releasePending() {
+    BUFFERED_BYTES.addAndGet(-pendingBytes);
+    pending.clear();
+    pendingBytes = 0;
+  }
+
+  private void drainPending() throws IOException {
+    Map.Entry<Integer, byte[]> next = pending.firstEntry();
+    while (next != null && next.getKey() == nextChunk) {
+      getOutputStream().write(next.getValue());
+      pending.remove(next.getKey());
+      pendingBytes -= next.getValue().length;
+      BUFFERED_BYTES.addAndGet(-next.getValue().length);
+      nextChunk++;
+      next = pending.firstEntry();
+    }
+  }
+
+  private FSDataOutputStream getOutputStream() throws IOException {
+    if (out == null) {
+      out = dfso.create(destination);
+    }
+    return out;
+  }
+
+  /**
+   * Close the HDFS file once all chunks have been written.
+   * <p/>
+   * @throws IOException if chunks are still missing or the file could not be
+   * closed.
+   */
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      if (!pending.isEmpty()) {
+        throw new IOException("Upload to " + destination + " is missing chunk " + nextChunk);
+      }
+      getOutputStream().close();
+    } finally {
+      releasePending();
+      dfso.close();
+    }
+  }
+
+  /**
+   * Discard an upload that will not be finished and remove the partial file.
+   */
+  public synchronized void abort() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    releasePending();
+    try {
+      if (out != null) {
+        out.close();
+        dfso.rm(new Path(destination), false);
+      }
+    } catch (IOException ex) {
+      LOG.log(Level.WARNING, "Could not remove partial upload " + destination, ex);
+    } finally {
+      dfso.close();
+    }
+  }
+
+  public String getDestination() {
+    return destination;
+  }
+}
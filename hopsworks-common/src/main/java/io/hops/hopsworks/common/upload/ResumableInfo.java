@@ -1,7 +1,7 @@
 package io.hops.hopsworks.common.upload;
 
 import java.io.File;
-import java.util.HashSet;
+import java.util.BitSet;
 
 public class ResumableInfo {
 
@@ -13,9 +13,18 @@ public class ResumableInfo {
   private int resumableTemplateId;
   private long uploadedContentLength = 0;
   private String resumableFilePath;
-
-  //Chunks uploaded. Private to enable atomically add and check if finished
-  private HashSet<ResumableChunkNumber> uploadedChunks = new HashSet<>();
+  //Set when the chunks are written straight to HDFS instead of the staging dir
+  private HdfsChunkWriter hdfsWriter;
+
+  //Chunks uploaded, indexed by chunk number. Private to enable atomically add
+  //and check if finished
+  private final BitSet uploadedChunks = new BitSet();
+  //Last time a chunk of this upload was tested or received
+  private volatile long lastAccessed = System.currentTimeMillis();
+  //Number of chunk requests received, and the first of them that belongs to
+  //the current attempt at the upload
+  private long chunkRequests = 0;
+  private long firstValidRequest = 1;
 
   public static class ResumableChunkNumber {
 
@@ -53,7 +62,11 @@ public class ResumableInfo {
       return false;
     }
 
-    //Upload finished, change filename.
+    //Upload finished, change filename. Chunks written straight to HDFS have
+    //no local file to rename
+    if (hdfsWriter != null) {
+      return true;
+    }
     File file = new File(resumableFilePath);
     String new_path = file.getAbsolutePath().substring(0,
             file.getAbsolutePath().length() - ".temp".length());
@@ -70,10 +83,13 @@ public class ResumableInfo {
    */
   public synchronized boolean addChunkAndCheckIfFinished(
           ResumableChunkNumber rcn, long contentLength) {
-    if (!uploadedChunks.contains(rcn)) {
+    if (rcn.number < 0) {
+      return false;
+    }
+    if (!uploadedChunks.get(rcn.number)) {
       uploadedContentLength += contentLength;
     }
-    uploadedChunks.add(rcn);
+    uploadedChunks.set(rcn.number);
     return checkIfUploadFinished();
   }
 
@@ -83,8 +99,71 @@ public class ResumableInfo {
    * @param rcn
    * @return
    */
-  public boolean isUploaded(ResumableChunkNumber rcn) {
-    return uploadedChunks.contains(rcn);
+  public synchronized boolean isUploaded(ResumableChunkNumber rcn) {
+    return rcn.number >= 0 && uploadedChunks.get(rcn.number);
+  }
+
+  /**
+   * Register a chunk request of the upload.
+   * <p/>
+   * @return a ticket to pass to isStale()
+   */
+  public synchronized long startChunk() {
+    return ++chunkRequests;
+  }
+
+  /**
+   * @param ticket
+   * @return true if the chunk request was received before the upload failed
+   * and started over
+   */
+  public synchronized boolean isStale(long ticket) {
+    return ticket < firstValidRequest;
+  }
+
+  /**
+   * Start the upload over after writing it to HDFS failed, unless another
+   * chunk already did so. The chunks received so far are rejected and the
+   * client has to send the whole file again.
+   * <p/>
+   * @param writer the writer that failed
+   */
+  public synchronized void restart(HdfsChunkWriter writer) {
+    if (hdfsWriter != writer) {
+      return;
+    }
+    hdfsWriter = null;
+    uploadedChunks.clear();
+    uploadedContentLength = 0;
+    firstValidRequest = chunkRequests + 1;
+    writer.abort();
+  }
+
+  /**
+   * Mark the upload as active, so that it is not evicted as abandoned.
+   */
+  public void touch() {
+    lastAccessed = System.currentTimeMillis();
+  }
+
+  public long getLastAccessed() {
+    return lastAccessed;
+  }
+
+  /**
+   * Discard the partially uploaded file of an abandoned upload, whether it is
+   * staged locally or written straight to HDFS.
+   */
+  public synchronized void discard() {
+    if (hdfsWriter != null) {
+      hdfsWriter.abort();
+    }
+    if (resumableFilePath != null) {
+      File partial = new File(resumableFilePath);
+      if (partial.exists()) {
+        partial.delete();
+      }
+    }
   }
 
   /*
@@ -122,6 +201,10 @@ public class ResumableInfo {
     return this.resumableFilePath;
   }
 
+  public HdfsChunkWriter getHdfsWriter() {
+    return this.hdfsWriter;
+  }
+
   /*
    * setters
    */
@@ -157,4 +240,8 @@ public class ResumableInfo {
     this.resumableFilePath = resumableFilePath;
   }
 
+  public void setHdfsWriter(HdfsChunkWriter hdfsWriter) {
+    this.hdfsWriter = hdfsWriter;
+  }
+
 }
@@ -1,24 +1,27 @@
 package io.hops.hopsworks.common.upload;
 
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class ResumableInfoStorage {
 
+  private static final Logger LOG = Logger.getLogger(ResumableInfoStorage.class.getName());
+
   //Single instance
   private ResumableInfoStorage() {
   }
-  private static ResumableInfoStorage sInstance;
+  private static final ResumableInfoStorage sInstance = new ResumableInfoStorage();
 
-  public static synchronized ResumableInfoStorage getInstance() {
-    if (sInstance == null) {
-      sInstance = new ResumableInfoStorage();
-    }
+  public static ResumableInfoStorage getInstance() {
     return sInstance;
   }
 
   //resumableIdentifier --  ResumableInfo
-  private HashMap<String, ResumableInfo> mMap
-          = new HashMap<String, ResumableInfo>();
+  private final ConcurrentMap<String, ResumableInfo> mMap
+          = new ConcurrentHashMap<>();
 
   /**
    * Get ResumableInfo from mMap or Create a new one.
@@ -32,7 +35,7 @@ public class ResumableInfoStorage {
    * @param resumableTemplateId
    * @return
    */
-  public synchronized ResumableInfo get(int resumableChunkSize,
+  public ResumableInfo get(int resumableChunkSize,
           long resumableTotalSize,
           String resumableIdentifier, String resumableFilename,
           String resumableRelativePath, String resumableFilePath,
@@ -41,18 +44,22 @@ public class ResumableInfoStorage {
     ResumableInfo info = mMap.get(resumableIdentifier);
 
     if (info == null) {
-      info = new ResumableInfo();
+      ResumableInfo newInfo = new ResumableInfo();
 
-      info.setResumableChunkSize(resumableChunkSize);
-      info.setResumableTotalSize(resumableTotalSize);
-      info.setResumableIdentifier(resumableIdentifier);
-      info.setResumableFilename(resumableFilename);
-      info.setResumableRelativePath(resumableRelativePath);
-      info.setResumableFilePath(resumableFilePath);
-      info.setResumableTemplateId(resumableTemplateId);
+      newInfo.setResumableChunkSize(resumableChunkSize);
+      newInfo.setResumableTotalSize(resumableTotalSize);
+      newInfo.setResumableIdentifier(resumableIdentifier);
+      newInfo.setResumableFilename(resumableFilename);
+      newInfo.setResumableRelativePath(resumableRelativePath);
+      newInfo.setResumableFilePath(resumableFilePath);
+      newInfo.setResumableTemplateId(resumableTemplateId);
 
-      mMap.put(resumableIdentifier, info);
+      info = mMap.putIfAbsent(resumableIdentifier, newInfo);
+      if (info == null) {
+        info = newInfo;
+      }
     }
+    info.touch();
     return info;
   }
 
@@ -62,6 +69,32 @@ public class ResumableInfoStorage {
    * @param info
    */
   public void remove(ResumableInfo info) {
-    mMap.remove(info.getResumableIdentifier());
+    mMap.remove(info.getResumableIdentifier(), info);
+  }
+
+  /**
+   * Remove the uploads that have not received a chunk for longer than the
+   * given time and delete their partial files.
+   * <p/>
+   * @param maxIdleMs
+   * @return the number of evicted uploads
+   */
+  public int evictIdle(long maxIdleMs) {
+    long oldest = System.currentTimeMillis() - maxIdleMs;
+    int evicted = 0;
+    Iterator<ResumableInfo> iter = mMap.values().iterator();
+    while (iter.hasNext()) {
+      ResumableInfo info = iter.next();
+      if (info.getLastAccessed() < oldest && mMap.remove(info.getResumableIdentifier(), info)) {
+        LOG.log(Level.INFO, "Evicting abandoned upload of {0}", info.getResumableFilename());
+        info.discard();
+        evicted++;
+      }
+    }
+    return evicted;
+  }
+
+  public int size() {
+    return mMap.size();
   }
 }
@@ -4,15 +4,25 @@ import com.google.common.io.Files;
 import java.io.File;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Schedule;
 import javax.ejb.Singleton;
 
 /**
  * Basically provides a temporary folder in which to stage uploaded files.
  */
 @Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
 public class StagingManager {
 
-  private File stagingFolder;
+  /**
+   * Uploads that have not received a chunk for this long are considered
+   * abandoned.
+   */
+  private static final long UPLOAD_MAX_IDLE_MS = 6 * 60 * 60 * 1000;
+
+  private volatile File stagingFolder;
 
   @PostConstruct
   public void init() {
@@ -26,6 +36,16 @@ public class StagingManager {
     return stagingFolder.getAbsolutePath();
   }
 
+  /**
+   * Remove abandoned uploads and their partially uploaded files.
+   */
+  @Schedule(persistent = false,
+          minute = "*/15",
+          hour = "*")
+  public void evictAbandonedUploads() {
+    ResumableInfoStorage.getInstance().evictIdle(UPLOAD_MAX_IDLE_MS);
+  }
+
   @PreDestroy
   public void removeTmpDir() {
     if (stagingFolder != null) {
@@ -9,10 +9,16 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.ejb.ConcurrencyManagement;
 import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Schedule;
 import javax.ejb.Singleton;
+import javax.ejb.Timer;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
@@ -56,6 +62,10 @@ public class Settings implements Serializable {
   private static final String VARIABLE_ZEPPELIN_SYNC_INTERVAL
           = "zeppelin_sync_interval";
   private static final String VARIABLE_ZEPPELIN_USER = "zeppelin_user";
+  private static final String VARIABLE_ZEPPELIN_OUTPUT_COALESCE_MS
+          = "zeppelin_output_coalesce_ms";
+  private static final String VARIABLE_ZEPPELIN_OUTPUT_MAX_PENDING_BYTES
+          = "zeppelin_output_max_pending_bytes";
   private static final String VARIABLE_JUPYTER_DIR = "jupyter_dir";
   private static final String VARIABLE_SPARK_DIR = "spark_dir";
   private static final String VARIABLE_FLINK_DIR = "flink_dir";
@@ -115,211 +125,318 @@ public class Settings implements Serializable {
   private static final String VARIABLE_CERTS_DIRS = "certs_dir";
   private static final String VARIABLE_VAGRANT_ENABLED = "vagrant_enabled";
   private static final String VARIABLE_MAX_STATUS_POLL_RETRY = "max_status_poll_retry";
+  private static final String VARIABLE_UPLOAD_DIRECT_TO_HDFS = "upload_direct_to_hdfs";
   
-  private String setVar(String varName, String defaultValue) {
-    Variables userName = findById(varName);
-    if (userName != null && userName.getValue() != null && (userName.getValue().
-            isEmpty() == false)) {
-      String user = userName.getValue();
+  /**
+   * The values of all variables, loaded together and replaced as a whole on
+   * reload, so a getter never sees values from two different loads.
+   */
+  private volatile Values values;
+  private volatile long cacheLoadedAt = 0;
+
+  private Values getValues() {
+    Values loaded = values;
+    if (loaded == null) {
+      loaded = populateCache();
+    }
+    return loaded;
+  }
+
+  private void checkCache() {
+    getValues();
+  }
+
+  private synchronized Values populateCache() {
+    if (values == null) {
+      loadCache();
+    }
+    return values;
+  }
+
+  /**
+   * Reload all variables from the database. Getters keep returning the
+   * previous values until the reload has finished.
+   */
+  public synchronized void refreshCache() {
+    loadCache();
+  }
+
+  /**
+   * Periodically pick up variables that were changed in the database.
+   * <p/>
+   * @param timer
+   */
+  @Schedule(persistent = false,
+          minute = "*/5",
+          hour = "*")
+  public void reloadCache(Timer timer) {
+    try {
+      refreshCache();
+    } catch (RuntimeException ex) {
+      logger.log(Level.WARNING, "Could not reload the variables, keeping the previous values", ex);
+    }
+  }
+
+  /**
+   * @return the time in milliseconds at which the variables were last loaded,
+   * or 0 if they have not been loaded yet.
+   */
+  public long getCacheLoadedAt() {
+    return cacheLoadedAt;
+  }
+
+  private Map<String, String> findAllVariables() {
+    List<Variables> all = em.createNamedQuery("Variables.findAll", Variables.class).getResultList();
+    Map<String, String> snapshot = new HashMap<>(all.size() * 2);
+    for (Variables var : all) {
+      if (var.getValue() != null) {
+        snapshot.put(var.getId(), var.getValue());
+      }
+    }
+    return snapshot;
+  }
+
+  private void loadCache() {
+    values = new Values(findAllVariables());
+    cacheLoadedAt = System.currentTimeMillis();
+  }
+
+  /**
+   * One load of the variables table. A variable that is missing or invalid
+   * takes its built-in default, also when it was set in an earlier load.
+   */
+  private static final class Values {
+
+    private final Map<String, String> variables;
+    private final String JAVA_HOME;
+    private final String TWOFACTOR_AUTH;
+    private final String HDFS_SUPERUSER;
+    private final String YARN_SUPERUSER;
+    private final String SPARK_USER;
+    private final String SPARK_DIR;
+    private final String FLINK_USER;
+    private final String FLINK_DIR;
+    private final String ZEPPELIN_USER;
+    private final String ZEPPELIN_DIR;
+    private final String ZEPPELIN_PROJECTS_DIR;
+    private final long ZEPPELIN_SYNC_INTERVAL;
+    private final long ZEPPELIN_OUTPUT_COALESCE_MS;
+    private final int ZEPPELIN_OUTPUT_MAX_PENDING_BYTES;
+    private final String JUPYTER_DIR;
+    private final String ADAM_USER;
+    private final String ADAM_DIR;
+    private final String MYSQL_DIR;
+    private final String HADOOP_DIR;
+    private final String HOPSWORKS_INSTALL_DIR;
+    private final String CERTS_DIR;
+    private final String NDB_DIR;
+    private final String ELASTIC_IP;
+    private final int ELASTIC_PORT;
+    private final int ELASTIC_REST_PORT;
+    private final String HOPSWORKS_IP;
+    private final Integer HOPSWORKS_PORT;
+    private final String JHS_IP;
+    private final String LIVY_IP;
+    private final String OOZIE_IP;
+    private final String SPARK_HISTORY_SERVER_IP;
+    private final String ZK_IP;
+    private final String ZK_USER;
+    private final String ZK_DIR;
+    private final String DRELEPHANT_IP;
+    private final int DRELEPHANT_PORT;
+    private final String DRELEPHANT_DB;
+    private final String KIBANA_IP;
+    private final String KAFKA_IP;
+    private final String KAFKA_USER;
+    private final String KAFKA_DIR;
+    private final String KAFKA_DEFAULT_NUM_PARTITIONS;
+    private final String KAFKA_DEFAULT_NUM_REPLICAS;
+    private final String YARN_DEFAULT_QUOTA;
+    private final String YARN_WEB_UI_IP;
+    private final int YARN_WEB_UI_PORT;
+    private final String HDFS_DEFAULT_QUOTA_MBs;
+    private final String MAX_NUM_PROJ_PER_USER;
+    private final String HOPSWORKS_DEFAULT_SSL_MASTER_PASSWORD;
+    private final String GLASSFISH_CERT_GENERATED;
+    private final int FILE_PREVIEW_IMAGE_SIZE;
+    private final int FILE_PREVIEW_TXT_SIZE;
+    private final String GVOD_REST_ENDPOINT;
+    private final String PUBLIC_SEARCH_ENDPOINT;
+    private final String HOPSWORKS_REST_ENDPOINT;
+    private final int REST_PORT;
+    private final String ANACONDA_DIR;
+    private final String ANACONDA_ENV;
+    private final Boolean ANACONDA_INSTALLED;
+    private final String INFLUXDB_IP;
+    private final String INFLUXDB_PORT;
+    private final String INFLUXDB_USER;
+    private final String INFLUXDB_PW;
+    private final String RESOURCE_DIRS;
+    private final int VAGRANT_ENABLED;
+    private final int MAX_STATUS_POLL_RETRY;
+    private final Boolean UPLOAD_DIRECT_TO_HDFS;
+
+    Values(Map<String, String> variables) {
+      this.variables = variables;
+      JAVA_HOME = setVar(VARIABLE_JAVA_HOME, DEFAULT_JAVA_HOME);
+      TWOFACTOR_AUTH = setVar(VARIABLE_TWOFACTOR_AUTH, DEFAULT_TWOFACTOR_AUTH);
+      HDFS_SUPERUSER = setVar(VARIABLE_HDFS_SUPERUSER, DEFAULT_HDFS_SUPERUSER);
+      YARN_SUPERUSER = setVar(VARIABLE_YARN_SUPERUSER, DEFAULT_YARN_SUPERUSER);
+      SPARK_USER = setVar(VARIABLE_SPARK_USER, DEFAULT_SPARK_USER);
+      SPARK_DIR = setDirVar(VARIABLE_SPARK_DIR, DEFAULT_SPARK_DIR);
+      FLINK_USER = setVar(VARIABLE_FLINK_USER, DEFAULT_FLINK_USER);
+      FLINK_DIR = setDirVar(VARIABLE_FLINK_DIR, DEFAULT_FLINK_DIR);
+      ZEPPELIN_USER = setVar(VARIABLE_ZEPPELIN_USER, DEFAULT_ZEPPELIN_USER);
+      ZEPPELIN_DIR = setDirVar(VARIABLE_ZEPPELIN_DIR, DEFAULT_ZEPPELIN_DIR);
+      ZEPPELIN_PROJECTS_DIR = setDirVar(VARIABLE_ZEPPELIN_PROJECTS_DIR, DEFAULT_ZEPPELIN_PROJECTS_DIR);
+      ZEPPELIN_SYNC_INTERVAL = setLongVar(VARIABLE_ZEPPELIN_SYNC_INTERVAL, DEFAULT_ZEPPELIN_SYNC_INTERVAL);
+      ZEPPELIN_OUTPUT_COALESCE_MS = setLongVar(
+              VARIABLE_ZEPPELIN_OUTPUT_COALESCE_MS, DEFAULT_ZEPPELIN_OUTPUT_COALESCE_MS);
+      ZEPPELIN_OUTPUT_MAX_PENDING_BYTES = setIntVar(
+              VARIABLE_ZEPPELIN_OUTPUT_MAX_PENDING_BYTES, DEFAULT_ZEPPELIN_OUTPUT_MAX_PENDING_BYTES);
+      JUPYTER_DIR = setDirVar(VARIABLE_JUPYTER_DIR, DEFAULT_JUPYTER_DIR);
+      ADAM_USER = setVar(VARIABLE_ADAM_USER, DEFAULT_ADAM_USER);
+      ADAM_DIR = setDirVar(VARIABLE_ADAM_DIR, DEFAULT_ADAM_DIR);
+      MYSQL_DIR = setDirVar(VARIABLE_MYSQL_DIR, DEFAULT_MYSQL_DIR);
+      HADOOP_DIR = setDirVar(VARIABLE_HADOOP_DIR, DEFAULT_HADOOP_DIR);
+      HOPSWORKS_INSTALL_DIR = setDirVar(VARIABLE_HOPSWORKS_DIR, DEFAULT_HOPSWORKS_INSTALL_DIR);
+      CERTS_DIR = setDirVar(VARIABLE_CERTS_DIRS, DEFAULT_CERTS_DIR);
+      NDB_DIR = setDirVar(VARIABLE_NDB_DIR, DEFAULT_NDB_DIR);
+      ELASTIC_IP = setIpVar(VARIABLE_ELASTIC_IP, DEFAULT_ELASTIC_IP);
+      ELASTIC_PORT = setIntVar(VARIABLE_ELASTIC_PORT, DEFAULT_ELASTIC_PORT);
+      ELASTIC_REST_PORT = setIntVar(VARIABLE_ELASTIC_REST_PORT, DEFAULT_ELASTIC_REST_PORT);
+      HOPSWORKS_IP = setIpVar(VARIABLE_HOPSWORKS_IP, DEFAULT_HOPSWORKS_IP);
+      HOPSWORKS_PORT = setIntVar(VARIABLE_HOPSWORKS_PORT, DEFAULT_HOPSWORKS_PORT);
+      JHS_IP = setIpVar(VARIABLE_JHS_IP, DEFAULT_JHS_IP);
+      LIVY_IP = setIpVar(VARIABLE_LIVY_IP, DEFAULT_LIVY_IP);
+      OOZIE_IP = setIpVar(VARIABLE_OOZIE_IP, DEFAULT_OOZIE_IP);
+      SPARK_HISTORY_SERVER_IP = setIpVar(VARIABLE_SPARK_HISTORY_SERVER_IP, DEFAULT_SPARK_HISTORY_SERVER_IP);
+      ZK_IP = setIpVar(VARIABLE_ZK_IP, DEFAULT_ZK_IP);
+      ZK_USER = setVar(VARIABLE_ZK_USER, DEFAULT_ZK_USER);
+      ZK_DIR = setDirVar(VARIABLE_ZK_DIR, DEFAULT_ZK_DIR);
+      DRELEPHANT_IP = setIpVar(VARIABLE_DRELEPHANT_IP, DEFAULT_DRELEPHANT_IP);
+      DRELEPHANT_PORT = setIntVar(VARIABLE_DRELEPHANT_PORT, DEFAULT_DRELEPHANT_PORT);
+      DRELEPHANT_DB = setDbVar(VARIABLE_DRELEPHANT_DB, DEFAULT_DRELEPHANT_DB);
+      KIBANA_IP = setIpVar(VARIABLE_KIBANA_IP, DEFAULT_KIBANA_IP);
+      KAFKA_IP = setIpVar(VARIABLE_KAFKA_IP, DEFAULT_KAFKA_IP);
+      KAFKA_USER = setVar(VARIABLE_KAFKA_USER, DEFAULT_KAFKA_USER);
+      KAFKA_DIR = setDirVar(VARIABLE_KAFKA_DIR, DEFAULT_KAFKA_DIR);
+      KAFKA_DEFAULT_NUM_PARTITIONS = setDirVar(VARIABLE_KAFKA_NUM_PARTITIONS, DEFAULT_KAFKA_DEFAULT_NUM_PARTITIONS);
+      KAFKA_DEFAULT_NUM_REPLICAS = setDirVar(VARIABLE_KAFKA_NUM_REPLICAS, DEFAULT_KAFKA_DEFAULT_NUM_REPLICAS);
+      YARN_DEFAULT_QUOTA = setDirVar(VARIABLE_YARN_DEFAULT_QUOTA, DEFAULT_YARN_DEFAULT_QUOTA);
+      YARN_WEB_UI_IP = setIpVar(VARIABLE_YARN_WEB_UI_IP, DEFAULT_YARN_WEB_UI_IP);
+      YARN_WEB_UI_PORT = setIntVar(VARIABLE_YARN_WEB_UI_PORT, DEFAULT_YARN_WEB_UI_PORT);
+      HDFS_DEFAULT_QUOTA_MBs = setDirVar(VARIABLE_HDFS_DEFAULT_QUOTA, DEFAULT_HDFS_DEFAULT_QUOTA_MBs);
+      MAX_NUM_PROJ_PER_USER = setDirVar(VARIABLE_MAX_NUM_PROJ_PER_USER, DEFAULT_MAX_NUM_PROJ_PER_USER);
+      HOPSWORKS_DEFAULT_SSL_MASTER_PASSWORD = setVar(
+              VARIABLE_HOPSWORKS_SSL_MASTER_PASSWORD, DEFAULT_HOPSWORKS_DEFAULT_SSL_MASTER_PASSWORD);
+      GLASSFISH_CERT_GENERATED = setVar(VARIABLE_GLASSFISH_CERT_CENERATED, DEFAULT_GLASSFISH_CERT_GENERATED);
+      FILE_PREVIEW_IMAGE_SIZE = setIntVar(VARIABLE_FILE_PREVIEW_IMAGE_SIZE, DEFAULT_FILE_PREVIEW_IMAGE_SIZE);
+      FILE_PREVIEW_TXT_SIZE = setIntVar(VARIABLE_FILE_PREVIEW_TXT_SIZE, DEFAULT_FILE_PREVIEW_TXT_SIZE);
+      GVOD_REST_ENDPOINT = setStrVar(VARIABLE_GVOD_REST_ENDPOINT, DEFAULT_GVOD_REST_ENDPOINT);
+      PUBLIC_SEARCH_ENDPOINT = setStrVar(VARIABLE_PUBLIC_SEARCH_ENDPOINT, DEFAULT_PUBLIC_SEARCH_ENDPOINT);
+      HOPSWORKS_REST_ENDPOINT = setStrVar(VARIABLE_HOPSWORKS_REST_ENDPOINT, DEFAULT_HOPSWORKS_REST_ENDPOINT);
+      REST_PORT = setIntVar(VARIABLE_REST_PORT, DEFAULT_REST_PORT);
+      ANACONDA_DIR = setDirVar(VARIABLE_ANACONDA_DIR, DEFAULT_ANACONDA_DIR);
+      ANACONDA_ENV = setStrVar(VARIABLE_ANACONDA_ENV, DEFAULT_ANACONDA_ENV);
+      ANACONDA_INSTALLED = Boolean.parseBoolean(
+              setStrVar(VARIABLE_ANACONDA_INSTALLED, DEFAULT_ANACONDA_INSTALLED.toString()));
+      INFLUXDB_IP = setStrVar(VARIABLE_INFLUXDB_IP, DEFAULT_INFLUXDB_IP);
+      INFLUXDB_PORT = setStrVar(VARIABLE_INFLUXDB_PORT, DEFAULT_INFLUXDB_PORT);
+      INFLUXDB_USER = setStrVar(VARIABLE_INFLUXDB_USER, DEFAULT_INFLUXDB_USER);
+      INFLUXDB_PW = setStrVar(VARIABLE_INFLUXDB_PW, DEFAULT_INFLUXDB_PW);
+      RESOURCE_DIRS = setStrVar(VARIABLE_RESOURCE_DIRS, DEFAULT_RESOURCE_DIRS);
+      VAGRANT_ENABLED = setIntVar(VARIABLE_VAGRANT_ENABLED, DEFAULT_VAGRANT_ENABLED);
+      MAX_STATUS_POLL_RETRY = setIntVar(VARIABLE_MAX_STATUS_POLL_RETRY, DEFAULT_MAX_STATUS_POLL_RETRY);
+      UPLOAD_DIRECT_TO_HDFS = Boolean.parseBoolean(
+              setStrVar(VARIABLE_UPLOAD_DIRECT_TO_HDFS, DEFAULT_UPLOAD_DIRECT_TO_HDFS.toString()));
+    }
+
+    private String setVar(String varName, String defaultValue) {
+      String user = variables.get(varName);
       if (user != null && user.isEmpty() == false) {
         return user;
       }
+      return defaultValue;
     }
-    return defaultValue;
-  }
 
-  private String setStrVar(String varName, String defaultValue) {
-    Variables var = findById(varName);
-    if (var != null && var.getValue() != null) {
-      String val = var.getValue();
+    private String setStrVar(String varName, String defaultValue) {
+      String val = variables.get(varName);
       if (val != null && val.isEmpty() == false) {
         return val;
       }
+      return defaultValue;
     }
-    return defaultValue;
-  }
 
-  private String setDirVar(String varName, String defaultValue) {
-    Variables dirName = findById(varName);
-    if (dirName != null && dirName.getValue() != null && (new File(dirName.
-            getValue()).isDirectory())) {
-      String val = dirName.getValue();
-      if (val != null && val.isEmpty() == false) {
+    private String setDirVar(String varName, String defaultValue) {
+      String val = variables.get(varName);
+      if (val != null && val.isEmpty() == false && new File(val).isDirectory()) {
         return val;
       }
+      return defaultValue;
     }
-    return defaultValue;
-  }
 
-  private String setIpVar(String varName, String defaultValue) {
-    Variables var = findById(varName);
-    if (var != null && var.getValue() != null && Ip.validIp(var.getValue())) {
-      String val = var.getValue();
-      if (val != null && val.isEmpty() == false) {
+    private String setIpVar(String varName, String defaultValue) {
+      String val = variables.get(varName);
+      if (val != null && Ip.validIp(val) && val.isEmpty() == false) {
         return val;
       }
+      return defaultValue;
     }
-    return defaultValue;
-  }
 
-  private String setDbVar(String varName, String defaultValue) {
-    Variables var = findById(varName);
-    if (var != null && var.getValue() != null) {
+    private String setDbVar(String varName, String defaultValue) {
       // TODO - check this is a valid DB name
-      String val = var.getValue();
+      String val = variables.get(varName);
       if (val != null && val.isEmpty() == false) {
         return val;
       }
+      return defaultValue;
     }
-    return defaultValue;
-  }
 
-  private Integer setIntVar(String varName, Integer defaultValue) {
-    Variables var = findById(varName);
-    try {
-      if (var != null && var.getValue() != null) {
-        String val = var.getValue();
+    private Integer setIntVar(String varName, Integer defaultValue) {
+      String val = variables.get(varName);
+      try {
         if (val != null && val.isEmpty() == false) {
           return Integer.parseInt(val);
         }
+      } catch (NumberFormatException ex) {
+        logger.info("Error - not an integer! " + varName
+                + " should be an integer. Value was " + defaultValue);
       }
-    } catch (NumberFormatException ex) {
-      logger.info("Error - not an integer! " + varName
-              + " should be an integer. Value was " + defaultValue);
+      return defaultValue;
     }
-    return defaultValue;
-  }
 
-  private long setLongVar(String varName, Long defaultValue) {
-    Variables var = findById(varName);
-    try {
-      if (var != null && var.getValue() != null) {
-        String val = var.getValue();
+    private long setLongVar(String varName, Long defaultValue) {
+      String val = variables.get(varName);
+      try {
         if (val != null && val.isEmpty() == false) {
           return Long.parseLong(val);
         }
+      } catch (NumberFormatException ex) {
+        logger.info("Error - not a long! " + varName
+                + " should be an integer. Value was " + defaultValue);
       }
-    } catch (NumberFormatException ex) {
-      logger.info("Error - not a long! " + varName
-              + " should be an integer. Value was " + defaultValue);
-    }
 
-    return defaultValue;
-  }
-
-  private boolean cached = false;
-
-  private void populateCache() {
-    if (!cached) {
-      JAVA_HOME = setVar(VARIABLE_JAVA_HOME, JAVA_HOME);
-      TWOFACTOR_AUTH = setVar(VARIABLE_TWOFACTOR_AUTH, TWOFACTOR_AUTH);
-      HDFS_SUPERUSER = setVar(VARIABLE_HDFS_SUPERUSER, HDFS_SUPERUSER);
-      YARN_SUPERUSER = setVar(VARIABLE_YARN_SUPERUSER, YARN_SUPERUSER);
-      SPARK_USER = setVar(VARIABLE_SPARK_USER, SPARK_USER);
-      SPARK_DIR = setDirVar(VARIABLE_SPARK_DIR, SPARK_DIR);
-      FLINK_USER = setVar(VARIABLE_FLINK_USER, FLINK_USER);
-      FLINK_DIR = setDirVar(VARIABLE_FLINK_DIR, FLINK_DIR);
-      ZEPPELIN_USER = setVar(VARIABLE_ZEPPELIN_USER, ZEPPELIN_USER);
-      ZEPPELIN_DIR = setDirVar(VARIABLE_ZEPPELIN_DIR, ZEPPELIN_DIR);
-      ZEPPELIN_PROJECTS_DIR = setDirVar(VARIABLE_ZEPPELIN_PROJECTS_DIR,
-              ZEPPELIN_PROJECTS_DIR);
-      ZEPPELIN_SYNC_INTERVAL = setLongVar(VARIABLE_ZEPPELIN_SYNC_INTERVAL,
-              ZEPPELIN_SYNC_INTERVAL);
-      JUPYTER_DIR = setDirVar(VARIABLE_JUPYTER_DIR, JUPYTER_DIR);
-      ADAM_USER = setVar(VARIABLE_ADAM_USER, ADAM_USER);
-      ADAM_DIR = setDirVar(VARIABLE_ADAM_DIR, ADAM_DIR);
-      MYSQL_DIR = setDirVar(VARIABLE_MYSQL_DIR, MYSQL_DIR);
-      HADOOP_DIR = setDirVar(VARIABLE_HADOOP_DIR, HADOOP_DIR);
-      HOPSWORKS_INSTALL_DIR = setDirVar(VARIABLE_HOPSWORKS_DIR,
-              HOPSWORKS_INSTALL_DIR);
-      CERTS_DIR = setDirVar(VARIABLE_CERTS_DIRS, CERTS_DIR);
-      NDB_DIR = setDirVar(VARIABLE_NDB_DIR, NDB_DIR);
-      ELASTIC_IP = setIpVar(VARIABLE_ELASTIC_IP, ELASTIC_IP);
-      ELASTIC_PORT = setIntVar(VARIABLE_ELASTIC_PORT, ELASTIC_PORT);
-      ELASTIC_REST_PORT = setIntVar(VARIABLE_ELASTIC_REST_PORT,
-              ELASTIC_REST_PORT);
-      HOPSWORKS_IP = setIpVar(VARIABLE_HOPSWORKS_IP, HOPSWORKS_IP);
-      HOPSWORKS_PORT = setIntVar(VARIABLE_HOPSWORKS_PORT, HOPSWORKS_PORT);
-      JHS_IP = setIpVar(VARIABLE_JHS_IP, JHS_IP);
-      LIVY_IP = setIpVar(VARIABLE_LIVY_IP, LIVY_IP);
-      OOZIE_IP = setIpVar(VARIABLE_OOZIE_IP, OOZIE_IP);
-      SPARK_HISTORY_SERVER_IP = setIpVar(VARIABLE_SPARK_HISTORY_SERVER_IP,
-              SPARK_HISTORY_SERVER_IP);
-      ZK_IP = setIpVar(VARIABLE_ZK_IP, ZK_IP);
-      ZK_USER = setVar(VARIABLE_ZK_USER, ZK_USER);
-      ZK_DIR = setDirVar(VARIABLE_ZK_DIR, ZK_DIR);
-      DRELEPHANT_IP = setIpVar(VARIABLE_DRELEPHANT_IP, DRELEPHANT_IP);
-      DRELEPHANT_PORT = setIntVar(VARIABLE_DRELEPHANT_PORT, DRELEPHANT_PORT);
-      DRELEPHANT_DB = setDbVar(VARIABLE_DRELEPHANT_DB, DRELEPHANT_DB);
-      KIBANA_IP = setIpVar(VARIABLE_KIBANA_IP, KIBANA_IP);
-      KAFKA_IP = setIpVar(VARIABLE_KAFKA_IP, KAFKA_IP);
-      KAFKA_USER = setVar(VARIABLE_KAFKA_USER, KAFKA_USER);
-      KAFKA_DIR = setDirVar(VARIABLE_KAFKA_DIR, KAFKA_DIR);
-      KAFKA_DEFAULT_NUM_PARTITIONS = setDirVar(VARIABLE_KAFKA_NUM_PARTITIONS,
-              KAFKA_DEFAULT_NUM_PARTITIONS);
-      KAFKA_DEFAULT_NUM_REPLICAS = setDirVar(VARIABLE_KAFKA_NUM_REPLICAS,
-              KAFKA_DEFAULT_NUM_REPLICAS);
-      YARN_DEFAULT_QUOTA = setDirVar(VARIABLE_YARN_DEFAULT_QUOTA,
-              YARN_DEFAULT_QUOTA);
-      YARN_WEB_UI_IP = setIpVar(VARIABLE_YARN_WEB_UI_IP, YARN_WEB_UI_IP);
-      YARN_WEB_UI_PORT = setIntVar(VARIABLE_YARN_WEB_UI_PORT, YARN_WEB_UI_PORT);
-      HDFS_DEFAULT_QUOTA_MBs = setDirVar(VARIABLE_HDFS_DEFAULT_QUOTA,
-              HDFS_DEFAULT_QUOTA_MBs);
-      MAX_NUM_PROJ_PER_USER = setDirVar(VARIABLE_MAX_NUM_PROJ_PER_USER,
-              MAX_NUM_PROJ_PER_USER);
-      HOPSWORKS_DEFAULT_SSL_MASTER_PASSWORD = setVar(
-              VARIABLE_HOPSWORKS_SSL_MASTER_PASSWORD,
-              HOPSWORKS_DEFAULT_SSL_MASTER_PASSWORD);
-      GLASSFISH_CERT_GENERATED = setVar(VARIABLE_GLASSFISH_CERT_CENERATED,
-              GLASSFISH_CERT_GENERATED);
-      FILE_PREVIEW_IMAGE_SIZE = setIntVar(VARIABLE_FILE_PREVIEW_IMAGE_SIZE,
-              10000000);
-      FILE_PREVIEW_TXT_SIZE = setIntVar(VARIABLE_FILE_PREVIEW_TXT_SIZE, 100);
-      GVOD_REST_ENDPOINT = setStrVar(VARIABLE_GVOD_REST_ENDPOINT,
-              GVOD_REST_ENDPOINT);
-      PUBLIC_SEARCH_ENDPOINT = setStrVar(VARIABLE_PUBLIC_SEARCH_ENDPOINT,
-              PUBLIC_SEARCH_ENDPOINT);
-      HOPSWORKS_REST_ENDPOINT = setStrVar(VARIABLE_HOPSWORKS_REST_ENDPOINT,
-              HOPSWORKS_REST_ENDPOINT);
-      REST_PORT = setIntVar(VARIABLE_REST_PORT, REST_PORT);
-      ANACONDA_DIR = setDirVar(VARIABLE_ANACONDA_DIR, ANACONDA_DIR);
-      ANACONDA_ENV = setStrVar(VARIABLE_ANACONDA_ENV, ANACONDA_ENV);
-      ANACONDA_INSTALLED = Boolean.parseBoolean(setStrVar(
-              VARIABLE_ANACONDA_INSTALLED, ANACONDA_INSTALLED.toString()));
-      INFLUXDB_IP = setStrVar(VARIABLE_INFLUXDB_IP, INFLUXDB_IP);
-      INFLUXDB_PORT = setStrVar(VARIABLE_INFLUXDB_PORT, INFLUXDB_PORT);
-      INFLUXDB_USER = setStrVar(VARIABLE_INFLUXDB_USER, INFLUXDB_USER);
-      INFLUXDB_PW = setStrVar(VARIABLE_INFLUXDB_PW, INFLUXDB_PW);
-      RESOURCE_DIRS = setStrVar(VARIABLE_RESOURCE_DIRS, RESOURCE_DIRS);
-      VAGRANT_ENABLED = setIntVar(VARIABLE_VAGRANT_ENABLED, VAGRANT_ENABLED);
-      MAX_STATUS_POLL_RETRY = setIntVar(VARIABLE_MAX_STATUS_POLL_RETRY, MAX_STATUS_POLL_RETRY);
-      cached = true;
-    }
-  }
-
-  private void checkCache() {
-    if (!cached) {
-      populateCache();
+      return defaultValue;
     }
   }
 
   private static final String GLASSFISH_DIR = "/srv/hops/glassfish";
 
-  public static synchronized String getGlassfishDir() {
+  public static String getGlassfishDir() {
     return GLASSFISH_DIR;
   }
 
-  private String TWOFACTOR_AUTH = "false";
+  private static final String DEFAULT_TWOFACTOR_AUTH = "false";
 
-  public synchronized String getTwoFactorAuth() {
-    checkCache();
-    return TWOFACTOR_AUTH;
+  public String getTwoFactorAuth() {
+    return getValues().TWOFACTOR_AUTH;
   }
 
   /**
    * Default Directory locations
    */
-  private String SPARK_DIR = "/srv/hops/spark";
+  private static final String DEFAULT_SPARK_DIR = "/srv/hops/spark";
   public static final String SPARK_EXAMPLES_DIR = "/examples/jars";
   public static final String HOPS_VERSION = "2.4.0";
 
@@ -381,37 +498,34 @@ public class Settings implements Serializable {
   public static final String TFSPARK_PYTHON_NAME = "Python";
   public static final String TFSPARK_ZIP = "tfspark.zip";
 
-  public synchronized String getSparkDir() {
-    checkCache();
-    return SPARK_DIR;
+  public String getSparkDir() {
+    return getValues().SPARK_DIR;
   }
 
-  private final String SPARK_CONF_DIR = SPARK_DIR + "/conf";
+  private final String SPARK_CONF_DIR = DEFAULT_SPARK_DIR + "/conf";
 
-  public synchronized String getSparkConfDir() {
+  public String getSparkConfDir() {
     checkCache();
     return SPARK_CONF_DIR;
   }
 
   private final String SPARK_CONF_FILE = SPARK_CONF_DIR + "/spark-defaults.conf";
 
-  public synchronized String getSparkConfFile() {
+  public String getSparkConfFile() {
     //checkCache();
     return SPARK_CONF_FILE;
   }
 
-  private String ADAM_USER = "glassfish";
+  private static final String DEFAULT_ADAM_USER = "glassfish";
 
-  public synchronized String getAdamUser() {
-    checkCache();
-    return ADAM_USER;
+  public String getAdamUser() {
+    return getValues().ADAM_USER;
   }
 
-  private String FLINK_DIR = "/srv/hops/flink";
+  private static final String DEFAULT_FLINK_DIR = "/srv/hops/flink";
 
-  public synchronized String getFlinkDir() {
-    checkCache();
-    return FLINK_DIR;
+  public String getFlinkDir() {
+    return getValues().FLINK_DIR;
   }
   private final String FLINK_CONF_DIR = "conf";
 
@@ -424,158 +538,141 @@ public class Settings implements Serializable {
   public String getFlinkConfFile() {
     return getFlinkConfDir() + File.separator + FLINK_CONF_FILE;
   }
-  private String MYSQL_DIR = "/usr/local/mysql";
+  private static final String DEFAULT_MYSQL_DIR = "/usr/local/mysql";
 
-  public synchronized String getMySqlDir() {
-    checkCache();
-    return MYSQL_DIR;
+  public String getMySqlDir() {
+    return getValues().MYSQL_DIR;
   }
-  private String NDB_DIR = "/var/lib/mysql-cluster";
+  private static final String DEFAULT_NDB_DIR = "/var/lib/mysql-cluster";
 
-  public synchronized String getNdbDir() {
-    checkCache();
-    return NDB_DIR;
+  public String getNdbDir() {
+    return getValues().NDB_DIR;
   }
 
-  private String ADAM_DIR = "/srv/hops/adam";
+  private static final String DEFAULT_ADAM_DIR = "/srv/hops/adam";
 
-  public synchronized String getAdamDir() {
-    checkCache();
-    return ADAM_DIR;
+  public String getAdamDir() {
+    return getValues().ADAM_DIR;
   }
 
-  private String HADOOP_DIR = "/srv/hops/hadoop";
+  private static final String DEFAULT_HADOOP_DIR = "/srv/hops/hadoop";
 
-  public synchronized String getHadoopDir() {
-    checkCache();
-    return HADOOP_DIR;
+  public String getHadoopDir() {
+    return getValues().HADOOP_DIR;
   }
 
   
-  private String HOPSWORKS_EXTERNAL_IP = "127.0.0.1";
+  private volatile String HOPSWORKS_EXTERNAL_IP = "127.0.0.1";
 
-  public synchronized String getHopsworksExternalIp() {
+  public String getHopsworksExternalIp() {
     checkCache();
     return HOPSWORKS_EXTERNAL_IP;
   }
   
-  public synchronized void setHopsworksExternalIp(String ip) {
+  public void setHopsworksExternalIp(String ip) {
     HOPSWORKS_EXTERNAL_IP = ip;
   }
   
-  private String HOPSWORKS_IP = "127.0.0.1";
+  private static final String DEFAULT_HOPSWORKS_IP = "127.0.0.1";
 
-  public synchronized String getHopsworksIp() {
-    checkCache();
-    return HOPSWORKS_IP;
+  public String getHopsworksIp() {
+    return getValues().HOPSWORKS_IP;
   }
 
-  private Integer HOPSWORKS_PORT = 8080;
+  private static final Integer DEFAULT_HOPSWORKS_PORT = 8080;
 
-  public synchronized Integer getHopsworksPort() {
-    checkCache();
-    return HOPSWORKS_PORT;
+  public Integer getHopsworksPort() {
+    return getValues().HOPSWORKS_PORT;
   }
 
-  private static String CERTS_DIR = "/srv/hops/certs-dir";
+  private static final String DEFAULT_CERTS_DIR = "/srv/hops/certs-dir";
 
-  public synchronized String getCertsDir() {
-    checkCache();
-    return CERTS_DIR;
+  public String getCertsDir() {
+    return getValues().CERTS_DIR;
   }
 
-  private static String HOPSWORKS_INSTALL_DIR = "/srv/hops/domains";
+  private static final String DEFAULT_HOPSWORKS_INSTALL_DIR = "/srv/hops/domains";
 
-  public synchronized String getHopsworksInstallDir() {
-    checkCache();
-    return HOPSWORKS_INSTALL_DIR;
+  public String getHopsworksInstallDir() {
+    return getValues().HOPSWORKS_INSTALL_DIR;
   }
 
-  public synchronized String getHopsworksDomainDir() {
-    checkCache();
-    return HOPSWORKS_INSTALL_DIR + "/domain1";
+  public String getHopsworksDomainDir() {
+    return getValues().HOPSWORKS_INSTALL_DIR + "/domain1";
   }
 
-  public synchronized String getIntermediateCaDir() {
+  public String getIntermediateCaDir() {
     checkCache();
     return getCertsDir() + Settings.INTERMEDIATE_CA_DIR;
   }
 
-  public synchronized String getCaDir() {
+  public String getCaDir() {
     checkCache();
     return getCertsDir();
   }
 
   //User under which yarn is run
-  private String YARN_SUPERUSER = "glassfish";
+  private static final String DEFAULT_YARN_SUPERUSER = "glassfish";
 
-  public synchronized String getYarnSuperUser() {
-    checkCache();
-    return YARN_SUPERUSER;
+  public String getYarnSuperUser() {
+    return getValues().YARN_SUPERUSER;
   }
-  private String HDFS_SUPERUSER = "glassfish";
+  private static final String DEFAULT_HDFS_SUPERUSER = "glassfish";
 
-  public synchronized String getHdfsSuperUser() {
-    checkCache();
-    return HDFS_SUPERUSER;
+  public String getHdfsSuperUser() {
+    return getValues().HDFS_SUPERUSER;
   }
-  private String SPARK_USER = "glassfish";
+  private static final String DEFAULT_SPARK_USER = "glassfish";
 
-  public synchronized String getSparkUser() {
-    checkCache();
-    return SPARK_USER;
+  public String getSparkUser() {
+    return getValues().SPARK_USER;
   }
 
-  public static String JAVA_HOME = "/usr/lib/jvm/default-java";
+  private static final String DEFAULT_JAVA_HOME = "/usr/lib/jvm/default-java";
 
-  public synchronized String getJavaHome() {
-    checkCache();
-    return JAVA_HOME;
+  public String getJavaHome() {
+    return getValues().JAVA_HOME;
   }
 
-  private String FLINK_USER = "glassfish";
+  private static final String DEFAULT_FLINK_USER = "glassfish";
 
-  public synchronized String getFlinkUser() {
-    checkCache();
-    return FLINK_USER;
+  public String getFlinkUser() {
+    return getValues().FLINK_USER;
   }
 
-  private String ZEPPELIN_USER = "glassfish";
+  private static final String DEFAULT_ZEPPELIN_USER = "glassfish";
 
-  public synchronized String getZeppelinUser() {
-    checkCache();
-    return ZEPPELIN_USER;
+  public String getZeppelinUser() {
+    return getValues().ZEPPELIN_USER;
   }
 
-  private String YARN_DEFAULT_QUOTA = "60000";
+  private static final String DEFAULT_YARN_DEFAULT_QUOTA = "60000";
 
-  public synchronized String getYarnDefaultQuota() {
-    checkCache();
-    return YARN_DEFAULT_QUOTA;
+  public String getYarnDefaultQuota() {
+    return getValues().YARN_DEFAULT_QUOTA;
   }
 
-  private String YARN_WEB_UI_IP = "127.0.0.1";
-  private int YARN_WEB_UI_PORT = 8088;
+  private static final String DEFAULT_YARN_WEB_UI_IP = "127.0.0.1";
+  private static final int DEFAULT_YARN_WEB_UI_PORT = 8088;
 
-  public synchronized String getYarnWebUIAddress() {
-    checkCache();
-    return YARN_WEB_UI_IP + ":" + YARN_WEB_UI_PORT;
+  public String getYarnWebUIAddress() {
+    Values values = getValues();
+    return values.YARN_WEB_UI_IP + ":" + values.YARN_WEB_UI_PORT;
   }
 
-  private String HDFS_DEFAULT_QUOTA_MBs = "200000";
+  private static final String DEFAULT_HDFS_DEFAULT_QUOTA_MBs = "200000";
 
-  public synchronized long getHdfsDefaultQuotaInMBs() {
-    checkCache();
-    return Long.parseLong(HDFS_DEFAULT_QUOTA_MBs);
+  public long getHdfsDefaultQuotaInMBs() {
+    return Long.parseLong(getValues().HDFS_DEFAULT_QUOTA_MBs);
   }
 
-  private String MAX_NUM_PROJ_PER_USER = "5";
+  private static final String DEFAULT_MAX_NUM_PROJ_PER_USER = "5";
 
-  public synchronized Integer getMaxNumProjPerUser() {
-    checkCache();
+  public Integer getMaxNumProjPerUser() {
+    Values values = getValues();
     int num = 5;
     try {
-      num = Integer.parseInt(MAX_NUM_PROJ_PER_USER);
+      num = Integer.parseInt(values.MAX_NUM_PROJ_PER_USER);
     } catch (NumberFormatException ex) {
       // should print to log here
     }
@@ -583,7 +680,7 @@ public class Settings implements Serializable {
   }
 
   //Hadoop locations
-  public synchronized String getHadoopConfDir() {
+  public String getHadoopConfDir() {
     return hadoopConfDir(getHadoopDir());
   }
 
@@ -595,7 +692,7 @@ public class Settings implements Serializable {
     return hadoopConfDir(hadoopDir);
   }
 
-  public synchronized String getYarnConfDir() {
+  public String getYarnConfDir() {
     return getHadoopConfDir();
   }
 
@@ -679,11 +776,11 @@ public class Settings implements Serializable {
     return "hdfs:///user/" + tfUser+"/"+TENSORFLOW_JAR;
   }
   
-  public synchronized String getLocalFlinkJarPath() {
+  public String getLocalFlinkJarPath() {
     return getFlinkDir() + "/flink.jar";
   }
 
-  public synchronized String getHdfsFlinkJarPath() {
+  public String getHdfsFlinkJarPath() {
     return hdfsFlinkJarPath(getFlinkUser());
   }
 
@@ -695,7 +792,7 @@ public class Settings implements Serializable {
     return hdfsFlinkJarPath(flinkUser);
   }
 
-  public synchronized String getFlinkDefaultClasspath() {
+  public String getFlinkDefaultClasspath() {
     return flinkDefaultClasspath(getFlinkDir());
   }
 
@@ -707,11 +804,11 @@ public class Settings implements Serializable {
     return flinkDefaultClasspath(flinkDir);
   }
 
-  public synchronized String getLocalSparkJarPath() {
+  public String getLocalSparkJarPath() {
     return getSparkDir() + "/spark.jar";
   }
 
-  public synchronized String getHdfsSparkJarPath() {
+  public String getHdfsSparkJarPath() {
     return hdfsSparkJarPath(getSparkUser());
   }
 
@@ -756,7 +853,7 @@ public class Settings implements Serializable {
     return "hdfs:///user/" + sparkUser + "/" + HOPSUTIL_JAR;
   }
 
-  public synchronized String getSparkDefaultClasspath() {
+  public String getSparkDefaultClasspath() {
     return sparkDefaultClasspath(getSparkDir());
   }
 
@@ -817,32 +914,29 @@ public class Settings implements Serializable {
   public static final String PROJECT_STAGING_DIR = "Resources";
 
   // Elasticsearch
-  private String ELASTIC_IP = "127.0.0.1";
+  private static final String DEFAULT_ELASTIC_IP = "127.0.0.1";
 
-  public synchronized String getElasticIp() {
-    checkCache();
-    return ELASTIC_IP;
+  public String getElasticIp() {
+    return getValues().ELASTIC_IP;
   }
 
-  private int ELASTIC_PORT = 9300;
+  private static final int DEFAULT_ELASTIC_PORT = 9300;
 
-  public synchronized int getElasticPort() {
-    checkCache();
-    return ELASTIC_PORT;
+  public int getElasticPort() {
+    return getValues().ELASTIC_PORT;
   }
 
-  private int ELASTIC_REST_PORT = 9200;
+  private static final int DEFAULT_ELASTIC_REST_PORT = 9200;
 
-  public synchronized int getElasticRESTPort() {
-    checkCache();
-    return ELASTIC_REST_PORT;
+  public int getElasticRESTPort() {
+    return getValues().ELASTIC_REST_PORT;
   }
 
-  public synchronized String getElasticEndpoint() {
+  public String getElasticEndpoint() {
     return getElasticIp() + ":" + getElasticPort();
   }
 
-  public synchronized String getElasticRESTEndpoint() {
+  public String getElasticRESTEndpoint() {
     return getElasticIp() + ":" + getElasticRESTPort();
   }
 
@@ -870,43 +964,39 @@ public class Settings implements Serializable {
   }
 
   // Spark
-  private String SPARK_HISTORY_SERVER_IP = "127.0.0.1";
+  private static final String DEFAULT_SPARK_HISTORY_SERVER_IP = "127.0.0.1";
 
-  public synchronized String getSparkHistoryServerIp() {
-    checkCache();
-    return SPARK_HISTORY_SERVER_IP + ":18080";
+  public String getSparkHistoryServerIp() {
+    return getValues().SPARK_HISTORY_SERVER_IP + ":18080";
   }
 
   // Oozie
-  private String OOZIE_IP = "127.0.0.1";
+  private static final String DEFAULT_OOZIE_IP = "127.0.0.1";
 
-  public synchronized String getOozieIp() {
-    checkCache();
-    return OOZIE_IP;
+  public String getOozieIp() {
+    return getValues().OOZIE_IP;
   }
 
   // MapReduce Job History Server
-  private String JHS_IP = "127.0.0.1";
+  private static final String DEFAULT_JHS_IP = "127.0.0.1";
 
-  public synchronized String getJhsIp() {
-    checkCache();
-    return JHS_IP;
+  public String getJhsIp() {
+    return getValues().JHS_IP;
   }
 
   // Livy Server`
-  private String LIVY_IP = "127.0.0.1";
+  private static final String DEFAULT_LIVY_IP = "127.0.0.1";
   private final String LIVY_YARN_MODE = "yarn";
 
-  public synchronized String getLivyIp() {
-    checkCache();
-    return LIVY_IP;
+  public String getLivyIp() {
+    return getValues().LIVY_IP;
   }
 
-  public synchronized String getLivyUrl() {
+  public String getLivyUrl() {
     return "http://" + getLivyIp() + ":8998";
   }
 
-  public synchronized String getLivyYarnMode() {
+  public String getLivyYarnMode() {
     checkCache();
     return LIVY_YARN_MODE;
   }
@@ -915,87 +1005,96 @@ public class Settings implements Serializable {
 
   // Kibana
   public static final String KIBANA_DEFAULT_INDEX = "hopsdefault";
-  private String KIBANA_IP = "10.0.2.15";
+  private static final String DEFAULT_KIBANA_IP = "10.0.2.15";
   public static final int KIBANA_PORT = 5601;
 
-  public synchronized String getKibanaUri() {
-    checkCache();
-    return "http://" + KIBANA_IP + ":" + KIBANA_PORT;
+  public String getKibanaUri() {
+    return "http://" + getValues().KIBANA_IP + ":" + KIBANA_PORT;
   }
 
   // Zookeeper 
-  private String ZK_IP = "10.0.2.15";
+  private static final String DEFAULT_ZK_IP = "10.0.2.15";
 
-  public synchronized String getZkConnectStr() {
-    checkCache();
-    return ZK_IP + ":" + ZK_PORT;
+  public String getZkConnectStr() {
+    return getValues().ZK_IP + ":" + ZK_PORT;
   }
 
-  private String ZK_USER = "zk";
+  private static final String DEFAULT_ZK_USER = "zk";
 
-  public synchronized String getZkUser() {
-    checkCache();
-    return ZK_USER;
+  public String getZkUser() {
+    return getValues().ZK_USER;
   }
 
   // Zeppelin
-  private String ZEPPELIN_DIR = "/srv/hops/zeppelin";
+  private static final String DEFAULT_ZEPPELIN_DIR = "/srv/hops/zeppelin";
 
-  public synchronized String getZeppelinDir() {
-    checkCache();
-    return ZEPPELIN_DIR;
+  public String getZeppelinDir() {
+    return getValues().ZEPPELIN_DIR;
   }
 
-  private String ZEPPELIN_PROJECTS_DIR = "/srv/hops/zeppelin/Projects";
+  private static final String DEFAULT_ZEPPELIN_PROJECTS_DIR = "/srv/hops/zeppelin/Projects";
 
-  public synchronized String getZeppelinProjectsDir() {
-    checkCache();
-    return ZEPPELIN_PROJECTS_DIR;
+  public String getZeppelinProjectsDir() {
+    return getValues().ZEPPELIN_PROJECTS_DIR;
   }
 
-  private long ZEPPELIN_SYNC_INTERVAL = 24 * 60 * 60 * 1000;
+  private static final long DEFAULT_ZEPPELIN_SYNC_INTERVAL = 24 * 60 * 60 * 1000;
 
-  public synchronized long getZeppelinSyncInterval() {
-    checkCache();
-    return ZEPPELIN_SYNC_INTERVAL;
+  public long getZeppelinSyncInterval() {
+    return getValues().ZEPPELIN_SYNC_INTERVAL;
+  }
+
+  private static final long DEFAULT_ZEPPELIN_OUTPUT_COALESCE_MS = 100;
+
+  /**
+   * @return how long paragraph output is collected before it is sent to the
+   * browsers, 0 sends every output delta on its own
+   */
+  public long getZeppelinOutputCoalesceMs() {
+    return getValues().ZEPPELIN_OUTPUT_COALESCE_MS;
+  }
+
+  private static final int DEFAULT_ZEPPELIN_OUTPUT_MAX_PENDING_BYTES = 1024 * 1024;
+
+  /**
+   * @return the amount of paragraph output of a note that may wait to be sent,
+   * output beyond it is dropped until the next send
+   */
+  public int getZeppelinOutputMaxPendingBytes() {
+    return getValues().ZEPPELIN_OUTPUT_MAX_PENDING_BYTES;
   }
 
   // Jupyter
-  private String JUPYTER_DIR = "/srv/hops/jupyter";
+  private static final String DEFAULT_JUPYTER_DIR = "/srv/hops/jupyter";
 
-  public synchronized String getJupyterDir() {
-    checkCache();
-    return JUPYTER_DIR;
+  public String getJupyterDir() {
+    return getValues().JUPYTER_DIR;
   }
 
   // Kafka
-  private String KAFKA_IP = "10.0.2.15";
+  private static final String DEFAULT_KAFKA_IP = "10.0.2.15";
   public static final int KAFKA_PORT = 9091;
 
-  public synchronized String getKafkaConnectStr() {
-    checkCache();
-    return KAFKA_IP + ":" + KAFKA_PORT;
+  public String getKafkaConnectStr() {
+    return getValues().KAFKA_IP + ":" + KAFKA_PORT;
   }
 
-  private String KAFKA_USER = "kafka";
+  private static final String DEFAULT_KAFKA_USER = "kafka";
 
-  public synchronized String getKafkaUser() {
-    checkCache();
-    return KAFKA_USER;
+  public String getKafkaUser() {
+    return getValues().KAFKA_USER;
   }
 
-  private String KAFKA_DIR = "/srv/kafka";
+  private static final String DEFAULT_KAFKA_DIR = "/srv/kafka";
 
-  public synchronized String getKafkaDir() {
-    checkCache();
-    return KAFKA_DIR;
+  public String getKafkaDir() {
+    return getValues().KAFKA_DIR;
   }
 
-  private String ANACONDA_DIR = "/srv/hops/anaconda/anaconda";
+  private static final String DEFAULT_ANACONDA_DIR = "/srv/hops/anaconda/anaconda";
 
-  public synchronized String getAnacondaDir() {
-    checkCache();
-    return ANACONDA_DIR;
+  public String getAnacondaDir() {
+    return getValues().ANACONDA_DIR;
   }
 
   /**
@@ -1009,109 +1108,97 @@ public class Settings implements Serializable {
             + projectName;
   }
 
-  private String ANACONDA_ENV = "kagent";
+  private static final String DEFAULT_ANACONDA_ENV = "kagent";
 
-  public synchronized String getAnacondaEnv() {
-    checkCache();
-    return ANACONDA_ENV;
+  public String getAnacondaEnv() {
+    return getValues().ANACONDA_ENV;
   }
 
-  private Boolean ANACONDA_INSTALLED = false;
+  private static final Boolean DEFAULT_ANACONDA_INSTALLED = false;
 
-  public synchronized Boolean isAnacondaInstalled() {
-    checkCache();
-    return ANACONDA_INSTALLED;
+  public Boolean isAnacondaInstalled() {
+    return getValues().ANACONDA_INSTALLED;
   }
 
 //  private String CONDA_CHANNEL_URL = "https://repo.continuum.io/pkgs/free/linux-64/";
   private String CONDA_CHANNEL_URL = "default";
 
-  public synchronized String getCondaChannelUrl() {
+  public String getCondaChannelUrl() {
     checkCache();
     return CONDA_CHANNEL_URL;
   }
 
-  private String GVOD_REST_ENDPOINT = "http://10.0.2.15:42000";
+  private static final String DEFAULT_GVOD_REST_ENDPOINT = "http://10.0.2.15:42000";
 
-  public synchronized String getGVodRestEndpoint() {
-    checkCache();
-    return GVOD_REST_ENDPOINT;
+  public String getGVodRestEndpoint() {
+    return getValues().GVOD_REST_ENDPOINT;
   }
 
-  private String PUBLIC_SEARCH_ENDPOINT
+  private static final String DEFAULT_PUBLIC_SEARCH_ENDPOINT
           = "http://10.0.2.15:8080/hopsworks-web-api/api/elastic/publicdatasets/";
 
-  public synchronized String getPublicSearchEndpoint() {
-    checkCache();
-    return PUBLIC_SEARCH_ENDPOINT;
+  public String getPublicSearchEndpoint() {
+    return getValues().PUBLIC_SEARCH_ENDPOINT;
   }
 
-  private int REST_PORT = 8080;
+  private static final int DEFAULT_REST_PORT = 8080;
 
-  public synchronized int getRestPort() {
-    checkCache();
-    return REST_PORT;
+  public int getRestPort() {
+    return getValues().REST_PORT;
   }
 
-  private String HOPSWORKS_REST_ENDPOINT = "http://192.168.56.101:8080";
+  private static final String DEFAULT_HOPSWORKS_REST_ENDPOINT = "http://192.168.56.101:8080";
 
   /**
    * Generates the Endpoint for kafka.
    *
    * @return
    */
-  public synchronized String getRestEndpoint() {
-    checkCache();
-    return "http://" + HOPSWORKS_REST_ENDPOINT;
+  public String getRestEndpoint() {
+    return "http://" + getValues().HOPSWORKS_REST_ENDPOINT;
   }
 
-  private String HOPSWORKS_DEFAULT_SSL_MASTER_PASSWORD = "adminpw";
+  private static final String DEFAULT_HOPSWORKS_DEFAULT_SSL_MASTER_PASSWORD = "adminpw";
 
-  public synchronized String getHopsworksMasterPasswordSsl() {
-    checkCache();
-    return HOPSWORKS_DEFAULT_SSL_MASTER_PASSWORD;
+  public String getHopsworksMasterPasswordSsl() {
+    return getValues().HOPSWORKS_DEFAULT_SSL_MASTER_PASSWORD;
   }
 
-  private String GLASSFISH_CERT_GENERATED = "false";
+  private static final String DEFAULT_GLASSFISH_CERT_GENERATED = "false";
 
-  public synchronized boolean isGlassfishCertGenerated() {
-    checkCache();
-    return Boolean.parseBoolean(GLASSFISH_CERT_GENERATED);
+  public boolean isGlassfishCertGenerated() {
+    return Boolean.parseBoolean(getValues().GLASSFISH_CERT_GENERATED);
   }
 
-  private String KAFKA_DEFAULT_NUM_PARTITIONS = "2";
-  private String KAFKA_DEFAULT_NUM_REPLICAS = "1";
+  private static final String DEFAULT_KAFKA_DEFAULT_NUM_PARTITIONS = "2";
+  private static final String DEFAULT_KAFKA_DEFAULT_NUM_REPLICAS = "1";
 
-  public synchronized String getKafkaDefaultNumPartitions() {
-    checkCache();
-    return KAFKA_DEFAULT_NUM_PARTITIONS;
+  public String getKafkaDefaultNumPartitions() {
+    return getValues().KAFKA_DEFAULT_NUM_PARTITIONS;
   }
 
-  public synchronized String getKafkaDefaultNumReplicas() {
-    checkCache();
-    return KAFKA_DEFAULT_NUM_REPLICAS;
+  public String getKafkaDefaultNumReplicas() {
+    return getValues().KAFKA_DEFAULT_NUM_REPLICAS;
   }
 
-  private String ZK_DIR = "/srv/zookeeper";
+  private static final String DEFAULT_ZK_DIR = "/srv/zookeeper";
 
-  public synchronized String getZkDir() {
-    checkCache();
-    return ZK_DIR;
+  public String getZkDir() {
+    return getValues().ZK_DIR;
   }
 
   // Dr Elephant
-  private String DRELEPHANT_IP = "127.0.0.1";
-  private String DRELEPHANT_DB = "hopsworks";
-  public static int DRELEPHANT_PORT = 11000;
+  private static final String DEFAULT_DRELEPHANT_IP = "127.0.0.1";
+  private static final String DEFAULT_DRELEPHANT_DB = "hopsworks";
+  private static final int DEFAULT_DRELEPHANT_PORT = 11000;
 
-  public synchronized String getDrElephantUrl() {
-    checkCache();
-    return "http://" + DRELEPHANT_IP + ":" + DRELEPHANT_PORT;
+  public String getDrElephantUrl() {
+    Values values = getValues();
+    return "http://" + values.DRELEPHANT_IP + ":" + values.DRELEPHANT_PORT;
   }
 
-  public synchronized String getDrElephantDb() {
-    checkCache();
-    return DRELEPHANT_DB;
+  public String getDrElephantDb() {
+    return getValues().DRELEPHANT_DB;
   }
 
   // Hopsworks
@@ -1177,8 +1264,8 @@ public class Settings implements Serializable {
   public static final String ELASTIC_ENDPOINT_ENV_VAR
           = "hopsworks.elastic.endpoint";
 
-  public static int FILE_PREVIEW_IMAGE_SIZE = 10000000;
-  public static int FILE_PREVIEW_TXT_SIZE = 100;
+  private static final int DEFAULT_FILE_PREVIEW_IMAGE_SIZE = 10000000;
+  private static final int DEFAULT_FILE_PREVIEW_TXT_SIZE = 100;
   public static int FILE_PREVIEW_TXT_SIZE_BYTES = 1024 * 128;
   public static int FILE_PREVIEW_TXT_SIZE_BYTES_README = 1024 * 512;
   public static String README_TEMPLATE = "*This is an auto-generated README.md"
@@ -1213,9 +1300,8 @@ public class Settings implements Serializable {
    *
    * @return
    */
-  public synchronized int getFilePreviewImageSize() {
-    checkCache();
-    return FILE_PREVIEW_IMAGE_SIZE;
+  public int getFilePreviewImageSize() {
+    return getValues().FILE_PREVIEW_IMAGE_SIZE;
   }
 
   /**
@@ -1225,29 +1311,26 @@ public class Settings implements Serializable {
    *
    * @return
    */
-  public synchronized int getFilePreviewTxtSize() {
-    checkCache();
-    return FILE_PREVIEW_TXT_SIZE;
+  public int getFilePreviewTxtSize() {
+    return getValues().FILE_PREVIEW_TXT_SIZE;
   }
 
-  public static String INFLUXDB_IP = "localhost";
-  public static String INFLUXDB_PORT = "8086";
-  public static String INFLUXDB_USER = "hopsworks";
-  public static String INFLUXDB_PW = "hopsworks";
+  private static final String DEFAULT_INFLUXDB_IP = "localhost";
+  private static final String DEFAULT_INFLUXDB_PORT = "8086";
+  private static final String DEFAULT_INFLUXDB_USER = "hopsworks";
+  private static final String DEFAULT_INFLUXDB_PW = "hopsworks";
 
-  public synchronized String getInfluxDBAddress() {
-    checkCache();
-    return "http://" + INFLUXDB_IP + ":" + INFLUXDB_PORT;
+  public String getInfluxDBAddress() {
+    Values values = getValues();
+    return "http://" + values.INFLUXDB_IP + ":" + values.INFLUXDB_PORT;
   }
 
-  public synchronized String getInfluxDBUser() {
-    checkCache();
-    return INFLUXDB_USER;
+  public String getInfluxDBUser() {
+    return getValues().INFLUXDB_USER;
   }
 
-  public synchronized String getInfluxDBPW() {
-    checkCache();
-    return INFLUXDB_PW;
+  public String getInfluxDBPW() {
+    return getValues().INFLUXDB_PW;
   }
 
   //Project creation: default datasets
@@ -1277,18 +1360,16 @@ public class Settings implements Serializable {
 
   }
 
-  public int VAGRANT_ENABLED = 0;
+  private static final int DEFAULT_VAGRANT_ENABLED = 0;
 
-  public synchronized boolean getVagrantEnabled() {
-    checkCache();
-    return VAGRANT_ENABLED == 1;
+  public boolean getVagrantEnabled() {
+    return getValues().VAGRANT_ENABLED == 1;
   }
 
-  public String RESOURCE_DIRS = ".sparkStaging;spark-warehouse";
+  private static final String DEFAULT_RESOURCE_DIRS = ".sparkStaging;spark-warehouse";
 
-  public synchronized String getResourceDirs() {
-    checkCache();
-    return RESOURCE_DIRS;
+  public String getResourceDirs() {
+    return getValues().RESOURCE_DIRS;
   }
 
   public Settings() {
@@ -1387,11 +1468,22 @@ public class Settings implements Serializable {
     }
   }
 
-  public int MAX_STATUS_POLL_RETRY = 5;
+  private static final int DEFAULT_MAX_STATUS_POLL_RETRY = 5;
 
-  public synchronized int getMaxStatusPollRetry() {
-    checkCache();
-    return MAX_STATUS_POLL_RETRY;
+  public int getMaxStatusPollRetry() {
+    return getValues().MAX_STATUS_POLL_RETRY;
+  }
+
+  private static final Boolean DEFAULT_UPLOAD_DIRECT_TO_HDFS = false;
+
+  /**
+   * If true, uploaded chunks are appended straight to the destination file in
+   * HDFS instead of being staged on the local disk first.
+   *
+   * @return
+   */
+  public Boolean isUploadDirectToHdfs() {
+    return getValues().UPLOAD_DIRECT_TO_HDFS;
   }
 
   /**
@@ -0,0 +1,39 @@
+package io.hops.hopsworks.common.util;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Helpers to run work once the current transaction is over, for caches that
+ * must not be refilled with data that is about to change.
+ */
+public final class TransactionHooks {
+
+  private TransactionHooks() {
+  }
+
+  /**
+   * Run an action once the current transaction commits or rolls back, or
+   * right away if there is no active transaction.
+   * <p/>
+   * @param registry
+   * @param action
+   */
+  public static void afterCompletion(TransactionSynchronizationRegistry registry, final Runnable action) {
+    if (registry == null || registry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+      action.run();
+      return;
+    }
+    registry.registerInterposedSynchronization(new Synchronization() {
+      @Override
+      public void beforeCompletion() {
+      }
+
+      @Override
+      public void afterCompletion(int status) {
+        action.run();
+      }
+    });
+  }
+}
@@ -31,6 +31,8 @@ angular.module('hopsWorksApp')
 
 
             self.dir_timing;
+            var DIR_PAGE_SIZE = 1000; //Number of entries fetched per request when listing a directory.
+            var dirLoad = 0; //Incremented for every listing, so that pages of an earlier listing are dropped.
 
             self.isPublic = undefined;
             self.shared = undefined;
@@ -131,11 +133,13 @@ angular.module('hopsWorksApp')
             self.getAllDatasets = function () {
               //Get the path for an empty patharray: will get the datasets
               var path = getPath([]);
-              dataSetService.getContents(path).then(
+              var load = ++dirLoad;
+              dataSetService.getContentsPage(path, DIR_PAGE_SIZE).then(
                       function (success) {
                         self.files = success.data;
                         self.pathArray = [];
                         console.log(success);
+                        loadRemainingPages(path, load, success);
                       }, function (error) {
                 console.log("Error getting all datasets in project " + self.projectId);
                 console.log(error);
@@ -143,6 +147,31 @@ angular.module('hopsWorksApp')
             };
 
 
+            /**
+             * Append the remaining pages of a directory listing to the files, fetching one page at a time.
+             * @param {type} path the path of the directory
+             * @param {type} load the listing the pages belong to
+             * @param {type} response the response with the previous page
+             * @returns {undefined}
+             */
+            var loadRemainingPages = function (path, load, response) {
+              var cursor = response.headers('X-Next-Cursor');
+              if (!cursor || load !== dirLoad) {
+                return;
+              }
+              dataSetService.getContentsPage(path, DIR_PAGE_SIZE, decodeURIComponent(cursor)).then(
+                      function (success) {
+                        if (load !== dirLoad) {
+                          return;
+                        }
+                        self.files = self.files.concat(success.data);
+                        loadRemainingPages(path, load, success);
+                      }, function (error) {
+                console.log("Error getting the contents of the path " + path);
+                console.log(error);
+              });
+            };
+
             /**
              * Get the contents of the directory at the path with the given path components and load it into the frontend.
              * @param {type} The array of path compontents to fetch. If empty, fetches the current path.
@@ -163,8 +192,9 @@ angular.module('hopsWorksApp')
               self.files = [];
               self.working = true;
               self.dir_timing = new Date().getTime();
-              //Get the contents and load them
-              dataSetService.getContents(newPath).then(
+              var load = ++dirLoad;
+              //Get the contents and load them, the first page is shown while the others are fetched
+              dataSetService.getContentsPage(newPath, DIR_PAGE_SIZE).then(
                       function (success) {
                         //Clear any selections
                         self.all_selected = false;
@@ -184,6 +214,7 @@ angular.module('hopsWorksApp')
                           self.getFile(filePathArray);
                           $rootScope.selectedFile = undefined;
                         }
+                        loadRemainingPages(newPath, load, success);
                       }, function (error) {
                 if (error.data.errorMsg.indexOf("Path is not a directory.") > -1) {
                   var popped = newPathArray.pop();
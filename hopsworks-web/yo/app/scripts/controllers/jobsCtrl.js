@@ -24,6 +24,12 @@ angular.module('hopsWorksApp')
             self.currentToggledIndex = -1;
             self.fetchingLogs = 0;
             self.loadingLog = 0;
+            // Logs are read in windows, earlier parts are loaded on demand
+            var LOG_WINDOW_BYTES = 64 * 1024;
+            // How long a request following a running log waits for it to grow
+            var LOG_TAIL_WAIT_SECONDS = 30;
+            // The log being followed, only one at a time
+            var tailedLog;
             $scope.pageSize = 10;
             $scope.sortKey = 'creationTime';
             $scope.reverse = true;
@@ -340,6 +346,105 @@ angular.module('hopsWorksApp')
               if (!(job[type] === undefined || job[type] === null)) {
                 return;
               }
+              self.loadingLog = 1;
+              JobService.getLogWindow(self.projectId, job.appId, type, -1, LOG_WINDOW_BYTES).then(
+                  function (success) {
+                    self.loadingLog = 0;
+                    var logWindow = success.data;
+                    if (logWindow.available) {
+                      job[type] = logWindow.data;
+                      job[type + 'Window'] = {offset: logWindow.offset, nextOffset: logWindow.nextOffset};
+                    }
+                    if (!logWindow.finished) {
+                      if (!logWindow.available) {
+                        job[type] = "Waiting for the log...";
+                      }
+                      tailLog(job, type);
+                    } else if (!logWindow.available || logWindow.size === 0) {
+                      getWholeLog(job, type);
+                    }
+                  }, function (error) {
+                    self.loadingLog = 0;
+                    growl.error(error.data.errorMsg, {title: 'Failed to get logs', ttl: 5000});
+              });
+            };
+
+            /**
+             * Prepend the window of the log before the part already shown.
+             */
+            self.loadEarlierLog = function (job, type) {
+              var shown = job[type + 'Window'];
+              if (shown === undefined || shown.offset <= 0) {
+                return;
+              }
+              var offset = Math.max(0, shown.offset - LOG_WINDOW_BYTES);
+              self.loadingLog = 1;
+              JobService.getLogWindow(self.projectId, job.appId, type, offset, shown.offset - offset).then(
+                  function (success) {
+                    self.loadingLog = 0;
+                    job[type] = success.data.data + job[type];
+                    shown.offset = success.data.offset;
+                  }, function (error) {
+                    self.loadingLog = 0;
+                    growl.error(error.data.errorMsg, {title: 'Failed to get logs', ttl: 5000});
+              });
+            };
+
+            /**
+             * Append to the log of a running job as it grows, until the job
+             * finishes or another log is followed.
+             */
+            var tailLog = function (job, type) {
+              var key = job.appId + '/' + type;
+              tailedLog = key;
+              var follow = function () {
+                if (tailedLog !== key) {
+                  return;
+                }
+                var shown = job[type + 'Window'];
+                var offset = shown === undefined ? -1 : shown.nextOffset;
+                JobService.getLogWindow(self.projectId, job.appId, type, offset, LOG_WINDOW_BYTES,
+                    LOG_TAIL_WAIT_SECONDS).then(
+                    function (success) {
+                      if (tailedLog !== key) {
+                        return;
+                      }
+                      var logWindow = success.data;
+                      var grew = false;
+                      if (logWindow.available) {
+                        if (shown === undefined) {
+                          job[type] = logWindow.data;
+                          job[type + 'Window'] = {offset: logWindow.offset, nextOffset: logWindow.nextOffset};
+                        } else {
+                          job[type] = job[type] + logWindow.data;
+                          shown.nextOffset = logWindow.nextOffset;
+                        }
+                        grew = logWindow.data.length > 0;
+                      }
+                      if (logWindow.finished) {
+                        tailedLog = undefined;
+                        return;
+                      }
+                      // the server answers right away when the log has more than one window to send
+                      if (grew) {
+                        follow();
+                      } else {
+                        $timeout(follow, 2000);
+                      }
+                    }, function (error) {
+                      if (tailedLog === key) {
+                        tailedLog = undefined;
+                      }
+                });
+              };
+              follow();
+            };
+
+            /**
+             * Get the whole log, for the retry and link information of logs
+             * that are missing or too big to display.
+             */
+            var getWholeLog = function (job, type) {
               self.loadingLog = 1;
               JobService.getLog(self.projectId, job.appId, type).then(
                   function (success) {
@@ -453,6 +558,7 @@ angular.module('hopsWorksApp')
              * Close the poller if the controller is destroyed.
              */
             $scope.$on('$destroy', function () {
+              tailedLog = undefined;
               $interval.cancel(self.poller);
             });
 
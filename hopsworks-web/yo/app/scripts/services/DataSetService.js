@@ -23,6 +23,21 @@ angular.module('hopsWorksApp')
                 getContents: function (relativePath) {
                   return $http.get('/api/project/' + id + '/dataset/getContent/' + relativePath);
                 },
+                /**
+                 * Get one page of the contents of a folder, ordered by name. The cursor of
+                 * the next page is returned URL-encoded in the X-Next-Cursor header, and is
+                 * passed back decoded with decodeURIComponent.
+                 * @param {type} relativePath
+                 * @param {type} limit maximum number of entries
+                 * @param {type} after cursor of the page, undefined for the first one
+                 * @param {type} sort asc or desc
+                 * @param {type} filter only entries whose name contains it
+                 * @returns {unresolved}
+                 */
+                getContentsPage: function (relativePath, limit, after, sort, filter) {
+                  return $http.get('/api/project/' + id + '/dataset/getContent/' + relativePath,
+                          {params: {limit: limit, after: after, sort: sort, filter: filter}});
+                },
                 /**
                  * Checks the existence of a file. Should be caled before fileDownload.
                  * @param {type} fileName is a path relative to the current ds to the file
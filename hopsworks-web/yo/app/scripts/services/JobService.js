@@ -190,6 +190,20 @@ angular.module('hopsWorksApp')
               getLog: function (projectId, jobId, type) {
                 return $http.get('/api/project/' + projectId + '/jobs/getLog/' + jobId + '/' + type);
               },
+              /**
+               * Get a window of the log for the appId
+               * @param {type} projectId
+               * @param {type} appId
+               * @param {type} type
+               * @param {type} offset byte offset to read from, negative to read the end of the log
+               * @param {type} length maximum number of bytes to read
+               * @param {type} wait seconds to wait for the log to grow past offset
+               * @returns {unresolved}
+               */
+              getLogWindow: function (projectId, appId, type, offset, length, wait) {
+                return $http.get('/api/project/' + projectId + '/jobs/getLog/' + appId + '/' + type + '/window',
+                        {params: {offset: offset, length: length, wait: wait}});
+              },
               /**
                * Retrieve the logs associated to a certain job.
                * @param {type} projectId